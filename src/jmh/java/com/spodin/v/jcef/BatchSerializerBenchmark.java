@@ -0,0 +1,70 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares serialization of a large list of events one by one with the parallel batch
+ * serialization.
+ *
+ * @author spodin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchSerializerBenchmark {
+
+    private static final OutputStream NULL_STREAM = OutputStream.nullOutputStream();
+
+    @Param({"100000"})
+    private int count;
+
+    private List<CefEvent> events;
+    private StdCefSerializer serializer;
+    private CefBatchSerializer batchSerializer;
+
+    @Setup
+    public void setUp() {
+        events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(BenchmarkEvents.create(i % 10 == 0, i % 7 == 0));
+        }
+        serializer = new StdCefSerializer();
+        batchSerializer = CefBatchSerializer.builder().build();
+    }
+
+    @Benchmark
+    public long serializeOneByOne() throws IOException {
+        long written = 0;
+        for (CefEvent event : events) {
+            final byte[] bytes = (serializer.serialize(event) + '\n')
+                .getBytes(StandardCharsets.UTF_8);
+            NULL_STREAM.write(bytes);
+            written += bytes.length;
+        }
+        return written;
+    }
+
+    @Benchmark
+    public long serializeAll() throws IOException {
+        return batchSerializer.serializeAll(events, NULL_STREAM);
+    }
+}
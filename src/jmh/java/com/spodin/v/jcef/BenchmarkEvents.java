@@ -0,0 +1,63 @@
+package com.spodin.v.jcef;
+
+/**
+ * CEF events used by benchmarks.
+ *
+ * @author spodin
+ */
+final class BenchmarkEvents {
+
+    private static final Device DEVICE = Device.builder()
+        .vendor("iPlatform")
+        .product("USO")
+        .version("1.0")
+        .build();
+
+    private static final Device ESCAPED_DEVICE = Device.builder()
+        .vendor("i|Platform")
+        .product("USO\\Gateway")
+        .version("1.0")
+        .build();
+
+    private BenchmarkEvents() {
+    }
+
+    /**
+     * Creates event.
+     *
+     * @param large whether event should have large extension with long values
+     * @param escaped whether event values should contain characters, which have to be escaped
+     * @return CEF event
+     */
+    static CefEvent create(boolean large, boolean escaped) {
+        final Extension.Builder extension = Extension.builder()
+            .add("src", "10.91.161.67")
+            .add("spt", "51234")
+            .add("dst", "10.91.161.1")
+            .add("dpt", "443")
+            .add("act", (escaped ? "blocked=true" : "blocked"))
+            .add("rt", "1642504073000");
+
+        if (large) {
+            final String text = (escaped ? "line one\nline two key=value " : "line one line two ");
+            extension
+                .add("msg", text.repeat(32))
+                .add("request", "https://example.com/index.html?q=" + "a".repeat(256))
+                .add("requestClientApplication", "Mozilla/5.0 (X11; Linux x86_64)")
+                .add("suser", "admin")
+                .add("duser", "guest")
+                .add("cs1Label", "policy")
+                .add("cs1", (escaped ? "allow=false\r\n" : "allow-false"))
+                .add("customKey", "custom value")
+                .add("fname", "report.pdf")
+                .add("fsize", "1048576");
+        }
+
+        return CefEvent.builder()
+            .device(escaped ? ESCAPED_DEVICE : DEVICE)
+            .eventId(EventId.of("100", (escaped ? "Access|denied" : "Access denied")))
+            .severity(7)
+            .extension(extension.build())
+            .build();
+    }
+}
@@ -0,0 +1,187 @@
+package com.spodin.v.jcef;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a stream of events encoded by {@link BinaryCefEncoder} with the same events serialized
+ * as CEF text lines and compressed with gzip, either as a whole stream or each event on its own as
+ * a queue message, in both directions. Encoded sizes of all the forms are printed on setup.
+ *
+ * <p>Events come from a few devices and event classes, with typed addresses, ports and timestamps,
+ * and values varying from event to event, so that gzip does not get the stream of identical
+ * events of {@link BenchmarkEvents}.</p>
+ *
+ * @author spodin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryCodecBenchmark {
+
+    @Param({"10000"})
+    private int count;
+
+    private List<CefEvent> events;
+    private StdCefSerializer serializer;
+    private CefParser parser;
+    private BinaryCefEncoder encoder;
+    private BinaryCefDecoder decoder;
+    private ByteBuffer buffer;
+    private ByteArrayOutputStream stream;
+    private ByteBuffer encoded;
+    private byte[] compressed;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Random random = new Random(42);
+        events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(event(i, random));
+        }
+        serializer = new StdCefSerializer();
+        parser = new CefParser();
+        encoder = new BinaryCefEncoder();
+        decoder = new BinaryCefDecoder();
+        buffer = ByteBuffer.allocate(count * 4096);
+        stream = new ByteArrayOutputStream(count * 4096);
+
+        encodeBinary();
+        encoded = ByteBuffer.allocate(buffer.position()).put(buffer.flip()).flip();
+        textGzip();
+        compressed = stream.toByteArray();
+
+        long text = 0;
+        for (CefEvent event : events) {
+            text += serializer.serialize(event).getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        final long messages = textGzipEach();
+        System.out.printf(
+            "%nbytes per event: text %d, gzip stream %d, gzip message %d, binary %d%n",
+            text / count, compressed.length / count, messages / count, encoded.remaining() / count);
+    }
+
+    @Benchmark
+    public int encodeBinary() {
+        encoder.reset();
+        buffer.clear();
+        for (CefEvent event : events) {
+            encoder.serializeTo(event, buffer);
+        }
+        return buffer.position();
+    }
+
+    @Benchmark
+    public int textGzip() throws IOException {
+        stream.reset();
+        try (OutputStream out = new GZIPOutputStream(stream, 8192)) {
+            buffer.clear();
+            for (CefEvent event : events) {
+                serializer.serializeTo(event, buffer);
+                buffer.put((byte) '\n');
+            }
+            out.write(buffer.array(), 0, buffer.position());
+        }
+        return stream.size();
+    }
+
+    @Benchmark
+    public long textGzipEach() throws IOException {
+        long size = 0;
+        for (CefEvent event : events) {
+            stream.reset();
+            try (OutputStream out = new GZIPOutputStream(stream, 512)) {
+                buffer.clear();
+                serializer.serializeTo(event, buffer);
+                out.write(buffer.array(), 0, buffer.position());
+            }
+            size += stream.size();
+        }
+        return size;
+    }
+
+    @Benchmark
+    public int decodeBinary() {
+        decoder.reset();
+        final ByteBuffer in = encoded.duplicate();
+        int decoded = 0;
+        while (in.hasRemaining()) {
+            decoder.decode(in);
+            decoded++;
+        }
+        return decoded;
+    }
+
+    @Benchmark
+    public int gunzipParse() throws IOException {
+        int decoded = 0;
+        try (Reader in = new InputStreamReader(
+            new GZIPInputStream(new ByteArrayInputStream(compressed), 8192),
+            StandardCharsets.UTF_8); BufferedReader lines = new BufferedReader(in)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                parser.parse(line);
+                decoded++;
+            }
+        }
+        return decoded;
+    }
+
+    private static CefEvent event(int number, Random random) {
+        final int device = random.nextInt(4);
+        final int eventClass = random.nextInt(16);
+        final Extension.Builder extension = Extension.builder()
+            .addIp("src", new byte[] {10, 91, (byte) random.nextInt(256),
+                (byte) random.nextInt(256)})
+            .add("spt", 1024 + random.nextInt(64000))
+            .addIp("dst", new byte[] {10, 91, (byte) 161, (byte) random.nextInt(256)})
+            .add("dpt", (random.nextBoolean() ? 443 : 80))
+            .add("act", (random.nextInt(8) == 0 ? "blocked" : "allowed"))
+            .addTimestamp("rt", 1_642_504_073_000L + number * 10L + random.nextInt(10))
+            .add("suser", "user" + random.nextInt(1000))
+            .add("cnt", random.nextInt(100));
+        if (number % 10 == 0) {
+            extension
+                .add("request", "https://example.com/api/v1/items/" + random.nextInt(1_000_000))
+                .add("msg", "Request " + Long.toHexString(random.nextLong()) + " processed in "
+                    + random.nextInt(5000) + " ms");
+        }
+        return CefEvent.builder()
+            .device(Device.builder()
+                .vendor("Vendor " + device)
+                .product("Product " + device)
+                .version("1." + device)
+                .build())
+            .eventId(EventId.of("event_" + eventClass, "Event class " + eventClass))
+            .severity(eventClass % 11)
+            .extension(extension.build())
+            .build();
+    }
+}
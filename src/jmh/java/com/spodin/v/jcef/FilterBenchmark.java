@@ -0,0 +1,95 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares filtering of raw lines by {@link CefFilter} with parsing lines first and filtering the
+ * events, both for a line rejected by the prefix and for a line matching all conditions, which
+ * requires scanning of the extension.
+ *
+ * @author spodin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+
+    @Param({"false", "true"})
+    private boolean large;
+
+    @Param({"false", "true"})
+    private boolean matching;
+
+    private String line;
+    private ByteBuffer bytes;
+    private CefParser parser;
+    private CefFilter filter;
+    private String vendor;
+    private String action;
+
+    @Setup
+    public void setUp() {
+        line = new StdCefSerializer().serialize(BenchmarkEvents.create(large, false));
+        bytes = ByteBuffer.allocateDirect(line.length() * 3);
+        bytes.put(line.getBytes(StandardCharsets.UTF_8)).flip();
+        parser = new CefParser();
+
+        vendor = (matching ? "iPlatform" : "Acme");
+        action = "blocked";
+        filter = CefFilter.builder()
+            .vendor(vendor)
+            .minSeverity(7)
+            .extension("act", action)
+            .build();
+    }
+
+    @Benchmark
+    public boolean parseAndFilter() {
+        return matches(parser.parse(line));
+    }
+
+    @Benchmark
+    public boolean parseBytesAndFilter() {
+        return matches(parser.parse(bytes));
+    }
+
+    @Benchmark
+    public boolean parseLazilyAndFilter() {
+        final LazyCefEvent event = parser.parseLazily(line);
+        return event.getVendor().equals(vendor)
+            && Severity.level(event.getSeverity()) >= 7
+            && action.equals(event.getExtensionValue("act"));
+    }
+
+    @Benchmark
+    public boolean filter() {
+        return filter.matches(line);
+    }
+
+    @Benchmark
+    public boolean filterBytes() {
+        return filter.matches(bytes);
+    }
+
+    private boolean matches(CefEvent event) {
+        return event.getDevice().getVendor().equals(vendor)
+            && Severity.level(event.getSeverity()) >= 7
+            && action.equals(event.getExtension().get("act"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serialization to LEEF and JSON into reused buffers, and serialization of an event into
+ * CEF, LEEF and JSON by three serializers one after another compared with a single pass of
+ * {@link MultiFormatCefSerializer}. Run with {@code -Pjmh.profilers=gc} to check that nothing is
+ * allocated per event.
+ *
+ * @author spodin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FormatBenchmark {
+
+    @Param({"false", "true"})
+    private boolean large;
+
+    @Param({"false", "true"})
+    private boolean escaped;
+
+    private CefEvent event;
+    private StdCefSerializer cef;
+    private LeefCefSerializer leef;
+    private JsonCefSerializer json;
+    private MultiFormatCefSerializer multi;
+    private StringBuilder[] builders;
+    private ByteBuffer[] buffers;
+
+    @Setup
+    public void setUp() {
+        event = BenchmarkEvents.create(large, escaped);
+        cef = new StdCefSerializer();
+        leef = LeefCefSerializer.builder().build();
+        json = new JsonCefSerializer();
+        multi = MultiFormatCefSerializer.of(cef, leef, json);
+        builders = new StringBuilder[] {
+            new StringBuilder(8192), new StringBuilder(8192), new StringBuilder(8192)
+        };
+        buffers = new ByteBuffer[] {
+            ByteBuffer.allocateDirect(16384), ByteBuffer.allocateDirect(16384),
+            ByteBuffer.allocateDirect(16384)
+        };
+    }
+
+    @Benchmark
+    public StringBuilder leef() {
+        builders[0].setLength(0);
+        return leef.serializeTo(event, builders[0]);
+    }
+
+    @Benchmark
+    public StringBuilder json() {
+        builders[0].setLength(0);
+        return json.serializeTo(event, builders[0]);
+    }
+
+    @Benchmark
+    public boolean jsonBytes() {
+        buffers[0].clear();
+        return json.serializeTo(event, buffers[0]);
+    }
+
+    @Benchmark
+    public StringBuilder[] separate() {
+        for (StringBuilder builder : builders) {
+            builder.setLength(0);
+        }
+        cef.serializeTo(event, builders[0]);
+        leef.serializeTo(event, builders[1]);
+        json.serializeTo(event, builders[2]);
+        return builders;
+    }
+
+    @Benchmark
+    public StringBuilder[] multi() {
+        for (StringBuilder builder : builders) {
+            builder.setLength(0);
+        }
+        multi.serializeTo(event, builders);
+        return builders;
+    }
+
+    @Benchmark
+    public boolean separateBytes() {
+        for (ByteBuffer buffer : buffers) {
+            buffer.clear();
+        }
+        return cef.serializeTo(event, buffers[0]) && leef.serializeTo(event, buffers[1])
+            && json.serializeTo(event, buffers[2]);
+    }
+
+    @Benchmark
+    public boolean multiBytes() {
+        for (ByteBuffer buffer : buffers) {
+            buffer.clear();
+        }
+        return multi.serializeTo(event, buffers);
+    }
+}
@@ -0,0 +1,68 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures creation and serialization of an event per iteration, as logging code does, with
+ * immutable {@link CefEvent} and with reusable {@link MutableCefEvent}. Run with {@code
+ * -Pjmh.profilers=gc} to compare allocation rates.
+ *
+ * @author spodin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MutableEventBenchmark {
+
+    private final StdCefSerializer serializer = new StdCefSerializer();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+    private long counter;
+
+    @Benchmark
+    public boolean immutableEvent() {
+        final long sequence = counter++;
+        final CefEvent event = CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1.0").build())
+            .eventId(EventId.of("100", "Access denied"))
+            .severity(7)
+            .extension(Extension.builder()
+                .addIp("src", new byte[]{10, 91, (byte) 161, 67})
+                .add("spt", 51234)
+                .add("act", "blocked")
+                .add("cnt", sequence)
+                .addTimestamp("rt", 1642504073000L + sequence)
+                .build())
+            .build();
+        buffer.clear();
+        return serializer.serializeTo(event, buffer);
+    }
+
+    @Benchmark
+    public boolean mutableEvent() {
+        final long sequence = counter++;
+        final MutableCefEvent event = MutableCefEvent.local()
+            .device("iPlatform", "USO", "1.0")
+            .eventId("100", "Access denied")
+            .severity(7)
+            .addIp("src", new byte[]{10, 91, (byte) 161, 67})
+            .add("spt", 51234)
+            .add("act", "blocked")
+            .add("cnt", sequence)
+            .addTimestamp("rt", 1642504073000L + sequence);
+        buffer.clear();
+        return serializer.serializeTo(event, buffer);
+    }
+}
@@ -0,0 +1,74 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing throughput of complete and lazy parsing, from characters and from UTF-8
+ * bytes. Run with {@code -Pjmh.profilers=gc} to measure allocation rate as well.
+ *
+ * @author spodin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    private static final String SYSLOG_HEADER = "Jan 18 11:07:53 host ";
+
+    @Param({"false", "true"})
+    private boolean large;
+
+    @Param({"false", "true"})
+    private boolean escaped;
+
+    private String line;
+    private ByteBuffer bytes;
+    private CefParser parser;
+
+    @Setup
+    public void setUp() {
+        line = SYSLOG_HEADER + new StdCefSerializer().serialize(
+            BenchmarkEvents.create(large, escaped));
+        bytes = ByteBuffer.allocateDirect(line.length() * 3);
+        bytes.put(line.getBytes(StandardCharsets.UTF_8)).flip();
+        parser = new CefParser();
+    }
+
+    @Benchmark
+    public CefEvent parse() {
+        return parser.parse(line);
+    }
+
+    @Benchmark
+    public CefEvent parseBytes() {
+        return parser.parse(bytes);
+    }
+
+    @Benchmark
+    public String parseLazilyAndFilter() {
+        final LazyCefEvent event = parser.parseLazily(line);
+        return event.getVendor().equals("iPlatform") ? event.getExtensionValue("act") : null;
+    }
+
+    @Benchmark
+    public String parseLazilyBytesAndFilter() {
+        final LazyCefEvent event = parser.parseLazily(bytes);
+        return event.getVendor().equals("iPlatform") ? event.getExtensionValue("act") : null;
+    }
+}
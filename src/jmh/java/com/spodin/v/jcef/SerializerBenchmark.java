@@ -0,0 +1,105 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serialization throughput. Run with {@code -Pjmh.profilers=gc} to measure allocation
+ * rate as well.
+ *
+ * <p>Benchmarks annotated with {@link Threads} share serializer and prefix cache between threads
+ * to expose contention.</p>
+ *
+ * @author spodin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializerBenchmark {
+
+    private static final int CONTENDED_THREADS = 4;
+
+    @Param({"false", "true"})
+    private boolean large;
+
+    @Param({"false", "true"})
+    private boolean escaped;
+
+    private CefEvent event;
+    private StdCefSerializer serializer;
+    private StdCefSerializer cachingSerializer;
+
+    @Setup
+    public void setUp() {
+        event = BenchmarkEvents.create(large, escaped);
+        serializer = new StdCefSerializer();
+        cachingSerializer = new StdCefSerializer(new CefPrefixCache(1024));
+    }
+
+    @Benchmark
+    public String serialize() {
+        return serializer.serialize(event);
+    }
+
+    @Benchmark
+    public StringBuilder serializeToBuilder(Buffers buffers) {
+        buffers.builder.setLength(0);
+        return serializer.serializeTo(event, buffers.builder);
+    }
+
+    @Benchmark
+    public boolean serializeToDirectBuffer(Buffers buffers) {
+        buffers.buffer.clear();
+        return serializer.serializeTo(event, buffers.buffer);
+    }
+
+    @Benchmark
+    public StringBuilder serializeToBuilderWithPrefixCache(Buffers buffers) {
+        buffers.builder.setLength(0);
+        return cachingSerializer.serializeTo(event, buffers.builder);
+    }
+
+    @Benchmark
+    public boolean serializeToDirectBufferWithPrefixCache(Buffers buffers) {
+        buffers.buffer.clear();
+        return cachingSerializer.serializeTo(event, buffers.buffer);
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public String serializeContended() {
+        return serializer.serialize(event);
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public boolean serializeToDirectBufferWithPrefixCacheContended(Buffers buffers) {
+        buffers.buffer.clear();
+        return cachingSerializer.serializeTo(event, buffers.buffer);
+    }
+
+    /**
+     * Output buffers reused by a single thread.
+     */
+    @State(Scope.Thread)
+    public static class Buffers {
+
+        private final StringBuilder builder = new StringBuilder(4096);
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(16 * 1024);
+    }
+}
@@ -0,0 +1,41 @@
+package com.spodin.v.jcef;
+
+/**
+ * Parameters of a CEF event, which serializer writes. Implemented by immutable {@link CefEvent}
+ * and by reusable {@link MutableCefEvent}.
+ *
+ * @author spodin
+ */
+abstract class AbstractCefEvent {
+
+    abstract int getVersion();
+
+    abstract Device getDevice();
+
+    abstract EventId getEventId();
+
+    abstract String getSeverity();
+
+    /**
+     * Returns extension fields.
+     *
+     * @return extension fields, never {@code null}
+     */
+    abstract AbstractExtension getExtensionFields();
+
+    /**
+     * Validates event parameters.
+     *
+     * @param version CEF version
+     * @param device device
+     * @param eventId event identifier
+     * @param severity event severity
+     * @throws IllegalArgumentException on missing or illegal parameters
+     */
+    static void validate(int version, Device device, EventId eventId, String severity) {
+        Assert.validState((version >= 0), "Version must be >= 0");
+        Assert.notNull(device, "Device is required");
+        Assert.notNull(eventId, "EventId is required");
+        Assert.notNullOrBlank(severity, "Severity is required");
+    }
+}
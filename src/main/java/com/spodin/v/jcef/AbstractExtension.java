@@ -0,0 +1,57 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+
+/**
+ * Positional access to the extension fields, which is all the serializer needs. Implemented both
+ * by immutable {@link Extension} and by its {@link Extension.Builder}, so that reusable events can
+ * be serialized straight from the builder.
+ *
+ * @author spodin
+ */
+abstract class AbstractExtension {
+
+    /**
+     * Returns number of fields.
+     *
+     * @return number of fields
+     */
+    abstract int size();
+
+    abstract String keyAt(int index);
+
+    /**
+     * Returns dictionary id of the key at specified position.
+     *
+     * @param index field position
+     * @return key id or {@link ExtensionKeys#CUSTOM} for custom keys
+     */
+    abstract short keyIdAt(int index);
+
+    /**
+     * Returns textual representation of the value at specified position. Typed values are
+     * formatted on each call.
+     *
+     * @param index field position
+     * @return field value
+     */
+    abstract String valueAt(int index);
+
+    /**
+     * Checks whether value at specified position has been added as a typed one.
+     *
+     * @param index field position
+     * @return {@code true} if value is typed
+     */
+    abstract boolean isTypedAt(int index);
+
+    /**
+     * Writes textual representation of the typed value at specified position. Typed values never
+     * contain characters, which have to be escaped.
+     *
+     * @param index field position
+     * @param out destination to write value to
+     * @throws IOException if destination fails to accept characters
+     */
+    abstract void appendTypedValueAt(int index, Appendable out) throws IOException;
+}
@@ -0,0 +1,93 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Base class of the serializers, which write events in a non-CEF text format.
+ *
+ * <p>Same as {@link StdCefSerializer}, events may be written directly into caller-supplied
+ * {@link StringBuilder} or UTF-8 encoded {@link ByteBuffer}, and reusable {@link
+ * MutableCefEvent}s are written straight from their fields, so that steady-state serialization
+ * does not allocate. Serializers of this kind may be combined with the standard one in {@link
+ * MultiFormatCefSerializer}.</p>
+ *
+ * @author spodin
+ */
+public abstract class AbstractFormatSerializer implements CefSerializer<String> {
+
+    private final EventFormat format;
+
+    AbstractFormatSerializer(EventFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public String serialize(CefEvent event) {
+        Assert.notNull(event, "Event is required");
+        return EventWriter.write(event, format, new StringBuilder(256)).toString();
+    }
+
+    /**
+     * Serializes specified CEF event appending it to the end of the specified builder. If event
+     * cannot be represented in the format, builder is restored to its original length.
+     *
+     * @param event CEF event
+     * @param out builder to append serialized event to
+     * @return specified builder
+     * @throws IllegalArgumentException if event cannot be represented in the format
+     */
+    public StringBuilder serializeTo(CefEvent event, StringBuilder out) {
+        Assert.notNull(event, "Event is required");
+        return EventWriter.write(event, format, out);
+    }
+
+    /**
+     * Serializes specified reusable event appending it to the end of the specified builder, see
+     * {@link #serializeTo(CefEvent, StringBuilder)}.
+     *
+     * @param event reusable CEF event
+     * @param out builder to append serialized event to
+     * @return specified builder
+     * @throws IllegalArgumentException on missing or illegal event parameters
+     */
+    public StringBuilder serializeTo(MutableCefEvent event, StringBuilder out) {
+        event.validate();
+        return EventWriter.write(event, format, out);
+    }
+
+    /**
+     * Serializes specified CEF event encoding it as UTF-8 directly into the specified buffer,
+     * starting at its current position. If the event does not fit into remaining space of the
+     * buffer, buffer position is left unchanged and {@code false} is returned, so caller can
+     * drain the buffer and retry.
+     *
+     * @param event CEF event
+     * @param out buffer to write serialized event to
+     * @return {@code true} if event has been written, {@code false} if buffer has not enough space
+     * @throws IllegalArgumentException if event cannot be represented in the format; buffer
+     * position is left unchanged in this case
+     */
+    public boolean serializeTo(CefEvent event, ByteBuffer out) {
+        Assert.notNull(event, "Event is required");
+        return EventWriter.write(event, format, out);
+    }
+
+    /**
+     * Serializes specified reusable event encoding it as UTF-8 directly into the specified
+     * buffer, see {@link #serializeTo(CefEvent, ByteBuffer)}.
+     *
+     * @param event reusable CEF event
+     * @param out buffer to write serialized event to
+     * @return {@code true} if event has been written, {@code false} if buffer has not enough space
+     * @throws IllegalArgumentException on missing or illegal event parameters; buffer position is
+     * left unchanged in this case
+     */
+    public boolean serializeTo(MutableCefEvent event, ByteBuffer out) {
+        event.validate();
+        return EventWriter.write(event, format, out);
+    }
+
+    EventFormat format() {
+        return format;
+    }
+}
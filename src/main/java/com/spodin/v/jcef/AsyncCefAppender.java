@@ -0,0 +1,452 @@
+package com.spodin.v.jcef;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Appends CEF events asynchronously, taking serialization and I/O off the calling thread.
+ *
+ * <p>Producers publish events into a preallocated lock-free ring buffer; a single background
+ * thread takes them out in batches, writes each event to the {@link CefEventSink} and flushes the
+ * sink once per batch. When the buffer is full, the configured {@link OverflowPolicy} decides
+ * whether producer waits or some event is dropped.</p>
+ *
+ * <p>Appender is thread-safe. {@link #close()} stops accepting events, drains the buffer within
+ * the configured timeout and closes the sink.</p>
+ *
+ * @author spodin
+ */
+public class AsyncCefAppender implements Closeable {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final RingBuffer<CefEvent> buffer;
+    private final CefEventSink sink;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final Duration drainTimeout;
+    private final Consumer<? super Exception> errorHandler;
+    private final Thread consumer;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean closed;
+    private volatile boolean consumerParked;
+    private volatile long drainDeadline;
+
+    private AsyncCefAppender(Builder builder) {
+        this.sink = Assert.notNull(builder.sink, "Sink is required");
+        this.overflowPolicy = Assert.notNull(builder.overflowPolicy, "Overflow policy is required");
+        this.drainTimeout = Assert.notNull(builder.drainTimeout, "Drain timeout is required");
+        this.errorHandler = Assert.notNull(builder.errorHandler, "Error handler is required");
+        Assert.notNullOrBlank(builder.threadName, "Thread name is required");
+
+        Assert.validState(builder.batchSize > 0, "Batch size must be > 0");
+        this.batchSize = builder.batchSize;
+        this.buffer = new RingBuffer<>(builder.capacity);
+
+        this.consumer = new Thread(this::consume, builder.threadName);
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Publishes specified event to be written asynchronously. Depending on overflow policy, may
+     * block while the buffer is full.
+     *
+     * @param event CEF event
+     * @return {@code true} if event has been accepted, {@code false} if it has been dropped
+     * (including the case when appender is closed)
+     */
+    public boolean append(CefEvent event) {
+        Assert.notNull(event, "Event is required");
+        if (closed) {
+            dropped.increment();
+            return false;
+        }
+
+        // buffer rejects offers once closed, so that an accepted event is always drained
+        if (!buffer.offer(event) && !offerOnOverflow(event)) {
+            dropped.increment();
+            return false;
+        }
+
+        appended.increment();
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    private boolean offerOnOverflow(CefEvent event) {
+        switch (overflowPolicy.kind) {
+            case DROP_NEWEST:
+                return false;
+            case DROP_OLDEST:
+                do {
+                    if (closed) {
+                        return false;
+                    }
+                    if (buffer.poll() != null) {
+                        dropped.increment();
+                    }
+                } while (!buffer.offer(event));
+                return true;
+            case DROP_BELOW_SEVERITY:
+                if (Severity.level(event.getSeverity()) < overflowPolicy.severityThreshold) {
+                    return false;
+                }
+                return offerBlocking(event);
+            case BLOCK:
+            default:
+                return offerBlocking(event);
+        }
+    }
+
+    private boolean offerBlocking(CefEvent event) {
+        long parkNanos = 1;
+        while (!buffer.offer(event)) {
+            if (closed) {
+                return false;
+            }
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+        }
+        return true;
+    }
+
+    private void consume() {
+        long parkNanos = 1;
+        while (true) {
+            final int count = drainBatch();
+            if (count > 0) {
+                parkNanos = 1;
+                continue;
+            }
+            if (closed && (buffer.isDrained() || System.nanoTime() - drainDeadline >= 0)) {
+                break;
+            }
+
+            consumerParked = true;
+            if (buffer.size() == 0 && !closed) {
+                LockSupport.parkNanos(this, parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+            consumerParked = false;
+        }
+
+        try {
+            sink.close();
+        } catch (IOException | RuntimeException e) {
+            errorHandler.accept(e);
+        }
+    }
+
+    private int drainBatch() {
+        int count = 0;
+        CefEvent event;
+        while (count < batchSize && (event = buffer.poll()) != null) {
+            count++;
+            try {
+                sink.write(event);
+                written.increment();
+            } catch (IOException | RuntimeException e) {
+                failed.increment();
+                errorHandler.accept(e);
+            }
+        }
+        if (count > 0) {
+            try {
+                sink.flush();
+            } catch (IOException | RuntimeException e) {
+                errorHandler.accept(e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns approximate number of events waiting in the buffer.
+     *
+     * @return queue depth
+     */
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    /**
+     * Returns buffer capacity, which is the configured one rounded up to the power of two.
+     *
+     * @return buffer capacity
+     */
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Returns number of events accepted by {@link #append(CefEvent)}.
+     *
+     * @return number of accepted events
+     */
+    public long getAppendedCount() {
+        return appended.sum();
+    }
+
+    /**
+     * Returns number of events dropped either on overflow or because appender has been closed.
+     *
+     * @return number of dropped events
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns number of events written to the sink.
+     *
+     * @return number of written events
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * Returns number of events the sink has failed to write.
+     *
+     * @return number of failed events
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Stops accepting events and waits until buffered events are written within the configured
+     * drain timeout. Events left in the buffer after timeout are discarded. Sink is closed.
+     *
+     * @throws IOException never, declared by {@link Closeable}
+     */
+    @Override
+    public void close() throws IOException {
+        shutdown();
+    }
+
+    /**
+     * Same as {@link #close()}, but reports whether all the buffered events have been written.
+     *
+     * @return {@code true} if buffer has been drained before timeout
+     */
+    public boolean shutdown() {
+        if (!closed) {
+            drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+            closed = true;
+            buffer.close();
+        }
+        LockSupport.unpark(consumer);
+
+        try {
+            consumer.join(Math.max(1, drainTimeout.toMillis() + 1000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return buffer.size() == 0 && !consumer.isAlive();
+    }
+
+    /**
+     * Creates asynchronous appender builder.
+     *
+     * @param sink sink to write events to
+     * @return appender builder
+     */
+    public static Builder builder(CefEventSink sink) {
+        return new Builder(sink);
+    }
+
+    /**
+     * Decides what happens when event is appended while the buffer is full.
+     */
+    public static final class OverflowPolicy {
+
+        private enum Kind {
+            BLOCK, DROP_NEWEST, DROP_OLDEST, DROP_BELOW_SEVERITY
+        }
+
+        private static final OverflowPolicy BLOCK = new OverflowPolicy(Kind.BLOCK, 0);
+        private static final OverflowPolicy DROP_NEWEST = new OverflowPolicy(Kind.DROP_NEWEST, 0);
+        private static final OverflowPolicy DROP_OLDEST = new OverflowPolicy(Kind.DROP_OLDEST, 0);
+
+        private final Kind kind;
+        private final int severityThreshold;
+
+        private OverflowPolicy(Kind kind, int severityThreshold) {
+            this.kind = kind;
+            this.severityThreshold = severityThreshold;
+        }
+
+        /**
+         * Producer waits until there is space in the buffer.
+         *
+         * @return overflow policy
+         */
+        public static OverflowPolicy block() {
+            return BLOCK;
+        }
+
+        /**
+         * Appended event is dropped.
+         *
+         * @return overflow policy
+         */
+        public static OverflowPolicy dropNewest() {
+            return DROP_NEWEST;
+        }
+
+        /**
+         * The oldest buffered event is dropped to make space for the appended one.
+         *
+         * @return overflow policy
+         */
+        public static OverflowPolicy dropOldest() {
+            return DROP_OLDEST;
+        }
+
+        /**
+         * Appended event is dropped if its severity is below specified threshold, otherwise
+         * producer waits until there is space in the buffer. Named severities are compared by the
+         * lowest level of their range (Low is 0, Medium is 4, High is 7, Very-High is 9);
+         * unrecognized severities are always below threshold.
+         *
+         * @param threshold minimal severity level to keep, from 0 to 10
+         * @return overflow policy
+         */
+        public static OverflowPolicy dropBelowSeverity(int threshold) {
+            return new OverflowPolicy(Kind.DROP_BELOW_SEVERITY, threshold);
+        }
+
+        @Override
+        public String toString() {
+            return "OverflowPolicy{" +
+                "kind=" + kind +
+                (kind == Kind.DROP_BELOW_SEVERITY ? ", severityThreshold=" + severityThreshold : "") +
+                '}';
+        }
+    }
+
+    public static class Builder {
+
+        private final CefEventSink sink;
+        private int capacity = DEFAULT_CAPACITY;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.block();
+        private Duration drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+        private Consumer<? super Exception> errorHandler = e -> {
+        };
+        private String threadName = "jcef-async-appender";
+
+        private Builder(CefEventSink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Sets capacity of the buffer, rounded up to the power of two.
+         *
+         * <p>Optional, default value is {@value AsyncCefAppender#DEFAULT_CAPACITY}.</p>
+         *
+         * @param capacity buffer capacity
+         * @return this builder for further customizations
+         */
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Sets maximal number of events written between two sink flushes.
+         *
+         * <p>Optional, default value is {@value AsyncCefAppender#DEFAULT_BATCH_SIZE}.</p>
+         *
+         * @param batchSize batch size, must be greater than 0
+         * @return this builder for further customizations
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets policy applied when buffer is full.
+         *
+         * <p>Optional, default is {@link OverflowPolicy#block()}.</p>
+         *
+         * @param overflowPolicy overflow policy
+         * @return this builder for further customizations
+         */
+        public Builder overflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Sets maximal time to write buffered events on close.
+         *
+         * <p>Optional, default is 5 seconds.</p>
+         *
+         * @param drainTimeout drain timeout
+         * @return this builder for further customizations
+         */
+        public Builder drainTimeout(Duration drainTimeout) {
+            this.drainTimeout = drainTimeout;
+            return this;
+        }
+
+        /**
+         * Sets handler of the sink errors. Handler is invoked from the appender thread.
+         *
+         * <p>Optional, by default errors are only counted.</p>
+         *
+         * @param errorHandler error handler
+         * @return this builder for further customizations
+         */
+        public Builder errorHandler(Consumer<? super Exception> errorHandler) {
+            this.errorHandler = errorHandler;
+            return this;
+        }
+
+        /**
+         * Sets name of the appender thread.
+         *
+         * <p>Optional, default value is {@code jcef-async-appender}.</p>
+         *
+         * @param threadName thread name
+         * @return this builder for further customizations
+         */
+        public Builder threadName(String threadName) {
+            this.threadName = threadName;
+            return this;
+        }
+
+        /**
+         * Creates asynchronous appender with submitted parameters and starts its thread.
+         *
+         * @return asynchronous appender
+         * @throws IllegalArgumentException on missing or illegal parameters
+         */
+        public AsyncCefAppender build() {
+            return new AsyncCefAppender(this);
+        }
+    }
+}
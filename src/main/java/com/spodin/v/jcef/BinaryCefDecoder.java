@@ -0,0 +1,185 @@
+package com.spodin.v.jcef;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes CEF events encoded by {@link BinaryCefEncoder}.
+ *
+ * <p>Decoder is stateful: it collects dictionary entries defined by the encoded events, so it must
+ * be fed the events in the same order they have been encoded, starting from the first one or the
+ * first one after {@link BinaryCefEncoder#reset()}. After malformed input decoder state is
+ * undefined and has to be {@link #reset()}.</p>
+ *
+ * <p>Decoder is not thread-safe.</p>
+ *
+ * @author spodin
+ * @see BinaryCefFormat
+ */
+public class BinaryCefDecoder {
+
+    private final List<Device> devices = new ArrayList<>();
+    private final List<EventId> eventIds = new ArrayList<>();
+    private final List<String> severities = new ArrayList<>();
+    private final List<String> keys = new ArrayList<>();
+
+    /**
+     * Decodes event from specified bytes.
+     *
+     * @param bytes encoded event
+     * @return CEF event
+     * @throws IllegalArgumentException if bytes are malformed
+     */
+    public CefEvent decode(byte[] bytes) {
+        Assert.notNull(bytes, "Bytes are required");
+        final ByteBuffer in = ByteBuffer.wrap(bytes);
+        final CefEvent event = decode(in);
+        if (in.hasRemaining()) {
+            throw BinaryCefFormat.malformed(in, "trailing bytes");
+        }
+        return event;
+    }
+
+    /**
+     * Decodes event starting at the buffer position. Position is advanced past the event, so that
+     * events written one after another may be decoded in a loop.
+     *
+     * @param in buffer with encoded event
+     * @return CEF event
+     * @throws IllegalArgumentException if buffer content is malformed
+     */
+    public CefEvent decode(ByteBuffer in) {
+        Assert.notNull(in, "Buffer is required");
+        try {
+            return read(in);
+        } catch (BufferUnderflowException e) {
+            throw BinaryCefFormat.malformed(in, "unexpected end of input");
+        }
+    }
+
+    /**
+     * Forgets all the dictionary entries, so that the next event starts a new stream.
+     */
+    public void reset() {
+        devices.clear();
+        eventIds.clear();
+        severities.clear();
+        keys.clear();
+    }
+
+    private CefEvent read(ByteBuffer in) {
+        final byte format = in.get();
+        if (format != BinaryCefFormat.FORMAT_VERSION) {
+            throw BinaryCefFormat.malformed(in, "unsupported format version " + format);
+        }
+        final int version = BinaryCefFormat.getVarInt(in);
+
+        int reference = BinaryCefFormat.getVarInt(in);
+        Device device = entry(devices, reference, in);
+        if (device == null) {
+            device = Device.builder()
+                .vendor(BinaryCefFormat.getString(in))
+                .product(BinaryCefFormat.getString(in))
+                .version(BinaryCefFormat.getString(in))
+                .build();
+            define(devices, reference, device);
+        }
+
+        reference = BinaryCefFormat.getVarInt(in);
+        EventId eventId = entry(eventIds, reference, in);
+        if (eventId == null) {
+            eventId = EventId.of(BinaryCefFormat.getString(in), BinaryCefFormat.getString(in));
+            define(eventIds, reference, eventId);
+        }
+
+        reference = BinaryCefFormat.getVarInt(in);
+        String severity = entry(severities, reference, in);
+        if (severity == null) {
+            severity = BinaryCefFormat.getString(in);
+            define(severities, reference, severity);
+        }
+
+        return CefEvent.builder()
+            .version(version)
+            .device(device)
+            .eventId(eventId)
+            .severity(severity)
+            .extension(readExtension(in))
+            .build();
+    }
+
+    private Extension readExtension(ByteBuffer in) {
+        final int size = BinaryCefFormat.getVarInt(in);
+        if (size == 0) {
+            return Extension.empty();
+        }
+
+        final Extension.Builder extension = Extension.builder();
+        for (int i = 0; i < size; i++) {
+            final byte type = in.get();
+            final String key = readKey(in);
+            switch (type) {
+                case Extension.STRING:
+                    extension.add(key, BinaryCefFormat.getString(in));
+                    break;
+                case Extension.NUMBER:
+                    extension.add(key, BinaryCefFormat.getZigZag(in));
+                    break;
+                case Extension.TIMESTAMP:
+                    extension.addTimestamp(key, BinaryCefFormat.getZigZag(in));
+                    break;
+                case Extension.IPV4:
+                    extension.addIpv4(key, in.getInt());
+                    break;
+                case Extension.IPV6:
+                    final byte[] address = new byte[16];
+                    in.get(address);
+                    extension.addIp(key, address);
+                    break;
+                default:
+                    throw BinaryCefFormat.malformed(in, "unknown field type " + type);
+            }
+        }
+        return extension.build();
+    }
+
+    private String readKey(ByteBuffer in) {
+        final int id = BinaryCefFormat.getVarInt(in);
+        if (id < ExtensionKeys.size()) {
+            return ExtensionKeys.keyOf((short) id);
+        }
+
+        // key may be null, so existing entry is not looked up with entry()
+        final int reference = id - ExtensionKeys.size();
+        if (reference == BinaryCefFormat.INLINE || reference == keys.size() + 1) {
+            final String key = BinaryCefFormat.getString(in);
+            define(keys, reference, key);
+            return key;
+        }
+        if (reference > keys.size()) {
+            throw BinaryCefFormat.malformed(in, "unknown dictionary reference " + reference);
+        }
+        return keys.get(reference - 1);
+    }
+
+    /**
+     * Returns existing dictionary entry or {@code null} if value follows the reference.
+     */
+    private static <T> T entry(List<T> dictionary, int reference, ByteBuffer in) {
+        if (reference == BinaryCefFormat.INLINE || reference == dictionary.size() + 1) {
+            return null;
+        }
+        if (reference > dictionary.size()) {
+            throw BinaryCefFormat.malformed(in, "unknown dictionary reference " + reference);
+        }
+        return dictionary.get(reference - 1);
+    }
+
+    private static <T> void define(List<T> dictionary, int reference, T value) {
+        if (reference != BinaryCefFormat.INLINE) {
+            dictionary.add(value);
+        }
+    }
+}
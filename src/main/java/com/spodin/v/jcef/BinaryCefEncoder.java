@@ -0,0 +1,173 @@
+package com.spodin.v.jcef;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes CEF events into compact binary form, which is decoded back by {@link BinaryCefDecoder}.
+ *
+ * <p>Encoder is stateful: device, event id, severity and custom extension keys are written in full
+ * only the first time they appear in the stream, later events refer to them by small ids. Standard
+ * extension keys are always referred to by their id. Numbers, timestamps and IP addresses added to
+ * the extension as typed values keep their primitive form. Thus events must be decoded in the same
+ * order they have been encoded, by a single decoder; {@link #reset()} starts a new stream.</p>
+ *
+ * <p>Conversion is lossless, except that unpaired surrogates in strings are replaced with
+ * {@code '?'}, same as by {@link StdCefSerializer}. Each dictionary is bounded; once it is full,
+ * new values are written inline.</p>
+ *
+ * <p>Encoder is not thread-safe.</p>
+ *
+ * @author spodin
+ * @see BinaryCefFormat
+ */
+public class BinaryCefEncoder implements CefSerializer<byte[]> {
+
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    private final BinaryCefFormat.Dictionary<Device> devices;
+    private final BinaryCefFormat.Dictionary<EventId> eventIds;
+    private final BinaryCefFormat.Dictionary<String> severities;
+    private final BinaryCefFormat.Dictionary<String> keys;
+    private final Utf8Appender appender = new Utf8Appender();
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    /**
+     * Creates encoder with default dictionary size.
+     */
+    public BinaryCefEncoder() {
+        this(BinaryCefFormat.DEFAULT_MAX_DICTIONARY_SIZE);
+    }
+
+    /**
+     * Creates encoder with specified dictionary size.
+     *
+     * @param maxDictionarySize maximal number of devices, event ids, severities and custom keys
+     * each, which are referred to by id
+     */
+    public BinaryCefEncoder(int maxDictionarySize) {
+        Assert.validState(maxDictionarySize >= 0, "Maximal dictionary size must be >= 0");
+        this.devices = new BinaryCefFormat.Dictionary<>(maxDictionarySize);
+        this.eventIds = new BinaryCefFormat.Dictionary<>(maxDictionarySize);
+        this.severities = new BinaryCefFormat.Dictionary<>(maxDictionarySize);
+        this.keys = new BinaryCefFormat.Dictionary<>(maxDictionarySize);
+    }
+
+    @Override
+    public byte[] serialize(CefEvent event) {
+        Assert.notNull(event, "Event is required");
+        buffer.clear();
+        while (!serializeTo(event, buffer)) {
+            buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+        }
+
+        final byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Encodes specified event writing it directly to the buffer.
+     *
+     * <p>If the event does not fit into remaining space of the buffer, buffer position and encoder
+     * state are left unchanged and {@code false} is returned, so caller can drain the buffer and
+     * retry.</p>
+     *
+     * @param event CEF event
+     * @param out buffer to write encoded event to
+     * @return {@code true} if event has been written, {@code false} if buffer has not enough space
+     */
+    public boolean serializeTo(CefEvent event, ByteBuffer out) {
+        Assert.notNull(event, "Event is required");
+        final int position = out.position();
+        final int devicesSize = devices.size();
+        final int eventIdsSize = eventIds.size();
+        final int severitiesSize = severities.size();
+        final int keysSize = keys.size();
+        try {
+            write(event, appender.wrap(out), out);
+            return true;
+        } catch (BufferOverflowException e) {
+            out.position(position);
+            devices.truncate(devicesSize);
+            eventIds.truncate(eventIdsSize);
+            severities.truncate(severitiesSize);
+            keys.truncate(keysSize);
+            return false;
+        } finally {
+            // reused appender must not keep the buffer reachable
+            appender.wrap(null);
+        }
+    }
+
+    /**
+     * Forgets all the dictionary entries, so that the next event starts a new stream.
+     */
+    public void reset() {
+        devices.clear();
+        eventIds.clear();
+        severities.clear();
+        keys.clear();
+    }
+
+    private void write(CefEvent event, Utf8Appender appender, ByteBuffer out) {
+        out.put(BinaryCefFormat.FORMAT_VERSION);
+        BinaryCefFormat.putVarLong(event.getVersion(), out);
+
+        final Device device = event.getDevice();
+        if (devices.putReference(device, 0, out)) {
+            BinaryCefFormat.putString(device.getVendor(), appender, out);
+            BinaryCefFormat.putString(device.getProduct(), appender, out);
+            BinaryCefFormat.putString(device.getVersion(), appender, out);
+        }
+
+        final EventId eventId = event.getEventId();
+        if (eventIds.putReference(eventId, 0, out)) {
+            BinaryCefFormat.putString(eventId.getId(), appender, out);
+            BinaryCefFormat.putString(eventId.getName(), appender, out);
+        }
+
+        if (severities.putReference(event.getSeverity(), 0, out)) {
+            BinaryCefFormat.putString(event.getSeverity(), appender, out);
+        }
+
+        final Extension extension = event.getExtension();
+        final int size = extension.size();
+        BinaryCefFormat.putVarLong(size, out);
+        for (int i = 0; i < size; i++) {
+            final byte type = extension.typeAt(i);
+            out.put(type);
+            writeKey(extension, i, appender, out);
+
+            switch (type) {
+                case Extension.NUMBER:
+                case Extension.TIMESTAMP:
+                    BinaryCefFormat.putZigZag(extension.numberAt(i), out);
+                    break;
+                case Extension.IPV4:
+                    out.putInt((int) extension.numberAt(i));
+                    break;
+                case Extension.IPV6:
+                    out.put(extension.ipv6At(i));
+                    break;
+                case Extension.STRING:
+                default:
+                    BinaryCefFormat.putString(extension.valueAt(i), appender, out);
+                    break;
+            }
+        }
+    }
+
+    private void writeKey(Extension extension, int index, Utf8Appender appender, ByteBuffer out) {
+        final short id = extension.keyIdAt(index);
+        if (id != ExtensionKeys.CUSTOM) {
+            BinaryCefFormat.putVarLong(id, out);
+            return;
+        }
+        final String key = extension.keyAt(index);
+        if (keys.putReference(key, ExtensionKeys.size(), out)) {
+            BinaryCefFormat.putString(key, appender, out);
+        }
+    }
+}
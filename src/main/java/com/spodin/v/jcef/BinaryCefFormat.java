@@ -0,0 +1,193 @@
+package com.spodin.v.jcef;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Constants and primitives of the binary CEF format shared by {@link BinaryCefEncoder} and
+ * {@link BinaryCefDecoder}.
+ *
+ * <p>Event is encoded as:</p>
+ * <ul>
+ *     <li>format version byte;</li>
+ *     <li>CEF version as varint;</li>
+ *     <li>device, event id and severity as dictionary references;</li>
+ *     <li>number of extension fields as varint, followed by the fields: type byte, key and
+ *     value.</li>
+ * </ul>
+ *
+ * <p>Dictionary reference is a varint: {@code 0} is followed by inline value, which is not added
+ * to the dictionary; {@code 1..size} refers to existing entry; {@code size + 1} is followed by
+ * value, which becomes a new entry. Extension key is a varint below {@link
+ * ExtensionKeys#size()} for standard keys, or such a reference shifted by it for custom ones.</p>
+ *
+ * <p>Strings are encoded as UTF-8 preceded by their length plus one as varint, {@code 0} denotes
+ * {@code null}. Numbers and timestamps are zigzag varints, IP addresses are raw bytes.</p>
+ *
+ * @author spodin
+ */
+final class BinaryCefFormat {
+
+    static final byte FORMAT_VERSION = 1;
+
+    static final int DEFAULT_MAX_DICTIONARY_SIZE = 4096;
+
+    static final int INLINE = 0;
+
+    private BinaryCefFormat() {
+    }
+
+    static void putVarLong(long value, ByteBuffer out) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw malformed(in, "varint is too long");
+    }
+
+    static int getVarInt(ByteBuffer in) {
+        final long value = getVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw malformed(in, "varint is out of range");
+        }
+        return (int) value;
+    }
+
+    static void putZigZag(long value, ByteBuffer out) {
+        putVarLong((value << 1) ^ (value >> 63), out);
+    }
+
+    static long getZigZag(ByteBuffer in) {
+        final long value = getVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void putString(String value, Utf8Appender appender, ByteBuffer out) {
+        if (value == null) {
+            out.put((byte) 0);
+            return;
+        }
+        putVarLong(utf8Length(value) + 1L, out);
+        appender.append(value);
+        appender.finish();
+    }
+
+    static String getString(ByteBuffer in) {
+        final int length = getVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        if (in.hasArray()) {
+            final String value = new String(in.array(), in.arrayOffset() + in.position(), length,
+                StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        final byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns number of bytes {@link Utf8Appender} encodes specified string to.
+     */
+    static int utf8Length(String value) {
+        final int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            final char letter = value.charAt(i);
+            if (letter < 0x80) {
+                continue;
+            }
+            if (letter < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(letter) && i + 1 < length
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 2;
+                i++;
+            } else if (!Character.isSurrogate(letter)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+
+    static IllegalArgumentException malformed(ByteBuffer in, String reason) {
+        return new IllegalArgumentException(
+            String.format("Malformed binary CEF event, %s at position %d", reason, in.position()));
+    }
+
+    /**
+     * Encoder side of the dictionary, which may be rolled back to its previous size.
+     */
+    static final class Dictionary<T> {
+
+        private final Map<T, Integer> ids = new HashMap<>();
+        private final List<T> entries = new ArrayList<>();
+        private final int maxSize;
+
+        Dictionary(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Writes reference to the value, adding it to the dictionary if there is space left.
+         *
+         * @param value referenced value
+         * @param offset number added to the written reference
+         * @param out buffer to write reference to
+         * @return {@code true} if value has to be written after the reference
+         */
+        boolean putReference(T value, int offset, ByteBuffer out) {
+            final Integer id = ids.get(value);
+            if (id != null) {
+                putVarLong(offset + id + 1L, out);
+                return false;
+            }
+            if (entries.size() < maxSize) {
+                putVarLong(offset + entries.size() + 1L, out);
+                ids.put(value, entries.size());
+                entries.add(value);
+            } else {
+                putVarLong(offset + INLINE, out);
+            }
+            return true;
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        void truncate(int size) {
+            while (entries.size() > size) {
+                ids.remove(entries.remove(entries.size() - 1));
+            }
+        }
+
+        void clear() {
+            ids.clear();
+            entries.clear();
+        }
+    }
+}
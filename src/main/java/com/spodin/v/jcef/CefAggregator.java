@@ -0,0 +1,586 @@
+package com.spodin.v.jcef;
+
+import java.io.Closeable;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Collapses duplicate CEF events within a time window into a single event, which carries number
+ * of the collapsed events in the standard {@code cnt} field and time of the first and the last of
+ * them in {@code start} and {@code end} fields.
+ *
+ * <p>Events are duplicates if they have equal projection: device, event id, severity (each may
+ * be excluded) and values of the selected extension keys. Window of the key starts with its first
+ * event; once window expires, the first event with added {@code cnt}, {@code start} and
+ * {@code end} fields is passed downstream and the next duplicate starts a new window. Fields of
+ * the later duplicates are not merged.</p>
+ *
+ * <p>Pending windows are kept in concurrent hash maps split into shards. Appending a duplicate
+ * takes a lock-free lookup and an atomic increment. Number of pending windows is bounded per
+ * shard; event, which would start a window in a full shard, is passed downstream as is.</p>
+ *
+ * <p>Expired windows are emitted by the background thread, checking them at the configured
+ * eviction interval, or by the producer thread, which comes across an expired window of its key.
+ * Aggregator is thread-safe; downstream consumer has to be thread-safe as well. {@link #close()}
+ * emits all the pending windows; events appended after close are passed downstream as is.</p>
+ *
+ * @author spodin
+ */
+public class CefAggregator implements Closeable {
+
+    private static final Duration DEFAULT_WINDOW = Duration.ofSeconds(10);
+
+    private static final int DEFAULT_MAX_ENTRIES = 65536;
+
+    private static final long MIN_EVICTION_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Consumer<? super CefEvent> downstream;
+    private final long windowMillis;
+    private final boolean groupByDevice;
+    private final boolean groupByEventId;
+    private final boolean groupBySeverity;
+    private final String[] groupByExtensionKeys;
+    private final Clock clock;
+    private final Consumer<? super RuntimeException> errorHandler;
+
+    private final Shard[] shards;
+    private final int maxEntriesPerShard;
+    private final Thread evictor;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder emitted = new LongAdder();
+
+    private volatile boolean closed;
+
+    private CefAggregator(Builder builder) {
+        this.downstream = Assert.notNull(builder.downstream, "Downstream consumer is required");
+        Assert.notNull(builder.window, "Window is required");
+        this.windowMillis = builder.window.toMillis();
+        Assert.validState(windowMillis > 0, "Window must be at least 1 millisecond");
+        this.groupByDevice = builder.groupByDevice;
+        this.groupByEventId = builder.groupByEventId;
+        this.groupBySeverity = builder.groupBySeverity;
+        this.groupByExtensionKeys = builder.groupByExtensionKeys.clone();
+        for (String key : groupByExtensionKeys) {
+            Assert.notNull(key, "Extension key must not be null");
+        }
+        this.clock = Assert.notNull(builder.clock, "Clock is required");
+        this.errorHandler = Assert.notNull(builder.errorHandler, "Error handler is required");
+
+        Assert.validState(builder.shards > 0 && builder.shards <= (1 << 16),
+            "Number of shards must be in 1..2^16");
+        Assert.validState(builder.maxEntries >= builder.shards,
+            "Maximal number of entries must be >= number of shards");
+        this.shards = new Shard[Math.max(Integer.highestOneBit(builder.shards - 1) << 1, 1)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        this.maxEntriesPerShard = Math.max(1, builder.maxEntries / shards.length);
+
+        Assert.notNull(builder.evictionInterval, "Eviction interval is required");
+        Assert.validState(!builder.evictionInterval.isNegative(),
+            "Eviction interval must be >= 0");
+        if (builder.evictionInterval.isZero()) {
+            this.evictor = null;
+        } else {
+            Assert.notNullOrBlank(builder.threadName, "Thread name is required");
+            final long intervalNanos = Math.max(MIN_EVICTION_INTERVAL_NANOS,
+                builder.evictionInterval.toNanos());
+            this.evictor = new Thread(() -> evictPeriodically(intervalNanos), builder.threadName);
+            this.evictor.setDaemon(true);
+            this.evictor.start();
+        }
+    }
+
+    /**
+     * Appends specified event. If there is a pending window with the same projection, event only
+     * increments its count, otherwise it starts a new window.
+     *
+     * @param event CEF event
+     */
+    public void append(CefEvent event) {
+        Assert.notNull(event, "Event is required");
+        appended.increment();
+        if (closed) {
+            emit(event);
+            return;
+        }
+
+        final long now = clock.millis();
+        final Key key = keyOf(event);
+        final Shard shard = shards[key.hash & (shards.length - 1)];
+        while (true) {
+            Entry entry = shard.entries.get(key);
+            if (entry == null) {
+                if (shard.size.incrementAndGet() > maxEntriesPerShard) {
+                    shard.size.decrementAndGet();
+                    emit(event);
+                    return;
+                }
+                final Entry created = new Entry(event, now);
+                entry = shard.entries.putIfAbsent(key, created);
+                if (entry == null) {
+                    evictIfClosed(shard, key, created);
+                    return;
+                }
+                shard.size.decrementAndGet();
+            }
+
+            if (now - entry.startMillis >= windowMillis) {
+                evict(shard, key, entry);
+            } else if (entry.add(now)) {
+                evictIfClosed(shard, key, entry);
+                return;
+            } else {
+                // sealed by a concurrent eviction, which is about to remove it
+                remove(shard, key, entry);
+            }
+        }
+    }
+
+    /**
+     * Emits windows, which have expired by now. Normally invoked by the background thread, may
+     * be invoked directly if eviction interval is zero.
+     */
+    public void evictExpired() {
+        final long now = clock.millis();
+        for (Shard shard : shards) {
+            for (Map.Entry<Key, Entry> entry : shard.entries.entrySet()) {
+                if (now - entry.getValue().startMillis >= windowMillis) {
+                    evict(shard, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns number of pending windows.
+     *
+     * @return number of pending windows
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.entries.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns number of events passed to {@link #append(CefEvent)}.
+     *
+     * @return number of appended events
+     */
+    public long getAppendedCount() {
+        return appended.sum();
+    }
+
+    /**
+     * Returns number of events passed downstream, either aggregated or as is.
+     *
+     * @return number of emitted events
+     */
+    public long getEmittedCount() {
+        return emitted.sum();
+    }
+
+    /**
+     * Stops the background thread and emits all the pending windows regardless of their expiry.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (evictor != null) {
+            LockSupport.unpark(evictor);
+            try {
+                evictor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Shard shard : shards) {
+            for (Map.Entry<Key, Entry> entry : shard.entries.entrySet()) {
+                evict(shard, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CefAggregator{" +
+            "windowMillis=" + windowMillis +
+            ", groupByDevice=" + groupByDevice +
+            ", groupByEventId=" + groupByEventId +
+            ", groupBySeverity=" + groupBySeverity +
+            ", groupByExtensionKeys=" + Arrays.toString(groupByExtensionKeys) +
+            ", shards=" + shards.length +
+            '}';
+    }
+
+    /**
+     * Creates aggregator builder.
+     *
+     * @param downstream consumer of the aggregated events, e.g. {@code appender::append}
+     * @return aggregator builder
+     */
+    public static Builder builder(Consumer<? super CefEvent> downstream) {
+        return new Builder(downstream);
+    }
+
+    private Key keyOf(CefEvent event) {
+        final String[] values;
+        if (groupByExtensionKeys.length == 0) {
+            values = null;
+        } else {
+            final Extension extension = event.getExtension();
+            values = new String[groupByExtensionKeys.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = extension.get(groupByExtensionKeys[i]);
+            }
+        }
+        return new Key(groupByDevice ? event.getDevice() : null,
+            groupByEventId ? event.getEventId() : null,
+            groupBySeverity ? event.getSeverity() : null,
+            values);
+    }
+
+    private void evict(Shard shard, Key key, Entry entry) {
+        final long count = entry.seal();
+        remove(shard, key, entry);
+        if (count != Entry.SEALED) {
+            emit(aggregate(entry, count)); // otherwise emitted by a concurrent eviction
+        }
+    }
+
+    /**
+     * Emits the window, which may have been missed by {@link #close()} running concurrently.
+     */
+    private void evictIfClosed(Shard shard, Key key, Entry entry) {
+        if (closed) {
+            evict(shard, key, entry);
+        }
+    }
+
+    private static void remove(Shard shard, Key key, Entry entry) {
+        if (shard.entries.remove(key, entry)) {
+            shard.size.decrementAndGet();
+        }
+    }
+
+    private static CefEvent aggregate(Entry entry, long count) {
+        final CefEvent first = entry.first;
+        return CefEvent.builder()
+            .version(first.getVersion())
+            .device(first.getDevice())
+            .eventId(first.getEventId())
+            .severity(first.getSeverity())
+            .extension(first.getExtension().toBuilder()
+                .add("cnt", count)
+                .addTimestamp("start", entry.startMillis)
+                .addTimestamp("end", entry.endMillis.get())
+                .build())
+            .build();
+    }
+
+    private void emit(CefEvent event) {
+        try {
+            downstream.accept(event);
+            emitted.increment();
+        } catch (RuntimeException e) {
+            errorHandler.accept(e);
+        }
+    }
+
+    private void evictPeriodically(long intervalNanos) {
+        while (!closed) {
+            LockSupport.parkNanos(this, intervalNanos);
+            if (!closed) {
+                evictExpired();
+            }
+        }
+    }
+
+    private static final class Shard {
+
+        private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+        /**
+         * Number of entries and reservations for entries being added.
+         */
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    /**
+     * Pending window of the key.
+     */
+    private static final class Entry {
+
+        private static final long SEALED = -1;
+
+        private final CefEvent first;
+        private final long startMillis;
+        private final AtomicLong endMillis;
+        private final AtomicLong count = new AtomicLong(1);
+
+        private Entry(CefEvent first, long startMillis) {
+            this.first = first;
+            this.startMillis = startMillis;
+            this.endMillis = new AtomicLong(startMillis);
+        }
+
+        /**
+         * Counts duplicate seen at specified time.
+         *
+         * @return {@code false} if entry has been sealed and duplicate is not counted
+         */
+        private boolean add(long millis) {
+            // updated before counting, so that sealed entry reflects all its counted events
+            endMillis.accumulateAndGet(millis, Math::max);
+            long current;
+            do {
+                current = count.get();
+                if (current == SEALED) {
+                    return false;
+                }
+            } while (!count.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        /**
+         * Prevents further counting.
+         *
+         * @return final count or {@link #SEALED} if entry has been sealed already
+         */
+        private long seal() {
+            return count.getAndSet(SEALED);
+        }
+    }
+
+    private static final class Key {
+
+        private final Device device;
+        private final EventId eventId;
+        private final String severity;
+        private final String[] values;
+        private final int hash;
+
+        private Key(Device device, EventId eventId, String severity, String[] values) {
+            this.device = device;
+            this.eventId = eventId;
+            this.severity = severity;
+            this.values = values;
+
+            final int h = Objects.hash(device, eventId, severity) * 31 + Arrays.hashCode(values);
+            this.hash = h ^ (h >>> 16);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash && Objects.equals(device, key.device)
+                && Objects.equals(eventId, key.eventId) && Objects.equals(severity, key.severity)
+                && Arrays.equals(values, key.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    public static class Builder {
+
+        private final Consumer<? super CefEvent> downstream;
+        private Duration window = DEFAULT_WINDOW;
+        private boolean groupByDevice = true;
+        private boolean groupByEventId = true;
+        private boolean groupBySeverity = true;
+        private String[] groupByExtensionKeys = new String[0];
+        private int shards = Runtime.getRuntime().availableProcessors() * 4;
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+        private Duration evictionInterval;
+        private Clock clock = Clock.systemUTC();
+        private Consumer<? super RuntimeException> errorHandler = e -> {
+        };
+        private String threadName = "jcef-aggregator";
+
+        private Builder(Consumer<? super CefEvent> downstream) {
+            this.downstream = downstream;
+        }
+
+        /**
+         * Sets length of the window, within which duplicates are collapsed.
+         *
+         * <p>Optional, default is 10 seconds.</p>
+         *
+         * @param window window length, must be at least 1 millisecond
+         * @return this builder for further customizations
+         */
+        public Builder window(Duration window) {
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * Sets whether events of different devices are never duplicates.
+         *
+         * <p>Optional, default value is {@code true}.</p>
+         *
+         * @param groupByDevice whether device is part of the projection
+         * @return this builder for further customizations
+         */
+        public Builder groupByDevice(boolean groupByDevice) {
+            this.groupByDevice = groupByDevice;
+            return this;
+        }
+
+        /**
+         * Sets whether events with different ids are never duplicates.
+         *
+         * <p>Optional, default value is {@code true}.</p>
+         *
+         * @param groupByEventId whether event id and name are part of the projection
+         * @return this builder for further customizations
+         */
+        public Builder groupByEventId(boolean groupByEventId) {
+            this.groupByEventId = groupByEventId;
+            return this;
+        }
+
+        /**
+         * Sets whether events of different severity are never duplicates.
+         *
+         * <p>Optional, default value is {@code true}.</p>
+         *
+         * @param groupBySeverity whether severity is part of the projection
+         * @return this builder for further customizations
+         */
+        public Builder groupBySeverity(boolean groupBySeverity) {
+            this.groupBySeverity = groupBySeverity;
+            return this;
+        }
+
+        /**
+         * Sets extension keys, values of which are part of the projection, e.g. {@code src}.
+         * Missing field and field with {@code null} value are considered equal.
+         *
+         * <p>Optional, by default extension is not part of the projection.</p>
+         *
+         * @param keys extension keys
+         * @return this builder for further customizations
+         */
+        public Builder groupByExtensionKeys(String... keys) {
+            this.groupByExtensionKeys = Assert.notNull(keys, "Extension keys are required");
+            return this;
+        }
+
+        /**
+         * Sets number of shards, rounded up to the power of two.
+         *
+         * <p>Optional, default is four times the number of available processors.</p>
+         *
+         * @param shards number of shards
+         * @return this builder for further customizations
+         */
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * Sets maximal number of pending windows, split evenly between shards.
+         *
+         * <p>Optional, default value is {@value CefAggregator#DEFAULT_MAX_ENTRIES}.</p>
+         *
+         * @param maxEntries maximal number of pending windows
+         * @return this builder for further customizations
+         */
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Sets interval, at which the background thread emits expired windows. Zero disables the
+         * background thread, so expired windows are emitted only by {@link #evictExpired()}, on
+         * close or when their key is seen again.
+         *
+         * <p>Optional, default is a quarter of the window.</p>
+         *
+         * @param evictionInterval eviction interval
+         * @return this builder for further customizations
+         */
+        public Builder evictionInterval(Duration evictionInterval) {
+            this.evictionInterval = evictionInterval;
+            return this;
+        }
+
+        /**
+         * Sets clock, which timestamps the appended events.
+         *
+         * <p>Optional, default is {@link Clock#systemUTC()}.</p>
+         *
+         * @param clock clock
+         * @return this builder for further customizations
+         */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Sets handler of the downstream consumer errors.
+         *
+         * <p>Optional, by default errors are ignored.</p>
+         *
+         * @param errorHandler error handler
+         * @return this builder for further customizations
+         */
+        public Builder errorHandler(Consumer<? super RuntimeException> errorHandler) {
+            this.errorHandler = errorHandler;
+            return this;
+        }
+
+        /**
+         * Sets name of the eviction thread.
+         *
+         * <p>Optional, default value is {@code jcef-aggregator}.</p>
+         *
+         * @param threadName thread name
+         * @return this builder for further customizations
+         */
+        public Builder threadName(String threadName) {
+            this.threadName = threadName;
+            return this;
+        }
+
+        /**
+         * Creates aggregator with submitted parameters and starts its eviction thread.
+         *
+         * @return aggregator
+         * @throws IllegalArgumentException on missing or illegal parameters
+         */
+        public CefAggregator build() {
+            if (evictionInterval == null && window != null) {
+                evictionInterval = window.dividedBy(4);
+            }
+            return new CefAggregator(this);
+        }
+    }
+}
@@ -0,0 +1,923 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Sidecar index of a CEF archive file, one event per line, which answers questions like "events
+ * of class X from vendor Y between 02:00 and 03:00" without parsing the whole file.
+ *
+ * <p>File is split into line-aligned blocks of approximately configured size. For each block the
+ * index keeps its length and range of {@code rt} timestamps; for each distinct device vendor,
+ * device product, event class id and severity it keeps posting list of the blocks containing it.
+ * {@link #query(Query, Consumer)} intersects posting lists of the query criteria, skips blocks
+ * outside of its time range, and reads and parses only the remaining blocks, checking each of their
+ * lines against the criteria.</p>
+ *
+ * <p>{@link #update()} reads the file once and writes the index next to it, see {@link
+ * Builder#indexFile(Path)}. Subsequent updates index only the lines appended since the previous
+ * one; if file has been truncated or replaced, index is rebuilt from scratch. Trailing line
+ * without line feed is not indexed until it is completed.</p>
+ *
+ * <p>Timestamps are taken from {@code rt} extension field, which must hold milliseconds since
+ * epoch, as {@link Extension.Builder#addTimestamp(String, long)} writes it. Events without such
+ * field never match queries with time range.</p>
+ *
+ * <p>Index file starts with a header (magic number, format version, indexed length of the file
+ * and CRC32 of its first bytes), followed by block lengths and timestamp ranges, then by the
+ * dictionaries of vendors, products, event class ids and severities, each term with its
+ * delta-encoded posting list. Numbers are varints; the file ends with CRC32 of its content.</p>
+ *
+ * <p>Index is not thread-safe.</p>
+ *
+ * @author spodin
+ */
+public class CefArchiveIndex {
+
+    private static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private static final String INDEX_SUFFIX = ".cefidx";
+
+    private static final int MAGIC = 0x43454931;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    /**
+     * Magic number, format version, indexed length and fingerprint.
+     */
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 4;
+
+    private static final int CRC_SIZE = 4;
+
+    /**
+     * Number of the first file bytes, which checksum identifies indexed file.
+     */
+    private static final int FINGERPRINT_SIZE = 4096;
+
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int MAX_VARINT_SIZE = 10;
+
+    private static final byte LINE_FEED = '\n';
+
+    private static final String TIMESTAMP_KEY = "rt";
+
+    /**
+     * Indexed prefix fields, in the order of dictionaries.
+     */
+    private static final int[] TERM_FIELDS = {
+        CefLineIndex.VENDOR, CefLineIndex.PRODUCT, CefLineIndex.ID, CefLineIndex.SEVERITY
+    };
+
+    private final Path file;
+    private final Path indexFile;
+    private final int blockSize;
+
+    private boolean loaded;
+    private long indexedLength;
+    private int fingerprint;
+
+    /**
+     * Block lengths and timestamp ranges; block offsets are cumulative lengths.
+     */
+    private int blockCount;
+    private long[] blockOffsets = new long[16];
+    private int[] blockLengths = new int[16];
+    private long[] minTimes = new long[16];
+    private long[] maxTimes = new long[16];
+
+    private final List<Map<String, Postings>> terms = new ArrayList<>(TERM_FIELDS.length);
+
+    private CefArchiveIndex(Builder builder) {
+        this.file = Assert.notNull(builder.file, "File is required");
+        this.indexFile = (builder.indexFile == null
+            ? file.resolveSibling(file.getFileName() + INDEX_SUFFIX) : builder.indexFile);
+        Assert.validState(builder.blockSize > 0, "Block size must be > 0");
+        this.blockSize = builder.blockSize;
+
+        for (int i = 0; i < TERM_FIELDS.length; i++) {
+            terms.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Brings index up to date with the file and writes it to the index file. Only lines appended
+     * since the previous update are read, unless file has been truncated or replaced, or index
+     * file is missing or corrupted.
+     *
+     * @return number of newly indexed events, malformed lines are not counted
+     * @throws IOException if file cannot be read or index cannot be written
+     */
+    public long update() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean changed = false;
+            if (!loaded && !load()) {
+                reset();
+                changed = true;
+            }
+            final long size = channel.size();
+            if (size < indexedLength || fingerprint(channel, indexedLength) != fingerprint) {
+                reset();
+                changed = true;
+            }
+
+            final long previousLength = indexedLength;
+            final long events = index(channel, size);
+            fingerprint = fingerprint(channel, indexedLength);
+            if (changed || indexedLength != previousLength) {
+                save();
+            }
+            loaded = true;
+            return events;
+        }
+    }
+
+    /**
+     * Finds events matching specified query. Only indexed part of the file is searched, so index
+     * should be {@link #update() updated} first if the file may have grown.
+     *
+     * @param query search criteria
+     * @param consumer consumer of the matching events, invoked in file order
+     * @return query statistics
+     * @throws IOException if file cannot be read, or index file is missing or corrupted
+     */
+    public Statistics query(Query query, Consumer<? super CefEvent> consumer) throws IOException {
+        Assert.notNull(query, "Query is required");
+        Assert.notNull(consumer, "Consumer is required");
+        if (!loaded && !load()) {
+            throw new IOException("Index file " + indexFile + " is missing or corrupted");
+        }
+
+        final BitSet candidates = candidates(query);
+        final Statistics statistics = new Statistics(blockCount);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < indexedLength) {
+                throw new IOException("File " + file + " has been truncated since indexed");
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(0);
+            for (int block = candidates.nextSetBit(0); block >= 0;
+                block = candidates.nextSetBit(block + 1)) {
+                if (buffer.capacity() < blockLengths[block]) {
+                    buffer = ByteBuffer.allocate(blockLengths[block]);
+                }
+                buffer.clear().limit(blockLengths[block]);
+                readFully(channel, buffer, blockOffsets[block]);
+                statistics.blocksRead++;
+                statistics.bytesRead += blockLengths[block];
+                scan(buffer, query, consumer, statistics);
+            }
+        }
+        return statistics;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Path getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Returns length of the indexed part of the file.
+     *
+     * @return length in bytes
+     */
+    public long getIndexedLength() {
+        return indexedLength;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CefArchiveIndex{" +
+            "file=" + file +
+            ", indexFile=" + indexFile +
+            ", blockSize=" + blockSize +
+            ", indexedLength=" + indexedLength +
+            ", blockCount=" + blockCount +
+            '}';
+    }
+
+    /**
+     * Creates index builder.
+     *
+     * @param file CEF file to index
+     * @return index builder
+     */
+    public static Builder builder(Path file) {
+        return new Builder(file);
+    }
+
+    /**
+     * Finds blocks, which may contain events matching the query.
+     */
+    private BitSet candidates(Query query) {
+        final BitSet candidates = new BitSet(blockCount);
+        candidates.set(0, blockCount);
+
+        for (int term = 0; term < TERM_FIELDS.length; term++) {
+            final Set<String> values = query.values(TERM_FIELDS[term]);
+            if (values == null) {
+                continue;
+            }
+            final BitSet matching = new BitSet(blockCount);
+            for (String value : values) {
+                final Postings postings = terms.get(term).get(value);
+                if (postings != null) {
+                    postings.addTo(matching);
+                }
+            }
+            candidates.and(matching);
+        }
+
+        if (query.hasTimeRange()) {
+            for (int block = candidates.nextSetBit(0); block >= 0;
+                block = candidates.nextSetBit(block + 1)) {
+                if (maxTimes[block] < query.from || minTimes[block] >= query.to) {
+                    candidates.clear(block);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Parses lines of the read block passing matching events to the consumer.
+     */
+    private static void scan(ByteBuffer block, Query query, Consumer<? super CefEvent> consumer,
+        Statistics statistics) {
+        final int length = block.limit();
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && block.get(end) != LINE_FEED) {
+                end++;
+            }
+            final int next = end + 1;
+            if (end > start && block.get(end - 1) == '\r') {
+                end--;
+            }
+
+            if (end > start) {
+                CefEvent event = null;
+                block.limit(end).position(start);
+                try {
+                    statistics.linesParsed++;
+                    final CefLineIndex line = new CefLineIndex(CefSource.of(block));
+                    if (query.matches(line)) {
+                        event = CefParser.toEvent(line);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // malformed line or invalid event
+                } finally {
+                    block.limit(length);
+                }
+                // outside of the try, so that consumer exceptions are not taken for malformed lines
+                if (event != null) {
+                    statistics.matches++;
+                    consumer.accept(event);
+                }
+            }
+            start = next;
+        }
+    }
+
+    /**
+     * Indexes complete lines between indexed length and specified size of the file.
+     */
+    private long index(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(
+            (int) Math.min(READ_BUFFER_SIZE, Math.max(size - indexedLength, 1)));
+        long bufferOffset = indexedLength;
+        long blockStart = indexedLength;
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        long events = 0;
+
+        while (bufferOffset + buffer.position() < size) {
+            if (!buffer.hasRemaining()) {
+                // line is longer than the buffer
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+            }
+            final long readOffset = bufferOffset + buffer.position();
+            buffer.limit((int) Math.min(buffer.capacity(),
+                buffer.position() + (size - readOffset)));
+            if (channel.read(buffer, readOffset) < 0) {
+                break;
+            }
+            buffer.flip();
+
+            int lineStart = 0;
+            for (int i = 0, limit = buffer.limit(); i < limit; i++) {
+                if (buffer.get(i) != LINE_FEED) {
+                    continue;
+                }
+                final long time = indexLine(buffer, lineStart, i, blockCount);
+                buffer.limit(limit);
+                if (time != Long.MAX_VALUE) {
+                    events++;
+                    if (time != Long.MIN_VALUE) {
+                        minTime = Math.min(minTime, time);
+                        maxTime = Math.max(maxTime, time);
+                    }
+                }
+                lineStart = i + 1;
+
+                final long lineEnd = bufferOffset + lineStart;
+                if (lineEnd - blockStart >= blockSize) {
+                    addBlock(blockStart, lineEnd, minTime, maxTime);
+                    blockStart = lineEnd;
+                    minTime = Long.MAX_VALUE;
+                    maxTime = Long.MIN_VALUE;
+                }
+            }
+
+            buffer.position(lineStart);
+            buffer.compact();
+            bufferOffset += lineStart;
+        }
+
+        if (bufferOffset > blockStart) {
+            addBlock(blockStart, bufferOffset, minTime, maxTime);
+        }
+        indexedLength = bufferOffset;
+        return events;
+    }
+
+    /**
+     * Adds terms of the line to the posting lists of specified block.
+     *
+     * @return timestamp of the event, {@link Long#MIN_VALUE} if event has no timestamp or {@link
+     * Long#MAX_VALUE} if line is empty or malformed
+     */
+    private long indexLine(ByteBuffer buffer, int start, int end, int block) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == start) {
+            return Long.MAX_VALUE;
+        }
+
+        buffer.limit(end).position(start);
+        final CefLineIndex line;
+        try {
+            line = new CefLineIndex(CefSource.of(buffer));
+        } catch (IllegalArgumentException e) {
+            return Long.MAX_VALUE;
+        }
+        for (int term = 0; term < TERM_FIELDS.length; term++) {
+            terms.get(term)
+                .computeIfAbsent(line.field(TERM_FIELDS[term]), value -> new Postings())
+                .add(block);
+        }
+        return timestamp(line);
+    }
+
+    private void addBlock(long start, long end, long minTime, long maxTime) {
+        if (blockCount == blockLengths.length) {
+            final int capacity = blockCount * 2;
+            blockOffsets = Arrays.copyOf(blockOffsets, capacity);
+            blockLengths = Arrays.copyOf(blockLengths, capacity);
+            minTimes = Arrays.copyOf(minTimes, capacity);
+            maxTimes = Arrays.copyOf(maxTimes, capacity);
+        }
+        Assert.validState(end - start <= Integer.MAX_VALUE,
+            String.format("Block at offset %d is too long", start));
+        blockOffsets[blockCount] = start;
+        blockLengths[blockCount] = (int) (end - start);
+        minTimes[blockCount] = minTime;
+        maxTimes[blockCount] = maxTime;
+        blockCount++;
+    }
+
+    private void reset() {
+        indexedLength = 0;
+        fingerprint = 0;
+        blockCount = 0;
+        for (Map<String, Postings> dictionary : terms) {
+            dictionary.clear();
+        }
+    }
+
+    /**
+     * Reads index file.
+     *
+     * @return {@code false} if index file is missing or corrupted
+     */
+    private boolean load() throws IOException {
+        final byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(indexFile);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (bytes.length < HEADER_SIZE + CRC_SIZE) {
+            return false;
+        }
+        final ByteBuffer in = ByteBuffer.wrap(bytes);
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - CRC_SIZE);
+        if (in.getInt(bytes.length - CRC_SIZE) != (int) crc.getValue()
+            || in.getInt() != MAGIC || in.get() != FORMAT_VERSION) {
+            return false;
+        }
+
+        reset();
+        try {
+            final long length = in.getLong();
+            final int print = in.getInt();
+            final int blocks = BinaryCefFormat.getVarInt(in);
+            long offset = 0;
+            for (int block = 0; block < blocks; block++) {
+                final int blockLength = BinaryCefFormat.getVarInt(in);
+                long minTime = Long.MAX_VALUE;
+                long maxTime = Long.MIN_VALUE;
+                if (in.get() != 0) {
+                    minTime = BinaryCefFormat.getZigZag(in);
+                    maxTime = minTime + BinaryCefFormat.getVarLong(in);
+                }
+                addBlock(offset, offset + blockLength, minTime, maxTime);
+                offset += blockLength;
+            }
+            for (Map<String, Postings> dictionary : terms) {
+                for (int count = BinaryCefFormat.getVarInt(in); count > 0; count--) {
+                    final String value = BinaryCefFormat.getString(in);
+                    dictionary.put(value, Postings.read(in, blocks));
+                }
+            }
+            if (offset != length) {
+                reset();
+                return false;
+            }
+            indexedLength = length;
+            fingerprint = print;
+            loaded = true;
+            return true;
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            reset();
+            return false;
+        }
+    }
+
+    /**
+     * Writes index into temporary file and moves it over the index file, so that readers never
+     * see partially written index.
+     */
+    private void save() throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + blockCount * 24 + 1024)
+            .putInt(MAGIC)
+            .put(FORMAT_VERSION)
+            .putLong(indexedLength)
+            .putInt(fingerprint);
+        BinaryCefFormat.putVarLong(blockCount, out);
+        for (int block = 0; block < blockCount; block++) {
+            out = reserve(out, 3 * MAX_VARINT_SIZE + 1);
+            BinaryCefFormat.putVarLong(blockLengths[block], out);
+            if (minTimes[block] <= maxTimes[block]) {
+                out.put((byte) 1);
+                BinaryCefFormat.putZigZag(minTimes[block], out);
+                BinaryCefFormat.putVarLong(maxTimes[block] - minTimes[block], out);
+            } else {
+                out.put((byte) 0);
+            }
+        }
+
+        final Utf8Appender appender = new Utf8Appender();
+        for (Map<String, Postings> dictionary : terms) {
+            out = reserve(out, MAX_VARINT_SIZE);
+            BinaryCefFormat.putVarLong(dictionary.size(), out);
+            for (Map.Entry<String, Postings> term : dictionary.entrySet()) {
+                out = reserve(out, BinaryCefFormat.utf8Length(term.getKey()) + MAX_VARINT_SIZE);
+                BinaryCefFormat.putString(term.getKey(), appender.wrap(out), out);
+                out = term.getValue().write(out);
+            }
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, out.position());
+        out = reserve(out, CRC_SIZE).putInt((int) crc.getValue());
+
+        final Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Files.write(temporary, Arrays.copyOf(out.array(), out.position()));
+        try {
+            Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns CRC32 of the first bytes of the file, which identifies it.
+     */
+    private static int fingerprint(FileChannel channel, long length) throws IOException {
+        final ByteBuffer head = ByteBuffer.allocate((int) Math.min(length, FINGERPRINT_SIZE));
+        readFully(channel, head, 0);
+        final CRC32 crc = new CRC32();
+        crc.update(head.flip());
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset)
+        throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file at offset " + offset);
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Parses {@code rt} field as milliseconds since epoch.
+     *
+     * @return timestamp or {@link Long#MIN_VALUE} if there is no such field or it is not a number
+     */
+    private static long timestamp(CefLineIndex line) {
+        final int field = line.indexOfExtensionKey(TIMESTAMP_KEY);
+        return (field < 0 ? Long.MIN_VALUE : parseMillis(line.extensionValue(field)));
+    }
+
+    private static long parseMillis(String value) {
+        final int length = value.length();
+        if (length == 0 || length > 18) {
+            return Long.MIN_VALUE;
+        }
+        long millis = 0;
+        for (int i = 0; i < length; i++) {
+            final char digit = value.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return Long.MIN_VALUE;
+            }
+            millis = millis * 10 + (digit - '0');
+        }
+        return millis;
+    }
+
+    private static ByteBuffer reserve(ByteBuffer out, int bytes) {
+        if (out.remaining() >= bytes) {
+            return out;
+        }
+        final ByteBuffer grown =
+            ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+        return grown.put(out.flip());
+    }
+
+    /**
+     * Ascending numbers of the blocks containing a term.
+     */
+    private static final class Postings {
+
+        private int[] blocks = new int[4];
+        private int size;
+
+        void add(int block) {
+            if (size > 0 && blocks[size - 1] == block) {
+                return;
+            }
+            if (size == blocks.length) {
+                blocks = Arrays.copyOf(blocks, size * 2);
+            }
+            blocks[size++] = block;
+        }
+
+        void addTo(BitSet set) {
+            for (int i = 0; i < size; i++) {
+                set.set(blocks[i]);
+            }
+        }
+
+        ByteBuffer write(ByteBuffer out) {
+            out = reserve(out, (size + 1) * 5);
+            BinaryCefFormat.putVarLong(size, out);
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                BinaryCefFormat.putVarLong(blocks[i] - previous, out);
+                previous = blocks[i];
+            }
+            return out;
+        }
+
+        static Postings read(ByteBuffer in, int blockCount) {
+            final Postings postings = new Postings();
+            final int size = BinaryCefFormat.getVarInt(in);
+            Assert.validState(size <= blockCount, "Posting list is too long");
+            postings.blocks = new int[Math.max(size, 1)];
+            int block = 0;
+            for (int i = 0; i < size; i++) {
+                block += BinaryCefFormat.getVarInt(in);
+                Assert.validState(block < blockCount, "Block number is out of range");
+                postings.blocks[i] = block;
+            }
+            postings.size = size;
+            return postings;
+        }
+    }
+
+    /**
+     * Search criteria. Event matches query if it matches all the specified criteria; criterion
+     * with several values matches any of them.
+     */
+    public static final class Query {
+
+        private final Set<String> vendors;
+        private final Set<String> products;
+        private final Set<String> ids;
+        private final Set<String> severities;
+        private final long from;
+        private final long to;
+
+        private Query(Builder builder) {
+            this.vendors = builder.vendors;
+            this.products = builder.products;
+            this.ids = builder.ids;
+            this.severities = builder.severities;
+            Assert.validState(builder.from <= builder.to, "Time range must not be reversed");
+            this.from = builder.from;
+            this.to = builder.to;
+        }
+
+        /**
+         * Creates query builder.
+         *
+         * @return query builder
+         */
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        private Set<String> values(int field) {
+            switch (field) {
+                case CefLineIndex.VENDOR:
+                    return vendors;
+                case CefLineIndex.PRODUCT:
+                    return products;
+                case CefLineIndex.ID:
+                    return ids;
+                case CefLineIndex.SEVERITY:
+                    return severities;
+                default:
+                    return null;
+            }
+        }
+
+        private boolean hasTimeRange() {
+            return from != Long.MIN_VALUE || to != Long.MAX_VALUE;
+        }
+
+        private boolean matches(CefLineIndex line) {
+            for (int field : TERM_FIELDS) {
+                final Set<String> values = values(field);
+                if (values != null && !values.contains(line.field(field))) {
+                    return false;
+                }
+            }
+            if (hasTimeRange()) {
+                final long time = timestamp(line);
+                return time != Long.MIN_VALUE && time >= from && time < to;
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Query{" +
+                "vendors=" + vendors +
+                ", products=" + products +
+                ", ids=" + ids +
+                ", severities=" + severities +
+                ", from=" + from +
+                ", to=" + to +
+                '}';
+        }
+
+        public static class Builder {
+
+            private Set<String> vendors;
+            private Set<String> products;
+            private Set<String> ids;
+            private Set<String> severities;
+            private long from = Long.MIN_VALUE;
+            private long to = Long.MAX_VALUE;
+
+            private Builder() {
+            }
+
+            /**
+             * Restricts query to events of devices of the specified vendors.
+             *
+             * <p>Optional, default is any vendor.</p>
+             *
+             * @param vendors device vendors
+             * @return this builder for further customizations
+             */
+            public Builder vendor(String... vendors) {
+                this.vendors = Set.of(vendors);
+                return this;
+            }
+
+            /**
+             * Restricts query to events of the specified device products.
+             *
+             * <p>Optional, default is any product.</p>
+             *
+             * @param products device products
+             * @return this builder for further customizations
+             */
+            public Builder product(String... products) {
+                this.products = Set.of(products);
+                return this;
+            }
+
+            /**
+             * Restricts query to events of the specified classes.
+             *
+             * <p>Optional, default is any class.</p>
+             *
+             * @param ids event class ids
+             * @return this builder for further customizations
+             */
+            public Builder eventId(String... ids) {
+                this.ids = Set.of(ids);
+                return this;
+            }
+
+            /**
+             * Restricts query to events of the specified severities, compared as strings.
+             *
+             * <p>Optional, default is any severity.</p>
+             *
+             * @param severities event severities
+             * @return this builder for further customizations
+             */
+            public Builder severity(String... severities) {
+                this.severities = Set.of(severities);
+                return this;
+            }
+
+            /**
+             * Restricts query to events with {@code rt} timestamp within specified range.
+             *
+             * <p>Optional, default is any time, including events without timestamp.</p>
+             *
+             * @param fromMillis start of the range in milliseconds since epoch, inclusive
+             * @param toMillis end of the range in milliseconds since epoch, exclusive
+             * @return this builder for further customizations
+             */
+            public Builder timeRange(long fromMillis, long toMillis) {
+                this.from = fromMillis;
+                this.to = toMillis;
+                return this;
+            }
+
+            /**
+             * Creates query with submitted criteria.
+             *
+             * @return query
+             * @throws IllegalArgumentException if time range is reversed
+             */
+            public Query build() {
+                return new Query(this);
+            }
+        }
+    }
+
+    /**
+     * Statistics of a single query.
+     */
+    public static final class Statistics {
+
+        private final int blocks;
+        private int blocksRead;
+        private long bytesRead;
+        private long linesParsed;
+        private long matches;
+
+        private Statistics(int blocks) {
+            this.blocks = blocks;
+        }
+
+        /**
+         * Returns number of indexed blocks.
+         *
+         * @return number of blocks
+         */
+        public int getBlocks() {
+            return blocks;
+        }
+
+        /**
+         * Returns number of blocks, which index could not rule out and which have been read.
+         *
+         * @return number of read blocks
+         */
+        public int getBlocksRead() {
+            return blocksRead;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * Returns number of non-empty lines of the read blocks, which have been parsed.
+         *
+         * @return number of parsed lines
+         */
+        public long getLinesParsed() {
+            return linesParsed;
+        }
+
+        /**
+         * Returns number of events passed to consumer.
+         *
+         * @return number of matching events
+         */
+        public long getMatches() {
+            return matches;
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics{" +
+                "blocks=" + blocks +
+                ", blocksRead=" + blocksRead +
+                ", bytesRead=" + bytesRead +
+                ", linesParsed=" + linesParsed +
+                ", matches=" + matches +
+                '}';
+        }
+    }
+
+    public static class Builder {
+
+        private final Path file;
+        private Path indexFile;
+        private int blockSize = DEFAULT_BLOCK_SIZE;
+
+        private Builder(Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Sets file to keep the index in.
+         *
+         * <p>Optional, default is the indexed file name with {@value
+         * CefArchiveIndex#INDEX_SUFFIX} suffix in the same directory.</p>
+         *
+         * @param indexFile index file
+         * @return this builder for further customizations
+         */
+        public Builder indexFile(Path indexFile) {
+            this.indexFile = indexFile;
+            return this;
+        }
+
+        /**
+         * Sets approximate size of the block the file is split into. Smaller blocks make
+         * queries read less, but make index larger.
+         *
+         * <p>Optional, default value is {@value CefArchiveIndex#DEFAULT_BLOCK_SIZE} bytes.</p>
+         *
+         * @param blockSize block size in bytes, must be greater than 0
+         * @return this builder for further customizations
+         */
+        public Builder blockSize(int blockSize) {
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        /**
+         * Creates index with submitted parameters. Index file is neither read nor written until
+         * index is used.
+         *
+         * @return index
+         * @throws IllegalArgumentException on missing or illegal parameters
+         */
+        public CefArchiveIndex build() {
+            return new CefArchiveIndex(this);
+        }
+    }
+}
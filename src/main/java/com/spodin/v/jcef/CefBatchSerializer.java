@@ -0,0 +1,374 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Serializes large collections of CEF events in parallel into a single UTF-8 output, one event
+ * per line.
+ *
+ * <p>Events are split into batches, which are serialized concurrently in the fork-join pool, each
+ * into its own buffer, and then written to the output in their original order. No string is
+ * created per event. Events are processed in windows of several batches per pool thread, so memory
+ * footprint does not depend on the number of events, and buffers are reused between windows.</p>
+ *
+ * <p>Serializer is thread-safe.</p>
+ *
+ * @author spodin
+ */
+public class CefBatchSerializer {
+
+    private static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private static final int BATCHES_PER_THREAD = 4;
+
+    private static final int INITIAL_EVENT_SIZE = 256;
+
+    private static final int MAX_INITIAL_BUFFER_SIZE = 64 * 1024 * 1024;
+
+    private static final int MAX_RESULT_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final byte LINE_FEED = '\n';
+
+    private final StdCefSerializer serializer;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+
+    private CefBatchSerializer(Builder builder) {
+        this.serializer = Assert.notNull(builder.serializer, "Serializer is required");
+        this.pool = Assert.notNull(builder.pool, "Pool is required");
+        Assert.validState(builder.batchSize > 0, "Batch size must be > 0");
+        this.batchSize = builder.batchSize;
+    }
+
+    /**
+     * Serializes all the events into a single heap buffer.
+     *
+     * @param events CEF events
+     * @return flipped buffer with serialized events
+     * @throws IllegalArgumentException if any event contains invalid characters
+     * @throws IllegalStateException if serialized events exceed 2 GB
+     */
+    public ByteBuffer serializeAll(Collection<? extends CefEvent> events) {
+        Assert.notNull(events, "Events are required");
+        final List<? extends CefEvent> list = asList(events);
+        final ResultWriter out = new ResultWriter(list.size());
+        try {
+            serializeAll(list, out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // never thrown while copying
+        }
+        return out.result.flip();
+    }
+
+    /**
+     * Serializes all the events writing them to specified stream. Stream is neither flushed nor
+     * closed.
+     *
+     * @param events CEF events
+     * @param out stream to write serialized events to
+     * @return number of bytes written
+     * @throws IOException if stream fails to write
+     * @throws IllegalArgumentException if any event contains invalid characters
+     */
+    public long serializeAll(Collection<? extends CefEvent> events, OutputStream out)
+        throws IOException {
+        Assert.notNull(events, "Events are required");
+        return serializeAll(asList(events), writer(out));
+    }
+
+    /**
+     * Serializes all the events writing them to specified channel, e.g. file channel.
+     *
+     * @param events CEF events
+     * @param out channel to write serialized events to
+     * @return number of bytes written
+     * @throws IOException if channel fails to write
+     * @throws IllegalArgumentException if any event contains invalid characters
+     */
+    public long serializeAll(Collection<? extends CefEvent> events, WritableByteChannel out)
+        throws IOException {
+        Assert.notNull(events, "Events are required");
+        return serializeAll(asList(events), writer(out));
+    }
+
+    /**
+     * Serializes all the events of the stream writing them to specified stream. Events are
+     * consumed sequentially, window by window, so the stream may be lazy and larger than memory.
+     *
+     * @param events stream of CEF events
+     * @param out stream to write serialized events to
+     * @return number of bytes written
+     * @throws IOException if stream fails to write
+     * @throws IllegalArgumentException if any event contains invalid characters
+     */
+    public long serializeAll(Stream<? extends CefEvent> events, OutputStream out)
+        throws IOException {
+        Assert.notNull(events, "Events are required");
+        return serializeAll(events.iterator(), writer(out));
+    }
+
+    /**
+     * Serializes all the events of the stream writing them to specified channel, see {@link
+     * #serializeAll(Stream, OutputStream)}.
+     *
+     * @param events stream of CEF events
+     * @param out channel to write serialized events to
+     * @return number of bytes written
+     * @throws IOException if channel fails to write
+     * @throws IllegalArgumentException if any event contains invalid characters
+     */
+    public long serializeAll(Stream<? extends CefEvent> events, WritableByteChannel out)
+        throws IOException {
+        Assert.notNull(events, "Events are required");
+        return serializeAll(events.iterator(), writer(out));
+    }
+
+    /**
+     * Creates batch serializer builder.
+     *
+     * @return batch serializer builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private long serializeAll(List<? extends CefEvent> events, PartWriter out) throws IOException {
+        final Window window = new Window();
+        long written = 0;
+        for (int from = 0; from < events.size(); from += window.capacity()) {
+            final int to = (int) Math.min(events.size(), (long) from + window.capacity());
+            written += window.serialize(events.subList(from, to), out);
+        }
+        return written;
+    }
+
+    private long serializeAll(Iterator<? extends CefEvent> events, PartWriter out)
+        throws IOException {
+        final Window window = new Window();
+        final List<CefEvent> buffered = new ArrayList<>();
+        long written = 0;
+        while (events.hasNext()) {
+            buffered.add(events.next());
+            if (buffered.size() == window.capacity() || !events.hasNext()) {
+                written += window.serialize(buffered, out);
+                buffered.clear();
+            }
+        }
+        return written;
+    }
+
+    private static List<? extends CefEvent> asList(Collection<? extends CefEvent> events) {
+        if (events instanceof List && events instanceof RandomAccess) {
+            return (List<? extends CefEvent>) events;
+        }
+        return new ArrayList<>(events);
+    }
+
+    private static PartWriter writer(OutputStream out) {
+        Assert.notNull(out, "Output stream is required");
+        return part -> out.write(part.array(), part.arrayOffset() + part.position(),
+            part.remaining());
+    }
+
+    private static PartWriter writer(WritableByteChannel out) {
+        Assert.notNull(out, "Output channel is required");
+        return part -> {
+            while (part.hasRemaining()) {
+                out.write(part);
+            }
+        };
+    }
+
+    /**
+     * Destination of the serialized batches.
+     */
+    private interface PartWriter {
+
+        void write(ByteBuffer part) throws IOException;
+    }
+
+    /**
+     * Copies batches straight into the resulting buffer, which is sized by the first batch.
+     */
+    private final class ResultWriter implements PartWriter {
+
+        private final int events;
+        private ByteBuffer result = ByteBuffer.allocate(0);
+
+        ResultWriter(int events) {
+            this.events = events;
+        }
+
+        @Override
+        public void write(ByteBuffer part) {
+            if (part.remaining() > result.remaining()) {
+                final long required = (long) result.position() + part.remaining();
+                if (required > MAX_RESULT_SIZE) {
+                    throw new IllegalStateException(
+                        "Serialized events exceed 2 GB: " + required + " bytes");
+                }
+                final long estimated = (result.position() == 0
+                    // first batch, the rest are estimated by its size with an eighth to spare
+                    ? (long) (1.125 * required * events / Math.min(events, batchSize))
+                    : (long) result.capacity() * 2);
+                result = ByteBuffer.allocate((int) Math.min(MAX_RESULT_SIZE,
+                    Math.max(required, estimated))).put(result.flip());
+            }
+            result.put(part);
+        }
+    }
+
+    /**
+     * Batch buffers of the window, reused between windows.
+     */
+    private final class Window {
+
+        private final ByteBuffer[] buffers = new ByteBuffer[pool.getParallelism()
+            * BATCHES_PER_THREAD];
+
+        int capacity() {
+            return (int) Math.min(MAX_RESULT_SIZE, (long) buffers.length * batchSize);
+        }
+
+        long serialize(List<? extends CefEvent> events, PartWriter out) throws IOException {
+            final int batches = (int) ((events.size() + (long) batchSize - 1) / batchSize);
+            pool.invoke(new BatchTask(events, buffers, 0, batches));
+
+            long written = 0;
+            for (int i = 0; i < batches; i++) {
+                final ByteBuffer buffer = buffers[i].flip();
+                written += buffer.remaining();
+                out.write(buffer);
+                buffer.clear();
+            }
+            return written;
+        }
+    }
+
+    private final class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends CefEvent> events;
+        private final ByteBuffer[] buffers;
+        private final int from;
+        private final int to;
+
+        BatchTask(List<? extends CefEvent> events, ByteBuffer[] buffers, int from, int to) {
+            this.events = events;
+            this.buffers = buffers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(
+                    new BatchTask(events, buffers, from, middle),
+                    new BatchTask(events, buffers, middle, to));
+            } else if (to > from) {
+                serializeBatch(from);
+            }
+        }
+
+        private void serializeBatch(int batch) {
+            ByteBuffer buffer = buffers[batch];
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate((int) Math.min(MAX_INITIAL_BUFFER_SIZE,
+                    (long) batchSize * INITIAL_EVENT_SIZE));
+            }
+
+            final int end = (int) Math.min(events.size(), (batch + 1L) * batchSize);
+            for (int i = (int) ((long) batch * batchSize); i < end; i++) {
+                final CefEvent event = events.get(i);
+                while (!serializer.serializeTo(event, buffer) || !buffer.hasRemaining()) {
+                    buffer = grow(buffer);
+                }
+                buffer.put(LINE_FEED);
+            }
+            buffers[batch] = buffer;
+        }
+
+        private ByteBuffer grow(ByteBuffer buffer) {
+            if (buffer.capacity() >= MAX_RESULT_SIZE) {
+                throw new IllegalStateException("Serialized batch exceeds 2 GB");
+            }
+            final ByteBuffer grown = ByteBuffer.allocate(
+                (int) Math.min(MAX_RESULT_SIZE, (long) buffer.capacity() * 2));
+            return grown.put(buffer.flip());
+        }
+    }
+
+    public static class Builder {
+
+        private StdCefSerializer serializer = new StdCefSerializer();
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets serializer of the events, e.g. one with {@link CefPrefixCache}. Serializer is
+         * shared by the pool threads.
+         *
+         * <p>Optional, default is {@link StdCefSerializer} without cache.</p>
+         *
+         * @param serializer events serializer
+         * @return this builder for further customizations
+         */
+        public Builder serializer(StdCefSerializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
+        /**
+         * Sets fork-join pool to serialize batches in.
+         *
+         * <p>Optional, default is {@link ForkJoinPool#commonPool()}.</p>
+         *
+         * @param pool fork-join pool
+         * @return this builder for further customizations
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets number of events serialized by a single task into a single buffer.
+         *
+         * <p>Optional, default value is {@value CefBatchSerializer#DEFAULT_BATCH_SIZE}.</p>
+         *
+         * @param batchSize batch size, must be greater than 0
+         * @return this builder for further customizations
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Creates batch serializer with submitted parameters.
+         *
+         * @return batch serializer
+         * @throws IllegalArgumentException if any parameter is not valid
+         */
+        public CefBatchSerializer build() {
+            return new CefBatchSerializer(this);
+        }
+    }
+}
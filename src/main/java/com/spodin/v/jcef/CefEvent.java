@@ -1,15 +1,16 @@
 package com.spodin.v.jcef;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * CEF event parameters.
  *
  * @author spodin
  */
-public class CefEvent implements Serializable {
+public class CefEvent extends AbstractCefEvent implements Serializable {
 
-    private static final String FORMAT_IDENTIFIER_PREFIX = "CEF";
+    static final String FORMAT_IDENTIFIER_PREFIX = "CEF";
 
     private final int version;
     private final Device device;
@@ -18,33 +19,33 @@ public class CefEvent implements Serializable {
     private final Extension extension;
 
     private CefEvent(Builder builder) {
-        Assert.validState((builder.version >= 0), "Version must be >= 0");
+        validate(builder.version, builder.device, builder.eventId, builder.severity);
         this.version = builder.version;
-
-        Assert.notNull(builder.device, "Device is required");
         this.device = builder.device;
-
-        Assert.notNull(builder.eventId, "EventId is required");
         this.eventId = builder.eventId;
-
-        Assert.notNullOrBlank(builder.severity, "Severity is required");
         this.severity = builder.severity;
-
         this.extension = (builder.extension == null ? Extension.empty() : builder.extension);
     }
 
     public String getFormatIdentifier() {
-        return String.format("%s:%d", FORMAT_IDENTIFIER_PREFIX, version);
+        return FORMAT_IDENTIFIER_PREFIX + ':' + version;
     }
 
+    @Override
     public int getVersion() {
         return version;
     }
 
+    @Override
     public Device getDevice() {
         return device;
     }
 
+    @Override
+    EventId getEventId() {
+        return eventId;
+    }
+
     public String getId() {
         return eventId.getId();
     }
@@ -53,6 +54,7 @@ public class CefEvent implements Serializable {
         return eventId.getName();
     }
 
+    @Override
     public String getSeverity() {
         return severity;
     }
@@ -61,6 +63,30 @@ public class CefEvent implements Serializable {
         return extension;
     }
 
+    @Override
+    AbstractExtension getExtensionFields() {
+        return extension;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CefEvent cefEvent = (CefEvent) o;
+        return version == cefEvent.version && device.equals(cefEvent.device) && eventId.equals(
+            cefEvent.eventId) && severity.equals(cefEvent.severity) && extension.equals(
+            cefEvent.extension);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(version, device, eventId, severity, extension);
+    }
+
     @Override
     public String toString() {
         return "CefEvent{" +
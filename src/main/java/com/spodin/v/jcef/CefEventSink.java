@@ -0,0 +1,31 @@
+package com.spodin.v.jcef;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination CEF events are written to, e.g. file or network transport.
+ *
+ * <p>Sink may buffer written events until {@link #flush()} is called, so that several events are
+ * delivered by a single I/O operation. Sinks are not required to be thread-safe.</p>
+ *
+ * @author spodin
+ */
+public interface CefEventSink extends Closeable {
+
+    /**
+     * Writes specified CEF event.
+     *
+     * @param event CEF event
+     * @throws IOException if event cannot be written
+     */
+    void write(CefEvent event) throws IOException;
+
+    /**
+     * Delivers buffered events, if any.
+     *
+     * @throws IOException if events cannot be delivered
+     */
+    default void flush() throws IOException {
+    }
+}
@@ -0,0 +1,703 @@
+package com.spodin.v.jcef;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Follows CEF log file, which is being appended by other software, parsing appended lines into
+ * events as they are completed.
+ *
+ * <p>Follower keeps the file open and tracks its identity (inode) and offset of the first byte
+ * not yet delivered. Each {@link #poll()} reads only the bytes appended since the previous one
+ * into a reused buffer and passes events of the complete lines to the consumer; trailing partial
+ * line is carried over to the next poll. Malformed lines are skipped and counted.</p>
+ *
+ * <p>If the file is rotated, i.e. path refers to another file or to none, the rest of the old
+ * file is read first, including its last line even without line feed, then the new file is read
+ * from its start once it appears. If the file is truncated in place, it is read from its start
+ * again.</p>
+ *
+ * <p>With {@link Builder#checkpointFile(Path) checkpoint file}, identity and offset are persisted
+ * after each poll, which has delivered events, and on close, so that reopened follower resumes
+ * where the previous one stopped. Events delivered since the last checkpoint are delivered again
+ * after a crash.</p>
+ *
+ * <p>Background thread polls the file whenever directory watch service reports a change, and at
+ * least once per {@link Builder#pollInterval(Duration) poll interval}, which bounds the delay if
+ * watch events are lost or not supported by the file system.</p>
+ *
+ * <p>Follower is thread-safe; consumer is invoked by a single thread at a time.</p>
+ *
+ * @author spodin
+ */
+public class CefFileFollower implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int DEFAULT_MAX_LINE_LENGTH = 1024 * 1024;
+
+    private static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(1);
+
+    private static final int CHECKPOINT_MAGIC = 0x43454631;
+
+    private static final int MAX_OPEN_ATTEMPTS = 3;
+
+    private static final byte LINE_FEED = '\n';
+
+    private final Path file;
+    private final Consumer<? super CefEvent> consumer;
+    private final CefParser parser;
+    private final Path checkpointFile;
+    private final int maxLineLength;
+    private final Consumer<? super Exception> errorHandler;
+    private final WatchService watcher;
+    private final Thread thread;
+    private final long pollIntervalNanos;
+
+    private final Object lock = new Object();
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder malformedLines = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder truncations = new LongAdder();
+
+    /**
+     * Buffer holds bytes of the file starting at {@link #offset}, in write mode.
+     */
+    private ByteBuffer buffer;
+    private ByteBuffer lines;
+
+    private FileChannel channel;
+    private String fileKey;
+    private long offset;
+
+    /**
+     * Whether the rest of the line in the buffer has to be discarded, since it exceeds maximal
+     * length.
+     */
+    private boolean skipping;
+
+    /**
+     * Identity and offset to resume from, consumed when the file is opened for the first time.
+     */
+    private String resumeKey;
+    private long resumeOffset;
+    private boolean startAtEnd;
+
+    private volatile boolean closed;
+
+    private CefFileFollower(Builder builder) throws IOException {
+        this.file = Assert.notNull(builder.file, "File is required");
+        this.consumer = Assert.notNull(builder.consumer, "Consumer is required");
+        this.parser = Assert.notNull(builder.parser, "Parser is required");
+        this.checkpointFile = builder.checkpointFile;
+        this.errorHandler = Assert.notNull(builder.errorHandler, "Error handler is required");
+        Assert.validState(builder.bufferSize > 0, "Buffer size must be > 0");
+        Assert.validState(builder.maxLineLength >= builder.bufferSize,
+            "Maximal line length must be >= buffer size");
+        this.maxLineLength = builder.maxLineLength;
+        Assert.notNull(builder.pollInterval, "Poll interval is required");
+        Assert.validState(!builder.pollInterval.isNegative(), "Poll interval must be >= 0");
+        this.pollIntervalNanos = builder.pollInterval.toNanos();
+        this.startAtEnd = builder.startAtEnd;
+
+        this.buffer = ByteBuffer.allocate(builder.bufferSize);
+        this.lines = buffer.duplicate();
+        if (checkpointFile != null) {
+            loadCheckpoint();
+        }
+
+        if (pollIntervalNanos > 0) {
+            Assert.notNullOrBlank(builder.threadName, "Thread name is required");
+            this.watcher = watch(file);
+            this.thread = new Thread(this::follow, builder.threadName);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        } else {
+            this.watcher = null;
+            this.thread = null;
+        }
+    }
+
+    /**
+     * Reads bytes appended to the file since the previous poll and passes events of the complete
+     * lines to the consumer. Handles rotation and truncation of the file. Does nothing if the file
+     * does not exist.
+     *
+     * @return number of events passed to the consumer
+     * @throws IOException if file cannot be read, checkpoint cannot be written or follower is
+     * closed
+     */
+    public long poll() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IOException("Follower is closed");
+            }
+
+            final long previousOffset = offset;
+            final String previousKey = fileKey;
+            long delivered = 0;
+            if (channel == null && !openFile()) {
+                return 0;
+            }
+            delivered += drain();
+
+            final String key = fileKey(file);
+            if (!fileKey.equals(key)) {
+                // writer has completed the old file, so its last line is complete as well
+                delivered += deliverRemainder();
+                closeChannel();
+                rotations.increment();
+                if (key != null && openFile()) {
+                    delivered += drain();
+                }
+            } else if (channel.size() < offset + buffer.position()) {
+                buffer.clear();
+                skipping = false;
+                offset = 0;
+                truncations.increment();
+                delivered += drain();
+            }
+
+            if (checkpointFile != null
+                && (offset != previousOffset || !Objects.equals(fileKey, previousKey))) {
+                saveCheckpoint();
+            }
+            return delivered;
+        }
+    }
+
+    /**
+     * Returns offset of the first byte of the followed file, which has not been delivered yet.
+     *
+     * @return offset in bytes
+     */
+    public long getOffset() {
+        synchronized (lock) {
+            return offset;
+        }
+    }
+
+    /**
+     * Returns number of events passed to the consumer.
+     *
+     * @return number of events
+     */
+    public long getEventsRead() {
+        return events.sum();
+    }
+
+    /**
+     * Returns number of lines, which could not be parsed into events or exceeded maximal length.
+     *
+     * @return number of malformed lines
+     */
+    public long getMalformedLines() {
+        return malformedLines.sum();
+    }
+
+    /**
+     * Returns number of times the file has been rotated.
+     *
+     * @return number of rotations
+     */
+    public long getRotations() {
+        return rotations.sum();
+    }
+
+    /**
+     * Returns number of times the file has been truncated.
+     *
+     * @return number of truncations
+     */
+    public long getTruncations() {
+        return truncations.sum();
+    }
+
+    /**
+     * Stops the background thread, persists the checkpoint and closes the file. Partial line is
+     * not delivered, follower reopened from the checkpoint reads it once it is completed.
+     *
+     * @throws IOException if checkpoint cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (thread != null) {
+            if (watcher != null) {
+                watcher.close();
+            }
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (lock) {
+            try {
+                if (checkpointFile != null && channel != null) {
+                    saveCheckpoint();
+                }
+            } finally {
+                closeChannel();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CefFileFollower{" +
+            "file=" + file +
+            ", offset=" + getOffset() +
+            ", eventsRead=" + getEventsRead() +
+            ", malformedLines=" + getMalformedLines() +
+            ", rotations=" + getRotations() +
+            ", truncations=" + getTruncations() +
+            '}';
+    }
+
+    /**
+     * Creates file follower builder.
+     *
+     * @param file path to the file to follow
+     * @param consumer consumer of the events
+     * @return file follower builder
+     */
+    public static Builder builder(Path file, Consumer<? super CefEvent> consumer) {
+        return new Builder(file, consumer);
+    }
+
+    private void follow() {
+        while (!closed) {
+            try {
+                poll();
+            } catch (IOException | RuntimeException e) {
+                if (!closed) {
+                    errorHandler.accept(e);
+                }
+            }
+            awaitChange();
+        }
+    }
+
+    /**
+     * Waits until directory of the file changes or poll interval elapses.
+     */
+    private void awaitChange() {
+        if (watcher == null) {
+            LockSupport.parkNanos(this, pollIntervalNanos);
+            return;
+        }
+        try {
+            final WatchKey key = watcher.poll(pollIntervalNanos, TimeUnit.NANOSECONDS);
+            if (key != null) {
+                key.pollEvents();
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Opens the file, resuming from the checkpoint if it refers to the same file.
+     *
+     * @return {@code false} if file does not exist
+     */
+    private boolean openFile() throws IOException {
+        for (int attempt = 0; attempt < MAX_OPEN_ATTEMPTS; attempt++) {
+            final String key = fileKey(file);
+            if (key == null) {
+                return false;
+            }
+            final FileChannel opened;
+            try {
+                opened = FileChannel.open(file, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+            if (!key.equals(fileKey(file))) {
+                opened.close(); // rotated while being opened
+                continue;
+            }
+
+            channel = opened;
+            fileKey = key;
+            buffer.clear();
+            skipping = false;
+            offset = 0;
+            if (key.equals(resumeKey) && resumeOffset <= channel.size()) {
+                offset = resumeOffset;
+            } else if (startAtEnd) {
+                offset = channel.size();
+            }
+            resumeKey = null;
+            startAtEnd = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads all available bytes of the open file, delivering complete lines.
+     */
+    private long drain() throws IOException {
+        long delivered = 0;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                makeRoom();
+            }
+            if (channel.read(buffer, offset + buffer.position()) <= 0) {
+                return delivered;
+            }
+            delivered += deliverLines();
+        }
+    }
+
+    /**
+     * Delivers complete lines of the buffer and moves partial line to its start.
+     */
+    private long deliverLines() {
+        long delivered = 0;
+        final int end = buffer.position();
+        int start = 0;
+        for (int i = 0; i < end; i++) {
+            if (buffer.get(i) != LINE_FEED) {
+                continue;
+            }
+            if (skipping) {
+                skipping = false;
+            } else {
+                delivered += deliver(start, i);
+            }
+            start = i + 1;
+        }
+
+        if (start > 0) {
+            buffer.flip().position(start);
+            buffer.compact();
+            offset += start;
+        }
+        return delivered;
+    }
+
+    /**
+     * Delivers partial line of the buffer as a complete one.
+     */
+    private long deliverRemainder() {
+        final int end = buffer.position();
+        final long delivered = (end > 0 && !skipping ? deliver(0, end) : 0);
+        buffer.clear();
+        skipping = false;
+        offset += end;
+        return delivered;
+    }
+
+    private long deliver(int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == start) {
+            return 0;
+        }
+
+        final CefEvent event;
+        try {
+            event = parser.parse(lines.limit(end).position(start));
+        } catch (IllegalArgumentException e) {
+            malformedLines.increment();
+            return 0;
+        }
+        try {
+            consumer.accept(event);
+        } catch (RuntimeException e) {
+            errorHandler.accept(e);
+        }
+        events.increment();
+        return 1;
+    }
+
+    /**
+     * Grows the full buffer, or discards its content if line exceeds maximal length.
+     */
+    private void makeRoom() {
+        if (buffer.capacity() < maxLineLength) {
+            final int capacity = (int) Math.min((long) buffer.capacity() * 2, maxLineLength);
+            buffer = ByteBuffer.allocate(capacity).put(buffer.flip());
+            lines = buffer.duplicate();
+            return;
+        }
+        if (!skipping) {
+            malformedLines.increment();
+        }
+        offset += buffer.position();
+        buffer.clear();
+        skipping = true;
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            final FileChannel closing = channel;
+            channel = null;
+            closing.close();
+        }
+    }
+
+    /**
+     * Returns identity of the file, which changes when path is pointed to another file.
+     *
+     * @return file key or {@code null} if file does not exist
+     */
+    private static String fileKey(Path file) throws IOException {
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        final Object key = attributes.fileKey();
+        return (key == null ? attributes.creationTime().toString() : key.toString());
+    }
+
+    private static WatchService watch(Path file) {
+        final Path directory = file.toAbsolutePath().getParent();
+        WatchService watcher = null;
+        try {
+            watcher = directory.getFileSystem().newWatchService();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            return watcher;
+        } catch (IOException | UnsupportedOperationException e) {
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            return null; // polling only
+        }
+    }
+
+    /**
+     * Reads identity and offset to resume from. Missing or corrupted checkpoint is ignored.
+     */
+    private void loadCheckpoint() throws IOException {
+        final byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(checkpointFile);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, Math.max(bytes.length - 4, 0));
+        final ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            if (in.getInt(bytes.length - 4) != (int) crc.getValue()
+                || in.getInt() != CHECKPOINT_MAGIC) {
+                return;
+            }
+            final long checkpointOffset = in.getLong();
+            final byte[] key = new byte[in.getInt()];
+            in.get(key);
+            resumeKey = new String(key, StandardCharsets.UTF_8);
+            resumeOffset = checkpointOffset;
+            startAtEnd = false;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException
+            | NegativeArraySizeException e) {
+            // corrupted, start from scratch
+        }
+    }
+
+    /**
+     * Writes checkpoint into temporary file and moves it over the previous one, so that it is
+     * never partially written.
+     */
+    private void saveCheckpoint() throws IOException {
+        final byte[] key = fileKey.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer out = ByteBuffer.allocate(4 + 8 + 4 + key.length + 4)
+            .putInt(CHECKPOINT_MAGIC)
+            .putLong(offset)
+            .putInt(key.length)
+            .put(key);
+        final CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, out.position());
+        out.putInt((int) crc.getValue());
+
+        final Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.write(temporary, out.array());
+        try {
+            Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public static class Builder {
+
+        private final Path file;
+        private final Consumer<? super CefEvent> consumer;
+        private CefParser parser = new CefParser();
+        private Path checkpointFile;
+        private boolean startAtEnd;
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+        private int maxLineLength = DEFAULT_MAX_LINE_LENGTH;
+        private Duration pollInterval = DEFAULT_POLL_INTERVAL;
+        private Consumer<? super Exception> errorHandler = e -> {
+        };
+        private String threadName = "jcef-follower";
+
+        private Builder(Path file, Consumer<? super CefEvent> consumer) {
+            this.file = file;
+            this.consumer = consumer;
+        }
+
+        /**
+         * Sets parser to parse lines with.
+         *
+         * <p>Optional, default is {@link CefParser} instance.</p>
+         *
+         * @param parser line parser
+         * @return this builder for further customizations
+         */
+        public Builder parser(CefParser parser) {
+            this.parser = parser;
+            return this;
+        }
+
+        /**
+         * Sets file to persist position of the follower in. If the file exists and refers to the
+         * followed file, following resumes from the persisted position.
+         *
+         * <p>Optional, by default position is not persisted.</p>
+         *
+         * @param checkpointFile checkpoint file
+         * @return this builder for further customizations
+         */
+        public Builder checkpointFile(Path checkpointFile) {
+            this.checkpointFile = checkpointFile;
+            return this;
+        }
+
+        /**
+         * Sets whether existing content of the file should be skipped if there is no checkpoint
+         * to resume from. Files appearing after rotation are always read from the start.
+         *
+         * <p>Optional, default value is {@code false}.</p>
+         *
+         * @param startAtEnd whether to skip existing content
+         * @return this builder for further customizations
+         */
+        public Builder startAtEnd(boolean startAtEnd) {
+            this.startAtEnd = startAtEnd;
+            return this;
+        }
+
+        /**
+         * Sets initial size of the read buffer.
+         *
+         * <p>Optional, default value is {@value CefFileFollower#DEFAULT_BUFFER_SIZE} bytes.</p>
+         *
+         * @param bufferSize buffer size in bytes, must be greater than 0
+         * @return this builder for further customizations
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * Sets maximal length of the line. Buffer grows up to this length to hold long lines;
+         * longer lines are skipped and counted as malformed.
+         *
+         * <p>Optional, default value is {@value CefFileFollower#DEFAULT_MAX_LINE_LENGTH}
+         * bytes.</p>
+         *
+         * @param maxLineLength maximal line length in bytes, must be greater than or equal to
+         * buffer size
+         * @return this builder for further customizations
+         */
+        public Builder maxLineLength(int maxLineLength) {
+            this.maxLineLength = maxLineLength;
+            return this;
+        }
+
+        /**
+         * Sets maximal interval between polls of the background thread, which applies when watch
+         * service reports no changes. {@link Duration#ZERO} disables the thread, so that the file
+         * is only read by {@link CefFileFollower#poll()}.
+         *
+         * <p>Optional, default is 1 second.</p>
+         *
+         * @param pollInterval poll interval, must not be negative
+         * @return this builder for further customizations
+         */
+        public Builder pollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+            return this;
+        }
+
+        /**
+         * Sets handler of read errors of the background thread and of the consumer errors.
+         *
+         * <p>Optional, by default errors are ignored.</p>
+         *
+         * @param errorHandler error handler
+         * @return this builder for further customizations
+         */
+        public Builder errorHandler(Consumer<? super Exception> errorHandler) {
+            this.errorHandler = errorHandler;
+            return this;
+        }
+
+        /**
+         * Sets name of the background thread.
+         *
+         * <p>Optional, default value is {@code jcef-follower}.</p>
+         *
+         * @param threadName thread name
+         * @return this builder for further customizations
+         */
+        public Builder threadName(String threadName) {
+            this.threadName = threadName;
+            return this;
+        }
+
+        /**
+         * Creates follower with submitted parameters, reads its checkpoint and starts the
+         * background thread. The file itself is opened by the first poll.
+         *
+         * @return file follower
+         * @throws IOException if checkpoint cannot be read
+         * @throws IllegalArgumentException on missing or illegal parameters
+         */
+        public CefFileFollower open() throws IOException {
+            return new CefFileFollower(this);
+        }
+    }
+}
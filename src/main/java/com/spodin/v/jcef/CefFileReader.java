@@ -0,0 +1,519 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads CEF events from large UTF-8 encoded files, one event per line.
+ *
+ * <p>File is split into line-aligned chunks, each chunk is memory-mapped separately and parsed
+ * directly from the mapping, so files larger than 2 GB are supported and no data is copied to the
+ * heap except the extracted values. Chunks are parsed in parallel either:</p>
+ * <ul>
+ *     <li>in order, through a parallel {@link Stream} ({@link #stream()});</li>
+ *     <li>out of order, through a callback invoked concurrently from the fork-join pool
+ *     ({@link #read(Consumer)}), which gives the highest throughput.</li>
+ * </ul>
+ *
+ * <p>Empty lines are skipped, malformed lines are skipped and counted in {@link Statistics}. With
+ * {@link Builder#filter(CefFilter) filter}, lines are checked before parsing and only matching
+ * ones are parsed.</p>
+ *
+ * @author spodin
+ */
+public class CefFileReader {
+
+    private static final int DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+
+    private static final int BOUNDARY_SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private static final byte LINE_FEED = '\n';
+
+    private final Path path;
+    private final CefParser parser;
+    private final CefFilter filter;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    private CefFileReader(Builder builder) {
+        this.path = Assert.notNull(builder.path, "Path is required");
+        this.parser = Assert.notNull(builder.parser, "Parser is required");
+        this.filter = builder.filter;
+        this.pool = Assert.notNull(builder.pool, "Pool is required");
+
+        Assert.validState(builder.chunkSize > 0, "Chunk size must be > 0");
+        this.chunkSize = builder.chunkSize;
+    }
+
+    /**
+     * Reads all events of the file passing them to the specified consumer. Consumer is invoked
+     * concurrently from the pool threads in no particular order, so it must be thread-safe.
+     *
+     * @param consumer events consumer
+     * @return reading statistics
+     * @throws UncheckedIOException if file cannot be read
+     */
+    public Statistics read(Consumer<? super CefEvent> consumer) {
+        Assert.notNull(consumer, "Consumer is required");
+
+        final Statistics statistics = new Statistics();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final List<Chunk> chunks = split(channel);
+            pool.invoke(new ChunkTask(channel, chunks, 0, chunks.size(), consumer, statistics));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return statistics;
+    }
+
+    /**
+     * Creates ordered parallel stream of the file events. Stream holds the file open and must be
+     * closed after use. Parallel stream is executed in the pool it is invoked from.
+     *
+     * @return stream of events
+     * @throws UncheckedIOException if file cannot be read
+     */
+    public Stream<CefEvent> stream() {
+        return stream(new Statistics());
+    }
+
+    /**
+     * Creates ordered parallel stream of the file events, collecting reading statistics into
+     * specified instance. Stream holds the file open and must be closed after use.
+     *
+     * @param statistics statistics to update while stream is consumed
+     * @return stream of events
+     * @throws UncheckedIOException if file cannot be read
+     */
+    public Stream<CefEvent> stream(Statistics statistics) {
+        Assert.notNull(statistics, "Statistics is required");
+
+        final FileChannel channel;
+        final List<Chunk> chunks;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            chunks = split(channel);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel, e);
+            throw (e instanceof IOException ? new UncheckedIOException((IOException) e)
+                : (RuntimeException) e);
+        }
+
+        return StreamSupport
+            .stream(new ChunkSpliterator(channel, chunks, 0, chunks.size(), statistics), true)
+            .onClose(() -> {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+    }
+
+    /**
+     * Splits file into chunks of approximately configured size, each ending with a line feed or at
+     * the end of file.
+     */
+    private List<Chunk> split(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final List<Chunk> chunks = new ArrayList<>((int) (size / chunkSize) + 1);
+        final ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_BUFFER_SIZE);
+
+        long start = 0;
+        while (start < size) {
+            final long end = (size - start <= chunkSize)
+                ? size : lineEnd(channel, start + chunkSize, size, scan);
+            Assert.validState(end - start <= Integer.MAX_VALUE,
+                String.format("Line at offset %d is too long to be mapped", start));
+            chunks.add(new Chunk(start, (int) (end - start)));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Finds position following the first line feed at or after specified offset.
+     */
+    private static long lineEnd(FileChannel channel, long offset, long size, ByteBuffer scan)
+        throws IOException {
+        long position = offset;
+        while (position < size) {
+            scan.clear();
+            final int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == LINE_FEED) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static void closeQuietly(FileChannel channel, Exception cause) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Creates file reader builder.
+     *
+     * @param path path to the file to read
+     * @return file reader builder
+     */
+    public static Builder builder(Path path) {
+        return new Builder(path);
+    }
+
+    /**
+     * Line-aligned region of the file.
+     */
+    private static final class Chunk {
+
+        private final long offset;
+        private final int length;
+
+        Chunk(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Iterates over lines of a single mapped chunk.
+     */
+    private final class ChunkLines {
+
+        private final ByteBuffer mapping;
+        private final Statistics statistics;
+        private int position;
+
+        ChunkLines(FileChannel channel, Chunk chunk, Statistics statistics) {
+            try {
+                this.mapping =
+                    channel.map(FileChannel.MapMode.READ_ONLY, chunk.offset, chunk.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.statistics = statistics;
+            statistics.bytes.add(chunk.length);
+        }
+
+        /**
+         * Parses next valid event of the chunk.
+         *
+         * @return event or {@code null} if there are no more lines
+         */
+        CefEvent next() {
+            final int length = mapping.capacity();
+            while (position < length) {
+                int end = position;
+                while (end < length && mapping.get(end) != LINE_FEED) {
+                    end++;
+                }
+
+                final int start = position;
+                position = end + 1;
+                if (end == start || (end == start + 1 && mapping.get(start) == '\r')) {
+                    continue;
+                }
+
+                statistics.lines.increment();
+                mapping.limit(end).position(start);
+                try {
+                    if (filter != null && !filter.matches(mapping)) {
+                        statistics.filteredLines.increment();
+                        continue;
+                    }
+                    return parser.parse(mapping);
+                } catch (IllegalArgumentException e) {
+                    statistics.malformedLines.increment();
+                } finally {
+                    mapping.limit(length);
+                }
+            }
+            statistics.finish();
+            return null;
+        }
+    }
+
+    private final class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+        private final Consumer<? super CefEvent> consumer;
+        private final Statistics statistics;
+
+        ChunkTask(FileChannel channel, List<Chunk> chunks, int from, int to,
+            Consumer<? super CefEvent> consumer, Statistics statistics) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.consumer = consumer;
+            this.statistics = statistics;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(
+                    new ChunkTask(channel, chunks, from, middle, consumer, statistics),
+                    new ChunkTask(channel, chunks, middle, to, consumer, statistics));
+            } else if (to > from) {
+                final ChunkLines lines = new ChunkLines(channel, chunks.get(from), statistics);
+                CefEvent event;
+                while ((event = lines.next()) != null) {
+                    consumer.accept(event);
+                }
+            }
+        }
+    }
+
+    private final class ChunkSpliterator implements Spliterator<CefEvent> {
+
+        private final FileChannel channel;
+        private final List<Chunk> chunks;
+        private int from;
+        private final int to;
+        private final Statistics statistics;
+        private ChunkLines lines;
+
+        ChunkSpliterator(FileChannel channel, List<Chunk> chunks, int from, int to,
+            Statistics statistics) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super CefEvent> action) {
+            while (lines != null || from < to) {
+                if (lines == null) {
+                    lines = new ChunkLines(channel, chunks.get(from++), statistics);
+                }
+                final CefEvent event = lines.next();
+                if (event != null) {
+                    action.accept(event);
+                    return true;
+                }
+                lines = null;
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<CefEvent> trySplit() {
+            if (lines != null || to - from < 2) {
+                return null;
+            }
+            final int middle = (from + to) >>> 1;
+            final ChunkSpliterator prefix =
+                new ChunkSpliterator(channel, chunks, from, middle, statistics);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * Statistics of file reading. Updated concurrently while the file is being read.
+     */
+    public static final class Statistics {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong endNanos = new AtomicLong(startNanos);
+        private final LongAdder lines = new LongAdder();
+        private final LongAdder malformedLines = new LongAdder();
+        private final LongAdder filteredLines = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        /**
+         * Returns number of non-empty lines read so far.
+         *
+         * @return number of lines
+         */
+        public long getLines() {
+            return lines.sum();
+        }
+
+        /**
+         * Returns number of lines, which could not be parsed into events.
+         *
+         * @return number of malformed lines
+         */
+        public long getMalformedLines() {
+            return malformedLines.sum();
+        }
+
+        /**
+         * Returns number of lines, which have not matched the filter and have not been parsed.
+         *
+         * @return number of filtered out lines
+         */
+        public long getFilteredLines() {
+            return filteredLines.sum();
+        }
+
+        /**
+         * Returns number of bytes of the chunks being read so far.
+         *
+         * @return number of bytes
+         */
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        /**
+         * Returns time passed from statistics creation until the last chunk completion.
+         *
+         * @return elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return endNanos.get() - startNanos;
+        }
+
+        /**
+         * Returns reading throughput.
+         *
+         * @return lines per second
+         */
+        public double getLinesPerSecond() {
+            final long elapsed = getElapsedNanos();
+            return (elapsed == 0 ? 0 : getLines() * 1e9 / elapsed);
+        }
+
+        private void finish() {
+            endNanos.accumulateAndGet(System.nanoTime(), Math::max);
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics{" +
+                "lines=" + getLines() +
+                ", malformedLines=" + getMalformedLines() +
+                ", filteredLines=" + getFilteredLines() +
+                ", bytes=" + getBytes() +
+                ", elapsedNanos=" + getElapsedNanos() +
+                ", linesPerSecond=" + getLinesPerSecond() +
+                '}';
+        }
+    }
+
+    public static class Builder {
+
+        private final Path path;
+        private CefParser parser = new CefParser();
+        private CefFilter filter;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+        private Builder(Path path) {
+            this.path = path;
+        }
+
+        /**
+         * Sets parser to parse lines with.
+         *
+         * <p>Optional, default is {@link CefParser} instance.</p>
+         *
+         * @param parser line parser
+         * @return this builder for further customizations
+         */
+        public Builder parser(CefParser parser) {
+            this.parser = parser;
+            return this;
+        }
+
+        /**
+         * Sets filter to check lines with before parsing them. Lines, which do not match, are
+         * skipped without parsing.
+         *
+         * <p>Optional, by default all lines are parsed.</p>
+         *
+         * @param filter line filter
+         * @return this builder for further customizations
+         */
+        public Builder filter(CefFilter filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        /**
+         * Sets fork-join pool to parse chunks in when reading with callback.
+         *
+         * <p>Optional, default is {@link ForkJoinPool#commonPool()}.</p>
+         *
+         * @param pool fork-join pool
+         * @return this builder for further customizations
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Sets approximate size of the chunk the file is split into. Each chunk is mapped and
+         * parsed as a whole by a single thread.
+         *
+         * <p>Optional, default value is {@value CefFileReader#DEFAULT_CHUNK_SIZE} bytes.</p>
+         *
+         * @param chunkSize chunk size in bytes, must be greater than 0
+         * @return this builder for further customizations
+         */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Creates file reader with submitted parameters.
+         *
+         * @return file reader
+         * @throws IllegalArgumentException on missing or illegal parameters
+         */
+        public CefFileReader build() {
+            return new CefFileReader(this);
+        }
+    }
+}
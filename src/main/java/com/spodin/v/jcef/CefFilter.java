@@ -0,0 +1,580 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Predicate on CEF lines, which is evaluated on the raw line without parsing it into an event.
+ *
+ * <p>Filter is compiled from conditions on prefix fields (vendor, product, device version, event
+ * class id, name, severity range) and on values of specific extension keys; line matches if all
+ * conditions hold. Prefix fields are checked first, up to the last constrained one, so most lines
+ * are rejected after a few fields. Extension is scanned only if it is constrained, comparing just
+ * the referenced keys and their values. Escape sequences are resolved while comparing, so nothing
+ * is decoded or allocated.</p>
+ *
+ * <p>Line matches if the event parsed from it would satisfy the conditions. Filter only validates
+ * the parts of the line it reads, so a matching line may still fail to parse; lines without
+ * format identifier or ending before the constrained fields never match.</p>
+ *
+ * <p>Filter is immutable and thread-safe.</p>
+ *
+ * <pre>{@code
+ * CefFilter filter = CefFilter.builder()
+ *     .vendor("iPlatform", "Acme")
+ *     .minSeverity(7)
+ *     .extension("act", "blocked")
+ *     .build();
+ * if (filter.matches(line)) {
+ *     route(parser.parse(line));
+ * }
+ * }</pre>
+ *
+ * @author spodin
+ */
+public final class CefFilter {
+
+    private static final int MAX_EXTENSION_KEYS = Long.SIZE;
+
+    private static final int MAX_LEVEL = 10;
+
+    private static final String FORMAT_IDENTIFIER = CefEvent.FORMAT_IDENTIFIER_PREFIX + ':';
+
+    private static final char FIELDS_DELIMITER = '|';
+
+    private static final char EXTENSION_FIELDS_DELIMITER = ' ';
+
+    private static final char EXTENSION_KEY_VALUE_DELIMITER = '=';
+
+    private static final char ESCAPE = '\\';
+
+    private static final String[] SEVERITY_NAMES = {"low", "medium", "high", "very-high"};
+
+    private static final int[] SEVERITY_NAME_LEVELS = {0, 4, 7, 9};
+
+    /**
+     * Accepted values of each prefix field, {@code null} if field is not constrained.
+     */
+    private final Values[] prefix;
+
+    /**
+     * Number of prefix fields to read, i.e. index of the last constrained one plus one.
+     */
+    private final int prefixFields;
+
+    private final int minSeverity;
+    private final int maxSeverity;
+
+    private final Values[] keys;
+
+    /**
+     * Accepted values of each key, {@code null} if any value is accepted.
+     */
+    private final Values[] values;
+
+    private final long allKeys;
+
+    private final Map<String, Values> extension;
+
+    private CefFilter(Builder builder) {
+        this.prefix = builder.prefix.clone();
+
+        Assert.validState(builder.minSeverity >= 0 && builder.minSeverity <= MAX_LEVEL,
+            "Minimal severity must be in range 0-10");
+        Assert.validState(builder.maxSeverity >= 0 && builder.maxSeverity <= MAX_LEVEL,
+            "Maximal severity must be in range 0-10");
+        Assert.validState(builder.minSeverity <= builder.maxSeverity,
+            "Minimal severity must be <= maximal severity");
+        this.minSeverity = builder.minSeverity;
+        this.maxSeverity = builder.maxSeverity;
+        final boolean severityConstrained = (minSeverity > 0 || maxSeverity < MAX_LEVEL);
+
+        int prefixFields = (severityConstrained ? CefLineIndex.SEVERITY + 1 : 0);
+        for (int field = 0; field < prefix.length; field++) {
+            if (prefix[field] != null) {
+                prefixFields = Math.max(prefixFields, field + 1);
+            }
+        }
+        this.prefixFields = prefixFields;
+
+        final int size = builder.extension.size();
+        Assert.validState(size <= MAX_EXTENSION_KEYS,
+            "At most " + MAX_EXTENSION_KEYS + " extension keys may be constrained");
+        this.keys = new Values[size];
+        this.values = new Values[size];
+        int i = 0;
+        for (Map.Entry<String, Values> entry : builder.extension.entrySet()) {
+            keys[i] = new Values(new String[] {entry.getKey()});
+            values[i] = entry.getValue();
+            i++;
+        }
+        this.allKeys = (size == MAX_EXTENSION_KEYS ? -1L : (1L << size) - 1);
+        this.extension = new LinkedHashMap<>(builder.extension);
+    }
+
+    /**
+     * Checks whether specified line matches the filter.
+     *
+     * @param line CEF line, optionally prefixed with syslog header
+     * @return {@code true} if line matches
+     */
+    public boolean matches(CharSequence line) {
+        Assert.notNull(line, "Line is required");
+        return matches(CefSource.of(line), false);
+    }
+
+    /**
+     * Checks whether UTF-8 encoded line between position and limit of specified buffer matches
+     * the filter. Buffer position is not changed.
+     *
+     * @param line UTF-8 encoded CEF line, optionally prefixed with syslog header
+     * @return {@code true} if line matches
+     */
+    public boolean matches(ByteBuffer line) {
+        Assert.notNull(line, "Line is required");
+        return matches(CefSource.of(line), true);
+    }
+
+    @Override
+    public String toString() {
+        return "CefFilter{" +
+            "vendor=" + prefix[CefLineIndex.VENDOR] +
+            ", product=" + prefix[CefLineIndex.PRODUCT] +
+            ", deviceVersion=" + prefix[CefLineIndex.DEVICE_VERSION] +
+            ", id=" + prefix[CefLineIndex.ID] +
+            ", name=" + prefix[CefLineIndex.NAME] +
+            ", minSeverity=" + minSeverity +
+            ", maxSeverity=" + maxSeverity +
+            ", extension=" + extension +
+            '}';
+    }
+
+    /**
+     * Creates filter builder. Filter without conditions matches any line with format identifier.
+     *
+     * @return filter builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private boolean matches(CefSource source, boolean utf8) {
+        int end = source.length();
+        while (end > 0 && (source.charAt(end - 1) == '\n' || source.charAt(end - 1) == '\r')) {
+            end--;
+        }
+
+        final int start = source.indexOf(FORMAT_IDENTIFIER);
+        if (start < 0 || start >= end) {
+            return false;
+        }
+        int position = skipVersion(source, start + FORMAT_IDENTIFIER.length(), end);
+        if (position < 0) {
+            return false;
+        }
+
+        final int fields = (keys.length == 0 ? prefixFields : CefLineIndex.SEVERITY + 1);
+        for (int field = 0; field < fields; field++) {
+            final int fieldEnd = fieldEnd(source, position, end);
+            if (fieldEnd < 0) {
+                return false;
+            }
+            if (field == CefLineIndex.SEVERITY) {
+                if (!matchesSeverity(source, position, fieldEnd)) {
+                    return false;
+                }
+            } else if (prefix[field] != null
+                && !prefix[field].matches(source, position, fieldEnd, utf8, false)) {
+                return false;
+            }
+            position = fieldEnd + 1;
+        }
+        return keys.length == 0 || matchesExtension(source, position, end, utf8);
+    }
+
+    /**
+     * Checks extension fields the same way as {@link CefLineIndex} splits them. Key may occur
+     * several times, the last occurrence counts.
+     */
+    private boolean matchesExtension(CefSource source, int from, int end, boolean utf8) {
+        while (from < end && source.charAt(from) == EXTENSION_FIELDS_DELIMITER) {
+            from++;
+        }
+
+        long present = 0;
+        long matched = 0;
+        int wordStart = from;
+        int keyFrom = -1;
+        int keyTo = -1;
+        for (int i = from; i < end; i++) {
+            final char letter = source.charAt(i);
+            if (letter == ESCAPE) {
+                if (i + 1 < end) {
+                    final char next = source.charAt(i + 1);
+                    if (next == EXTENSION_KEY_VALUE_DELIMITER || next == ESCAPE) {
+                        i++;
+                    }
+                }
+            } else if (letter == EXTENSION_FIELDS_DELIMITER) {
+                wordStart = i + 1;
+            } else if (letter == EXTENSION_KEY_VALUE_DELIMITER) {
+                if (keyFrom < 0) {
+                    if (wordStart != from) {
+                        return false;
+                    }
+                } else {
+                    final int key = indexOfKey(source, keyFrom, keyTo, utf8);
+                    if (key >= 0) {
+                        final long bit = 1L << key;
+                        present |= bit;
+                        matched = (matchesValue(key, source, keyTo + 1,
+                            Math.max(wordStart - 1, keyTo + 1), utf8)
+                            ? matched | bit : matched & ~bit);
+                    }
+                }
+                keyFrom = wordStart;
+                keyTo = i;
+                wordStart = i + 1;
+            }
+        }
+
+        if (keyFrom >= 0) {
+            final int key = indexOfKey(source, keyFrom, keyTo, utf8);
+            if (key >= 0) {
+                final long bit = 1L << key;
+                present |= bit;
+                matched = (matchesValue(key, source, keyTo + 1, end, utf8)
+                    ? matched | bit : matched & ~bit);
+            }
+        }
+        return (present & matched) == allKeys;
+    }
+
+    private int indexOfKey(CefSource source, int from, int to, boolean utf8) {
+        for (int key = 0; key < keys.length; key++) {
+            if (keys[key].matches(source, from, to, utf8, true)) {
+                return key;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matchesValue(int key, CefSource source, int from, int to, boolean utf8) {
+        return values[key] == null || values[key].matches(source, from, to, utf8, true);
+    }
+
+    private boolean matchesSeverity(CefSource source, int from, int to) {
+        if (minSeverity == 0 && maxSeverity == MAX_LEVEL) {
+            return true;
+        }
+        final int level = level(source, from, to);
+        return level >= minSeverity && level <= maxSeverity;
+    }
+
+    /**
+     * Converts raw severity to its level, same as {@link Severity#level(String)}.
+     */
+    private static int level(CefSource source, int from, int to) {
+        final int length = to - from;
+        if (length > 0 && length <= 3) {
+            int level = 0;
+            int i = from;
+            for (; i < to; i++) {
+                final char letter = source.charAt(i);
+                if (letter < '0' || letter > '9') {
+                    break;
+                }
+                level = level * 10 + (letter - '0');
+            }
+            if (i == to) {
+                return Math.min(level, MAX_LEVEL);
+            }
+        }
+
+        names:
+        for (int name = 0; name < SEVERITY_NAMES.length; name++) {
+            final String expected = SEVERITY_NAMES[name];
+            if (expected.length() != length) {
+                continue;
+            }
+            for (int i = 0; i < length; i++) {
+                final char letter = source.charAt(from + i);
+                final char lower = (letter >= 'A' && letter <= 'Z' ? (char) (letter + 32) : letter);
+                if (lower != expected.charAt(i)) {
+                    continue names;
+                }
+            }
+            return SEVERITY_NAME_LEVELS[name];
+        }
+        return Severity.UNKNOWN;
+    }
+
+    /**
+     * Skips format version and the delimiter after it.
+     *
+     * @return position after the delimiter or {@code -1} if version is invalid
+     */
+    private static int skipVersion(CefSource source, int from, int end) {
+        for (int i = from; i < end; i++) {
+            final char letter = source.charAt(i);
+            if (letter == FIELDS_DELIMITER && i > from) {
+                return i + 1;
+            }
+            if (letter < '0' || letter > '9') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds delimiter, which terminates prefix field.
+     *
+     * @return position of the delimiter or {@code -1} if prefix ends before it
+     */
+    private static int fieldEnd(CefSource source, int from, int end) {
+        for (int i = from; i < end; i++) {
+            final char letter = source.charAt(i);
+            if (letter == ESCAPE) {
+                i++;
+            } else if (letter == FIELDS_DELIMITER) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Set of accepted values, kept both as characters and as UTF-8 bytes, so that each kind of
+     * source is compared unit by unit.
+     */
+    private static final class Values {
+
+        private final String[] values;
+        private final char[][] chars;
+        private final char[][] bytes;
+
+        Values(String[] values) {
+            this.values = values;
+            this.chars = new char[values.length][];
+            this.bytes = new char[values.length][];
+            for (int i = 0; i < values.length; i++) {
+                chars[i] = values[i].toCharArray();
+                final byte[] encoded = values[i].getBytes(StandardCharsets.UTF_8);
+                bytes[i] = new char[encoded.length];
+                for (int j = 0; j < encoded.length; j++) {
+                    bytes[i][j] = (char) (encoded[j] & 0xFF);
+                }
+            }
+        }
+
+        boolean matches(CefSource source, int from, int to, boolean utf8, boolean extension) {
+            final char[][] units = (utf8 ? bytes : chars);
+            for (char[] value : units) {
+                if (equalsUnescaped(source, from, to, value, extension)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(values);
+        }
+
+        /**
+         * Compares escaped source range with unescaped value, resolving escape sequences the
+         * same way as {@link StringUtils#unescapeField(String)} and
+         * {@link StringUtils#unescapeExtension(String)}.
+         */
+        private static boolean equalsUnescaped(CefSource source, int from, int to, char[] value,
+            boolean extension) {
+            if (to - from < value.length) {
+                return false;
+            }
+            int j = 0;
+            for (int i = from; i < to; i++, j++) {
+                char letter = source.charAt(i);
+                if (letter == ESCAPE && i + 1 < to) {
+                    final char unescaped = unescape(source.charAt(i + 1), extension);
+                    if (unescaped != 0) {
+                        letter = unescaped;
+                        i++;
+                    }
+                }
+                if (j >= value.length || value[j] != letter) {
+                    return false;
+                }
+            }
+            return j == value.length;
+        }
+
+        /**
+         * Returns character escaped by specified one or {@code 0} if backslash is kept as is.
+         */
+        private static char unescape(char next, boolean extension) {
+            if (next == ESCAPE) {
+                return ESCAPE;
+            }
+            if (!extension) {
+                return (next == FIELDS_DELIMITER ? FIELDS_DELIMITER : 0);
+            }
+            switch (next) {
+                case EXTENSION_KEY_VALUE_DELIMITER:
+                    return EXTENSION_KEY_VALUE_DELIMITER;
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private final Values[] prefix = new Values[CefLineIndex.SEVERITY];
+        private final Map<String, Values> extension = new LinkedHashMap<>();
+        private int minSeverity;
+        private int maxSeverity = MAX_LEVEL;
+
+        private Builder() {
+        }
+
+        /**
+         * Accepts events of the devices with any of specified vendors.
+         *
+         * <p>Optional, by default vendor is not checked.</p>
+         *
+         * @param vendors accepted vendors
+         * @return this builder for further customizations
+         */
+        public Builder vendor(String... vendors) {
+            return field(CefLineIndex.VENDOR, vendors);
+        }
+
+        /**
+         * Accepts events of the devices with any of specified products.
+         *
+         * <p>Optional, by default product is not checked.</p>
+         *
+         * @param products accepted products
+         * @return this builder for further customizations
+         */
+        public Builder product(String... products) {
+            return field(CefLineIndex.PRODUCT, products);
+        }
+
+        /**
+         * Accepts events of the devices with any of specified versions.
+         *
+         * <p>Optional, by default device version is not checked.</p>
+         *
+         * @param versions accepted device versions
+         * @return this builder for further customizations
+         */
+        public Builder deviceVersion(String... versions) {
+            return field(CefLineIndex.DEVICE_VERSION, versions);
+        }
+
+        /**
+         * Accepts events with any of specified event class ids.
+         *
+         * <p>Optional, by default event class id is not checked.</p>
+         *
+         * @param ids accepted event class ids
+         * @return this builder for further customizations
+         */
+        public Builder eventId(String... ids) {
+            return field(CefLineIndex.ID, ids);
+        }
+
+        /**
+         * Accepts events with any of specified names.
+         *
+         * <p>Optional, by default name is not checked.</p>
+         *
+         * @param names accepted event names
+         * @return this builder for further customizations
+         */
+        public Builder name(String... names) {
+            return field(CefLineIndex.NAME, names);
+        }
+
+        /**
+         * Accepts events with severity level greater than or equal to specified one. Named
+         * severities are converted to the lowest level of their range: Low to 0, Medium to 4, High
+         * to 7 and Very-High to 9; events with unknown severity are rejected by any severity
+         * bound.
+         *
+         * <p>Optional, default value is 0.</p>
+         *
+         * @param minSeverity minimal severity level from 0 to 10
+         * @return this builder for further customizations
+         */
+        public Builder minSeverity(int minSeverity) {
+            this.minSeverity = minSeverity;
+            return this;
+        }
+
+        /**
+         * Accepts events with severity level less than or equal to specified one. Severity is
+         * converted the same way as for {@link #minSeverity(int)}.
+         *
+         * <p>Optional, default value is 10.</p>
+         *
+         * @param maxSeverity maximal severity level from 0 to 10
+         * @return this builder for further customizations
+         */
+        public Builder maxSeverity(int maxSeverity) {
+            this.maxSeverity = maxSeverity;
+            return this;
+        }
+
+        /**
+         * Accepts events, which extension contains specified key with any of specified values,
+         * or with any value if none is specified. Replaces previous condition on the same key.
+         *
+         * <p>Optional, by default extension is not checked.</p>
+         *
+         * @param key extension key
+         * @param values accepted values
+         * @return this builder for further customizations
+         */
+        public Builder extension(String key, String... values) {
+            Assert.notNullOrBlank(key, "Extension key is required");
+            Assert.notNull(values, "Values are required");
+            extension.put(key, (values.length == 0 ? null : values(values)));
+            return this;
+        }
+
+        /**
+         * Creates filter with submitted conditions.
+         *
+         * @return filter
+         * @throws IllegalArgumentException on illegal conditions
+         */
+        public CefFilter build() {
+            return new CefFilter(this);
+        }
+
+        private Builder field(int field, String[] values) {
+            Assert.notNull(values, "Values are required");
+            Assert.validState(values.length > 0, "At least one value is required");
+            prefix[field] = values(values);
+            return this;
+        }
+
+        private static Values values(String[] values) {
+            for (String value : values) {
+                Assert.notNull(value, "Value is required");
+            }
+            return new Values(values.clone());
+        }
+    }
+}
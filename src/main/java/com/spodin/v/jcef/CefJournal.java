@@ -0,0 +1,480 @@
+package com.spodin.v.jcef;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Durable journal of serialized CEF events, kept in memory-mapped segment files.
+ *
+ * <p>Events are serialized as UTF-8 by {@link StdCefSerializer} directly into the mapped segment,
+ * each one as a record prefixed with its length and CRC32 of its bytes. Segment, which has no space
+ * left, is rolled over to the next one, unless total size of the segments would exceed the disk
+ * budget; in this case appending fails.</p>
+ *
+ * <p>Records are read in the order they have been appended. Reading does not remove them: once
+ * read records have been delivered, they are {@link #acknowledge() acknowledged}, which deletes
+ * segments holding only acknowledged records and persists position of the first unacknowledged
+ * one. If delivery fails, reading is {@link #rewind() rewound} to that position.</p>
+ *
+ * <p>On open, existing segments are scanned and reading resumes from the first unacknowledged
+ * record. Scan stops at the first record, which is incomplete or fails CRC check (e.g. torn by a
+ * crash in the middle of append); it and anything after it in the segment is discarded.</p>
+ *
+ * <p>Mapped writes survive process crash, but not operating system one unless forced, see {@link
+ * Builder#syncOnAppend(boolean)}. Journal is not thread-safe.</p>
+ *
+ * @author spodin
+ */
+public class CefJournal implements Closeable {
+
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final long DEFAULT_MAX_DISK_SIZE = 256L * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    /**
+     * Segment header: magic number and offset of the first unacknowledged record.
+     */
+    private static final int MAGIC = 0x43454A31;
+    private static final int ACK_OFFSET_POSITION = 4;
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Record header: length of the record bytes and their CRC32.
+     */
+    private static final int CRC_POSITION = 4;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxDiskSize;
+    private final StdCefSerializer serializer;
+    private final boolean syncOnAppend;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+
+    private long nextSequence;
+    private int readIndex;
+    private int readOffset;
+    private long readCount;
+    private long pendingCount;
+    private boolean closed;
+
+    private CefJournal(Builder builder) throws IOException {
+        this.directory = Assert.notNull(builder.directory, "Directory is required");
+        this.serializer = Assert.notNull(builder.serializer, "Serializer is required");
+        Assert.validState(builder.segmentSize > HEADER_SIZE + RECORD_HEADER_SIZE,
+            "Segment size must be > " + (HEADER_SIZE + RECORD_HEADER_SIZE));
+        Assert.validState(builder.maxDiskSize >= builder.segmentSize,
+            "Maximal disk size must be >= segment size");
+        this.segmentSize = builder.segmentSize;
+        this.maxDiskSize = builder.maxDiskSize;
+        this.syncOnAppend = builder.syncOnAppend;
+
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Serializes specified event and appends it to the journal.
+     *
+     * @param event CEF event
+     * @throws IOException if event exceeds segment size, disk budget is exhausted or segment
+     * cannot be created
+     * @throws IllegalArgumentException if event contains invalid characters
+     */
+    public void append(CefEvent event) throws IOException {
+        Assert.notNull(event, "Event is required");
+        ensureOpen();
+
+        Segment tail = (segments.isEmpty() ? roll() : segments.get(segments.size() - 1));
+        if (!appendTo(tail, event)) {
+            if (tail.end > HEADER_SIZE) {
+                tail = roll();
+            }
+            if (!appendTo(tail, event)) {
+                throw new IOException("Event exceeds segment size of " + segmentSize + " bytes");
+            }
+        }
+        pendingCount++;
+    }
+
+    /**
+     * Reads next record. Returned buffer holds serialized event as UTF-8 bytes (e.g. to be parsed
+     * with {@link CefParser#parse(ByteBuffer)}) and is valid until the record is acknowledged.
+     *
+     * @return read-only buffer with the next record or {@code null} if all the records have been
+     * read
+     * @throws IOException if journal is closed
+     */
+    public ByteBuffer read() throws IOException {
+        ensureOpen();
+        while (readIndex < segments.size()) {
+            final Segment segment = segments.get(readIndex);
+            if (readOffset < segment.end) {
+                final int length = segment.buffer.getInt(readOffset);
+                final int start = readOffset + RECORD_HEADER_SIZE;
+                readOffset = start + length;
+                readCount++;
+                return segment.buffer.duplicate().limit(start + length).position(start).slice()
+                    .asReadOnlyBuffer();
+            }
+            if (readIndex == segments.size() - 1) {
+                break;
+            }
+            readIndex++;
+            readOffset = HEADER_SIZE;
+        }
+        return null;
+    }
+
+    /**
+     * Acknowledges all the records read so far. Segments, which hold only acknowledged records,
+     * are deleted.
+     *
+     * @throws IOException if journal is closed
+     */
+    public void acknowledge() throws IOException {
+        ensureOpen();
+        if (segments.isEmpty()) {
+            return;
+        }
+        while (readIndex < segments.size() - 1 && readOffset == segments.get(readIndex).end) {
+            readIndex++;
+            readOffset = HEADER_SIZE;
+        }
+        for (; readIndex > 0; readIndex--) {
+            final Segment head = segments.remove(0);
+            head.acknowledge(head.end);
+            head.delete();
+        }
+        segments.get(0).acknowledge(readOffset);
+        pendingCount -= readCount;
+        readCount = 0;
+    }
+
+    /**
+     * Moves reading back to the first unacknowledged record.
+     *
+     * @throws IOException if journal is closed
+     */
+    public void rewind() throws IOException {
+        ensureOpen();
+        readIndex = 0;
+        readOffset = (segments.isEmpty() ? HEADER_SIZE : segments.get(0).ackOffset);
+        readCount = 0;
+    }
+
+    /**
+     * Returns number of records, which have not been acknowledged yet.
+     *
+     * @return number of unacknowledged records
+     */
+    public long getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Returns size of the segment files on disk.
+     *
+     * @return disk usage in bytes
+     */
+    public long getDiskUsage() {
+        long usage = 0;
+        for (Segment segment : segments) {
+            usage += segment.buffer.capacity();
+        }
+        return usage;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Forces appended records to the storage device and closes the journal. Unacknowledged
+     * records are read again when the journal is reopened.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        segments.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "CefJournal{" +
+            "directory=" + directory +
+            ", segments=" + segments.size() +
+            ", pendingCount=" + pendingCount +
+            '}';
+    }
+
+    /**
+     * Creates journal builder.
+     *
+     * @param directory directory of the segment files, created if it does not exist
+     * @return journal builder
+     */
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    private boolean appendTo(Segment segment, CefEvent event) {
+        final MappedByteBuffer buffer = segment.buffer;
+        final int start = segment.end + RECORD_HEADER_SIZE;
+        // keeps space for the zero length, which terminates records
+        final int limit = buffer.capacity() - RECORD_HEADER_SIZE;
+        if (start >= limit) {
+            return false;
+        }
+
+        buffer.limit(limit).position(start);
+        if (!serializer.serializeTo(event, buffer)) {
+            return false;
+        }
+        final int length = buffer.position() - start;
+
+        crc.reset();
+        crc.update(buffer.duplicate().position(start).limit(start + length));
+        buffer.putInt(segment.end + CRC_POSITION, (int) crc.getValue());
+        // length is written last, since zero length marks the end of records
+        buffer.putInt(segment.end, length);
+        segment.end = start + length;
+
+        if (syncOnAppend) {
+            buffer.force();
+        }
+        return true;
+    }
+
+    private Segment roll() throws IOException {
+        if ((segments.size() + 1L) * segmentSize > maxDiskSize) {
+            throw new IOException("Journal disk budget of " + maxDiskSize + " bytes is exhausted");
+        }
+
+        final Path path = directory.resolve(String.format("%019d%s", nextSequence++,
+            SEGMENT_SUFFIX));
+        final Segment segment = new Segment(path, map(path, segmentSize));
+        segment.buffer.putInt(0, MAGIC);
+        segment.acknowledge(HEADER_SIZE);
+        segment.end = HEADER_SIZE;
+        segments.add(segment);
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        final List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+            "*" + SEGMENT_SUFFIX)) {
+            files.forEach(paths::add);
+        }
+        // file names are zero-padded sequence numbers
+        paths.sort(null);
+
+        for (Path path : paths) {
+            final String name = path.getFileName().toString();
+            nextSequence = Math.max(nextSequence, 1 + Long.parseLong(
+                name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+
+            final Segment segment = new Segment(path, map(path, Files.size(path)));
+            if (segment.buffer.capacity() < HEADER_SIZE || segment.buffer.getInt(0) != MAGIC) {
+                throw new IOException("File is not a journal segment: " + path);
+            }
+            scan(segment);
+            segments.add(segment);
+        }
+
+        // fully acknowledged segments are left only if they failed to be deleted
+        while (segments.size() > 1 && segments.get(0).ackOffset == segments.get(0).end) {
+            segments.remove(0).delete();
+        }
+        rewind();
+    }
+
+    private void scan(Segment segment) {
+        final MappedByteBuffer buffer = segment.buffer;
+        final int capacity = buffer.capacity();
+        final int ackOffset = buffer.getInt(ACK_OFFSET_POSITION);
+
+        int offset = HEADER_SIZE;
+        while (offset <= capacity - RECORD_HEADER_SIZE) {
+            final int length = buffer.getInt(offset);
+            final int start = offset + RECORD_HEADER_SIZE;
+            if (length <= 0 || length > capacity - start) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.duplicate().position(start).limit(start + length));
+            if ((int) crc.getValue() != buffer.getInt(offset + CRC_POSITION)) {
+                break;
+            }
+            offset = start + length;
+            if (offset > ackOffset) {
+                pendingCount++;
+            }
+        }
+        segment.end = offset;
+        segment.ackOffset = (ackOffset >= HEADER_SIZE && ackOffset <= offset ? ackOffset
+            : HEADER_SIZE);
+
+        if (!isClear(buffer, offset)) {
+            // torn tail, cleared so that appended records are not followed by its remains
+            for (int i = offset; i < capacity; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+    }
+
+    private static boolean isClear(ByteBuffer buffer, int from) {
+        final int capacity = buffer.capacity();
+        int i = from;
+        for (; i <= capacity - Long.BYTES; i += Long.BYTES) {
+            if (buffer.getLong(i) != 0) {
+                return false;
+            }
+        }
+        for (; i < capacity; i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // mapping remains valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int end;
+        private int ackOffset;
+
+        Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        void acknowledge(int offset) {
+            ackOffset = offset;
+            buffer.putInt(ACK_OFFSET_POSITION, offset);
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // segment is marked as acknowledged, it is deleted on the next open
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private final Path directory;
+        private int segmentSize = DEFAULT_SEGMENT_SIZE;
+        private long maxDiskSize = DEFAULT_MAX_DISK_SIZE;
+        private StdCefSerializer serializer = new StdCefSerializer();
+        private boolean syncOnAppend;
+
+        private Builder(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * Sets size of the segment file in bytes. Single event may not exceed it.
+         *
+         * <p>Optional, default is 16 megabytes.</p>
+         *
+         * @param segmentSize segment size
+         * @return this builder for further customizations
+         */
+        public Builder segmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Sets disk budget, i.e. maximal total size of the segment files in bytes.
+         *
+         * <p>Optional, default is 256 megabytes.</p>
+         *
+         * @param maxDiskSize disk budget, must be at least segment size
+         * @return this builder for further customizations
+         */
+        public Builder maxDiskSize(long maxDiskSize) {
+            this.maxDiskSize = maxDiskSize;
+            return this;
+        }
+
+        /**
+         * Sets serializer of the events, e.g. one with {@link CefPrefixCache}.
+         *
+         * <p>Optional, default is {@link StdCefSerializer} without cache.</p>
+         *
+         * @param serializer events serializer
+         * @return this builder for further customizations
+         */
+        public Builder serializer(StdCefSerializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
+        /**
+         * Sets whether each append is forced to the storage device, so that it survives operating
+         * system crash or power loss. Makes appends considerably slower.
+         *
+         * <p>Optional, default is {@code false}.</p>
+         *
+         * @param syncOnAppend whether to force each append
+         * @return this builder for further customizations
+         */
+        public Builder syncOnAppend(boolean syncOnAppend) {
+            this.syncOnAppend = syncOnAppend;
+            return this;
+        }
+
+        /**
+         * Opens journal with submitted parameters, recovering existing segments.
+         *
+         * @return journal
+         * @throws IOException if segments cannot be created or read
+         * @throws IllegalArgumentException if any parameter is not valid
+         */
+        public CefJournal open() throws IOException {
+            return new CefJournal(this);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.spodin.v.jcef;
+
+import java.util.Arrays;
+
+/**
+ * Positions of CEF line fields within its source.
+ *
+ * <p>Index is built by a single pass over the line, which validates its structure, but does not
+ * extract any value. Values are decoded and unescaped only when requested.</p>
+ *
+ * @author spodin
+ */
+final class CefLineIndex {
+
+    static final int VENDOR = 0;
+    static final int PRODUCT = 1;
+    static final int DEVICE_VERSION = 2;
+    static final int ID = 3;
+    static final int NAME = 4;
+    static final int SEVERITY = 5;
+
+    private static final int PREFIX_FIELDS = 6;
+
+    private static final String FORMAT_IDENTIFIER = CefEvent.FORMAT_IDENTIFIER_PREFIX + ':';
+
+    private static final char FIELDS_DELIMITER = '|';
+
+    private static final char EXTENSION_FIELDS_DELIMITER = ' ';
+
+    private static final char EXTENSION_KEY_VALUE_DELIMITER = '=';
+
+    private static final char ESCAPE = '\\';
+
+    private final CefSource source;
+    private final int end;
+    private int position;
+
+    private int version;
+
+    /**
+     * Start and end of each prefix field, end is exclusive.
+     */
+    private final int[] prefix = new int[PREFIX_FIELDS * 2];
+
+    /**
+     * Start of key, end of key (position of '=') and end of value of each extension field.
+     */
+    private int[] extension = new int[3 * 8];
+    private int extensionSize;
+
+    /**
+     * Indexes specified source.
+     *
+     * @param source CEF line, optionally prefixed with syslog header
+     * @throws IllegalArgumentException if line is malformed
+     */
+    CefLineIndex(CefSource source) {
+        this.source = source;
+
+        int end = source.length();
+        while (end > 0 && (source.charAt(end - 1) == '\n' || source.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        this.end = end;
+
+        final int start = source.indexOf(FORMAT_IDENTIFIER);
+        if (start < 0 || start >= end) {
+            throw malformed("format identifier not found");
+        }
+        position = start + FORMAT_IDENTIFIER.length();
+
+        indexVersion();
+        for (int field = 0; field < PREFIX_FIELDS; field++) {
+            indexField(field);
+        }
+        indexExtension();
+    }
+
+    int version() {
+        return version;
+    }
+
+    /**
+     * Returns unescaped prefix field.
+     *
+     * @param field field number, one of {@link #VENDOR}, {@link #PRODUCT}, {@link
+     * #DEVICE_VERSION}, {@link #ID}, {@link #NAME} or {@link #SEVERITY}
+     * @return field value
+     */
+    String field(int field) {
+        return StringUtils.unescapeField(
+            source.substring(prefix[field * 2], prefix[field * 2 + 1]));
+    }
+
+    int extensionSize() {
+        return extensionSize;
+    }
+
+    String extensionKey(int field) {
+        return StringUtils.unescapeExtension(
+            source.substring(extension[field * 3], extension[field * 3 + 1]));
+    }
+
+    String extensionValue(int field) {
+        return StringUtils.unescapeExtension(
+            source.substring(extension[field * 3 + 1] + 1, extension[field * 3 + 2]));
+    }
+
+    /**
+     * Finds extension field with specified key. If key occurs several times, the last one is
+     * returned, same as for materialized extension.
+     *
+     * @param key unescaped key
+     * @return field number or {@code -1} if there is no such key
+     */
+    int indexOfExtensionKey(String key) {
+        for (int field = extensionSize - 1; field >= 0; field--) {
+            if (extensionKeyEquals(field, key)) {
+                return field;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates extension with all indexed fields.
+     *
+     * @return extension
+     */
+    Extension toExtension() {
+        if (extensionSize == 0) {
+            return Extension.empty();
+        }
+        final Extension.Builder builder = Extension.builder();
+        for (int field = 0; field < extensionSize; field++) {
+            builder.add(extensionKey(field), extensionValue(field));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Compares key of extension field with specified key without decoding it.
+     */
+    private boolean extensionKeyEquals(int field, String key) {
+        final int to = extension[field * 3 + 1];
+        int i = extension[field * 3];
+        int j = 0;
+        for (; i < to; i++, j++) {
+            char letter = source.charAt(i);
+            if (letter == ESCAPE && i + 1 < to) {
+                final char next = source.charAt(i + 1);
+                if (next == EXTENSION_KEY_VALUE_DELIMITER || next == ESCAPE) {
+                    letter = next;
+                    i++;
+                }
+            }
+            if (letter > 0x7F) {
+                return extensionKey(field).equals(key);
+            }
+            if (j >= key.length() || key.charAt(j) != letter) {
+                return false;
+            }
+        }
+        return j == key.length();
+    }
+
+    private void indexVersion() {
+        final int from = position;
+        int version = 0;
+        while (position < end) {
+            final char letter = source.charAt(position);
+            if (letter == FIELDS_DELIMITER && position > from) {
+                position++;
+                this.version = version;
+                return;
+            }
+            if (letter < '0' || letter > '9' || version > (Integer.MAX_VALUE - 9) / 10) {
+                break;
+            }
+            version = version * 10 + (letter - '0');
+            position++;
+        }
+        throw malformed("invalid format version");
+    }
+
+    private void indexField(int field) {
+        for (int i = position; i < end; i++) {
+            final char letter = source.charAt(i);
+            if (letter == ESCAPE) {
+                i++;
+            } else if (letter == FIELDS_DELIMITER) {
+                prefix[field * 2] = position;
+                prefix[field * 2 + 1] = i;
+                position = i + 1;
+                return;
+            }
+        }
+        throw malformed("unexpected end of prefix");
+    }
+
+    private void indexExtension() {
+        int from = position;
+        while (from < end && source.charAt(from) == EXTENSION_FIELDS_DELIMITER) {
+            from++;
+        }
+
+        int wordStart = from;
+        int keyFrom = -1;
+        int keyTo = -1;
+
+        for (int i = from; i < end; i++) {
+            final char letter = source.charAt(i);
+            if (letter == ESCAPE) {
+                if (i + 1 < end) {
+                    final char next = source.charAt(i + 1);
+                    if (next == EXTENSION_KEY_VALUE_DELIMITER || next == ESCAPE) {
+                        i++;
+                    }
+                }
+            } else if (letter == EXTENSION_FIELDS_DELIMITER) {
+                wordStart = i + 1;
+            } else if (letter == EXTENSION_KEY_VALUE_DELIMITER) {
+                if (keyFrom < 0) {
+                    if (wordStart != from) {
+                        throw malformed("extension does not start with a key");
+                    }
+                } else {
+                    addExtensionField(keyFrom, keyTo, Math.max(wordStart - 1, keyTo + 1));
+                }
+                keyFrom = wordStart;
+                keyTo = i;
+                wordStart = i + 1;
+            }
+        }
+
+        if (keyFrom >= 0) {
+            addExtensionField(keyFrom, keyTo, end);
+        } else if (from < end) {
+            throw malformed("extension does not contain any key");
+        }
+    }
+
+    private void addExtensionField(int keyFrom, int keyTo, int valueTo) {
+        if ((extensionSize + 1) * 3 > extension.length) {
+            extension = Arrays.copyOf(extension, extension.length * 2);
+        }
+        extension[extensionSize * 3] = keyFrom;
+        extension[extensionSize * 3 + 1] = keyTo;
+        extension[extensionSize * 3 + 2] = valueTo;
+        extensionSize++;
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException(
+            String.format("Malformed CEF line, %s at position %d", reason, position));
+    }
+}
@@ -0,0 +1,255 @@
+package com.spodin.v.jcef;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide counters of the serialization path: events serialized by {@link StdCefSerializer},
+ * alone or as one of the formats of {@link MultiFormatCefSerializer}, characters and UTF-8 bytes
+ * produced, values escaped and validation failures by kind, and an optional histogram of
+ * serialization latency.
+ *
+ * <p>Counters are {@link LongAdder}s, so that serializing from many threads does not contend on
+ * them; escaping and failures are counted only when they happen, leaving the clean path
+ * untouched. Latency recording reads the clock twice per event and is disabled by default.</p>
+ *
+ * <p>Characters are counted for events serialized to {@code String} or {@link StringBuilder},
+ * bytes for events serialized to {@link java.nio.ByteBuffer}; output written to an arbitrary
+ * {@link Appendable} is not measured.</p>
+ *
+ * <p>For profiling of individual events see {@link CefSerializationEvent}.</p>
+ *
+ * @author spodin
+ */
+public final class CefMetrics implements CefMetricsMXBean {
+
+    /**
+     * Kind of the validation failure.
+     */
+    public enum Failure {
+
+        /**
+         * Prefix field contains line terminator.
+         */
+        INVALID_FIELD,
+
+        /**
+         * Extension key contains white space.
+         */
+        INVALID_EXTENSION_KEY
+    }
+
+    static final String OBJECT_NAME = "com.spodin.v.jcef:type=CefMetrics";
+
+    private static final CefMetrics GLOBAL = new CefMetrics();
+
+    private final LongAdder eventsSerialized = new LongAdder();
+    private final LongAdder charsProduced = new LongAdder();
+    private final LongAdder bytesProduced = new LongAdder();
+    private final LongAdder valuesEscaped = new LongAdder();
+    private final LongAdder[] failures = new LongAdder[Failure.values().length];
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private volatile boolean latencyEnabled;
+
+    private CefMetrics() {
+        for (int i = 0; i < failures.length; i++) {
+            failures[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns process-wide metrics.
+     *
+     * @return metrics
+     */
+    public static CefMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Registers process-wide metrics in the platform MBean server as
+     * {@code com.spodin.v.jcef:type=CefMetrics}. Does nothing if it is registered already.
+     *
+     * @throws IllegalStateException if registration fails
+     */
+    public static void registerMBean() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(GLOBAL, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered already
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register " + OBJECT_NAME, e);
+        }
+    }
+
+    @Override
+    public long getEventsSerialized() {
+        return eventsSerialized.sum();
+    }
+
+    @Override
+    public long getCharsProduced() {
+        return charsProduced.sum();
+    }
+
+    @Override
+    public long getBytesProduced() {
+        return bytesProduced.sum();
+    }
+
+    /**
+     * Returns number of prefix fields, extension keys and values, which contained characters to
+     * escape.
+     *
+     * @return number of escaped values
+     */
+    @Override
+    public long getValuesEscaped() {
+        return valuesEscaped.sum();
+    }
+
+    /**
+     * Returns number of validation failures of specified kind.
+     *
+     * @param failure failure kind
+     * @return number of failures
+     */
+    public long getFailures(Failure failure) {
+        return failures[failure.ordinal()].sum();
+    }
+
+    @Override
+    public long getInvalidFields() {
+        return getFailures(Failure.INVALID_FIELD);
+    }
+
+    @Override
+    public long getInvalidExtensionKeys() {
+        return getFailures(Failure.INVALID_EXTENSION_KEY);
+    }
+
+    @Override
+    public boolean isLatencyEnabled() {
+        return latencyEnabled;
+    }
+
+    /**
+     * Enables or disables recording of serialization latency.
+     *
+     * @param enabled whether latency is recorded
+     */
+    @Override
+    public void setLatencyEnabled(boolean enabled) {
+        this.latencyEnabled = enabled;
+    }
+
+    /**
+     * Returns histogram of serialization latency.
+     *
+     * @return latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getLatencyCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public double getLatencyMeanNanos() {
+        return latency.getMean();
+    }
+
+    @Override
+    public long getLatency50thPercentileNanos() {
+        return latency.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getLatency99thPercentileNanos() {
+        return latency.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getLatency999thPercentileNanos() {
+        return latency.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return latency.getMax();
+    }
+
+    /**
+     * Resets all the counters and the latency histogram.
+     */
+    @Override
+    public void reset() {
+        eventsSerialized.reset();
+        charsProduced.reset();
+        bytesProduced.reset();
+        valuesEscaped.reset();
+        for (LongAdder failure : failures) {
+            failure.reset();
+        }
+        latency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "CefMetrics{" +
+            "eventsSerialized=" + getEventsSerialized() +
+            ", charsProduced=" + getCharsProduced() +
+            ", bytesProduced=" + getBytesProduced() +
+            ", valuesEscaped=" + getValuesEscaped() +
+            ", invalidFields=" + getInvalidFields() +
+            ", invalidExtensionKeys=" + getInvalidExtensionKeys() +
+            ", latency=" + latency +
+            '}';
+    }
+
+    /**
+     * Returns start time of the serialization to pass to {@link #serialized(long, long, long)}.
+     *
+     * @return current {@link System#nanoTime()} or {@code 0} if latency is not recorded
+     */
+    long start() {
+        return (latencyEnabled ? System.nanoTime() : 0);
+    }
+
+    /**
+     * Counts serialized event.
+     *
+     * @param startNanos value returned by {@link #start()}
+     * @param chars number of produced characters, {@code 0} if unknown
+     * @param bytes number of produced bytes, {@code 0} if unknown
+     */
+    void serialized(long startNanos, long chars, long bytes) {
+        if (startNanos != 0) {
+            latency.record(System.nanoTime() - startNanos);
+        }
+        eventsSerialized.increment();
+        if (chars > 0) {
+            charsProduced.add(chars);
+        }
+        if (bytes > 0) {
+            bytesProduced.add(bytes);
+        }
+    }
+
+    void escaped() {
+        valuesEscaped.increment();
+    }
+
+    void failed(Failure failure) {
+        failures[failure.ordinal()].increment();
+    }
+}
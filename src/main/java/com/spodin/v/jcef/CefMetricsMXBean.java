@@ -0,0 +1,40 @@
+package com.spodin.v.jcef;
+
+/**
+ * JMX view of {@link CefMetrics}.
+ *
+ * @author spodin
+ * @see CefMetrics#registerMBean()
+ */
+public interface CefMetricsMXBean {
+
+    long getEventsSerialized();
+
+    long getCharsProduced();
+
+    long getBytesProduced();
+
+    long getValuesEscaped();
+
+    long getInvalidFields();
+
+    long getInvalidExtensionKeys();
+
+    boolean isLatencyEnabled();
+
+    void setLatencyEnabled(boolean enabled);
+
+    long getLatencyCount();
+
+    double getLatencyMeanNanos();
+
+    long getLatency50thPercentileNanos();
+
+    long getLatency99thPercentileNanos();
+
+    long getLatency999thPercentileNanos();
+
+    long getLatencyMaxNanos();
+
+    void reset();
+}
@@ -0,0 +1,95 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses CEF event from its textual representation according to ArcSight Common Event Format
+ * specification. It is the inverse of {@link StdCefSerializer}.
+ *
+ * <p>Line is parsed by a single pass over its characters, without regular expressions. Anything
+ * preceding {@code CEF:} format identifier (e.g. syslog header) is ignored, as well as trailing
+ * line terminators. Escape sequences are resolved according to CEF rules:</p>
+ * <ul>
+ *     <li>{@code \|} and {@code \\} in the prefix fields;</li>
+ *     <li>{@code \=}, {@code \\}, {@code \n} and {@code \r} in the extension.</li>
+ * </ul>
+ *
+ * <p>Extension values may contain spaces: value lasts until the space, which precedes the next
+ * key. Since {@link StdCefSerializer} does not escape backslashes in extension, values containing
+ * them may not survive serialization round trip.</p>
+ *
+ * <p>Besides complete parsing, line may be parsed lazily into {@link LazyCefEvent}, which only
+ * records positions of the fields and extracts them on demand.</p>
+ *
+ * <p>Parser is stateless and thread-safe.</p>
+ *
+ * @author spodin
+ */
+public class CefParser {
+
+    /**
+     * Parses CEF event from specified line.
+     *
+     * @param line CEF line, optionally prefixed with syslog header
+     * @return parsed CEF event
+     * @throws IllegalArgumentException if line is malformed or event parameters are not valid
+     */
+    public CefEvent parse(CharSequence line) {
+        Assert.notNull(line, "Line is required");
+        return toEvent(new CefLineIndex(CefSource.of(line)));
+    }
+
+    /**
+     * Parses CEF event from UTF-8 encoded line between position and limit of specified buffer.
+     * Buffer position is not changed.
+     *
+     * @param line UTF-8 encoded CEF line, optionally prefixed with syslog header
+     * @return parsed CEF event
+     * @throws IllegalArgumentException if line is malformed or event parameters are not valid
+     */
+    public CefEvent parse(ByteBuffer line) {
+        Assert.notNull(line, "Line is required");
+        return toEvent(new CefLineIndex(CefSource.of(line)));
+    }
+
+    /**
+     * Parses structure of specified line, deferring extraction of field values until they are
+     * requested. Line must not be changed while returned event is in use.
+     *
+     * @param line CEF line, optionally prefixed with syslog header
+     * @return lazily parsed CEF event
+     * @throws IllegalArgumentException if line is malformed
+     */
+    public LazyCefEvent parseLazily(CharSequence line) {
+        Assert.notNull(line, "Line is required");
+        return new LazyCefEvent(new CefLineIndex(CefSource.of(line)));
+    }
+
+    /**
+     * Parses structure of UTF-8 encoded line between position and limit of specified buffer,
+     * deferring decoding of field values until they are requested. Buffer is not copied, so its
+     * content must not be changed while returned event is in use. Buffer position is not changed.
+     *
+     * @param line UTF-8 encoded CEF line, optionally prefixed with syslog header
+     * @return lazily parsed CEF event
+     * @throws IllegalArgumentException if line is malformed
+     */
+    public LazyCefEvent parseLazily(ByteBuffer line) {
+        Assert.notNull(line, "Line is required");
+        return new LazyCefEvent(new CefLineIndex(CefSource.of(line)));
+    }
+
+    static CefEvent toEvent(CefLineIndex index) {
+        return CefEvent.builder()
+            .version(index.version())
+            .device(Device.builder()
+                .vendor(index.field(CefLineIndex.VENDOR))
+                .product(index.field(CefLineIndex.PRODUCT))
+                .version(index.field(CefLineIndex.DEVICE_VERSION))
+                .build())
+            .eventId(EventId.of(index.field(CefLineIndex.ID), index.field(CefLineIndex.NAME)))
+            .severity(index.field(CefLineIndex.SEVERITY))
+            .extension(index.toExtension())
+            .build();
+    }
+}
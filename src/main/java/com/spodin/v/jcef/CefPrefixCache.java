@@ -0,0 +1,220 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of escaped CEF prefixes ({@code CEF:0|vendor|product|version|id|name|severity|}).
+ *
+ * <p>Services usually emit events of a small fixed set of device, event id and severity
+ * combinations, so their prefix may be escaped and encoded once and then copied as is. Cache is
+ * keyed by format version, {@link Device}, {@link EventId} and severity; each entry holds the
+ * prefix both as characters and as UTF-8 bytes.</p>
+ *
+ * <p>Lookups do not lock. Once the cache grows beyond its maximum size, entries not used since the
+ * previous eviction are removed (second chance policy), so high-cardinality event names cannot
+ * exhaust the heap.</p>
+ *
+ * @author spodin
+ * @see StdCefSerializer#StdCefSerializer(CefPrefixCache)
+ */
+public class CefPrefixCache {
+
+    private final int maximumSize;
+    private final ConcurrentHashMap<Key, Template> templates;
+    private final Object evictionLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates prefix cache.
+     *
+     * @param maximumSize maximum number of cached prefixes, must be greater than 0
+     * @throws IllegalArgumentException if maximum size is not valid
+     */
+    public CefPrefixCache(int maximumSize) {
+        Assert.validState(maximumSize > 0, "Maximum size must be > 0");
+        this.maximumSize = maximumSize;
+        this.templates = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns prefix template of specified event, escaping and caching it if necessary.
+     *
+     * @param event CEF event
+     * @return prefix template
+     * @throws IllegalArgumentException if prefix contains invalid characters
+     */
+    Template get(AbstractCefEvent event) {
+        final Key key = new Key(event);
+
+        Template template = templates.get(key);
+        if (template != null) {
+            hits.increment();
+            if (!template.referenced) {
+                template.referenced = true;
+            }
+            return template;
+        }
+
+        misses.increment();
+        template = new Template(event);
+        final Template existing = templates.putIfAbsent(key, template);
+        if (existing != null) {
+            return existing;
+        }
+        if (templates.size() > maximumSize) {
+            evict();
+        }
+        return template;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns current number of cached prefixes.
+     *
+     * @return cache size
+     */
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * Returns number of lookups, which have found cached prefix.
+     *
+     * @return number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns number of lookups, which have required prefix to be escaped.
+     *
+     * @return number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns number of prefixes removed from the cache because of size limit.
+     *
+     * @return number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Removes all cached prefixes. Statistics is not reset.
+     */
+    public void clear() {
+        templates.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "CefPrefixCache{" +
+            "maximumSize=" + maximumSize +
+            ", size=" + size() +
+            ", hits=" + getHits() +
+            ", misses=" + getMisses() +
+            ", evictions=" + getEvictions() +
+            '}';
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            // second pass is needed only if all the entries have been referenced
+            for (int pass = 0; pass < 2 && templates.size() > maximumSize; pass++) {
+                final Iterator<Map.Entry<Key, Template>> iterator =
+                    templates.entrySet().iterator();
+                while (templates.size() > maximumSize && iterator.hasNext()) {
+                    final Template template = iterator.next().getValue();
+                    if (template.referenced) {
+                        template.referenced = false;
+                    } else {
+                        iterator.remove();
+                        evictions.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Escaped prefix of the event.
+     */
+    static final class Template {
+
+        private final String chars;
+        private final byte[] bytes;
+        private volatile boolean referenced = true;
+
+        private Template(AbstractCefEvent event) {
+            final StringBuilder prefix = new StringBuilder(64);
+            try {
+                StdCefSerializer.writePrefix(event, prefix);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // never thrown by StringBuilder
+            }
+            this.chars = prefix.toString();
+            this.bytes = chars.getBytes(StandardCharsets.UTF_8);
+        }
+
+        String chars() {
+            return chars;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+    }
+
+    private static final class Key {
+
+        private final int version;
+        private final Device device;
+        private final EventId eventId;
+        private final String severity;
+        private final int hash;
+
+        Key(AbstractCefEvent event) {
+            this.version = event.getVersion();
+            this.device = event.getDevice();
+            this.eventId = event.getEventId();
+            this.severity = event.getSeverity();
+            this.hash = ((version * 31 + device.hashCode()) * 31 + eventId.hashCode()) * 31
+                + severity.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return version == key.version && device.equals(key.device) && eventId.equals(
+                key.eventId) && severity.equals(key.severity);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.spodin.v.jcef;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event, which covers serialization of a single CEF event by {@link
+ * StdCefSerializer}, alone or together with other formats by {@link MultiFormatCefSerializer}.
+ *
+ * <p>Event is disabled by default; when it is disabled, it is not even allocated, see {@link
+ * #start()}, so serialization does not pay for it. Enable it by
+ * {@link jdk.jfr.Recording#enable(String)} or in the recording settings file.</p>
+ *
+ * @author spodin
+ */
+@Name(CefSerializationEvent.NAME)
+@Label("CEF Serialization")
+@Category({"JCef", "Serialization"})
+@Description("Serialization of a CEF event")
+@Enabled(false)
+@StackTrace(false)
+final class CefSerializationEvent extends Event {
+
+    static final String NAME = "com.spodin.v.jcef.Serialization";
+
+    private static final EventType TYPE = EventType.getEventType(CefSerializationEvent.class);
+
+    @Label("Device Product")
+    String deviceProduct;
+
+    @Label("Event Class Id")
+    String eventClassId;
+
+    @Label("Extension Fields")
+    int fields;
+
+    @Label("Output Size")
+    @Description("Number of characters or UTF-8 bytes produced, 0 if unknown")
+    long size;
+
+    @Label("Failed")
+    @Description("Whether event has been rejected by validation or did not fit into the buffer")
+    boolean failed;
+
+    /**
+     * Creates and begins event if it is enabled in a running recording. Escape analysis cannot
+     * be relied on to remove the allocation, since event is passed through serialization paths,
+     * which are too large to be inlined.
+     *
+     * @return begun event or {@code null} if event is disabled
+     */
+    static CefSerializationEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        final CefSerializationEvent event = new CefSerializationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits specified event if it has been started and passes recording thresholds.
+     *
+     * @param recorded event returned by {@link #start()}
+     * @param event serialized CEF event
+     * @param size number of produced characters or bytes
+     * @param failed whether serialization has failed
+     */
+    static void commit(CefSerializationEvent recorded, AbstractCefEvent event, long size,
+        boolean failed) {
+        if (recorded != null && recorded.shouldCommit()) {
+            recorded.set(event, size, failed);
+            recorded.commit();
+        }
+    }
+
+    void set(AbstractCefEvent event, long size, boolean failed) {
+        this.deviceProduct = event.getDevice().getProduct();
+        this.eventClassId = event.getEventId().getId();
+        this.fields = event.getExtensionFields().size();
+        this.size = size;
+        this.failed = failed;
+    }
+}
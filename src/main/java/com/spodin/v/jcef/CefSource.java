@@ -0,0 +1,176 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Text being parsed, either sequence of characters or UTF-8 encoded bytes.
+ *
+ * <p>All CEF delimiters and escape characters are ASCII, and in UTF-8 bytes of multibyte
+ * characters never fall into ASCII range, so both representations can be scanned unit by unit in
+ * the same way. Only extracted values have to be decoded.</p>
+ *
+ * @author spodin
+ */
+abstract class CefSource {
+
+    /**
+     * Creates source over specified characters. Characters are not copied, so sequence other than
+     * {@link String} must not be changed while source is in use.
+     *
+     * @param text characters
+     * @return source
+     */
+    static CefSource of(CharSequence text) {
+        if (text instanceof String) {
+            return new Chars((String) text);
+        }
+        return new Sequence(text);
+    }
+
+    /**
+     * Creates source over UTF-8 bytes between position and limit of specified buffer. Buffer is
+     * not copied, so its content must not be changed while source is in use.
+     *
+     * @param bytes UTF-8 encoded text
+     * @return source
+     */
+    static CefSource of(ByteBuffer bytes) {
+        return new Utf8Bytes(bytes);
+    }
+
+    /**
+     * Returns number of units (characters or bytes) in the source.
+     *
+     * @return source length
+     */
+    abstract int length();
+
+    /**
+     * Returns unit at specified index. Non-ASCII bytes are returned as characters above
+     * {@code 0x7F}, which do not match any delimiter.
+     *
+     * @param index unit index
+     * @return unit at index
+     */
+    abstract char charAt(int index);
+
+    /**
+     * Decodes units in specified range into a string.
+     *
+     * @param from start index, inclusive
+     * @param to end index, exclusive
+     * @return decoded string
+     */
+    abstract String substring(int from, int to);
+
+    /**
+     * Finds first occurrence of specified ASCII string in the source.
+     *
+     * @param ascii ASCII string to find
+     * @return index of the first occurrence or {@code -1} if not found
+     */
+    int indexOf(String ascii) {
+        final int last = length() - ascii.length();
+        outer:
+        for (int i = 0; i <= last; i++) {
+            for (int j = 0; j < ascii.length(); j++) {
+                if (charAt(i + j) != ascii.charAt(j)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static final class Chars extends CefSource {
+
+        private final String text;
+
+        Chars(String text) {
+            this.text = text;
+        }
+
+        @Override
+        int length() {
+            return text.length();
+        }
+
+        @Override
+        char charAt(int index) {
+            return text.charAt(index);
+        }
+
+        @Override
+        String substring(int from, int to) {
+            return text.substring(from, to);
+        }
+
+        @Override
+        int indexOf(String ascii) {
+            return text.indexOf(ascii);
+        }
+    }
+
+    /**
+     * Characters of a builder, buffer or other sequence, read in place.
+     */
+    private static final class Sequence extends CefSource {
+
+        private final CharSequence text;
+
+        Sequence(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        int length() {
+            return text.length();
+        }
+
+        @Override
+        char charAt(int index) {
+            return text.charAt(index);
+        }
+
+        @Override
+        String substring(int from, int to) {
+            return text.subSequence(from, to).toString();
+        }
+    }
+
+    private static final class Utf8Bytes extends CefSource {
+
+        private final ByteBuffer bytes;
+        private final int offset;
+        private final int length;
+
+        Utf8Bytes(ByteBuffer bytes) {
+            this.bytes = bytes;
+            this.offset = bytes.position();
+            this.length = bytes.remaining();
+        }
+
+        @Override
+        int length() {
+            return length;
+        }
+
+        @Override
+        char charAt(int index) {
+            return (char) (bytes.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        String substring(int from, int to) {
+            if (bytes.hasArray()) {
+                return new String(bytes.array(), bytes.arrayOffset() + offset + from, to - from,
+                    StandardCharsets.UTF_8);
+            }
+            final byte[] copy = new byte[to - from];
+            bytes.duplicate().position(offset + from).get(copy);
+            return new String(copy, StandardCharsets.UTF_8);
+        }
+    }
+}
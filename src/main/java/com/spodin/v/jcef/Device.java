@@ -10,6 +10,15 @@ import java.util.Objects;
  */
 public class Device implements Serializable {
 
+    private static final int INTERNED_SIZE = 1024;
+
+    /**
+     * Direct-mapped cache of canonical devices. Slots are accessed without synchronization: device
+     * is immutable, so racing reader sees either a complete instance or a stale one, and a lost
+     * write only costs another miss.
+     */
+    private static final Device[] INTERNED = new Device[INTERNED_SIZE];
+
     private final String vendor;
     private final String product;
     private final String version;
@@ -64,6 +73,44 @@ public class Device implements Serializable {
             '}';
     }
 
+    /**
+     * Returns canonical device with specified parameters from a bounded cache, creating it if
+     * necessary. Repeated calls with the same parameters usually return the same instance
+     * without allocation; devices, which collide in the cache, replace each other.
+     *
+     * @param vendor vendor
+     * @param product product
+     * @param version version
+     * @return device
+     * @throws IllegalArgumentException on missing or illegal parameters
+     */
+    public static Device intern(String vendor, String product, String version) {
+        final int hash = (Objects.hashCode(vendor) * 31 + Objects.hashCode(product)) * 31
+            + Objects.hashCode(version);
+        final int slot = (hash ^ (hash >>> 16)) & (INTERNED_SIZE - 1);
+
+        final Device cached = INTERNED[slot];
+        if (cached != null && cached.matches(vendor, product, version)) {
+            return cached;
+        }
+        final Device device = builder().vendor(vendor).product(product).version(version).build();
+        INTERNED[slot] = device;
+        return device;
+    }
+
+    /**
+     * Checks whether device has specified parameters.
+     *
+     * @param vendor vendor
+     * @param product product
+     * @param version version
+     * @return {@code true} if all the parameters are equal
+     */
+    boolean matches(String vendor, String product, String version) {
+        return this.vendor.equals(vendor) && this.product.equals(product)
+            && this.version.equals(version);
+    }
+
     /**
      * Creates CEF event device builder.
      *
@@ -0,0 +1,105 @@
+package com.spodin.v.jcef;
+
+/**
+ * Finds characters, which have to be escaped or are not allowed, in field and extension values.
+ *
+ * <p>This class scans values character by character. If {@code jdk.incubator.vector} module is
+ * available ({@code --add-modules jdk.incubator.vector}), {@link #best()} returns {@code
+ * VectorEscapeScanner}, which compares many characters at once for long values; results of both
+ * are identical.</p>
+ *
+ * @author spodin
+ */
+class EscapeScanner {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final String VECTOR_SCANNER = "com.spodin.v.jcef.VectorEscapeScanner";
+
+    private static final int PROBE_LENGTH = 256;
+
+    private static final EscapeScanner SCALAR = new EscapeScanner();
+
+    private static final EscapeScanner BEST = createBest();
+
+    EscapeScanner() {
+    }
+
+    /**
+     * Returns scanner, which scans values character by character.
+     *
+     * @return scalar scanner
+     */
+    static EscapeScanner scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Returns the fastest scanner supported by the running JVM.
+     *
+     * @return vectorized scanner if it is available, scalar scanner otherwise
+     */
+    static EscapeScanner best() {
+        return BEST;
+    }
+
+    /**
+     * Finds index of the first character of field value, which has to be escaped ({@code |} or
+     * {@code \}) or is not allowed ({@code \r} or {@code \n}).
+     *
+     * @param value field value
+     * @param from index to start search from
+     * @return index of the character or {@code -1} if there is no such character
+     */
+    int indexOfFieldEscape(String value, int from) {
+        for (int i = from, length = value.length(); i < length; i++) {
+            final char letter = value.charAt(i);
+            if (letter == '|' || letter == '\\' || letter == '\r' || letter == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds index of the first character of extension value, which has to be escaped ({@code =},
+     * {@code \}, {@code \r} or {@code \n}).
+     *
+     * @param value extension value
+     * @param from index to start search from
+     * @return index of the character or {@code -1} if there is nothing to escape
+     */
+    int indexOfExtensionValueEscape(String value, int from) {
+        for (int i = from, length = value.length(); i < length; i++) {
+            final char letter = value.charAt(i);
+            if (letter == '=' || letter == '\\' || letter == '\r' || letter == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates vectorized scanner if incubator module is present and its API matches the one this
+     * library has been compiled against; any failure falls back to the scalar scanner. Scanner is
+     * loaded reflectively, since it is not compiled by JDKs without the module.
+     */
+    private static EscapeScanner createBest() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            final EscapeScanner vector = (EscapeScanner) Class.forName(VECTOR_SCANNER)
+                .getDeclaredConstructor()
+                .newInstance();
+            final String probe = "a".repeat(PROBE_LENGTH) + "=|";
+            if (vector.indexOfExtensionValueEscape(probe, 0) == PROBE_LENGTH
+                && vector.indexOfFieldEscape(probe, 0) == PROBE_LENGTH + 1) {
+                return vector;
+            }
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // incompatible incubator API, keep scalar scanner
+        }
+        return SCALAR;
+    }
+}
@@ -0,0 +1,199 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Table of replacements of ASCII characters, which have to be escaped in a text output format.
+ *
+ * <p>Value is escaped by a single pass, which copies runs of characters without replacement as is
+ * and looks replaced characters up by their code, so the cost does not depend on the number of
+ * escaped characters. Characters outside ASCII range are never replaced.</p>
+ *
+ * <p>Table is immutable and thread-safe.</p>
+ *
+ * @author spodin
+ * @see LeefCefSerializer
+ * @see JsonCefSerializer
+ */
+public final class EscapeTable {
+
+    private static final int SIZE = 128;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final EscapeTable JSON = jsonTable();
+
+    private final String[] replacements;
+
+    private EscapeTable(String[] replacements) {
+        this.replacements = replacements;
+    }
+
+    /**
+     * Returns table of JSON string escapes: quotation mark, backslash and control characters.
+     *
+     * @return JSON escape table
+     */
+    public static EscapeTable json() {
+        return JSON;
+    }
+
+    /**
+     * Returns table of LEEF attribute value escapes: backslash, line terminators and specified
+     * attribute delimiter are escaped with a backslash.
+     *
+     * @param delimiter attribute delimiter
+     * @return LEEF escape table
+     * @throws IllegalArgumentException if delimiter is not an ASCII character
+     */
+    public static EscapeTable leef(char delimiter) {
+        return builder()
+            .escape('\\', "\\\\")
+            .escape('\n', "\\n")
+            .escape('\r', "\\r")
+            .escape(delimiter, (delimiter == '\t' ? "\\t" : "\\" + delimiter))
+            .build();
+    }
+
+    /**
+     * Escapes specified value.
+     *
+     * @param value value to escape
+     * @return escaped value, or the same instance if there is nothing to escape
+     */
+    public String escape(String value) {
+        Assert.notNull(value, "Value is required");
+        final int index = indexOfEscape(value);
+        if (index < 0) {
+            return value;
+        }
+        final StringBuilder out = new StringBuilder(value.length() + 16);
+        try {
+            escape(value, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by StringBuilder
+        }
+        return out.toString();
+    }
+
+    /**
+     * Creates builder of a table, which initially contains replacements of this one.
+     *
+     * @return escape table builder
+     */
+    public Builder toBuilder() {
+        return new Builder(replacements.clone());
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder escaped = new StringBuilder();
+        for (int letter = 0; letter < SIZE; letter++) {
+            if (replacements[letter] != null) {
+                escaped.append(escaped.length() == 0 ? "" : ", ")
+                    .append(letter < 0x20 ? "0x" + Integer.toHexString(letter)
+                        : String.valueOf((char) letter));
+            }
+        }
+        return "EscapeTable{" +
+            "escaped=[" + escaped + ']' +
+            '}';
+    }
+
+    /**
+     * Creates builder of an empty table.
+     *
+     * @return escape table builder
+     */
+    public static Builder builder() {
+        return new Builder(new String[SIZE]);
+    }
+
+    /**
+     * Writes specified value replacing escaped characters.
+     *
+     * @param value value to escape
+     * @param out destination to write escaped value to
+     * @throws IOException if destination fails to accept characters
+     */
+    void escape(String value, Appendable out) throws IOException {
+        final String[] replacements = this.replacements;
+        final int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            final char letter = value.charAt(i);
+            if (letter < SIZE && replacements[letter] != null) {
+                if (i > start) {
+                    out.append(value, start, i);
+                }
+                out.append(replacements[letter]);
+                start = i + 1;
+            }
+        }
+        if (start == 0) {
+            out.append(value);
+        } else if (start < length) {
+            out.append(value, start, length);
+        }
+    }
+
+    private int indexOfEscape(String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            final char letter = value.charAt(i);
+            if (letter < SIZE && replacements[letter] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static EscapeTable jsonTable() {
+        final Builder builder = builder();
+        for (char letter = 0; letter < 0x20; letter++) {
+            builder.escape(letter, "\\u00" + HEX_DIGITS[letter >> 4] + HEX_DIGITS[letter & 0xF]);
+        }
+        return builder
+            .escape('"', "\\\"")
+            .escape('\\', "\\\\")
+            .escape('\b', "\\b")
+            .escape('\f', "\\f")
+            .escape('\n', "\\n")
+            .escape('\r', "\\r")
+            .escape('\t', "\\t")
+            .build();
+    }
+
+    public static class Builder {
+
+        private final String[] replacements;
+
+        private Builder(String[] replacements) {
+            this.replacements = replacements;
+        }
+
+        /**
+         * Sets replacement of specified character, replacing the previous one.
+         *
+         * @param letter ASCII character to replace
+         * @param replacement replacement of the character, {@code null} to keep character as is
+         * @return this builder for further customizations
+         * @throws IllegalArgumentException if character is not an ASCII one
+         */
+        public Builder escape(char letter, String replacement) {
+            Assert.validState(letter < SIZE, "Only ASCII characters may be escaped");
+            replacements[letter] = replacement;
+            return this;
+        }
+
+        /**
+         * Creates table with submitted replacements.
+         *
+         * @return escape table
+         */
+        public EscapeTable build() {
+            return new EscapeTable(Arrays.copyOf(replacements, SIZE));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+
+/**
+ * Text format of a serialized event, written piece by piece by {@link EventWriter}: header
+ * with the prefix fields, then each extension field, then trailer.
+ *
+ * <p>Formats hold no per-event state, so one instance may write any number of events
+ * concurrently and several formats may be written in a single pass over the event fields.</p>
+ *
+ * @author spodin
+ */
+abstract class EventFormat {
+
+    /**
+     * Writes everything preceding the first extension field.
+     *
+     * @param event event to write
+     * @param out destination to write header to
+     * @throws IOException if destination fails to accept characters
+     * @throws IllegalArgumentException if event cannot be represented in the format
+     */
+    abstract void writeHeader(AbstractCefEvent event, Appendable out) throws IOException;
+
+    /**
+     * Writes extension field.
+     *
+     * @param extension extension, which contains the field
+     * @param index field position
+     * @param key field key
+     * @param value field value or {@code null} if it is a typed one, see {@link
+     * #writeValue(AbstractExtension, int, String, EscapeTable, Appendable)}
+     * @param first whether it is the first written field of the event
+     * @param out destination to write field to
+     * @throws IOException if destination fails to accept characters
+     * @throws IllegalArgumentException if field cannot be represented in the format
+     */
+    abstract void writeField(AbstractExtension extension, int index, String key, String value,
+        boolean first, Appendable out) throws IOException;
+
+    /**
+     * Writes everything following the last extension field.
+     *
+     * @param out destination to write trailer to
+     * @throws IOException if destination fails to accept characters
+     */
+    abstract void writeTrailer(Appendable out) throws IOException;
+
+    /**
+     * Checks whether events written in this format are counted in {@link CefMetrics} and recorded
+     * as {@link CefSerializationEvent}s, same as the ones written by its serializer.
+     *
+     * @return {@code true} if written events are measured
+     */
+    boolean isMeasured() {
+        return false;
+    }
+
+    /**
+     * Creates format of specified serializer.
+     *
+     * @param serializer serializer, which writes events in the format
+     * @return event format
+     * @throws IllegalArgumentException if serializer does not write through a format
+     */
+    static EventFormat of(CefSerializer<?> serializer) {
+        Assert.notNull(serializer, "Serializer is required");
+        if (serializer instanceof StdCefSerializer) {
+            return ((StdCefSerializer) serializer).format();
+        }
+        if (serializer instanceof AbstractFormatSerializer) {
+            return ((AbstractFormatSerializer) serializer).format();
+        }
+        throw new IllegalArgumentException(
+            "Serializer does not support formatting in a single pass: " + serializer);
+    }
+
+    /**
+     * Writes value of the field, formatting typed value directly and escaping string one.
+     *
+     * @param extension extension, which contains the field
+     * @param index field position
+     * @param value string value or {@code null} for typed value
+     * @param escaping escaping of the string value
+     * @param out destination to write value to
+     * @throws IOException if destination fails to accept characters
+     */
+    static void writeValue(AbstractExtension extension, int index, String value,
+        EscapeTable escaping, Appendable out) throws IOException {
+        if (value == null) {
+            extension.appendTypedValueAt(index, out);
+        } else {
+            escaping.escape(value, out);
+        }
+    }
+}
@@ -10,6 +10,15 @@ import java.util.Objects;
  */
 public class EventId implements Serializable {
 
+    private static final int INTERNED_SIZE = 4096;
+
+    /**
+     * Direct-mapped cache of canonical identifiers. Slots are accessed without synchronization:
+     * identifier is immutable, so racing reader sees either a complete instance or a stale one,
+     * and a lost write only costs another miss.
+     */
+    private static final EventId[] INTERNED = new EventId[INTERNED_SIZE];
+
     private final String id;
     private final String name;
 
@@ -42,6 +51,41 @@ public class EventId implements Serializable {
         return new EventId(id, name);
     }
 
+    /**
+     * Returns canonical event identifier with specified id and name from a bounded cache,
+     * creating it if necessary, see {@link #of(String, String)}. Repeated calls with the same id
+     * and name usually return the same instance without allocation; identifiers, which collide in
+     * the cache, replace each other.
+     *
+     * @param id event id
+     * @param name event name
+     * @return event identifier instance
+     * @throws IllegalArgumentException if id or name is {@code null} or blank
+     */
+    public static EventId intern(String id, String name) {
+        final int hash = Objects.hashCode(id) * 31 + Objects.hashCode(name);
+        final int slot = (hash ^ (hash >>> 16)) & (INTERNED_SIZE - 1);
+
+        final EventId cached = INTERNED[slot];
+        if (cached != null && cached.matches(id, name)) {
+            return cached;
+        }
+        final EventId eventId = new EventId(id, name);
+        INTERNED[slot] = eventId;
+        return eventId;
+    }
+
+    /**
+     * Checks whether identifier has specified id and name.
+     *
+     * @param id event id
+     * @param name event name
+     * @return {@code true} if both are equal
+     */
+    boolean matches(String id, String name) {
+        return this.id.equals(id) && this.name.equals(name);
+    }
+
     public String getId() {
         return id;
     }
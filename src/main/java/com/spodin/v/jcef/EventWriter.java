@@ -0,0 +1,279 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes events in one or several {@link EventFormat}s into caller-supplied builders and UTF-8
+ * encoded buffers.
+ *
+ * <p>Extension fields are iterated once whatever number of formats is written: each field is
+ * fetched and passed to every format before moving to the next one. Nothing is allocated per
+ * event; UTF-8 encoders and output marks are reused per thread, encoders release their buffers
+ * once event is written.</p>
+ *
+ * <p>If event cannot be written, outputs are restored: builders to their original length,
+ * buffers to their original position.</p>
+ *
+ * <p>Events written in several formats at once are measured for each {@link
+ * EventFormat#isMeasured() measured} format, i.e. standard CEF, the same way as by its serializer:
+ * counted in {@link CefMetrics} and recorded as a {@link CefSerializationEvent}, which size covers
+ * all the measured outputs.</p>
+ *
+ * @author spodin
+ */
+final class EventWriter {
+
+    private static final CefMetrics METRICS = CefMetrics.global();
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private EventWriter() {
+    }
+
+    /**
+     * Writes event appending it to the end of specified builder.
+     *
+     * @param event event to write
+     * @param format format to write event in
+     * @param out builder to append event to
+     * @return specified builder
+     * @throws IllegalArgumentException if event cannot be represented in the format
+     */
+    static StringBuilder write(AbstractCefEvent event, EventFormat format, StringBuilder out) {
+        final int length = out.length();
+        try {
+            writeTo(event, format, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by StringBuilder
+        } catch (IllegalArgumentException e) {
+            out.setLength(length);
+            throw e;
+        }
+        return out;
+    }
+
+    /**
+     * Writes event encoding it as UTF-8 into specified buffer, starting at its current position.
+     *
+     * @param event event to write
+     * @param format format to write event in
+     * @param out buffer to write event to
+     * @return {@code true} if event has been written, {@code false} if buffer has not enough space
+     * @throws IllegalArgumentException if event cannot be represented in the format
+     */
+    static boolean write(AbstractCefEvent event, EventFormat format, ByteBuffer out) {
+        final int position = out.position();
+        final Utf8Appender appender = SCRATCH.get().appenders(1)[0].wrap(out);
+        try {
+            writeTo(event, format, appender);
+            appender.finish();
+            return true;
+        } catch (BufferOverflowException e) {
+            out.position(position);
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by Utf8Appender
+        } catch (IllegalArgumentException e) {
+            out.position(position);
+            throw e;
+        } finally {
+            appender.wrap(null);
+        }
+    }
+
+    /**
+     * Writes event in each of specified formats appending it to the end of the builder with the
+     * same index.
+     *
+     * @param event event to write
+     * @param formats formats to write event in
+     * @param outs builders to append event to
+     * @throws IllegalArgumentException if event cannot be represented in any of the formats
+     */
+    static void write(AbstractCefEvent event, EventFormat[] formats, StringBuilder[] outs) {
+        Assert.validState(outs.length == formats.length, "Output is required for each format");
+        final boolean measured = isMeasured(formats);
+        final long start = (measured ? METRICS.start() : 0);
+        final CefSerializationEvent recorded = (measured ? CefSerializationEvent.start() : null);
+
+        final int[] lengths = SCRATCH.get().marks(outs.length);
+        for (int i = 0; i < outs.length; i++) {
+            lengths[i] = outs[i].length();
+        }
+        try {
+            writeAll(event, formats, outs);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by StringBuilder
+        } catch (IllegalArgumentException e) {
+            for (int i = 0; i < outs.length; i++) {
+                outs[i].setLength(lengths[i]);
+            }
+            CefSerializationEvent.commit(recorded, event, 0, true);
+            throw e;
+        }
+
+        if (measured) {
+            long size = 0;
+            for (int i = 0; i < outs.length; i++) {
+                if (formats[i].isMeasured()) {
+                    final int chars = outs[i].length() - lengths[i];
+                    METRICS.serialized(start, chars, 0);
+                    size += chars;
+                }
+            }
+            CefSerializationEvent.commit(recorded, event, size, false);
+        }
+    }
+
+    /**
+     * Writes event in each of specified formats encoding it as UTF-8 into the buffer with the
+     * same index. Event is written either into all buffers or into none of them.
+     *
+     * @param event event to write
+     * @param formats formats to write event in
+     * @param outs buffers to write event to
+     * @return {@code true} if event has been written, {@code false} if any buffer has not enough
+     * space
+     * @throws IllegalArgumentException if event cannot be represented in any of the formats
+     */
+    static boolean write(AbstractCefEvent event, EventFormat[] formats, ByteBuffer[] outs) {
+        Assert.validState(outs.length == formats.length, "Output is required for each format");
+        final boolean measured = isMeasured(formats);
+        final long start = (measured ? METRICS.start() : 0);
+        final CefSerializationEvent recorded = (measured ? CefSerializationEvent.start() : null);
+
+        final Scratch scratch = SCRATCH.get();
+        final int[] positions = scratch.marks(outs.length);
+        final Utf8Appender[] appenders = scratch.appenders(outs.length);
+        for (int i = 0; i < outs.length; i++) {
+            positions[i] = outs[i].position();
+            appenders[i].wrap(outs[i]);
+        }
+        try {
+            writeAll(event, formats, appenders);
+            for (int i = 0; i < outs.length; i++) {
+                appenders[i].finish();
+            }
+        } catch (BufferOverflowException e) {
+            reset(outs, positions);
+            CefSerializationEvent.commit(recorded, event, 0, true);
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by Utf8Appender
+        } catch (IllegalArgumentException e) {
+            reset(outs, positions);
+            CefSerializationEvent.commit(recorded, event, 0, true);
+            throw e;
+        } finally {
+            for (int i = 0; i < outs.length; i++) {
+                appenders[i].wrap(null);
+            }
+        }
+
+        if (measured) {
+            long size = 0;
+            for (int i = 0; i < outs.length; i++) {
+                if (formats[i].isMeasured()) {
+                    final int bytes = outs[i].position() - positions[i];
+                    METRICS.serialized(start, 0, bytes);
+                    size += bytes;
+                }
+            }
+            CefSerializationEvent.commit(recorded, event, size, false);
+        }
+        return true;
+    }
+
+    private static void writeTo(AbstractCefEvent event, EventFormat format, Appendable out)
+        throws IOException {
+        format.writeHeader(event, out);
+        final AbstractExtension extension = event.getExtensionFields();
+        boolean first = true;
+        for (int i = 0, size = extension.size(); i < size; i++) {
+            final String key = extension.keyAt(i);
+            final boolean typed = extension.isTypedAt(i);
+            final String value = (typed ? null : extension.valueAt(i));
+            if (key == null || (!typed && value == null)) {
+                continue;
+            }
+            format.writeField(extension, i, key, value, first, out);
+            first = false;
+        }
+        format.writeTrailer(out);
+    }
+
+    /**
+     * Writes event in each format into output with the same index. Outputs array may be longer
+     * than formats one.
+     */
+    private static void writeAll(AbstractCefEvent event, EventFormat[] formats, Appendable[] outs)
+        throws IOException {
+        final int count = formats.length;
+        for (int j = 0; j < count; j++) {
+            formats[j].writeHeader(event, outs[j]);
+        }
+        final AbstractExtension extension = event.getExtensionFields();
+        boolean first = true;
+        for (int i = 0, size = extension.size(); i < size; i++) {
+            final String key = extension.keyAt(i);
+            final boolean typed = extension.isTypedAt(i);
+            final String value = (typed ? null : extension.valueAt(i));
+            if (key == null || (!typed && value == null)) {
+                continue;
+            }
+            for (int j = 0; j < count; j++) {
+                formats[j].writeField(extension, i, key, value, first, outs[j]);
+            }
+            first = false;
+        }
+        for (int j = 0; j < count; j++) {
+            formats[j].writeTrailer(outs[j]);
+        }
+    }
+
+    private static boolean isMeasured(EventFormat[] formats) {
+        for (EventFormat format : formats) {
+            if (format.isMeasured()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void reset(ByteBuffer[] outs, int[] positions) {
+        for (int i = 0; i < outs.length; i++) {
+            outs[i].position(positions[i]);
+        }
+    }
+
+    /**
+     * Per-thread objects reused between events, grown to the largest number of outputs.
+     */
+    private static final class Scratch {
+
+        private Utf8Appender[] appenders = new Utf8Appender[0];
+        private int[] marks = new int[0];
+
+        Utf8Appender[] appenders(int count) {
+            if (appenders.length < count) {
+                final int length = appenders.length;
+                appenders = Arrays.copyOf(appenders, count);
+                for (int i = length; i < count; i++) {
+                    appenders[i] = new Utf8Appender();
+                }
+            }
+            return appenders;
+        }
+
+        int[] marks(int count) {
+            if (marks.length < count) {
+                marks = new int[count];
+            }
+            return marks;
+        }
+    }
+}
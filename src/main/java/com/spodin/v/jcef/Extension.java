@@ -1,32 +1,216 @@
 package com.spodin.v.jcef;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * CEF event extension.
  *
+ * <p>Fields are kept in insertion order in parallel key and value arrays. Standard CEF keys are
+ * additionally identified by their id in the built-in dictionary, which makes their lookup and
+ * serialization cheap. Adding a key, which is already present, replaces its value keeping its
+ * original position.</p>
+ *
+ * <p>Numbers, timestamps and IP addresses may be added as typed values. They are stored as
+ * primitives and formatted directly into the serializer output, never requiring escaping. Typed
+ * value is equal to its textual representation, e.g. {@code add("cnt", 1)} is equal to
+ * {@code add("cnt", "1")}.</p>
+ *
  * @author spodin
  */
-public class Extension implements Serializable {
+public class Extension extends AbstractExtension implements Serializable {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    static final byte STRING = 0;
+    static final byte NUMBER = 1;
+    static final byte TIMESTAMP = 2;
+    static final byte IPV4 = 3;
+    static final byte IPV6 = 4;
+
+    private static final int IPV4_LENGTH = 4;
+    private static final int IPV6_LENGTH = 16;
+
+    private static final Extension EMPTY = new Builder(0).build();
 
-    private static final Extension EMPTY = new Builder(Collections.emptyMap()).build();
+    private final String[] keys;
+    private final short[] keyIds;
+
+    /**
+     * String values or IPv6 addresses as byte arrays.
+     */
+    private final Object[] values;
+
+    /**
+     * Value types and primitive values, {@code null} if there are only string values.
+     */
+    private final byte[] types;
+    private final long[] numbers;
 
-    private final Map<String, String> fields;
+    private final int size;
 
     private Extension(Builder builder) {
-        this.fields = Collections.unmodifiableMap(builder.fields);
+        this.size = builder.size;
+        this.keys = Arrays.copyOf(builder.keys, size);
+        this.keyIds = Arrays.copyOf(builder.keyIds, size);
+        this.values = Arrays.copyOf(builder.values, size);
+        this.types = (builder.types == null ? null : Arrays.copyOf(builder.types, size));
+        this.numbers = (builder.numbers == null ? null : Arrays.copyOf(builder.numbers, size));
+    }
+
+    /**
+     * Returns value of the field with specified key.
+     *
+     * @param key field key
+     * @return field value or {@code null} if there is no such field
+     */
+    public String get(String key) {
+        final int index = indexOf(key, ExtensionKeys.idOf(key));
+        return (index < 0 ? null : valueAt(index));
+    }
+
+    /**
+     * Checks whether extension contains field with specified key.
+     *
+     * @param key field key
+     * @return {@code true} if there is such field
+     */
+    public boolean containsKey(String key) {
+        return indexOf(key, ExtensionKeys.idOf(key)) >= 0;
     }
 
+    /**
+     * Returns number of fields.
+     *
+     * @return number of fields
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    String keyAt(int index) {
+        return keys[index];
+    }
+
+    @Override
+    short keyIdAt(int index) {
+        return keyIds[index];
+    }
+
+    @Override
+    String valueAt(int index) {
+        return (isTypedAt(index) ? formatTyped(types[index], numbers[index], values[index])
+            : (String) values[index]);
+    }
+
+    @Override
+    boolean isTypedAt(int index) {
+        return types != null && types[index] != STRING;
+    }
+
+    /**
+     * Returns type of the value at specified position.
+     *
+     * @param index field position
+     * @return one of {@link #STRING}, {@link #NUMBER}, {@link #TIMESTAMP}, {@link #IPV4} or
+     * {@link #IPV6}
+     */
+    byte typeAt(int index) {
+        return (types == null ? STRING : types[index]);
+    }
+
+    /**
+     * Returns primitive value at specified position: number, timestamp or IPv4 address.
+     *
+     * @param index field position
+     * @return primitive value
+     */
+    long numberAt(int index) {
+        return numbers[index];
+    }
+
+    /**
+     * Returns IPv6 address at specified position. Array is not copied and must not be modified.
+     *
+     * @param index field position
+     * @return raw IPv6 address
+     */
+    byte[] ipv6At(int index) {
+        return (byte[]) values[index];
+    }
+
+    @Override
+    void appendTypedValueAt(int index, Appendable out) throws IOException {
+        appendTyped(types[index], numbers[index], values[index], out);
+    }
+
+    /**
+     * Creates map of the fields in insertion order.
+     *
+     * @return unmodifiable map of the fields
+     */
     Map<String, String> getFields() {
-        return fields;
+        final Map<String, String> fields = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            fields.put(keys[i], valueAt(i));
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Extension extension = (Extension) o;
+        if (size != extension.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            final int index = extension.indexOf(keys[i], keyIds[i]);
+            if (index < 0 || !Objects.equals(valueAt(i), extension.valueAt(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        // same as Map.hashCode(), so that hash does not depend on fields order
+        int hash = 0;
+        for (int i = 0; i < size; i++) {
+            hash += Objects.hashCode(keys[i]) ^ Objects.hashCode(valueAt(i));
+        }
+        return hash;
     }
 
     @Override
     public String toString() {
-        return "Extension{fields=" + fields + '}';
+        final StringBuilder fields = new StringBuilder("Extension{fields={");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                fields.append(", ");
+            }
+            fields.append(keys[i]).append('=').append(valueAt(i));
+        }
+        return fields.append("}}").toString();
     }
 
     /**
@@ -44,33 +228,281 @@ public class Extension implements Serializable {
      * @return event extension builder
      */
     public static Builder builder() {
-        return new Builder();
+        return new Builder(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates builder initialized with the fields of this extension, keeping their types.
+     *
+     * @return event extension builder
+     */
+    Builder toBuilder() {
+        final Builder builder =
+            new Builder(Math.max(DEFAULT_CAPACITY, size + DEFAULT_CAPACITY / 2));
+        System.arraycopy(keys, 0, builder.keys, 0, size);
+        System.arraycopy(keyIds, 0, builder.keyIds, 0, size);
+        System.arraycopy(values, 0, builder.values, 0, size);
+        if (types != null) {
+            builder.types = Arrays.copyOf(types, builder.keys.length);
+            builder.numbers = Arrays.copyOf(numbers, builder.keys.length);
+        }
+        builder.size = size;
+        return builder;
+    }
+
+    private int indexOf(String key, short id) {
+        return indexOf(keys, keyIds, size, key, id);
     }
 
-    public static class Builder {
+    private static String formatTyped(byte type, long number, Object value) {
+        final StringBuilder formatted = new StringBuilder(24);
+        try {
+            appendTyped(type, number, value, formatted);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by StringBuilder
+        }
+        return formatted.toString();
+    }
 
-        private final Map<String, String> fields;
+    private static void appendTyped(byte type, long number, Object value, Appendable out)
+        throws IOException {
+        switch (type) {
+            case NUMBER:
+            case TIMESTAMP:
+                StringUtils.appendDecimal(number, out);
+                break;
+            case IPV4:
+                StringUtils.appendIpv4((int) number, out);
+                break;
+            case IPV6:
+                StringUtils.appendIpv6((byte[]) value, out);
+                break;
+            default:
+                throw new IllegalStateException("Value of type " + type + " is not typed");
+        }
+    }
 
-        private Builder() {
-            this(new LinkedHashMap<>());
+    private static int indexOf(String[] keys, short[] keyIds, int size, String key, short id) {
+        if (id != ExtensionKeys.CUSTOM) {
+            for (int i = 0; i < size; i++) {
+                if (keyIds[i] == id) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                if (keyIds[i] == ExtensionKeys.CUSTOM && Objects.equals(keys[i], key)) {
+                    return i;
+                }
+            }
         }
+        return -1;
+    }
 
-        private Builder(Map<String, String> fields) {
-            this.fields = fields;
+    /**
+     * Builder of the extension. Besides building immutable extensions, it is reused by
+     * {@link MutableCefEvent}, which serializes fields straight from the builder and clears it
+     * between events.
+     */
+    public static class Builder extends AbstractExtension {
+
+        private String[] keys;
+        private short[] keyIds;
+        private Object[] values;
+        private byte[] types;
+        private long[] numbers;
+        private int size;
+
+        private Builder(int capacity) {
+            this.keys = new String[capacity];
+            this.keyIds = new short[capacity];
+            this.values = new Object[capacity];
         }
 
         /**
-         * Adds field (key-value pair) to the extension.
+         * Adds field (key-value pair) to the extension. If there is a field with the same key
+         * already, its value is replaced.
          *
          * @param key field key
          * @param value field value
          * @return this builder for further additions
          */
         public Builder add(String key, String value) {
-            this.fields.put(key, value);
+            put(key, STRING, value, 0);
+            return this;
+        }
+
+        /**
+         * Adds numeric field to the extension. Value is formatted only when serialized.
+         *
+         * @param key field key
+         * @param value field value
+         * @return this builder for further additions
+         */
+        public Builder add(String key, int value) {
+            put(key, NUMBER, null, value);
+            return this;
+        }
+
+        /**
+         * Adds numeric field (e.g. byte count) to the extension. Value is formatted only when
+         * serialized.
+         *
+         * @param key field key
+         * @param value field value
+         * @return this builder for further additions
+         */
+        public Builder add(String key, long value) {
+            put(key, NUMBER, null, value);
+            return this;
+        }
+
+        /**
+         * Adds timestamp field (e.g. {@code rt}, {@code start} or {@code end}) to the extension.
+         * Timestamp is serialized as milliseconds since epoch.
+         *
+         * @param key field key
+         * @param epochMillis milliseconds since epoch
+         * @return this builder for further additions
+         */
+        public Builder addTimestamp(String key, long epochMillis) {
+            put(key, TIMESTAMP, null, epochMillis);
+            return this;
+        }
+
+        /**
+         * Adds IP address field to the extension. IPv4 address is serialized in dotted decimal
+         * form, IPv6 address as eight hexadecimal groups, same as {@link
+         * InetAddress#getHostAddress()} does.
+         *
+         * @param key field key
+         * @param address raw IP address, 4 bytes for IPv4 or 16 bytes for IPv6
+         * @return this builder for further additions
+         * @throws IllegalArgumentException if address is {@code null} or of unexpected length
+         */
+        public Builder addIp(String key, byte[] address) {
+            Assert.notNull(address, "Address is required");
+            if (address.length == IPV4_LENGTH) {
+                put(key, IPV4, null, ((address[0] & 0xFFL) << 24) | ((address[1] & 0xFF) << 16)
+                    | ((address[2] & 0xFF) << 8) | (address[3] & 0xFF));
+            } else {
+                Assert.validState(address.length == IPV6_LENGTH,
+                    "Address must be either 4 or 16 bytes long");
+                put(key, IPV6, address.clone(), 0);
+            }
             return this;
         }
 
+        /**
+         * Adds IP address field to the extension, see {@link #addIp(String, byte[])}.
+         *
+         * @param key field key
+         * @param address IP address
+         * @return this builder for further additions
+         * @throws IllegalArgumentException if address is {@code null}
+         */
+        public Builder addIp(String key, InetAddress address) {
+            Assert.notNull(address, "Address is required");
+            return addIp(key, address.getAddress());
+        }
+
+        /**
+         * Adds IPv4 address field to the extension.
+         *
+         * @param key field key
+         * @param address IPv4 address as integer in network byte order
+         * @return this builder for further additions
+         */
+        Builder addIpv4(String key, int address) {
+            put(key, IPV4, null, address & 0xFFFFFFFFL);
+            return this;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        String keyAt(int index) {
+            return keys[index];
+        }
+
+        @Override
+        short keyIdAt(int index) {
+            return keyIds[index];
+        }
+
+        @Override
+        String valueAt(int index) {
+            return (isTypedAt(index) ? formatTyped(types[index], numbers[index], values[index])
+                : (String) values[index]);
+        }
+
+        @Override
+        boolean isTypedAt(int index) {
+            return types != null && types[index] != STRING;
+        }
+
+        @Override
+        void appendTypedValueAt(int index, Appendable out) throws IOException {
+            appendTyped(types[index], numbers[index], values[index], out);
+        }
+
+        /**
+         * Returns value of the field with specified key.
+         *
+         * @param key field key
+         * @return field value or {@code null} if there is no such field
+         */
+        String get(String key) {
+            final int index = indexOf(keys, keyIds, size, key, ExtensionKeys.idOf(key));
+            return (index < 0 ? null : valueAt(index));
+        }
+
+        /**
+         * Removes all the fields keeping allocated capacity, so that builder can be reused.
+         */
+        void clear() {
+            Arrays.fill(keys, 0, size, null);
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
+
+        private void put(String key, byte type, Object value, long number) {
+            final short id = ExtensionKeys.idOf(key);
+            int index = indexOf(keys, keyIds, size, key, id);
+            if (index < 0) {
+                if (size == keys.length) {
+                    grow();
+                }
+                index = size++;
+                keys[index] = (id == ExtensionKeys.CUSTOM ? key : ExtensionKeys.keyOf(id));
+                keyIds[index] = id;
+            }
+
+            values[index] = value;
+            if (type != STRING && types == null) {
+                types = new byte[keys.length];
+                numbers = new long[keys.length];
+            }
+            if (types != null) {
+                types[index] = type;
+                numbers[index] = number;
+            }
+        }
+
+        private void grow() {
+            final int capacity = Math.max(DEFAULT_CAPACITY, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            keyIds = Arrays.copyOf(keyIds, capacity);
+            values = Arrays.copyOf(values, capacity);
+            if (types != null) {
+                types = Arrays.copyOf(types, capacity);
+                numbers = Arrays.copyOf(numbers, capacity);
+            }
+        }
+
         /**
          * Creates CEF event extension with submitted parameters.
          *
@@ -0,0 +1,90 @@
+package com.spodin.v.jcef;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of the standard CEF extension keys.
+ *
+ * <p>Each standard key has a small integer id. Extension stores dictionary key instance instead
+ * of the submitted one, so equal keys of different events share the same string, and compares
+ * standard keys by id. Standard keys contain neither equal signs nor white spaces, so they never
+ * need escaping.</p>
+ *
+ * @author spodin
+ */
+final class ExtensionKeys {
+
+    /**
+     * Id of a key, which is not in the dictionary.
+     */
+    static final short CUSTOM = -1;
+
+    private static final String[] KEYS = {
+        "act", "app", "c6a1", "c6a1Label", "c6a3", "c6a3Label", "c6a4", "c6a4Label", "cat",
+        "cfp1", "cfp1Label", "cfp2", "cfp2Label", "cfp3", "cfp3Label", "cfp4", "cfp4Label",
+        "cn1", "cn1Label", "cn2", "cn2Label", "cn3", "cn3Label", "cnt",
+        "cs1", "cs1Label", "cs2", "cs2Label", "cs3", "cs3Label", "cs4", "cs4Label",
+        "cs5", "cs5Label", "cs6", "cs6Label",
+        "destinationDnsDomain", "destinationServiceName", "destinationTranslatedAddress",
+        "destinationTranslatedPort", "deviceCustomDate1", "deviceCustomDate1Label",
+        "deviceCustomDate2", "deviceCustomDate2Label", "deviceDirection", "deviceDnsDomain",
+        "deviceExternalId", "deviceFacility", "deviceInboundInterface", "deviceNtDomain",
+        "deviceOutboundInterface", "devicePayloadId", "deviceProcessName",
+        "deviceTranslatedAddress", "dhost", "dmac", "dntdom", "dpid", "dpriv", "dproc", "dpt",
+        "dst", "dtz", "duid", "duser", "dvc", "dvchost", "dvcmac", "dvcpid", "end", "externalId",
+        "fileCreateTime", "fileHash", "fileId", "fileModificationTime", "filePath",
+        "filePermission", "fileType", "flexDate1", "flexDate1Label", "flexString1",
+        "flexString1Label", "flexString2", "flexString2Label", "fname", "fsize", "in", "msg",
+        "oldFileCreateTime", "oldFileHash", "oldFileId", "oldFileModificationTime",
+        "oldFileName", "oldFilePath", "oldFilePermission", "oldFileSize", "oldFileType", "out",
+        "outcome", "proto", "reason", "request", "requestClientApplication", "requestContext",
+        "requestCookies", "requestMethod", "rt", "shost", "smac", "sntdom", "sourceDnsDomain",
+        "sourceServiceName", "sourceTranslatedAddress", "sourceTranslatedPort", "spid", "spriv",
+        "sproc", "spt", "src", "start", "suid", "suser", "type",
+        "agentDnsDomain", "agentNtDomain", "agentTranslatedAddress", "agt", "ahost", "aid",
+        "amac", "art", "at", "atz", "av", "dlat", "dlong", "eventId", "rawEvent", "slat",
+        "slong"
+    };
+
+    private static final Map<String, Short> IDS = new HashMap<>(KEYS.length * 2);
+
+    static {
+        for (short id = 0; id < KEYS.length; id++) {
+            IDS.put(KEYS[id], id);
+        }
+    }
+
+    private ExtensionKeys() {
+    }
+
+    /**
+     * Returns id of specified key.
+     *
+     * @param key extension key, may be {@code null}
+     * @return key id or {@link #CUSTOM} if key is not in the dictionary
+     */
+    static short idOf(String key) {
+        final Short id = (key == null ? null : IDS.get(key));
+        return (id == null ? CUSTOM : id);
+    }
+
+    /**
+     * Returns key with specified id.
+     *
+     * @param id key id
+     * @return dictionary key
+     */
+    static String keyOf(short id) {
+        return KEYS[id];
+    }
+
+    /**
+     * Returns number of keys in the dictionary.
+     *
+     * @return dictionary size
+     */
+    static int size() {
+        return KEYS.length;
+    }
+}
@@ -0,0 +1,101 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+
+/**
+ * Serializes CEF event to a single-line JSON object, e.g. for JSON lines files:
+ *
+ * <pre>{@code
+ * {"version":0,"deviceVendor":"iPlatform","deviceProduct":"USO","deviceVersion":"1.0",
+ * "deviceEventClassId":"login","name":"User logged in","severity":"3",
+ * "extension":{"suser":"admin","cnt":"5"}}
+ * }</pre>
+ *
+ * <p>Prefix fields are named as in the CEF specification; extension fields are nested in the
+ * {@code extension} object in their order, so that custom keys never clash with prefix fields.
+ * All values except the version are strings, typed extension values included, since CEF
+ * severity and extension values are textual.</p>
+ *
+ * <p>Serializer is immutable and thread-safe.</p>
+ *
+ * @author spodin
+ */
+public class JsonCefSerializer extends AbstractFormatSerializer {
+
+    private final EscapeTable escaping;
+
+    /**
+     * Creates serializer, which escapes strings according to JSON specification.
+     */
+    public JsonCefSerializer() {
+        this(EscapeTable.json());
+    }
+
+    /**
+     * Creates serializer, which escapes strings with specified table. Table must escape at least
+     * quotation mark, backslash and control characters for the output to be valid JSON.
+     *
+     * @param escaping escape table of keys and values
+     */
+    public JsonCefSerializer(EscapeTable escaping) {
+        this(new JsonFormat(Assert.notNull(escaping, "Escape table is required")));
+    }
+
+    private JsonCefSerializer(JsonFormat format) {
+        super(format);
+        this.escaping = format.escaping;
+    }
+
+    @Override
+    public String toString() {
+        return "JsonCefSerializer{" +
+            "escaping=" + escaping +
+            '}';
+    }
+
+    private static final class JsonFormat extends EventFormat {
+
+        private final EscapeTable escaping;
+
+        JsonFormat(EscapeTable escaping) {
+            this.escaping = escaping;
+        }
+
+        @Override
+        void writeHeader(AbstractCefEvent event, Appendable out) throws IOException {
+            final Device device = event.getDevice();
+            final EventId eventId = event.getEventId();
+
+            out.append("{\"version\":");
+            StringUtils.appendDecimal(event.getVersion(), out);
+            writeString(",\"deviceVendor\":\"", device.getVendor(), out);
+            writeString(",\"deviceProduct\":\"", device.getProduct(), out);
+            writeString(",\"deviceVersion\":\"", device.getVersion(), out);
+            writeString(",\"deviceEventClassId\":\"", eventId.getId(), out);
+            writeString(",\"name\":\"", eventId.getName(), out);
+            writeString(",\"severity\":\"", event.getSeverity(), out);
+            out.append(",\"extension\":{");
+        }
+
+        @Override
+        void writeField(AbstractExtension extension, int index, String key, String value,
+            boolean first, Appendable out) throws IOException {
+            out.append(first ? "\"" : ",\"");
+            escaping.escape(key, out);
+            out.append("\":\"");
+            writeValue(extension, index, value, escaping, out);
+            out.append('"');
+        }
+
+        @Override
+        void writeTrailer(Appendable out) throws IOException {
+            out.append("}}");
+        }
+
+        private void writeString(String opening, String value, Appendable out) throws IOException {
+            out.append(opening);
+            escaping.escape(value, out);
+            out.append('"');
+        }
+    }
+}
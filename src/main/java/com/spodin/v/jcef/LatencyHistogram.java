@@ -0,0 +1,150 @@
+package com.spodin.v.jcef;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of latencies in nanoseconds with log-linear buckets, similar to
+ * HdrHistogram with one significant decimal digit.
+ *
+ * <p>Each power of two range is split into {@value #SUB_BUCKETS} equal buckets, so recorded value
+ * is reported with relative error below 1/{@value #SUB_BUCKETS}. Values above {@link
+ * #MAX_TRACKABLE_NANOS} are counted in the last bucket. Every bucket is a {@link LongAdder}, so
+ * recording from many threads does not contend on a single counter.</p>
+ *
+ * @author spodin
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Largest value tracked with bounded relative error, about 18 minutes.
+     */
+    static final long MAX_TRACKABLE_NANOS = (1L << 40) - 1;
+
+    private final LongAdder[] buckets = new LongAdder[indexOf(MAX_TRACKABLE_NANOS) + 1];
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records specified latency. Negative values are recorded as zero.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    void record(long nanos) {
+        final long value = Math.max(0, Math.min(nanos, MAX_TRACKABLE_NANOS));
+        buckets[indexOf(value)].increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Returns number of recorded values.
+     *
+     * @return number of values
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Returns mean of the recorded values.
+     *
+     * @return mean latency in nanoseconds or {@code 0} if nothing has been recorded
+     */
+    public double getMean() {
+        final long count = getCount();
+        return (count == 0 ? 0 : (double) total.sum() / count);
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return maximal latency in nanoseconds or {@code 0} if nothing has been recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns value, which specified percentage of the recorded values do not exceed. Value is
+     * the upper bound of its bucket, but never exceeds {@link #getMax()}.
+     *
+     * @param percentile percentile from 0 to 100
+     * @return latency in nanoseconds or {@code 0} if nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        Assert.validState(percentile >= 0 && percentile <= 100, "Percentile must be in 0-100");
+        final long[] counts = new long[buckets.length];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets all the recorded values. Values recorded concurrently may be partially kept.
+     */
+    void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        total.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+            "count=" + getCount() +
+            ", p50=" + getValueAtPercentile(50) +
+            ", p99=" + getValueAtPercentile(99) +
+            ", max=" + getMax() +
+            '}';
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,118 @@
+package com.spodin.v.jcef;
+
+/**
+ * CEF event view over the line it has been parsed from.
+ *
+ * <p>Only positions of the fields are recorded while parsing; each field is decoded and unescaped
+ * when its accessor is called, so events may be filtered by a few fields without paying for the
+ * rest. Accessors mirror the ones of {@link CefEvent}; {@link #materialize()} converts view to
+ * the real event.</p>
+ *
+ * <p>Values are not cached, so each accessor call extracts field again. View is not thread-safe
+ * and must not outlive the line it has been parsed from.</p>
+ *
+ * @author spodin
+ * @see CefParser#parseLazily(CharSequence)
+ * @see CefParser#parseLazily(java.nio.ByteBuffer)
+ */
+public class LazyCefEvent {
+
+    private final CefLineIndex index;
+
+    LazyCefEvent(CefLineIndex index) {
+        this.index = index;
+    }
+
+    public int getVersion() {
+        return index.version();
+    }
+
+    /**
+     * Creates device from the vendor, product and version fields.
+     *
+     * @return event device
+     * @throws IllegalArgumentException if any of the fields is blank
+     */
+    public Device getDevice() {
+        return Device.builder()
+            .vendor(getVendor())
+            .product(getProduct())
+            .version(getDeviceVersion())
+            .build();
+    }
+
+    public String getVendor() {
+        return index.field(CefLineIndex.VENDOR);
+    }
+
+    public String getProduct() {
+        return index.field(CefLineIndex.PRODUCT);
+    }
+
+    public String getDeviceVersion() {
+        return index.field(CefLineIndex.DEVICE_VERSION);
+    }
+
+    public String getId() {
+        return index.field(CefLineIndex.ID);
+    }
+
+    public String getName() {
+        return index.field(CefLineIndex.NAME);
+    }
+
+    public String getSeverity() {
+        return index.field(CefLineIndex.SEVERITY);
+    }
+
+    /**
+     * Returns value of extension field with specified key. Only the matching value is decoded.
+     *
+     * @param key extension key
+     * @return extension value or {@code null} if there is no such key
+     */
+    public String getExtensionValue(String key) {
+        final int field = index.indexOfExtensionKey(key);
+        return (field < 0 ? null : index.extensionValue(field));
+    }
+
+    /**
+     * Checks whether extension contains field with specified key.
+     *
+     * @param key extension key
+     * @return {@code true} if there is such key
+     */
+    public boolean hasExtensionKey(String key) {
+        return index.indexOfExtensionKey(key) >= 0;
+    }
+
+    /**
+     * Returns number of fields in the extension, including repeated keys.
+     *
+     * @return number of extension fields
+     */
+    public int getExtensionSize() {
+        return index.extensionSize();
+    }
+
+    /**
+     * Decodes all the fields into CEF event.
+     *
+     * @return CEF event
+     * @throws IllegalArgumentException if event parameters are not valid
+     */
+    public CefEvent materialize() {
+        return CefParser.toEvent(index);
+    }
+
+    @Override
+    public String toString() {
+        return "LazyCefEvent{" +
+            "version=" + getVersion() +
+            ", vendor='" + getVendor() + '\'' +
+            ", product='" + getProduct() + '\'' +
+            ", id='" + getId() + '\'' +
+            ", extensionSize=" + getExtensionSize() +
+            '}';
+    }
+}
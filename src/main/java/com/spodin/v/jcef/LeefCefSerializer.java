@@ -0,0 +1,194 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+
+/**
+ * Serializes CEF event to IBM Log Event Extended Format (LEEF) 2.0, e.g.
+ * {@code LEEF:2.0|iPlatform|USO|1.0|login|x09|sev=3<TAB>name=User logged in<TAB>usrName=admin}.
+ *
+ * <p>Device fields and event class id form the LEEF header, which declares the attribute
+ * delimiter. Severity level (see {@link CefEvent#getSeverity()}) and event name become the
+ * {@code sev} and {@code name} attributes, followed by the extension fields. Standard CEF keys,
+ * which have predefined LEEF counterparts, are renamed: {@code spt} to {@code srcPort},
+ * {@code dpt} to {@code dstPort}, {@code suser} to {@code usrName}, {@code smac} to
+ * {@code srcMAC} and {@code dmac} to {@code dstMAC}; other keys are kept as is.</p>
+ *
+ * <p>Header fields are escaped with a backslash as CEF prefix fields are. Attribute values are
+ * escaped with {@link EscapeTable#leef(char)} table by default; keys additionally escape equal
+ * sign.</p>
+ *
+ * <p>Serializer is immutable and thread-safe.</p>
+ *
+ * @author spodin
+ */
+public class LeefCefSerializer extends AbstractFormatSerializer {
+
+    private static final String FORMAT_IDENTIFIER = "LEEF:2.0|";
+
+    private static final char HEADER_DELIMITER = '|';
+
+    private static final char KEY_VALUE_DELIMITER = '=';
+
+    private static final EscapeTable HEADER_ESCAPING = EscapeTable.builder()
+        .escape('|', "\\|")
+        .escape('\\', "\\\\")
+        .escape('\n', "\\n")
+        .escape('\r', "\\r")
+        .build();
+
+    /**
+     * LEEF names of the standard CEF keys by their id, {@code null} if key is kept as is.
+     */
+    private static final String[] LEEF_KEYS = new String[ExtensionKeys.size()];
+
+    static {
+        LEEF_KEYS[ExtensionKeys.idOf("spt")] = "srcPort";
+        LEEF_KEYS[ExtensionKeys.idOf("dpt")] = "dstPort";
+        LEEF_KEYS[ExtensionKeys.idOf("suser")] = "usrName";
+        LEEF_KEYS[ExtensionKeys.idOf("smac")] = "srcMAC";
+        LEEF_KEYS[ExtensionKeys.idOf("dmac")] = "dstMAC";
+    }
+
+    private final char delimiter;
+    private final EscapeTable escaping;
+
+    private LeefCefSerializer(LeefFormat format) {
+        super(format);
+        this.delimiter = format.delimiter;
+        this.escaping = format.valueEscaping;
+    }
+
+    @Override
+    public String toString() {
+        return "LeefCefSerializer{" +
+            "delimiter=" + (int) delimiter +
+            ", escaping=" + escaping +
+            '}';
+    }
+
+    /**
+     * Creates LEEF serializer builder.
+     *
+     * @return LEEF serializer builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static final class LeefFormat extends EventFormat {
+
+        private final char delimiter;
+        private final EscapeTable valueEscaping;
+        private final EscapeTable keyEscaping;
+
+        /**
+         * Delimiter as declared in the header, followed by the header delimiter.
+         */
+        private final String declaration;
+
+        LeefFormat(char delimiter, EscapeTable valueEscaping) {
+            this.delimiter = delimiter;
+            this.valueEscaping = valueEscaping;
+            this.keyEscaping = valueEscaping.toBuilder()
+                .escape(KEY_VALUE_DELIMITER, "\\" + KEY_VALUE_DELIMITER)
+                .build();
+            this.declaration = (delimiter > ' ' && delimiter < 0x7F
+                ? String.valueOf(delimiter)
+                : String.format("x%02x", (int) delimiter)) + HEADER_DELIMITER;
+        }
+
+        @Override
+        void writeHeader(AbstractCefEvent event, Appendable out) throws IOException {
+            final Device device = event.getDevice();
+            out.append(FORMAT_IDENTIFIER);
+            HEADER_ESCAPING.escape(device.getVendor(), out);
+            out.append(HEADER_DELIMITER);
+            HEADER_ESCAPING.escape(device.getProduct(), out);
+            out.append(HEADER_DELIMITER);
+            HEADER_ESCAPING.escape(device.getVersion(), out);
+            out.append(HEADER_DELIMITER);
+            HEADER_ESCAPING.escape(event.getEventId().getId(), out);
+            out.append(HEADER_DELIMITER);
+            out.append(declaration);
+
+            final int level = Severity.level(event.getSeverity());
+            if (level != Severity.UNKNOWN) {
+                out.append("sev=");
+                StringUtils.appendDecimal(level, out);
+                out.append(delimiter);
+            }
+            out.append("name=");
+            valueEscaping.escape(event.getEventId().getName(), out);
+        }
+
+        @Override
+        void writeField(AbstractExtension extension, int index, String key, String value,
+            boolean first, Appendable out) throws IOException {
+            out.append(delimiter);
+            final short id = extension.keyIdAt(index);
+            if (id == ExtensionKeys.CUSTOM) {
+                keyEscaping.escape(key, out);
+            } else {
+                out.append(LEEF_KEYS[id] != null ? LEEF_KEYS[id] : key);
+            }
+            out.append(KEY_VALUE_DELIMITER);
+            writeValue(extension, index, value, valueEscaping, out);
+        }
+
+        @Override
+        void writeTrailer(Appendable out) {
+        }
+    }
+
+    public static class Builder {
+
+        private char delimiter = '\t';
+        private EscapeTable escaping;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets delimiter of the attributes.
+         *
+         * <p>Optional, default is tab, declared as {@code x09} in the header.</p>
+         *
+         * @param delimiter ASCII attribute delimiter, must not be a letter, a digit, equal sign,
+         * backslash or line terminator
+         * @return this builder for further customizations
+         */
+        public Builder delimiter(char delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        /**
+         * Sets escape table of the attribute values.
+         *
+         * <p>Optional, default is {@link EscapeTable#leef(char)} for the delimiter.</p>
+         *
+         * @param escaping escape table
+         * @return this builder for further customizations
+         */
+        public Builder escaping(EscapeTable escaping) {
+            this.escaping = escaping;
+            return this;
+        }
+
+        /**
+         * Creates LEEF serializer with submitted parameters.
+         *
+         * @return LEEF serializer
+         * @throws IllegalArgumentException on illegal parameters
+         */
+        public LeefCefSerializer build() {
+            Assert.validState(delimiter < 0x80 && !Character.isLetterOrDigit(delimiter)
+                    && delimiter != KEY_VALUE_DELIMITER && delimiter != '\\'
+                    && delimiter != '\n' && delimiter != '\r',
+                "Delimiter must be an ASCII character other than letter, digit, equal sign, "
+                    + "backslash or line terminator");
+            return new LeefCefSerializer(new LeefFormat(delimiter,
+                (escaping == null ? EscapeTable.leef(delimiter) : escaping)));
+        }
+    }
+}
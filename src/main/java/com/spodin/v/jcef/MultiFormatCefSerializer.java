@@ -0,0 +1,143 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Serializes CEF event into several formats at once, e.g. standard CEF, LEEF and JSON.
+ *
+ * <p>Event fields are iterated once: each extension field is fetched and written in every format
+ * before moving to the next one. Output of each format is identical to the one of its
+ * serializer. Serializers may be {@link StdCefSerializer}s or subclasses of {@link
+ * AbstractFormatSerializer}, i.e. {@link LeefCefSerializer} and {@link JsonCefSerializer}.</p>
+ *
+ * <p>Outputs are passed in the order of the serializers. Event is written either in all formats
+ * or in none of them: if any format fails, outputs are restored.</p>
+ *
+ * <p>Standard CEF output is counted in {@link CefMetrics} and recorded by JDK Flight Recorder the
+ * same way as when written by {@link StdCefSerializer} alone; other formats are not measured.</p>
+ *
+ * <p>Serializer is immutable and thread-safe.</p>
+ *
+ * @author spodin
+ */
+public class MultiFormatCefSerializer implements CefSerializer<List<String>> {
+
+    private final List<CefSerializer<?>> serializers;
+    private final EventFormat[] formats;
+
+    private MultiFormatCefSerializer(CefSerializer<?>[] serializers) {
+        Assert.notNull(serializers, "Serializers are required");
+        Assert.validState(serializers.length > 0, "At least one serializer is required");
+        this.serializers = Collections.unmodifiableList(Arrays.asList(serializers.clone()));
+        this.formats = new EventFormat[serializers.length];
+        for (int i = 0; i < serializers.length; i++) {
+            formats[i] = EventFormat.of(serializers[i]);
+        }
+    }
+
+    /**
+     * Creates serializer, which writes events in the formats of specified serializers.
+     *
+     * @param serializers serializers of the formats
+     * @return multi-format serializer
+     * @throws IllegalArgumentException if no serializer is specified or serializer is not
+     * supported
+     */
+    public static MultiFormatCefSerializer of(CefSerializer<?>... serializers) {
+        return new MultiFormatCefSerializer(serializers);
+    }
+
+    /**
+     * Serializes specified CEF event into each format.
+     *
+     * @param event CEF event
+     * @return serialized event in the order of the serializers
+     * @throws IllegalArgumentException if event cannot be represented in any of the formats
+     */
+    @Override
+    public List<String> serialize(CefEvent event) {
+        final StringBuilder[] outs = new StringBuilder[formats.length];
+        for (int i = 0; i < outs.length; i++) {
+            outs[i] = new StringBuilder(256);
+        }
+        serializeTo(event, outs);
+
+        final List<String> serialized = new ArrayList<>(outs.length);
+        for (StringBuilder out : outs) {
+            serialized.add(out.toString());
+        }
+        return serialized;
+    }
+
+    /**
+     * Serializes specified CEF event appending each format to the end of its builder. Builders
+     * may be reused between events by resetting their length.
+     *
+     * @param event CEF event
+     * @param outs builders to append serialized event to, one per serializer
+     * @throws IllegalArgumentException if number of builders does not match number of
+     * serializers or event cannot be represented in any of the formats; builders are restored to
+     * their original length in this case
+     */
+    public void serializeTo(CefEvent event, StringBuilder... outs) {
+        Assert.notNull(event, "Event is required");
+        EventWriter.write(event, formats, outs);
+    }
+
+    /**
+     * Serializes specified reusable event appending each format to the end of its builder, see
+     * {@link #serializeTo(CefEvent, StringBuilder...)}.
+     *
+     * @param event reusable CEF event
+     * @param outs builders to append serialized event to, one per serializer
+     * @throws IllegalArgumentException on missing or illegal event parameters
+     */
+    public void serializeTo(MutableCefEvent event, StringBuilder... outs) {
+        event.validate();
+        EventWriter.write(event, formats, outs);
+    }
+
+    /**
+     * Serializes specified CEF event encoding each format as UTF-8 into its buffer, starting at
+     * its current position. If the event does not fit into remaining space of any buffer,
+     * positions of all buffers are left unchanged and {@code false} is returned.
+     *
+     * @param event CEF event
+     * @param outs buffers to write serialized event to, one per serializer
+     * @return {@code true} if event has been written, {@code false} if any buffer has not enough
+     * space
+     * @throws IllegalArgumentException if number of buffers does not match number of serializers
+     * or event cannot be represented in any of the formats; buffer positions are left unchanged
+     * in this case
+     */
+    public boolean serializeTo(CefEvent event, ByteBuffer... outs) {
+        Assert.notNull(event, "Event is required");
+        return EventWriter.write(event, formats, outs);
+    }
+
+    /**
+     * Serializes specified reusable event encoding each format as UTF-8 into its buffer, see
+     * {@link #serializeTo(CefEvent, ByteBuffer...)}.
+     *
+     * @param event reusable CEF event
+     * @param outs buffers to write serialized event to, one per serializer
+     * @return {@code true} if event has been written, {@code false} if any buffer has not enough
+     * space
+     * @throws IllegalArgumentException on missing or illegal event parameters
+     */
+    public boolean serializeTo(MutableCefEvent event, ByteBuffer... outs) {
+        event.validate();
+        return EventWriter.write(event, formats, outs);
+    }
+
+    @Override
+    public String toString() {
+        return "MultiFormatCefSerializer{" +
+            "serializers=" + serializers +
+            '}';
+    }
+}
@@ -0,0 +1,338 @@
+package com.spodin.v.jcef;
+
+import java.net.InetAddress;
+
+/**
+ * Reusable CEF event for allocation-free hot loops. Unlike {@link CefEvent}, it is filled in
+ * place, serialized by {@link StdCefSerializer} straight from its fields and then reset for the
+ * next event, so that steady-state logging allocates nothing but the output itself:
+ *
+ * <pre>{@code
+ * MutableCefEvent event = MutableCefEvent.local()
+ *     .device("iPlatform", "USO", "1.0")
+ *     .eventId("login", "User logged in")
+ *     .severity(3)
+ *     .add("suser", user)
+ *     .add("cnt", attempts);
+ * serializer.serializeTo(event, buffer);
+ * }</pre>
+ *
+ * <p>Devices and event identifiers specified by their parameters are taken from the canonical
+ * caches of {@link Device#intern(String, String, String)} and {@link EventId#intern(String,
+ * String)}. Event is validated with the same rules as {@link CefEvent} when it is serialized or
+ * converted to immutable one.</p>
+ *
+ * <p>Instances are not thread-safe. Either use {@link #local()} instance of the current thread
+ * or create dedicated instance per worker and {@link #reset()} it between events.</p>
+ *
+ * @author spodin
+ */
+public final class MutableCefEvent extends AbstractCefEvent {
+
+    private static final int DEFAULT_FORMAT_VERSION = 0;
+
+    private static final String[] SEVERITIES = {
+        "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"
+    };
+
+    private static final ThreadLocal<MutableCefEvent> LOCAL =
+        ThreadLocal.withInitial(MutableCefEvent::new);
+
+    private final Extension.Builder extension = Extension.builder();
+
+    private int version = DEFAULT_FORMAT_VERSION;
+    private Device device;
+    private EventId eventId;
+    private String severity;
+
+    /**
+     * Creates empty event.
+     */
+    public MutableCefEvent() {
+    }
+
+    /**
+     * Returns reusable event of the current thread, reset to its initial state. Returned event
+     * must not be passed to other threads and must not be retained after the next call.
+     *
+     * @return empty event
+     */
+    public static MutableCefEvent local() {
+        return LOCAL.get().reset();
+    }
+
+    /**
+     * Resets event to its initial state keeping allocated capacity of the extension.
+     *
+     * @return this event for further customizations
+     */
+    public MutableCefEvent reset() {
+        version = DEFAULT_FORMAT_VERSION;
+        device = null;
+        eventId = null;
+        severity = null;
+        extension.clear();
+        return this;
+    }
+
+    /**
+     * Sets version of the CEF format.
+     *
+     * <p>Optional, default value is {@value #DEFAULT_FORMAT_VERSION}.</p>
+     *
+     * @param version CEF version, must be greater than or equal to 0
+     * @return this event for further customizations
+     */
+    public MutableCefEvent version(int version) {
+        this.version = version;
+        return this;
+    }
+
+    /**
+     * Sets device, see {@link CefEvent.Builder#device(Device)}.
+     *
+     * <p>Mandatory.</p>
+     *
+     * @param device device
+     * @return this event for further customizations
+     */
+    public MutableCefEvent device(Device device) {
+        this.device = device;
+        return this;
+    }
+
+    /**
+     * Sets device with specified parameters. Device of the previous event is kept if it has the
+     * same parameters, otherwise canonical instance is taken from {@link Device#intern(String,
+     * String, String)}.
+     *
+     * @param vendor vendor
+     * @param product product
+     * @param version version
+     * @return this event for further customizations
+     * @throws IllegalArgumentException on missing or illegal parameters
+     */
+    public MutableCefEvent device(String vendor, String product, String version) {
+        if (device == null || !device.matches(vendor, product, version)) {
+            device = Device.intern(vendor, product, version);
+        }
+        return this;
+    }
+
+    /**
+     * Sets event identifier.
+     *
+     * <p>Mandatory.</p>
+     *
+     * @param eventId event identifier
+     * @return this event for further customizations
+     */
+    public MutableCefEvent eventId(EventId eventId) {
+        this.eventId = eventId;
+        return this;
+    }
+
+    /**
+     * Sets event identifier with specified id and name, taking canonical instance from {@link
+     * EventId#intern(String, String)}.
+     *
+     * @param id event id
+     * @param name event name
+     * @return this event for further customizations
+     * @throws IllegalArgumentException if id or name is {@code null} or blank
+     */
+    public MutableCefEvent eventId(String id, String name) {
+        if (eventId == null || !eventId.matches(id, name)) {
+            eventId = EventId.intern(id, name);
+        }
+        return this;
+    }
+
+    /**
+     * Shorthand method for {@link #severity(String)}, which does not allocate for values from 0
+     * to 10.
+     *
+     * @param severity event severity
+     * @return this event for further customizations
+     */
+    public MutableCefEvent severity(int severity) {
+        return severity(severity >= 0 && severity < SEVERITIES.length ? SEVERITIES[severity]
+            : String.valueOf(severity));
+    }
+
+    /**
+     * Sets event severity, see {@link CefEvent.Builder#severity(String)}.
+     *
+     * <p>Mandatory.</p>
+     *
+     * @param severity event severity
+     * @return this event for further customizations
+     */
+    public MutableCefEvent severity(String severity) {
+        this.severity = severity;
+        return this;
+    }
+
+    /**
+     * Adds extension field. If there is a field with the same key already, its value is
+     * replaced.
+     *
+     * @param key field key
+     * @param value field value
+     * @return this event for further additions
+     */
+    public MutableCefEvent add(String key, String value) {
+        extension.add(key, value);
+        return this;
+    }
+
+    /**
+     * Adds numeric extension field, see {@link Extension.Builder#add(String, int)}.
+     *
+     * @param key field key
+     * @param value field value
+     * @return this event for further additions
+     */
+    public MutableCefEvent add(String key, int value) {
+        extension.add(key, value);
+        return this;
+    }
+
+    /**
+     * Adds numeric extension field, see {@link Extension.Builder#add(String, long)}.
+     *
+     * @param key field key
+     * @param value field value
+     * @return this event for further additions
+     */
+    public MutableCefEvent add(String key, long value) {
+        extension.add(key, value);
+        return this;
+    }
+
+    /**
+     * Adds timestamp extension field, see {@link Extension.Builder#addTimestamp(String, long)}.
+     *
+     * @param key field key
+     * @param epochMillis milliseconds since epoch
+     * @return this event for further additions
+     */
+    public MutableCefEvent addTimestamp(String key, long epochMillis) {
+        extension.addTimestamp(key, epochMillis);
+        return this;
+    }
+
+    /**
+     * Adds IP address extension field, see {@link Extension.Builder#addIp(String, byte[])}.
+     *
+     * @param key field key
+     * @param address raw IP address, 4 bytes for IPv4 or 16 bytes for IPv6
+     * @return this event for further additions
+     * @throws IllegalArgumentException if address is {@code null} or of unexpected length
+     */
+    public MutableCefEvent addIp(String key, byte[] address) {
+        extension.addIp(key, address);
+        return this;
+    }
+
+    /**
+     * Adds IP address extension field, see {@link Extension.Builder#addIp(String,
+     * InetAddress)}.
+     *
+     * @param key field key
+     * @param address IP address
+     * @return this event for further additions
+     * @throws IllegalArgumentException if address is {@code null}
+     */
+    public MutableCefEvent addIp(String key, InetAddress address) {
+        extension.addIp(key, address);
+        return this;
+    }
+
+    /**
+     * Returns value of the extension field with specified key.
+     *
+     * @param key field key
+     * @return field value or {@code null} if there is no such field
+     */
+    public String get(String key) {
+        return extension.get(key);
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public Device getDevice() {
+        return device;
+    }
+
+    @Override
+    EventId getEventId() {
+        return eventId;
+    }
+
+    public String getId() {
+        return (eventId == null ? null : eventId.getId());
+    }
+
+    public String getName() {
+        return (eventId == null ? null : eventId.getName());
+    }
+
+    @Override
+    public String getSeverity() {
+        return severity;
+    }
+
+    @Override
+    AbstractExtension getExtensionFields() {
+        return extension;
+    }
+
+    /**
+     * Validates event with the same rules as {@link CefEvent.Builder#build()} does.
+     *
+     * @throws IllegalArgumentException on missing or illegal parameters
+     */
+    public void validate() {
+        validate(version, device, eventId, severity);
+    }
+
+    /**
+     * Creates immutable CEF event with current parameters of this event. This event may be
+     * reset and reused afterwards.
+     *
+     * @return CEF event
+     * @throws IllegalArgumentException on missing or illegal parameters
+     */
+    public CefEvent toEvent() {
+        return CefEvent.builder()
+            .version(version)
+            .device(device)
+            .eventId(eventId)
+            .severity(severity)
+            .extension(extension.build())
+            .build();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder fields = new StringBuilder("{");
+        for (int i = 0, size = extension.size(); i < size; i++) {
+            if (i > 0) {
+                fields.append(", ");
+            }
+            fields.append(extension.keyAt(i)).append('=').append(extension.valueAt(i));
+        }
+        return "MutableCefEvent{" +
+            "version=" + version +
+            ", device=" + device +
+            ", eventId=" + eventId +
+            ", severity='" + severity + '\'' +
+            ", extension=" + fields.append('}') +
+            '}';
+    }
+}
@@ -0,0 +1,138 @@
+package com.spodin.v.jcef;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue over preallocated array.
+ *
+ * <p>Each slot carries a sequence number telling whether it is ready to be written or read on the
+ * current lap, so producers and consumers only contend on their own cursor (D. Vyukov's bounded
+ * queue). Queue is used with a single consumer, but polling is safe from any thread, which allows
+ * producers to discard the oldest element when queue is full.</p>
+ *
+ * <p>Closing the queue marks the tail cursor, so that it is the last position claimed by
+ * producers: offers fail once it is marked, and the consumer knows the queue is drained when it
+ * has polled up to that position, without producers announcing themselves anywhere else.</p>
+ *
+ * @param <E> element type
+ * @author spodin
+ */
+final class RingBuffer<E> {
+
+    private static final long CLOSED = 1L << 62;
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Creates queue.
+     *
+     * @param capacity queue capacity, rounded up to the power of two
+     */
+    RingBuffer(int capacity) {
+        Assert.validState(capacity > 0 && capacity <= (1 << 30), "Capacity must be in 1..2^30");
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+        final int actual = Math.max(size, 1);
+
+        this.mask = actual - 1;
+        this.elements = new AtomicReferenceArray<>(actual);
+        this.sequences = new AtomicLongArray(actual);
+        for (int i = 0; i < actual; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds element to the tail of the queue.
+     *
+     * @param element element to add
+     * @return {@code true} if element has been added, {@code false} if queue is full or closed
+     */
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            if ((position & CLOSED) != 0) {
+                return false;
+            }
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Removes element from the head of the queue.
+     *
+     * @return element or {@code null} if queue is empty
+     */
+    E poll() {
+        long position = head.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    final E element = elements.get(index);
+                    elements.lazySet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Closes the queue, so that further offers fail. Elements offered before are still polled.
+     */
+    void close() {
+        long position = tail.get();
+        while ((position & CLOSED) == 0 && !tail.compareAndSet(position, position | CLOSED)) {
+            position = tail.get();
+        }
+    }
+
+    /**
+     * Checks that queue is closed and every element offered before closing has been polled.
+     *
+     * @return {@code true} if queue is closed and drained
+     */
+    boolean isDrained() {
+        final long position = tail.get();
+        return (position & CLOSED) != 0 && head.get() == (position & ~CLOSED);
+    }
+
+    /**
+     * Returns approximate number of elements in the queue.
+     *
+     * @return queue size
+     */
+    int size() {
+        final long size = (tail.get() & ~CLOSED) - head.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,586 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes CEF events to a local file, one event per line, rolling it over by size and time.
+ *
+ * <p>Events are serialized as UTF-8 directly into a set of direct buffers. When all of them are
+ * full, or on {@link #flush()}, buffers are written to the file by a single gathering {@link
+ * FileChannel#write(ByteBuffer[], int, int)}, after which file is forced to the storage device
+ * according to {@link FsyncPolicy}.</p>
+ *
+ * <p>File is rolled over when the next event would make it exceed the maximal size or when the
+ * roll interval has elapsed since it has been opened. Rolled file is renamed to
+ * {@code <name>-<yyyyMMdd-HHmmss>.<extension>} and optionally compressed with gzip by a
+ * background thread, so that compression never blocks writing.</p>
+ *
+ * <p>Sink is not thread-safe. {@link #close()} waits for pending compressions to complete.</p>
+ *
+ * @author spodin
+ */
+public class RollingFileCefSink implements CefEventSink {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int DEFAULT_BUFFER_COUNT = 4;
+
+    private static final long DEFAULT_MAX_FILE_SIZE = 100L * 1024 * 1024;
+
+    private static final byte LINE_FEED = '\n';
+
+    private static final String GZIP_EXTENSION = ".gz";
+
+    private static final DateTimeFormatter ROLLED_TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path path;
+    private final String baseName;
+    private final String extension;
+    private final StdCefSerializer serializer;
+    private final FsyncPolicy fsyncPolicy;
+    private final long maxFileSize;
+    private final Duration rollInterval;
+    private final Clock clock;
+    private final Consumer<? super Exception> errorHandler;
+    private final ExecutorService compressor;
+
+    private final ByteBuffer[] buffers;
+    private int current;
+
+    private FileChannel channel;
+    private long fileSize;
+    private long rollAtMillis;
+    private long lastForceNanos;
+    private boolean unforced;
+    private long forceCount;
+    private boolean closed;
+
+    private RollingFileCefSink(Builder builder) throws IOException {
+        this.path = Assert.notNull(builder.path, "Path is required").toAbsolutePath();
+        this.serializer = Assert.notNull(builder.serializer, "Serializer is required");
+        this.fsyncPolicy = Assert.notNull(builder.fsyncPolicy, "Fsync policy is required");
+        this.clock = Assert.notNull(builder.clock, "Clock is required");
+        this.errorHandler = Assert.notNull(builder.errorHandler, "Error handler is required");
+        Assert.validState(builder.maxFileSize > 0, "Maximal file size must be > 0");
+        Assert.validState(builder.rollInterval == null || !builder.rollInterval.isNegative()
+            && !builder.rollInterval.isZero(), "Roll interval must be positive");
+        Assert.validState(builder.bufferSize > 0 && builder.bufferCount > 0,
+            "Buffer size and count must be > 0");
+        this.maxFileSize = builder.maxFileSize;
+        this.rollInterval = builder.rollInterval;
+
+        final String name = path.getFileName().toString();
+        final int dot = name.lastIndexOf('.');
+        this.baseName = (dot > 0 ? name.substring(0, dot) : name);
+        this.extension = (dot > 0 ? name.substring(dot) : "");
+
+        this.buffers = new ByteBuffer[builder.bufferCount];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(builder.bufferSize);
+        }
+
+        this.compressor = (builder.compress ? Executors.newSingleThreadExecutor(task -> {
+            final Thread thread = new Thread(task, "jcef-file-compressor");
+            thread.setDaemon(true);
+            return thread;
+        }) : null);
+
+        Files.createDirectories(path.getParent());
+        open();
+    }
+
+    /**
+     * Appends specified event to the buffers, writing them to the file first if they are full and
+     * rolling file over if necessary.
+     *
+     * @param event CEF event
+     * @throws IOException if buffers cannot be written or file cannot be rolled over
+     * @throws IllegalArgumentException if event contains invalid characters
+     */
+    @Override
+    public void write(CefEvent event) throws IOException {
+        Assert.notNull(event, "Event is required");
+        ensureOpen();
+
+        if (rollInterval != null && clock.millis() >= rollAtMillis) {
+            roll();
+        }
+
+        ByteBuffer buffer = buffers[current];
+        int start = buffer.position();
+        if (!put(event, buffer)) {
+            if (current + 1 < buffers.length) {
+                current++;
+            } else {
+                writeBuffers();
+            }
+            buffer = buffers[current];
+            start = buffer.position();
+            if (!put(event, buffer)) {
+                // larger than a buffer, encoded on the heap
+                writeLarge(event);
+                return;
+            }
+        }
+
+        final int length = buffer.position() - start;
+        final long size = fileSize + buffered();
+        if (size > maxFileSize && size > length) {
+            rollBefore(buffer, length);
+        }
+    }
+
+    /**
+     * Writes buffered events to the file and forces it according to fsync policy.
+     *
+     * @throws IOException if events cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeBuffers();
+        // events written earlier may still wait for the fsync interval to elapse
+        forceIfDue();
+    }
+
+    /**
+     * Writes buffered events, forces and closes the file. Waits for pending compressions.
+     *
+     * @throws IOException if events cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            writeBuffers();
+            if (!fsyncPolicy.isNever() && unforced) {
+                force();
+            }
+        } finally {
+            closed = true;
+            channel.close();
+            if (compressor != null) {
+                compressor.shutdown();
+                try {
+                    compressor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns number of times the file has been forced to the storage device.
+     *
+     * @return number of forces
+     */
+    long getForceCount() {
+        return forceCount;
+    }
+
+    @Override
+    public String toString() {
+        return "RollingFileCefSink{" +
+            "path=" + path +
+            ", maxFileSize=" + maxFileSize +
+            ", rollInterval=" + rollInterval +
+            ", fsyncPolicy=" + fsyncPolicy +
+            '}';
+    }
+
+    /**
+     * Creates rolling file sink builder.
+     *
+     * @param path path of the active file
+     * @return file sink builder
+     */
+    public static Builder builder(Path path) {
+        return new Builder(path);
+    }
+
+    /**
+     * Serializes event followed by line feed into the buffer.
+     */
+    private boolean put(CefEvent event, ByteBuffer buffer) {
+        final int position = buffer.position();
+        if (!serializer.serializeTo(event, buffer)) {
+            return false;
+        }
+        if (!buffer.hasRemaining()) {
+            buffer.position(position);
+            return false;
+        }
+        buffer.put(LINE_FEED);
+        return true;
+    }
+
+    /**
+     * Moves the last event of the buffer, which would make file exceed maximal size, to the next
+     * file.
+     */
+    private void rollBefore(ByteBuffer buffer, int length) throws IOException {
+        final int end = buffer.position();
+        final byte[] event = new byte[length];
+        buffer.position(end - length);
+        buffer.get(event);
+        buffer.position(end - length);
+
+        roll();
+        buffers[current].put(event);
+    }
+
+    private void writeLarge(CefEvent event) throws IOException {
+        final byte[] bytes = (serializer.serialize(event) + (char) LINE_FEED)
+            .getBytes(StandardCharsets.UTF_8);
+        writeBuffers();
+        if (fileSize > 0 && fileSize + bytes.length > maxFileSize) {
+            roll();
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        unforced = true;
+        while (buffer.hasRemaining()) {
+            fileSize += channel.write(buffer);
+        }
+        forceIfDue();
+    }
+
+    private void writeBuffers() throws IOException {
+        final int count = (buffers[current].position() > 0 ? current + 1 : current);
+        if (count == 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            buffers[i].flip();
+        }
+        unforced = true;
+        try {
+            while (buffers[count - 1].hasRemaining()) {
+                fileSize += channel.write(buffers, 0, count);
+            }
+        } finally {
+            for (int i = 0; i < count; i++) {
+                buffers[i].clear();
+            }
+            current = 0;
+        }
+        forceIfDue();
+    }
+
+    private long buffered() {
+        long size = 0;
+        for (int i = 0; i <= current; i++) {
+            size += buffers[i].position();
+        }
+        return size;
+    }
+
+    private void forceIfDue() throws IOException {
+        if (unforced && fsyncPolicy.isDue(lastForceNanos)) {
+            force();
+        }
+    }
+
+    private void force() throws IOException {
+        channel.force(false);
+        lastForceNanos = System.nanoTime();
+        unforced = false;
+        forceCount++;
+    }
+
+    private void roll() throws IOException {
+        writeBuffers();
+        if (!fsyncPolicy.isNever() && unforced) {
+            force();
+        }
+        channel.close();
+
+        final Path rolled = rolledPath();
+        Files.move(path, rolled);
+        if (compressor != null) {
+            compressor.execute(() -> compress(rolled));
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+        fileSize = channel.size();
+        lastForceNanos = System.nanoTime();
+        if (rollInterval != null) {
+            rollAtMillis = clock.millis() + rollInterval.toMillis();
+        }
+    }
+
+    private Path rolledPath() {
+        final String timestamp = LocalDateTime.now(clock).format(ROLLED_TIMESTAMP);
+        Path rolled = path.resolveSibling(baseName + '-' + timestamp + extension);
+        for (int i = 1; Files.exists(rolled)
+            || Files.exists(rolled.resolveSibling(rolled.getFileName() + GZIP_EXTENSION)); i++) {
+            rolled = path.resolveSibling(baseName + '-' + timestamp + '-' + i + extension);
+        }
+        return rolled;
+    }
+
+    private void compress(Path rolled) {
+        final Path compressed = rolled.resolveSibling(rolled.getFileName() + GZIP_EXTENSION);
+        try {
+            try (InputStream in = Files.newInputStream(rolled);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed),
+                     DEFAULT_BUFFER_SIZE)) {
+                in.transferTo(out);
+            }
+            Files.delete(rolled);
+        } catch (IOException e) {
+            errorHandler.accept(e);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Sink is closed");
+        }
+    }
+
+    /**
+     * Decides when written events are forced to the storage device.
+     */
+    public static final class FsyncPolicy {
+
+        private static final FsyncPolicy NEVER = new FsyncPolicy(-1);
+        private static final FsyncPolicy EVERY_BATCH = new FsyncPolicy(0);
+
+        /**
+         * Minimal interval between forces in nanoseconds, 0 to force after each batch, negative to
+         * never force.
+         */
+        private final long interval;
+
+        private FsyncPolicy(long interval) {
+            this.interval = interval;
+        }
+
+        /**
+         * File is never forced explicitly, operating system writes it back at its discretion.
+         *
+         * @return fsync policy
+         */
+        public static FsyncPolicy never() {
+            return NEVER;
+        }
+
+        /**
+         * File is forced after each batch of events written to it, i.e. on each flush and
+         * whenever the buffers fill up or an event larger than a buffer is written.
+         *
+         * @return fsync policy
+         */
+        public static FsyncPolicy everyBatch() {
+            return EVERY_BATCH;
+        }
+
+        /**
+         * File is forced after a batch of events is written to it, or on flush, if specified
+         * interval has elapsed since it has been forced last time.
+         *
+         * @param interval minimal interval between forces
+         * @return fsync policy
+         */
+        public static FsyncPolicy interval(Duration interval) {
+            Assert.notNull(interval, "Interval is required");
+            Assert.validState(!interval.isNegative(), "Interval must be >= 0");
+            return new FsyncPolicy(interval.toNanos());
+        }
+
+        private boolean isNever() {
+            return interval < 0;
+        }
+
+        private boolean isDue(long lastForceNanos) {
+            return interval == 0 || interval > 0 && System.nanoTime() - lastForceNanos >= interval;
+        }
+
+        @Override
+        public String toString() {
+            if (interval < 0) {
+                return "FsyncPolicy{never}";
+            }
+            return (interval == 0 ? "FsyncPolicy{everyBatch}"
+                : "FsyncPolicy{interval=" + Duration.ofNanos(interval) + '}');
+        }
+    }
+
+    public static class Builder {
+
+        private final Path path;
+        private StdCefSerializer serializer = new StdCefSerializer();
+        private FsyncPolicy fsyncPolicy = FsyncPolicy.never();
+        private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+        private Duration rollInterval;
+        private boolean compress;
+        private Clock clock = Clock.systemDefaultZone();
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+        private int bufferCount = DEFAULT_BUFFER_COUNT;
+        private Consumer<? super Exception> errorHandler = e -> {
+        };
+
+        private Builder(Path path) {
+            this.path = path;
+        }
+
+        /**
+         * Sets serializer of the events, e.g. one with {@link CefPrefixCache}.
+         *
+         * <p>Optional, default is {@link StdCefSerializer} without cache.</p>
+         *
+         * @param serializer events serializer
+         * @return this builder for further customizations
+         */
+        public Builder serializer(StdCefSerializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
+        /**
+         * Sets policy of forcing written events to the storage device.
+         *
+         * <p>Optional, default is {@link FsyncPolicy#never()}.</p>
+         *
+         * @param fsyncPolicy fsync policy
+         * @return this builder for further customizations
+         */
+        public Builder fsyncPolicy(FsyncPolicy fsyncPolicy) {
+            this.fsyncPolicy = fsyncPolicy;
+            return this;
+        }
+
+        /**
+         * Sets size in bytes, which file may not exceed, unless it consists of a single event.
+         *
+         * <p>Optional, default is 100 megabytes.</p>
+         *
+         * @param maxFileSize maximal file size, must be greater than 0
+         * @return this builder for further customizations
+         */
+        public Builder maxFileSize(long maxFileSize) {
+            this.maxFileSize = maxFileSize;
+            return this;
+        }
+
+        /**
+         * Sets time after which file is rolled over on the next write.
+         *
+         * <p>Optional, by default file is rolled over only by size.</p>
+         *
+         * @param rollInterval roll interval
+         * @return this builder for further customizations
+         */
+        public Builder rollInterval(Duration rollInterval) {
+            this.rollInterval = rollInterval;
+            return this;
+        }
+
+        /**
+         * Sets whether rolled files are compressed with gzip in background.
+         *
+         * <p>Optional, default is {@code false}.</p>
+         *
+         * @param compress whether to compress rolled files
+         * @return this builder for further customizations
+         */
+        public Builder compress(boolean compress) {
+            this.compress = compress;
+            return this;
+        }
+
+        /**
+         * Sets clock, which drives time rolling and provides rolled file timestamp.
+         *
+         * <p>Optional, default is system clock in default time zone.</p>
+         *
+         * @param clock sink clock
+         * @return this builder for further customizations
+         */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Sets size of each direct buffer in bytes. Events, which do not fit into a single
+         * buffer, are encoded on the heap.
+         *
+         * <p>Optional, default value is {@value RollingFileCefSink#DEFAULT_BUFFER_SIZE}.</p>
+         *
+         * @param bufferSize buffer size, must be greater than 0
+         * @return this builder for further customizations
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * Sets number of direct buffers written by a single gathering write.
+         *
+         * <p>Optional, default value is {@value RollingFileCefSink#DEFAULT_BUFFER_COUNT}.</p>
+         *
+         * @param bufferCount number of buffers, must be greater than 0
+         * @return this builder for further customizations
+         */
+        public Builder bufferCount(int bufferCount) {
+            this.bufferCount = bufferCount;
+            return this;
+        }
+
+        /**
+         * Sets handler of the background compression errors. Handler is invoked from the
+         * compression thread.
+         *
+         * <p>Optional, by default errors are ignored and rolled file is left uncompressed.</p>
+         *
+         * @param errorHandler error handler
+         * @return this builder for further customizations
+         */
+        public Builder errorHandler(Consumer<? super Exception> errorHandler) {
+            this.errorHandler = errorHandler;
+            return this;
+        }
+
+        /**
+         * Creates file sink with submitted parameters, opening the active file for appending.
+         *
+         * @return file sink
+         * @throws IOException if file cannot be opened
+         * @throws IllegalArgumentException if any parameter is not valid
+         */
+        public RollingFileCefSink build() throws IOException {
+            return new RollingFileCefSink(this);
+        }
+    }
+}
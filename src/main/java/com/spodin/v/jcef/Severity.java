@@ -0,0 +1,84 @@
+package com.spodin.v.jcef;
+
+/**
+ * Contains utility methods to work with CEF event severity.
+ *
+ * @author spodin
+ */
+final class Severity {
+
+    /**
+     * Level of severity, which is neither a number nor a known name.
+     */
+    static final int UNKNOWN = -1;
+
+    private static final int MAX_LEVEL = 10;
+
+    private Severity() {
+    }
+
+    /**
+     * Converts severity to its numeric level. Integer severities are returned as is, clamped to
+     * 0-10 range; named severities are converted to the lowest level of their range: Low to 0,
+     * Medium to 4, High to 7 and Very-High to 9.
+     *
+     * @param severity event severity
+     * @return severity level from 0 to 10 or {@link #UNKNOWN}
+     */
+    static int level(String severity) {
+        final int length = severity.length();
+        if (length > 0 && length <= 3 && isDigits(severity)) {
+            return Math.min(Integer.parseInt(severity), MAX_LEVEL);
+        }
+        if ("Low".equalsIgnoreCase(severity)) {
+            return 0;
+        }
+        if ("Medium".equalsIgnoreCase(severity)) {
+            return 4;
+        }
+        if ("High".equalsIgnoreCase(severity)) {
+            return 7;
+        }
+        if ("Very-High".equalsIgnoreCase(severity)) {
+            return 9;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Converts CEF severity to syslog severity:
+     * <ul>
+     *     <li>0-3 (Low) to 6 (Informational);</li>
+     *     <li>4-6 (Medium) to 4 (Warning);</li>
+     *     <li>7-8 (High) to 3 (Error);</li>
+     *     <li>9-10 (Very-High) to 2 (Critical);</li>
+     *     <li>unknown to 5 (Notice).</li>
+     * </ul>
+     *
+     * @param severity CEF event severity
+     * @return syslog severity
+     */
+    static int toSyslog(String severity) {
+        final int level = level(severity);
+        if (level == UNKNOWN) {
+            return 5;
+        }
+        if (level >= 9) {
+            return 2;
+        }
+        if (level >= 7) {
+            return 3;
+        }
+        return (level >= 4 ? 4 : 6);
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char letter = value.charAt(i);
+            if (letter < '0' || letter > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
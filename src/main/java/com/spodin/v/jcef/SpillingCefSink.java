@@ -0,0 +1,300 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sink, which spills events to the {@link CefJournal} while the destination sink is failing and
+ * replays them once it recovers.
+ *
+ * <p>While destination accepts events, they are written to it directly. Once destination fails,
+ * the event and events written to it since its last successful flush are appended to the journal,
+ * as well as all the subsequent events. On flush, not more often than the retry interval,
+ * journaled events are replayed to the destination in order, parsed back from their serialized
+ * form, and acknowledged in batches after destination flushes them. When journal is drained,
+ * events are written directly again.</p>
+ *
+ * <p>Record, which cannot be parsed (e.g. appended to the journal by other means), is neither
+ * skipped nor acknowledged: replay stops at it and flush fails, leaving it and the subsequent
+ * records in the journal.</p>
+ *
+ * <p>Delivery is at-least-once: events, which destination has failed to confirm by flush, are
+ * journaled even though some of them may have been delivered. Events are lost only if journal
+ * fails, e.g. its disk budget is exhausted; {@link #write(CefEvent)} fails in this case.</p>
+ *
+ * <p>Journal left non-empty by the previous run is replayed first. Sink is not thread-safe, same
+ * as the journal.</p>
+ *
+ * @author spodin
+ */
+public class SpillingCefSink implements CefEventSink {
+
+    private static final Duration DEFAULT_RETRY_INTERVAL = Duration.ofSeconds(1);
+
+    private static final int DEFAULT_REPLAY_BATCH_SIZE = 256;
+
+    private final CefEventSink delegate;
+    private final CefJournal journal;
+    private final CefParser parser;
+    private final long retryIntervalNanos;
+    private final int replayBatchSize;
+
+    private final List<CefEvent> unflushed = new ArrayList<>();
+
+    private boolean spilling;
+    private long nextReplayNanos;
+    private long spilledCount;
+    private long replayedCount;
+
+    private SpillingCefSink(Builder builder) {
+        this.delegate = Assert.notNull(builder.delegate, "Delegate sink is required");
+        this.journal = Assert.notNull(builder.journal, "Journal is required");
+        this.parser = Assert.notNull(builder.parser, "Parser is required");
+        Assert.notNull(builder.retryInterval, "Retry interval is required");
+        Assert.validState(builder.replayBatchSize > 0, "Replay batch size must be > 0");
+        this.retryIntervalNanos = builder.retryInterval.toNanos();
+        this.replayBatchSize = builder.replayBatchSize;
+        this.spilling = journal.getPendingCount() > 0;
+        this.nextReplayNanos = System.nanoTime();
+    }
+
+    /**
+     * Writes event to the destination or, if it is failing, to the journal.
+     *
+     * @param event CEF event
+     * @throws IOException if event cannot be journaled
+     * @throws IllegalArgumentException if event contains invalid characters
+     */
+    @Override
+    public void write(CefEvent event) throws IOException {
+        Assert.notNull(event, "Event is required");
+        if (!spilling) {
+            try {
+                delegate.write(event);
+                unflushed.add(event);
+                return;
+            } catch (IOException e) {
+                startSpilling();
+            }
+        }
+        journal.append(event);
+        spilledCount++;
+    }
+
+    /**
+     * Flushes destination and, if the retry interval has elapsed, replays journaled events to it.
+     * Destination failures are not propagated, since events are kept in the journal.
+     *
+     * @throws IOException if events cannot be journaled or journaled record cannot be parsed
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!spilling) {
+            try {
+                delegate.flush();
+                unflushed.clear();
+            } catch (IOException e) {
+                startSpilling();
+            }
+        }
+        if (spilling && System.nanoTime() - nextReplayNanos >= 0) {
+            replay();
+        }
+    }
+
+    /**
+     * Makes the last attempt to replay journaled events and closes destination and journal.
+     * Events, which have not been replayed, remain in the journal.
+     *
+     * @throws IOException if destination fails to close or journaled record cannot be parsed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!spilling) {
+                flush();
+            }
+            if (spilling) {
+                replay();
+            }
+        } finally {
+            try {
+                delegate.close();
+            } finally {
+                journal.close();
+            }
+        }
+    }
+
+    /**
+     * Checks whether events are currently written to the journal.
+     *
+     * @return {@code true} if destination has failed and journal has not been drained yet
+     */
+    public boolean isSpilling() {
+        return spilling;
+    }
+
+    /**
+     * Returns number of events appended to the journal.
+     *
+     * @return number of spilled events
+     */
+    public long getSpilledCount() {
+        return spilledCount;
+    }
+
+    /**
+     * Returns number of journaled events, which have been replayed and acknowledged.
+     *
+     * @return number of replayed events
+     */
+    public long getReplayedCount() {
+        return replayedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SpillingCefSink{" +
+            "delegate=" + delegate +
+            ", journal=" + journal +
+            ", spilling=" + spilling +
+            '}';
+    }
+
+    /**
+     * Creates spilling sink builder.
+     *
+     * @param delegate destination sink
+     * @param journal journal to spill events to
+     * @return spilling sink builder
+     */
+    public static Builder builder(CefEventSink delegate, CefJournal journal) {
+        return new Builder(delegate, journal);
+    }
+
+    private void startSpilling() throws IOException {
+        spilling = true;
+        nextReplayNanos = System.nanoTime() + retryIntervalNanos;
+        try {
+            for (CefEvent event : unflushed) {
+                journal.append(event);
+                spilledCount++;
+            }
+        } finally {
+            unflushed.clear();
+        }
+    }
+
+    private void replay() throws IOException {
+        IllegalArgumentException malformed = null;
+        try {
+            int batched = 0;
+            ByteBuffer record;
+            while ((record = journal.read()) != null) {
+                final CefEvent event;
+                try {
+                    event = parser.parse(record);
+                } catch (IllegalArgumentException e) {
+                    malformed = e;
+                    // reads the batch once again, so that the record is not acknowledged with it
+                    journal.rewind();
+                    for (int i = 0; i < batched; i++) {
+                        journal.read();
+                    }
+                    break;
+                }
+                delegate.write(event);
+                if (++batched == replayBatchSize) {
+                    acknowledge(batched);
+                    batched = 0;
+                }
+            }
+            acknowledge(batched);
+            if (malformed == null) {
+                spilling = false;
+                return;
+            }
+        } catch (IOException e) {
+            journal.rewind();
+        }
+        nextReplayNanos = System.nanoTime() + retryIntervalNanos;
+        if (malformed != null) {
+            throw new IOException("Journaled record cannot be parsed, replay stops at it",
+                malformed);
+        }
+    }
+
+    private void acknowledge(int batched) throws IOException {
+        delegate.flush();
+        journal.acknowledge();
+        replayedCount += batched;
+    }
+
+    public static class Builder {
+
+        private final CefEventSink delegate;
+        private final CefJournal journal;
+        private CefParser parser = new CefParser();
+        private Duration retryInterval = DEFAULT_RETRY_INTERVAL;
+        private int replayBatchSize = DEFAULT_REPLAY_BATCH_SIZE;
+
+        private Builder(CefEventSink delegate, CefJournal journal) {
+            this.delegate = delegate;
+            this.journal = journal;
+        }
+
+        /**
+         * Sets minimal interval between attempts to replay journaled events.
+         *
+         * <p>Optional, default is 1 second.</p>
+         *
+         * @param retryInterval retry interval
+         * @return this builder for further customizations
+         */
+        public Builder retryInterval(Duration retryInterval) {
+            this.retryInterval = retryInterval;
+            return this;
+        }
+
+        /**
+         * Sets number of replayed events, after which destination is flushed and they are
+         * acknowledged.
+         *
+         * <p>Optional, default value is {@value SpillingCefSink#DEFAULT_REPLAY_BATCH_SIZE}.</p>
+         *
+         * @param replayBatchSize replay batch size, must be greater than 0
+         * @return this builder for further customizations
+         */
+        public Builder replayBatchSize(int replayBatchSize) {
+            this.replayBatchSize = replayBatchSize;
+            return this;
+        }
+
+        /**
+         * Sets parser of the journaled events.
+         *
+         * <p>Optional, default is {@link CefParser}.</p>
+         *
+         * @param parser events parser
+         * @return this builder for further customizations
+         */
+        public Builder parser(CefParser parser) {
+            this.parser = parser;
+            return this;
+        }
+
+        /**
+         * Creates spilling sink with submitted parameters.
+         *
+         * @return spilling sink
+         * @throws IllegalArgumentException if any parameter is not valid
+         */
+        public SpillingCefSink build() {
+            return new SpillingCefSink(this);
+        }
+    }
+}
@@ -1,38 +1,351 @@
 package com.spodin.v.jcef;
 
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 
 /**
  * Serializes CEF event to {@code String} according to ArcSight Common Event Format specification.
  *
+ * <p>Besides {@link #serialize(CefEvent)}, event may be written directly into caller-supplied
+ * {@link Appendable}, {@link StringBuilder} or UTF-8 encoded {@link ByteBuffer}, which allows to
+ * reuse output buffers and avoid creating intermediate strings per event.</p>
+ *
+ * <p>Optionally, escaped prefixes of the events may be cached in {@link CefPrefixCache}, so that
+ * events of the same device, event id and severity only copy their prefix.</p>
+ *
+ * <p>Reusable {@link MutableCefEvent}s are serialized the same way straight from their fields,
+ * without creating immutable events.</p>
+ *
+ * <p>Serialized events are counted in {@link CefMetrics#global()} and, if enabled, recorded as
+ * {@link CefSerializationEvent}s by JDK Flight Recorder.</p>
+ *
  * @author spodin
  */
 public class StdCefSerializer implements CefSerializer<String> {
 
-    private static final String FIELDS_DELIMITER = "|";
+    private static final char FIELDS_DELIMITER = '|';
+
+    private static final char EXTENSION_FIELDS_DELIMITER = ' ';
+
+    private static final char EXTENSION_KEY_VALUE_DELIMITER = '=';
+
+    private static final CefMetrics METRICS = CefMetrics.global();
+
+    /**
+     * Encoders reused by serializations into byte buffers, which would otherwise allocate one per
+     * event.
+     */
+    private static final ThreadLocal<Utf8Appender> APPENDERS =
+        ThreadLocal.withInitial(Utf8Appender::new);
+
+    private final CefPrefixCache prefixCache;
+
+    private final EventFormat format = new CefFormat();
+
+    /**
+     * Creates serializer, which escapes prefix of every event.
+     */
+    public StdCefSerializer() {
+        this.prefixCache = null;
+    }
+
+    /**
+     * Creates serializer, which takes escaped prefixes of the events from specified cache.
+     *
+     * @param prefixCache cache of escaped prefixes, may be shared between serializers
+     */
+    public StdCefSerializer(CefPrefixCache prefixCache) {
+        this.prefixCache = Assert.notNull(prefixCache, "Prefix cache is required");
+    }
 
     @Override
     public String serialize(CefEvent event) {
-        return String.join(FIELDS_DELIMITER,
-            event.getFormatIdentifier(),
-            StringUtils.escapeField(event.getDevice().getVendor()),
-            StringUtils.escapeField(event.getDevice().getProduct()),
-            StringUtils.escapeField(event.getDevice().getVersion()),
-            StringUtils.escapeField(event.getId()),
-            StringUtils.escapeField(event.getName()),
-            event.getSeverity(),
-            extensionString(event.getExtension()));
-    }
-
-    private String extensionString(Extension extension) {
-        return extension.getFields()
-            .entrySet().stream()
-            .filter(it -> (it.getKey() != null && it.getValue() != null))
-            .map(it -> Map.entry(
-                StringUtils.escapeExtensionKey(it.getKey()),
-                StringUtils.escapeExtensionValue(it.getValue())))
-            .map(it -> String.format("%s=%s", it.getKey(), it.getValue()))
-            .collect(Collectors.joining(" "));
+        final StringBuilder out = new StringBuilder(128);
+        serializeTo(event, out);
+        return out.toString();
+    }
+
+    /**
+     * Serializes specified CEF event appending it to the end of the specified builder. Builder may
+     * be reused between events by resetting its length.
+     *
+     * <p>If event is not valid, builder is restored to its original length.</p>
+     *
+     * @param event CEF event
+     * @param out builder to append serialized event to
+     * @return specified builder
+     * @throws IllegalArgumentException if event contains invalid characters
+     */
+    public StringBuilder serializeTo(CefEvent event, StringBuilder out) {
+        return append(event, out);
+    }
+
+    /**
+     * Serializes specified reusable event appending it to the end of the specified builder, see
+     * {@link #serializeTo(CefEvent, StringBuilder)}.
+     *
+     * @param event reusable CEF event
+     * @param out builder to append serialized event to
+     * @return specified builder
+     * @throws IllegalArgumentException on missing or illegal event parameters
+     */
+    public StringBuilder serializeTo(MutableCefEvent event, StringBuilder out) {
+        event.validate();
+        return append(event, out);
+    }
+
+    private StringBuilder append(AbstractCefEvent event, StringBuilder out) {
+        final long start = METRICS.start();
+        final CefSerializationEvent recorded = CefSerializationEvent.start();
+
+        final int length = out.length();
+        try {
+            write(event, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by StringBuilder
+        } catch (IllegalArgumentException e) {
+            out.setLength(length);
+            CefSerializationEvent.commit(recorded, event, 0, true);
+            throw e;
+        }
+
+        final int chars = out.length() - length;
+        METRICS.serialized(start, chars, 0);
+        CefSerializationEvent.commit(recorded, event, chars, false);
+        return out;
+    }
+
+    /**
+     * Serializes specified CEF event encoding it as UTF-8 directly into the specified buffer,
+     * starting at its current position. Buffer may be either heap or direct one, so it can be
+     * passed to a channel as is.
+     *
+     * <p>Produced bytes are identical to {@code serialize(event).getBytes(UTF_8)}. If the event
+     * does not fit into remaining space of the buffer, buffer position is left unchanged and
+     * {@code false} is returned, so caller can drain the buffer and retry.</p>
+     *
+     * @param event CEF event
+     * @param out buffer to write serialized event to
+     * @return {@code true} if event has been written, {@code false} if buffer has not enough space
+     * @throws IllegalArgumentException if event contains invalid characters; buffer position is
+     * left unchanged in this case
+     */
+    public boolean serializeTo(CefEvent event, ByteBuffer out) {
+        return encode(event, out);
+    }
+
+    /**
+     * Serializes specified reusable event encoding it as UTF-8 directly into the specified
+     * buffer, see {@link #serializeTo(CefEvent, ByteBuffer)}.
+     *
+     * @param event reusable CEF event
+     * @param out buffer to write serialized event to
+     * @return {@code true} if event has been written, {@code false} if buffer has not enough space
+     * @throws IllegalArgumentException on missing or illegal event parameters; buffer position is
+     * left unchanged in this case
+     */
+    public boolean serializeTo(MutableCefEvent event, ByteBuffer out) {
+        event.validate();
+        return encode(event, out);
+    }
+
+    private boolean encode(AbstractCefEvent event, ByteBuffer out) {
+        final long start = METRICS.start();
+        final CefSerializationEvent recorded = CefSerializationEvent.start();
+
+        final int position = out.position();
+        final Utf8Appender appender = APPENDERS.get().wrap(out);
+        try {
+            if (prefixCache != null) {
+                out.put(prefixCache.get(event).bytes());
+            } else {
+                writePrefix(event, appender);
+            }
+            writeExtension(event.getExtensionFields(), appender);
+            appender.finish();
+        } catch (BufferOverflowException e) {
+            out.position(position);
+            CefSerializationEvent.commit(recorded, event, 0, true);
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by Utf8Appender
+        } catch (IllegalArgumentException e) {
+            out.position(position);
+            CefSerializationEvent.commit(recorded, event, 0, true);
+            throw e;
+        } finally {
+            // per-thread appender must not keep the buffer reachable
+            appender.wrap(null);
+        }
+
+        final int bytes = out.position() - position;
+        METRICS.serialized(start, 0, bytes);
+        CefSerializationEvent.commit(recorded, event, bytes, false);
+        return true;
+    }
+
+    /**
+     * Serializes specified CEF event writing it directly to the specified destination.
+     *
+     * <p>Output is identical to the one of {@link #serialize(CefEvent)}. If event is not valid,
+     * part of it may already be written to destination.</p>
+     *
+     * @param event CEF event
+     * @param out destination to write serialized event to
+     * @throws IOException if destination fails to accept characters
+     * @throws IllegalArgumentException if event contains invalid characters
+     */
+    public void serializeTo(CefEvent event, Appendable out) throws IOException {
+        append(event, out);
+    }
+
+    /**
+     * Serializes specified reusable event writing it directly to the specified destination, see
+     * {@link #serializeTo(CefEvent, Appendable)}.
+     *
+     * @param event reusable CEF event
+     * @param out destination to write serialized event to
+     * @throws IOException if destination fails to accept characters
+     * @throws IllegalArgumentException on missing or illegal event parameters
+     */
+    public void serializeTo(MutableCefEvent event, Appendable out) throws IOException {
+        event.validate();
+        append(event, out);
+    }
+
+    private void append(AbstractCefEvent event, Appendable out) throws IOException {
+        final long start = METRICS.start();
+        final CefSerializationEvent recorded = CefSerializationEvent.start();
+        try {
+            write(event, out);
+        } catch (IllegalArgumentException e) {
+            CefSerializationEvent.commit(recorded, event, 0, true);
+            throw e;
+        }
+        METRICS.serialized(start, 0, 0);
+        CefSerializationEvent.commit(recorded, event, 0, false);
+    }
+
+    private void write(AbstractCefEvent event, Appendable out) throws IOException {
+        if (prefixCache != null) {
+            out.append(prefixCache.get(event).chars());
+        } else {
+            writePrefix(event, out);
+        }
+        writeExtension(event.getExtensionFields(), out);
+    }
+
+    /**
+     * Writes prefix of specified event including the delimiter, which precedes the extension.
+     *
+     * @param event CEF event
+     * @param out destination to write prefix to
+     * @throws IOException if destination fails to accept characters
+     * @throws IllegalArgumentException if prefix contains invalid characters
+     */
+    static void writePrefix(AbstractCefEvent event, Appendable out) throws IOException {
+        final Device device = event.getDevice();
+        final EventId eventId = event.getEventId();
+
+        out.append(CefEvent.FORMAT_IDENTIFIER_PREFIX).append(':');
+        StringUtils.appendDecimal(event.getVersion(), out);
+        out.append(FIELDS_DELIMITER);
+        StringUtils.escapeField(device.getVendor(), out);
+        out.append(FIELDS_DELIMITER);
+        StringUtils.escapeField(device.getProduct(), out);
+        out.append(FIELDS_DELIMITER);
+        StringUtils.escapeField(device.getVersion(), out);
+        out.append(FIELDS_DELIMITER);
+        StringUtils.escapeField(eventId.getId(), out);
+        out.append(FIELDS_DELIMITER);
+        StringUtils.escapeField(eventId.getName(), out);
+        out.append(FIELDS_DELIMITER);
+        out.append(event.getSeverity());
+        out.append(FIELDS_DELIMITER);
+    }
+
+    private void writeExtension(AbstractExtension extension, Appendable out) throws IOException {
+        boolean first = true;
+        for (int i = 0, size = extension.size(); i < size; i++) {
+            final String key = extension.keyAt(i);
+            final boolean typed = extension.isTypedAt(i);
+            final String value = (typed ? null : extension.valueAt(i));
+            if (key == null || (!typed && value == null)) {
+                continue;
+            }
+            writeField(extension, i, key, value, first, out);
+            first = false;
+        }
+    }
+
+    /**
+     * Returns format, which writes events the same way as this serializer.
+     *
+     * @return CEF event format
+     */
+    EventFormat format() {
+        return format;
+    }
+
+    /**
+     * Writes extension field preceded by delimiter unless it is the first one.
+     *
+     * @param extension extension, which contains the field
+     * @param index field position
+     * @param key field key
+     * @param value field value or {@code null} if it is a typed one
+     * @param first whether it is the first written field of the event
+     * @param out destination to write field to
+     * @throws IOException if destination fails to accept characters
+     */
+    private static void writeField(AbstractExtension extension, int index, String key,
+        String value, boolean first, Appendable out) throws IOException {
+        if (!first) {
+            out.append(EXTENSION_FIELDS_DELIMITER);
+        }
+        if (extension.keyIdAt(index) != ExtensionKeys.CUSTOM) {
+            out.append(key); // standard keys never need escaping
+        } else {
+            StringUtils.escapeExtensionKey(key, out);
+        }
+        out.append(EXTENSION_KEY_VALUE_DELIMITER);
+        if (value == null) {
+            extension.appendTypedValueAt(index, out);
+        } else {
+            StringUtils.escapeExtensionValue(value, out);
+        }
+    }
+
+    /**
+     * Standard CEF format for writing together with other formats, see {@link
+     * MultiFormatCefSerializer}.
+     */
+    private final class CefFormat extends EventFormat {
+
+        @Override
+        void writeHeader(AbstractCefEvent event, Appendable out) throws IOException {
+            if (prefixCache != null) {
+                out.append(prefixCache.get(event).chars());
+            } else {
+                writePrefix(event, out);
+            }
+        }
+
+        @Override
+        void writeField(AbstractExtension extension, int index, String key, String value,
+            boolean first, Appendable out) throws IOException {
+            StdCefSerializer.writeField(extension, index, key, value, first, out);
+        }
+
+        @Override
+        void writeTrailer(Appendable out) {
+        }
+
+        @Override
+        boolean isMeasured() {
+            return true;
+        }
     }
 }
@@ -1,24 +1,33 @@
 package com.spodin.v.jcef;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /**
  * Holds utility methods to work with CEF related strings.
  *
+ * <p>Escaping is done by a single scan over the characters, which validates and escapes value at
+ * once. If value contains nothing to escape, {@code String} methods return the very same
+ * instance and {@code Appendable} methods copy it as a single chunk.</p>
+ *
+ * <p>Characters to escape are searched by {@link EscapeScanner#best()}, which is vectorized for
+ * long values if {@code jdk.incubator.vector} module is available.</p>
+ *
+ * <p>Values, which had to be escaped, and validation failures are counted in
+ * {@link CefMetrics#global()}; values with nothing to escape are not counted.</p>
+ *
  * @author spodin
  */
 final class StringUtils {
 
-    private static final Pattern INVALID_FIELD_PATTERN = Pattern.compile("[\r\n]");
-
-    private static final Pattern ESCAPE_FIELD_PATTERN = Pattern.compile("([|\\\\])");
-
-    private static final Pattern INVALID_EXTENSION_KEY_PATTERN = Pattern.compile("\\s");
+    /**
+     * Extra capacity reserved for escape characters when escaped copy of a value is created.
+     */
+    private static final int ESCAPE_RESERVE = 16;
 
-    private static final Pattern ESCAPE_EXTENSION_KEY_PATTERN = Pattern.compile("=");
+    private static final CefMetrics METRICS = CefMetrics.global();
 
-    private static final Pattern ESCAPE_EXTENSION_VALUE_PATTERN = Pattern.compile("[=\r\n]");
+    private static final EscapeScanner SCANNER = EscapeScanner.best();
 
     private StringUtils() {
     }
@@ -35,7 +44,7 @@ final class StringUtils {
      * </ul>
      *
      * @param value field value
-     * @return escaped value
+     * @return escaped value, or the same instance if nothing has to be escaped
      * @throws IllegalArgumentException if field contains invalid characters ({@code \n} or
      * {@code \r}, cause multiple lines are only allowed in the value part of the extensions)
      */
@@ -44,12 +53,19 @@ final class StringUtils {
             return null;
         }
 
-        if (INVALID_FIELD_PATTERN.matcher(value).find()) {
-            throw new IllegalArgumentException(
-                String.format("Field value '%s' contains invalid character", value));
+        final int index = SCANNER.indexOfFieldEscape(value, 0);
+        if (index < 0) {
+            return value;
         }
 
-        return ESCAPE_FIELD_PATTERN.matcher(value).replaceAll("\\\\$1");
+        final StringBuilder escaped = new StringBuilder(value.length() + ESCAPE_RESERVE);
+        escaped.append(value, 0, index);
+        try {
+            escapeField(value, index, escaped);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by StringBuilder
+        }
+        return escaped.toString();
     }
 
     /**
@@ -59,7 +75,7 @@ final class StringUtils {
      * escaped with a backslash (\).</p>
      *
      * @param value extension key value
-     * @return escaped value
+     * @return escaped value, or the same instance if nothing has to be escaped
      * @throws IllegalArgumentException if extension key contains invalid characters (white spaces)
      */
     public static String escapeExtensionKey(String value) {
@@ -67,12 +83,23 @@ final class StringUtils {
             return null;
         }
 
-        if (INVALID_EXTENSION_KEY_PATTERN.matcher(value).find()) {
-            throw new IllegalArgumentException(
-                String.format("Extension key '%s' contains invalid character", value));
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char letter = value.charAt(i);
+            if (letter == '=') {
+                final StringBuilder escaped = new StringBuilder(length + ESCAPE_RESERVE);
+                escaped.append(value, 0, i);
+                try {
+                    escapeExtensionKey(value, i, escaped);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // never thrown by StringBuilder
+                }
+                return escaped.toString();
+            } else if (isWhitespace(letter)) {
+                throw invalidExtensionKey(value);
+            }
         }
-
-        return ESCAPE_EXTENSION_KEY_PATTERN.matcher(value).replaceAll("\\\\=");
+        return value;
     }
 
     /**
@@ -87,38 +114,302 @@ final class StringUtils {
      * </ul>
      *
      * @param value extension value
-     * @return escaped value
+     * @return escaped value, or the same instance if nothing has to be escaped
      */
     public static String escapeExtensionValue(String value) {
         if (value == null) {
             return null;
         }
 
-        final Matcher matcher = ESCAPE_EXTENSION_VALUE_PATTERN.matcher(value);
-        final StringBuilder escaped = new StringBuilder(value.length());
-
-        while (matcher.find()) {
-            final char letter = matcher.group(0).charAt(0);
-            String replacement;
-
-            switch (letter) {
-                case '\r':
-                    replacement = "\\\\r";
-                    break;
-                case '\n':
-                    replacement = "\\\\n";
-                    break;
-                case '\\':
-                    replacement = "\\\\\\\\";
-                    break;
-                default:
-                    replacement = "\\\\" + letter;
+        final int index = indexOfExtensionValueEscape(value, 0);
+        if (index < 0) {
+            return value;
+        }
+
+        final StringBuilder escaped = new StringBuilder(value.length() + ESCAPE_RESERVE);
+        escaped.append(value, 0, index);
+        try {
+            escapeExtensionValue(value, index, escaped);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by StringBuilder
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Escapes field value directly into the specified destination, following the same rules as
+     * {@link #escapeField(String)}. Does nothing if value is {@code null}.
+     *
+     * @param value field value
+     * @param out destination to write escaped value to
+     * @throws IOException if destination fails to accept characters
+     * @throws IllegalArgumentException if field contains invalid characters ({@code \n} or
+     * {@code \r}); in this case part of the value may already be written to destination
+     */
+    static void escapeField(String value, Appendable out) throws IOException {
+        if (value != null) {
+            escapeField(value, 0, out);
+        }
+    }
+
+    /**
+     * Escapes extension key directly into the specified destination, following the same rules as
+     * {@link #escapeExtensionKey(String)}. Does nothing if value is {@code null}.
+     *
+     * @param value extension key value
+     * @param out destination to write escaped value to
+     * @throws IOException if destination fails to accept characters
+     * @throws IllegalArgumentException if extension key contains invalid characters (white
+     * spaces); in this case part of the key may already be written to destination
+     */
+    static void escapeExtensionKey(String value, Appendable out) throws IOException {
+        if (value != null) {
+            escapeExtensionKey(value, 0, out);
+        }
+    }
+
+    /**
+     * Escapes extension value directly into the specified destination, following the same rules
+     * as {@link #escapeExtensionValue(String)}. Does nothing if value is {@code null}.
+     *
+     * @param value extension value
+     * @param out destination to write escaped value to
+     * @throws IOException if destination fails to accept characters
+     */
+    static void escapeExtensionValue(String value, Appendable out) throws IOException {
+        if (value != null) {
+            escapeExtensionValue(value, 0, out);
+        }
+    }
+
+    /**
+     * Unescapes field values, reversing {@link #escapeField(String)}: {@code \|} and {@code \\}
+     * are replaced with the escaped character, any other backslash is kept as is.
+     *
+     * @param value escaped field value
+     * @return unescaped value, or the same instance if there is nothing to unescape
+     */
+    static String unescapeField(String value) {
+        final int index = value.indexOf('\\');
+        if (index < 0) {
+            return value;
+        }
+
+        final int length = value.length();
+        final StringBuilder unescaped = new StringBuilder(length);
+        unescaped.append(value, 0, index);
+        for (int i = index; i < length; i++) {
+            final char letter = value.charAt(i);
+            if (letter == '\\' && i + 1 < length) {
+                final char next = value.charAt(i + 1);
+                if (next == '|' || next == '\\') {
+                    unescaped.append(next);
+                    i++;
+                    continue;
+                }
             }
+            unescaped.append(letter);
+        }
+        return unescaped.toString();
+    }
 
-            matcher.appendReplacement(escaped, replacement);
+    /**
+     * Unescapes extension keys and values, reversing {@link #escapeExtensionKey(String)} and
+     * {@link #escapeExtensionValue(String)}: {@code \=} and {@code \\} are replaced with the
+     * escaped character, {@code \n} and {@code \r} with line terminators, any other backslash is
+     * kept as is.
+     *
+     * @param value escaped extension key or value
+     * @return unescaped value, or the same instance if there is nothing to unescape
+     */
+    static String unescapeExtension(String value) {
+        final int index = value.indexOf('\\');
+        if (index < 0) {
+            return value;
         }
 
-        matcher.appendTail(escaped);
-        return escaped.toString();
+        final int length = value.length();
+        final StringBuilder unescaped = new StringBuilder(length);
+        unescaped.append(value, 0, index);
+        for (int i = index; i < length; i++) {
+            final char letter = value.charAt(i);
+            if (letter == '\\' && i + 1 < length) {
+                final char next = value.charAt(i + 1);
+                switch (next) {
+                    case '=':
+                    case '\\':
+                        unescaped.append(next);
+                        i++;
+                        continue;
+                    case 'n':
+                        unescaped.append('\n');
+                        i++;
+                        continue;
+                    case 'r':
+                        unescaped.append('\r');
+                        i++;
+                        continue;
+                    default:
+                }
+            }
+            unescaped.append(letter);
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * Writes decimal representation of specified number without creating intermediate strings.
+     *
+     * @param value number to write
+     * @param out destination to write number to
+     * @throws IOException if destination fails to accept characters
+     */
+    static void appendDecimal(long value, Appendable out) throws IOException {
+        if (value < 0) {
+            out.append('-');
+        } else {
+            value = -value;
+        }
+
+        long divisor = -1;
+        while (value / 10 <= divisor) {
+            divisor *= 10;
+        }
+        while (divisor != 0) {
+            out.append((char) ('0' + (value / divisor)));
+            value %= divisor;
+            divisor /= 10;
+        }
+    }
+
+    /**
+     * Writes IPv4 address in dotted decimal form.
+     *
+     * @param address IPv4 address, most significant byte first
+     * @param out destination to write address to
+     * @throws IOException if destination fails to accept characters
+     */
+    static void appendIpv4(int address, Appendable out) throws IOException {
+        appendDecimal((address >>> 24) & 0xFF, out);
+        out.append('.');
+        appendDecimal((address >>> 16) & 0xFF, out);
+        out.append('.');
+        appendDecimal((address >>> 8) & 0xFF, out);
+        out.append('.');
+        appendDecimal(address & 0xFF, out);
+    }
+
+    /**
+     * Writes IPv6 address as eight colon separated hexadecimal groups without leading zeros, same
+     * as {@link java.net.Inet6Address#getHostAddress()} does.
+     *
+     * @param address 16 bytes of IPv6 address
+     * @param out destination to write address to
+     * @throws IOException if destination fails to accept characters
+     */
+    static void appendIpv6(byte[] address, Appendable out) throws IOException {
+        for (int group = 0; group < 8; group++) {
+            if (group > 0) {
+                out.append(':');
+            }
+            final int value = ((address[group * 2] & 0xFF) << 8) | (address[group * 2 + 1] & 0xFF);
+            boolean leading = true;
+            for (int shift = 12; shift >= 0; shift -= 4) {
+                final int digit = (value >>> shift) & 0xF;
+                if (digit != 0 || !leading || shift == 0) {
+                    out.append(Character.forDigit(digit, 16));
+                    leading = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds index of the first character of extension value, which has to be escaped.
+     *
+     * @param value extension value
+     * @param from index to start search from
+     * @return index of the character or {@code -1} if there is nothing to escape
+     */
+    static int indexOfExtensionValueEscape(String value, int from) {
+        return SCANNER.indexOfExtensionValueEscape(value, from);
+    }
+
+    private static void escapeField(String value, int from, Appendable out) throws IOException {
+        int start = from;
+        boolean escaped = false;
+        for (int index = SCANNER.indexOfFieldEscape(value, from); index >= 0;
+            index = SCANNER.indexOfFieldEscape(value, index + 1)) {
+            final char letter = value.charAt(index);
+            if (letter == '\r' || letter == '\n') {
+                throw invalidField(value);
+            }
+            out.append(value, start, index).append('\\');
+            start = index;
+            escaped = true;
+        }
+        out.append(value, start, value.length());
+        if (escaped) {
+            METRICS.escaped();
+        }
+    }
+
+    private static void escapeExtensionKey(String value, int from, Appendable out)
+        throws IOException {
+        int start = from;
+        boolean escaped = false;
+        for (int i = from, length = value.length(); i < length; i++) {
+            final char letter = value.charAt(i);
+            if (letter == '=') {
+                out.append(value, start, i).append('\\');
+                start = i;
+                escaped = true;
+            } else if (isWhitespace(letter)) {
+                throw invalidExtensionKey(value);
+            }
+        }
+        out.append(value, start, value.length());
+        if (escaped) {
+            METRICS.escaped();
+        }
+    }
+
+    private static void escapeExtensionValue(String value, int from, Appendable out)
+        throws IOException {
+        int start = from;
+        int index = indexOfExtensionValueEscape(value, from);
+        if (index >= 0) {
+            METRICS.escaped();
+        }
+        for (; index >= 0; index = indexOfExtensionValueEscape(value, index + 1)) {
+            final char letter = value.charAt(index);
+            out.append(value, start, index).append('\\');
+            if (letter == '=' || letter == '\\') {
+                start = index;
+            } else {
+                out.append(letter == '\r' ? 'r' : 'n');
+                start = index + 1;
+            }
+        }
+        out.append(value, start, value.length());
+    }
+
+    /**
+     * Checks whether character matches regular expression {@code \s} class.
+     */
+    private static boolean isWhitespace(char letter) {
+        return letter == ' ' || (letter >= '\t' && letter <= '\r');
+    }
+
+    private static IllegalArgumentException invalidField(String value) {
+        METRICS.failed(CefMetrics.Failure.INVALID_FIELD);
+        return new IllegalArgumentException(
+            String.format("Field value '%s' contains invalid character", value));
+    }
+
+    private static IllegalArgumentException invalidExtensionKey(String value) {
+        METRICS.failed(CefMetrics.Failure.INVALID_EXTENSION_KEY);
+        return new IllegalArgumentException(
+            String.format("Extension key '%s' contains invalid character", value));
     }
 }
@@ -0,0 +1,367 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Serializes CEF event prefixed with a syslog header {@code TIMESTAMP HOSTNAME }, e.g.
+ * {@code Jan 18 11:07:53 host CEF:0|...}. Event itself is serialized by the delegate serializer.
+ *
+ * <p>Timestamp is formatted once per second: header up to and after the fraction of a second is
+ * cached as characters and as UTF-8 bytes and refreshed only when the clock crosses a second
+ * boundary. Cached header is immutable and shared between threads through a volatile field, so
+ * serializer is thread-safe as long as the delegate is.</p>
+ *
+ * <p>If the delegate is {@link StdCefSerializer}, events are written directly into the
+ * caller-supplied destination; otherwise string produced by the delegate is appended.</p>
+ *
+ * @author spodin
+ */
+public class SyslogCefSerializer implements CefSerializer<String> {
+
+    /**
+     * Form of the header timestamp.
+     */
+    public enum TimestampFormat {
+
+        /**
+         * RFC 3164 timestamp in clock time zone, e.g. {@code Oct  7 09:05:03}.
+         */
+        RFC_3164,
+
+        /**
+         * RFC 3164 timestamp with milliseconds, e.g. {@code Oct  7 09:05:03.123}.
+         */
+        RFC_3164_MILLIS,
+
+        /**
+         * RFC 5424 (ISO 8601) timestamp with milliseconds and clock time zone offset, e.g.
+         * {@code 2021-10-07T09:05:03.123Z}.
+         */
+        RFC_5424
+    }
+
+    private static final String[] MONTHS = {
+        "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    private final CefSerializer<String> delegate;
+    private final StdCefSerializer std;
+    private final TimestampFormat timestampFormat;
+    private final String hostname;
+    private final Clock clock;
+
+    private volatile Header header;
+
+    private SyslogCefSerializer(Builder builder) {
+        this.delegate = Assert.notNull(builder.serializer, "Serializer is required");
+        this.std = (delegate instanceof StdCefSerializer ? (StdCefSerializer) delegate : null);
+        this.timestampFormat = Assert.notNull(builder.timestampFormat,
+            "Timestamp format is required");
+        this.clock = Assert.notNull(builder.clock, "Clock is required");
+
+        this.hostname = Assert.notNullOrBlank(builder.hostname, "Hostname is required");
+        Assert.validState(hostname.indexOf(' ') < 0, "Hostname must not contain spaces");
+
+        this.header = new Header(Long.MIN_VALUE, "", "");
+    }
+
+    @Override
+    public String serialize(CefEvent event) {
+        final StringBuilder out = new StringBuilder(160);
+        serializeTo(event, out);
+        return out.toString();
+    }
+
+    /**
+     * Serializes specified CEF event with the header appending it to the end of the specified
+     * builder. If event is not valid, builder is restored to its original length.
+     *
+     * @param event CEF event
+     * @param out builder to append serialized event to
+     * @return specified builder
+     * @throws IllegalArgumentException if event contains invalid characters
+     */
+    public StringBuilder serializeTo(CefEvent event, StringBuilder out) {
+        final int length = out.length();
+        try {
+            serializeTo(event, (Appendable) out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by StringBuilder
+        } catch (IllegalArgumentException e) {
+            out.setLength(length);
+            throw e;
+        }
+        return out;
+    }
+
+    /**
+     * Serializes specified CEF event with the header encoding it as UTF-8 directly into the
+     * specified buffer, starting at its current position.
+     *
+     * <p>If the event does not fit into remaining space of the buffer, buffer position is left
+     * unchanged and {@code false} is returned, so caller can drain the buffer and retry.</p>
+     *
+     * @param event CEF event
+     * @param out buffer to write serialized event to
+     * @return {@code true} if event has been written, {@code false} if buffer has not enough space
+     * @throws IllegalArgumentException if event contains invalid characters; buffer position is
+     * left unchanged in this case
+     */
+    public boolean serializeTo(CefEvent event, ByteBuffer out) {
+        final int position = out.position();
+        try {
+            writeHeader(clock.millis(), out);
+            if (std != null) {
+                if (!std.serializeTo(event, out)) {
+                    throw new BufferOverflowException();
+                }
+            } else {
+                final Utf8Appender appender = new Utf8Appender(out);
+                appender.append(delegate.serialize(event));
+                appender.finish();
+            }
+            return true;
+        } catch (BufferOverflowException e) {
+            out.position(position);
+            return false;
+        } catch (IllegalArgumentException e) {
+            out.position(position);
+            throw e;
+        }
+    }
+
+    /**
+     * Serializes specified CEF event with the header writing it directly to the specified
+     * destination. If event is not valid, part of it may already be written to destination.
+     *
+     * @param event CEF event
+     * @param out destination to write serialized event to
+     * @throws IOException if destination fails to accept characters
+     * @throws IllegalArgumentException if event contains invalid characters
+     */
+    public void serializeTo(CefEvent event, Appendable out) throws IOException {
+        final long millis = clock.millis();
+        final Header header = headerOf(millis);
+        out.append(header.head);
+        if (timestampFormat != TimestampFormat.RFC_3164) {
+            appendMillis((int) Math.floorMod(millis, 1000L), out);
+        }
+        out.append(header.tail);
+
+        if (std != null) {
+            std.serializeTo(event, out);
+        } else {
+            out.append(delegate.serialize(event));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SyslogCefSerializer{" +
+            "delegate=" + delegate +
+            ", timestampFormat=" + timestampFormat +
+            ", hostname='" + hostname + '\'' +
+            '}';
+    }
+
+    /**
+     * Creates syslog serializer builder.
+     *
+     * @return syslog serializer builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Writes header for specified time as UTF-8.
+     *
+     * @param millis milliseconds since epoch
+     * @param out buffer to write header to
+     * @throws BufferOverflowException if there is no space left in the buffer
+     */
+    private void writeHeader(long millis, ByteBuffer out) {
+        final Header header = headerOf(millis);
+        out.put(header.headBytes);
+        if (timestampFormat != TimestampFormat.RFC_3164) {
+            final int fraction = (int) Math.floorMod(millis, 1000L);
+            out.put((byte) '.')
+                .put((byte) ('0' + fraction / 100))
+                .put((byte) ('0' + fraction / 10 % 10))
+                .put((byte) ('0' + fraction % 10));
+        }
+        out.put(header.tailBytes);
+    }
+
+    private Header headerOf(long millis) {
+        final long second = Math.floorDiv(millis, 1000L);
+        Header current = header;
+        if (current.second != second) {
+            current = format(second);
+            header = current; // racing threads format the same header, any of them may win
+        }
+        return current;
+    }
+
+    private Header format(long second) {
+        final ZoneOffset offset =
+            clock.getZone().getRules().getOffset(Instant.ofEpochSecond(second));
+        final LocalDateTime time = LocalDateTime.ofEpochSecond(second, 0, offset);
+
+        final StringBuilder head = new StringBuilder(32);
+        if (timestampFormat == TimestampFormat.RFC_5424) {
+            head.append(time.getYear()).append('-');
+            appendTwoDigits(time.getMonthValue(), head);
+            head.append('-');
+            appendTwoDigits(time.getDayOfMonth(), head);
+            head.append('T');
+        } else {
+            final int day = time.getDayOfMonth();
+            head.append(MONTHS[time.getMonthValue() - 1])
+                .append(' ')
+                .append(day < 10 ? ' ' : (char) ('0' + day / 10))
+                .append((char) ('0' + day % 10))
+                .append(' ');
+        }
+        appendTwoDigits(time.getHour(), head);
+        head.append(':');
+        appendTwoDigits(time.getMinute(), head);
+        head.append(':');
+        appendTwoDigits(time.getSecond(), head);
+
+        final StringBuilder tail = new StringBuilder(hostname.length() + 8);
+        if (timestampFormat == TimestampFormat.RFC_5424) {
+            tail.append(offset.getId());
+        }
+        tail.append(' ').append(hostname).append(' ');
+        return new Header(second, head.toString(), tail.toString());
+    }
+
+    private static void appendMillis(int fraction, Appendable out) throws IOException {
+        out.append('.')
+            .append((char) ('0' + fraction / 100))
+            .append((char) ('0' + fraction / 10 % 10))
+            .append((char) ('0' + fraction % 10));
+    }
+
+    private static void appendTwoDigits(int value, StringBuilder out) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /**
+     * Header of a single second: part before the fraction of a second and part after it.
+     */
+    private static final class Header {
+
+        private final long second;
+        private final String head;
+        private final String tail;
+        private final byte[] headBytes;
+        private final byte[] tailBytes;
+
+        private Header(long second, String head, String tail) {
+            this.second = second;
+            this.head = head;
+            this.tail = tail;
+            this.headBytes = head.getBytes(StandardCharsets.UTF_8);
+            this.tailBytes = tail.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    public static class Builder {
+
+        private CefSerializer<String> serializer;
+        private TimestampFormat timestampFormat = TimestampFormat.RFC_3164;
+        private String hostname;
+        private Clock clock = Clock.systemDefaultZone();
+
+        private Builder() {
+        }
+
+        /**
+         * Sets serializer of the event following the header.
+         *
+         * <p>Optional, default is {@link StdCefSerializer}.</p>
+         *
+         * @param serializer event serializer
+         * @return this builder for further customizations
+         */
+        public Builder serializer(CefSerializer<String> serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
+        /**
+         * Sets form of the header timestamp.
+         *
+         * <p>Optional, default is {@link TimestampFormat#RFC_3164}.</p>
+         *
+         * @param timestampFormat timestamp format
+         * @return this builder for further customizations
+         */
+        public Builder timestampFormat(TimestampFormat timestampFormat) {
+            this.timestampFormat = timestampFormat;
+            return this;
+        }
+
+        /**
+         * Sets hostname written to the header.
+         *
+         * <p>Optional, default is the local host name.</p>
+         *
+         * @param hostname hostname without spaces
+         * @return this builder for further customizations
+         */
+        public Builder hostname(String hostname) {
+            this.hostname = hostname;
+            return this;
+        }
+
+        /**
+         * Sets clock, which provides time and zone of the header timestamp.
+         *
+         * <p>Optional, default is system clock in default time zone.</p>
+         *
+         * @param clock header clock
+         * @return this builder for further customizations
+         */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Creates syslog serializer with submitted parameters.
+         *
+         * @return syslog serializer
+         * @throws IllegalArgumentException on missing or illegal parameters
+         */
+        public SyslogCefSerializer build() {
+            if (hostname == null) {
+                hostname = localHostname();
+            }
+            if (serializer == null) {
+                serializer = new StdCefSerializer();
+            }
+            return new SyslogCefSerializer(this);
+        }
+
+        private static String localHostname() {
+            try {
+                return InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                return "localhost";
+            }
+        }
+    }
+}
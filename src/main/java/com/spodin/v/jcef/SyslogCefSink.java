@@ -0,0 +1,635 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Sends CEF events to a syslog receiver over UDP, TCP or local Unix domain socket.
+ *
+ * <p>Each event is prefixed with a BSD syslog (RFC 3164) header {@code <PRI>Mmm dd hh:mm:ss
+ * HOSTNAME }, where PRI combines configured facility with syslog severity derived from the CEF
+ * one. Events are encoded as UTF-8 directly into a reused direct buffer.</p>
+ *
+ * <p>Over UDP each event is sent as a separate datagram. Over stream transports events are framed
+ * according to RFC 6587, either by octet counting or by trailing newline, and packed into a batch
+ * buffer, which is written to the socket when it is full or on {@link #flush()}; e.g. behind
+ * {@link AsyncCefAppender} one write carries a whole batch.</p>
+ *
+ * <p>Connection is established lazily. If it cannot be established, next attempt is not made
+ * until the backoff, doubled after each failure, has elapsed; until then flushes fail fast and
+ * batched events are kept while they fit into the buffer. Batch, which failed to be written
+ * partially, is discarded since the receiver has seen it truncated.</p>
+ *
+ * <p>Sink is not thread-safe.</p>
+ *
+ * @author spodin
+ */
+public class SyslogCefSink implements CefEventSink {
+
+    /**
+     * Transport protocol.
+     */
+    public enum Protocol {
+        UDP, TCP, UNIX
+    }
+
+    /**
+     * Framing of the events sent over stream transports, see RFC 6587.
+     */
+    public enum Framing {
+
+        /**
+         * Each event is preceded by its length in bytes and a space.
+         */
+        OCTET_COUNTING,
+
+        /**
+         * Each event is followed by a line feed. CEF serializer escapes line feeds inside the
+         * event, so they never break the framing.
+         */
+        NEWLINE
+    }
+
+    private static final int DEFAULT_FACILITY = 1;
+
+    private static final int MAX_FACILITY = 23;
+
+    private static final int DEFAULT_MAX_MESSAGE_SIZE = 8192;
+
+    private static final int DEFAULT_BATCH_SIZE = 65536;
+
+    /**
+     * Maximal length of the octet count prefix: ten digits and a space.
+     */
+    private static final int FRAME_PREFIX_RESERVE = 11;
+
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration DEFAULT_MIN_BACKOFF = Duration.ofMillis(100);
+    private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final Protocol protocol;
+    private final String host;
+    private final int port;
+    private final Path path;
+    private final Framing framing;
+    private final int facility;
+    private final SyslogCefSerializer serializer;
+    private final Duration connectTimeout;
+    private final long minBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private final ByteBuffer message;
+    private final ByteBuffer batch;
+
+    private ByteChannel channel;
+    private long backoffNanos;
+    private long nextAttemptNanos;
+    private boolean closed;
+
+    private SyslogCefSink(Builder builder) {
+        this.protocol = builder.protocol;
+        this.host = builder.host;
+        this.port = builder.port;
+        this.path = builder.path;
+        this.framing = Assert.notNull(builder.framing, "Framing is required");
+        this.serializer = SyslogCefSerializer.builder()
+            .serializer(Assert.notNull(builder.serializer, "Serializer is required"))
+            .hostname(builder.hostname)
+            .clock(builder.clock)
+            .build();
+        this.connectTimeout = Assert.notNull(builder.connectTimeout, "Connect timeout is required");
+        Assert.notNull(builder.minBackoff, "Minimal backoff is required");
+        Assert.notNull(builder.maxBackoff, "Maximal backoff is required");
+
+        Assert.validState(builder.facility >= 0 && builder.facility <= MAX_FACILITY,
+            "Facility must be in 0-" + MAX_FACILITY + " range");
+        this.facility = builder.facility;
+
+        Assert.validState(!builder.minBackoff.isNegative()
+            && builder.maxBackoff.compareTo(builder.minBackoff) >= 0,
+            "Backoff must be >= 0 and maximal backoff must be >= minimal one");
+        this.minBackoffNanos = builder.minBackoff.toNanos();
+        this.maxBackoffNanos = builder.maxBackoff.toNanos();
+
+        Assert.validState(builder.maxMessageSize > 0, "Maximal message size must be > 0");
+        this.message = ByteBuffer.allocateDirect(builder.maxMessageSize);
+        if (protocol == Protocol.UDP) {
+            this.batch = null;
+        } else {
+            Assert.validState(builder.batchSize >= builder.maxMessageSize + FRAME_PREFIX_RESERVE,
+                "Batch size must be >= maximal message size + " + FRAME_PREFIX_RESERVE);
+            this.batch = ByteBuffer.allocateDirect(builder.batchSize);
+        }
+    }
+
+    /**
+     * Writes specified event. Over UDP event is sent immediately, over stream transports it is
+     * added to the batch, which is flushed beforehand if there is not enough space left.
+     *
+     * @param event CEF event
+     * @throws IOException if event exceeds maximal message size, or it cannot be sent
+     * @throws IllegalArgumentException if event contains invalid characters
+     */
+    @Override
+    public void write(CefEvent event) throws IOException {
+        Assert.notNull(event, "Event is required");
+        ensureOpen();
+        encode(event);
+
+        if (batch == null) {
+            try {
+                connection().write(message);
+            } catch (IOException e) {
+                disconnect();
+                throw e;
+            }
+            return;
+        }
+
+        final int length = message.remaining();
+        final int frameLength = length
+            + (framing == Framing.OCTET_COUNTING ? decimalLength(length) + 1 : 0);
+        if (frameLength > batch.remaining()) {
+            flush();
+        }
+        if (framing == Framing.OCTET_COUNTING) {
+            putDecimal(length, batch);
+            batch.put((byte) ' ');
+        }
+        batch.put(message);
+    }
+
+    /**
+     * Writes batched events to the socket with a single write, connecting if necessary.
+     *
+     * @throws IOException if there is no connection or batch cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (batch == null || batch.position() == 0) {
+            return;
+        }
+
+        final ByteChannel channel = connection();
+        batch.flip();
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            batch.clear();
+        } catch (IOException e) {
+            if (batch.position() == 0) {
+                // nothing has been written, keep the batch for the next connection
+                batch.position(batch.limit()).limit(batch.capacity());
+            } else {
+                batch.clear();
+            }
+            disconnect();
+            throw e;
+        }
+    }
+
+    /**
+     * Flushes batched events and closes the connection.
+     *
+     * @throws IOException if batched events cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            disconnect();
+        }
+    }
+
+    /**
+     * Checks whether sink is currently connected.
+     *
+     * @return {@code true} if connection is established
+     */
+    public boolean isConnected() {
+        return channel != null;
+    }
+
+    private void encode(CefEvent event) throws IOException {
+        message.clear();
+        try {
+            final int pri = facility * 8 + Severity.toSyslog(event.getSeverity());
+            message.put((byte) '<');
+            putDecimal(pri, message);
+            message.put((byte) '>');
+            if (!serializer.serializeTo(event, message)) {
+                throw new BufferOverflowException();
+            }
+            if (batch != null && framing == Framing.NEWLINE) {
+                message.put((byte) '\n');
+            }
+        } catch (BufferOverflowException e) {
+            throw new IOException(
+                "Event exceeds maximal message size of " + message.capacity() + " bytes");
+        }
+        message.flip();
+    }
+
+    private ByteChannel connection() throws IOException {
+        if (channel != null) {
+            return channel;
+        }
+
+        final long now = System.nanoTime();
+        if (backoffNanos > 0 && now - nextAttemptNanos < 0) {
+            throw new IOException("Not connected to " + address() + ", next attempt in "
+                + Duration.ofNanos(nextAttemptNanos - now).toMillis() + " ms");
+        }
+
+        try {
+            channel = connect();
+            backoffNanos = 0;
+            return channel;
+        } catch (IOException e) {
+            backoffNanos = (backoffNanos == 0 ? minBackoffNanos
+                : Math.min(maxBackoffNanos, backoffNanos * 2));
+            nextAttemptNanos = now + backoffNanos;
+            throw e;
+        }
+    }
+
+    private ByteChannel connect() throws IOException {
+        switch (protocol) {
+            case UDP:
+                final DatagramChannel datagramChannel = DatagramChannel.open();
+                try {
+                    return datagramChannel.connect(resolve());
+                } catch (IOException e) {
+                    datagramChannel.close();
+                    throw e;
+                }
+            case TCP:
+                final SocketChannel socketChannel = SocketChannel.open();
+                try {
+                    socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    socketChannel.socket().connect(resolve(), (int) connectTimeout.toMillis());
+                    return socketChannel;
+                } catch (IOException e) {
+                    socketChannel.close();
+                    throw e;
+                }
+            case UNIX:
+            default:
+                final SocketChannel unixChannel = UnixSockets.open();
+                try {
+                    unixChannel.connect(UnixSockets.address(path));
+                    return unixChannel;
+                } catch (IOException e) {
+                    unixChannel.close();
+                    throw e;
+                }
+        }
+    }
+
+    private InetSocketAddress resolve() throws UnknownHostException {
+        // resolved on each connection attempt, so that address changes are picked up
+        final InetSocketAddress address = new InetSocketAddress(host, port);
+        if (address.isUnresolved()) {
+            throw new UnknownHostException(host);
+        }
+        return address;
+    }
+
+    private Object address() {
+        return (protocol == Protocol.UNIX ? path : host + ':' + port);
+    }
+
+    private void disconnect() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // connection is abandoned anyway
+            }
+            channel = null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Sink is closed");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SyslogCefSink{" +
+            "protocol=" + protocol +
+            ", address=" + address() +
+            (batch != null ? ", framing=" + framing : "") +
+            ", facility=" + facility +
+            '}';
+    }
+
+    /**
+     * Creates builder of the sink sending events over UDP.
+     *
+     * @param host receiver host
+     * @param port receiver port
+     * @return sink builder
+     */
+    public static Builder udp(String host, int port) {
+        return new Builder(Protocol.UDP, host, port, null);
+    }
+
+    /**
+     * Creates builder of the sink sending events over TCP.
+     *
+     * @param host receiver host
+     * @param port receiver port
+     * @return sink builder
+     */
+    public static Builder tcp(String host, int port) {
+        return new Builder(Protocol.TCP, host, port, null);
+    }
+
+    /**
+     * Creates builder of the sink sending events over local Unix domain stream socket, which is
+     * supported since JDK 16.
+     *
+     * @param path socket file path
+     * @return sink builder
+     * @throws IllegalArgumentException if the running JDK does not support Unix domain sockets
+     */
+    public static Builder unix(Path path) {
+        Assert.validState(UnixSockets.isSupported(), "Unix domain sockets require JDK 16+");
+        return new Builder(Protocol.UNIX, null, 0, path);
+    }
+
+    private static void putDecimal(int value, ByteBuffer out) {
+        for (int divisor = pow10(decimalLength(value) - 1); divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static int decimalLength(int value) {
+        int length = 1;
+        while (value >= 10) {
+            value /= 10;
+            length++;
+        }
+        return length;
+    }
+
+    private static int pow10(int exponent) {
+        int value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    /**
+     * Opens Unix domain socket channels. Their API appeared in JDK 16, so it is looked up
+     * reflectively on first use of {@link Protocol#UNIX}, keeping the sink usable over UDP and TCP
+     * on older JDKs.
+     */
+    private static final class UnixSockets {
+
+        private static final MethodHandle OPEN;
+        private static final MethodHandle ADDRESS;
+
+        static {
+            MethodHandle open = null;
+            MethodHandle address = null;
+            try {
+                final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                final ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+                open = MethodHandles.insertArguments(lookup.findStatic(SocketChannel.class,
+                    "open", MethodType.methodType(SocketChannel.class, ProtocolFamily.class)),
+                    0, unix);
+                final Class<?> addressClass = Class.forName("java.net.UnixDomainSocketAddress");
+                address = lookup.findStatic(addressClass, "of",
+                    MethodType.methodType(addressClass, Path.class))
+                    .asType(MethodType.methodType(SocketAddress.class, Path.class));
+            } catch (ReflectiveOperationException | IllegalArgumentException e) {
+                // JDK without Unix domain socket channels
+                open = null;
+                address = null;
+            }
+            OPEN = open;
+            ADDRESS = address;
+        }
+
+        private UnixSockets() {
+        }
+
+        static boolean isSupported() {
+            return OPEN != null;
+        }
+
+        static SocketChannel open() throws IOException {
+            try {
+                return (SocketChannel) OPEN.invokeExact();
+            } catch (IOException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IOException(e);
+            }
+        }
+
+        static SocketAddress address(Path path) {
+            try {
+                return (SocketAddress) ADDRESS.invokeExact(path);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private final Protocol protocol;
+        private final String host;
+        private final int port;
+        private final Path path;
+        private Framing framing = Framing.OCTET_COUNTING;
+        private int facility = DEFAULT_FACILITY;
+        private String hostname;
+        private StdCefSerializer serializer;
+        private Clock clock = Clock.systemDefaultZone();
+        private int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        private Duration minBackoff = DEFAULT_MIN_BACKOFF;
+        private Duration maxBackoff = DEFAULT_MAX_BACKOFF;
+
+        private Builder(Protocol protocol, String host, int port, Path path) {
+            if (protocol == Protocol.UNIX) {
+                Assert.notNull(path, "Socket path is required");
+            } else {
+                Assert.notNullOrBlank(host, "Host is required");
+                Assert.validState(port > 0 && port <= 65535, "Port must be in 1-65535 range");
+            }
+            this.protocol = protocol;
+            this.host = host;
+            this.port = port;
+            this.path = path;
+        }
+
+        /**
+         * Sets framing of the events sent over stream transports. Ignored for UDP.
+         *
+         * <p>Optional, default is {@link Framing#OCTET_COUNTING}.</p>
+         *
+         * @param framing events framing
+         * @return this builder for further customizations
+         */
+        public Builder framing(Framing framing) {
+            this.framing = framing;
+            return this;
+        }
+
+        /**
+         * Sets syslog facility code, e.g. 4 for security/authorization or 13 for log audit.
+         *
+         * <p>Optional, default value is {@value SyslogCefSink#DEFAULT_FACILITY} (user-level).</p>
+         *
+         * @param facility facility code from 0 to 23
+         * @return this builder for further customizations
+         */
+        public Builder facility(int facility) {
+            this.facility = facility;
+            return this;
+        }
+
+        /**
+         * Sets hostname written to the syslog header.
+         *
+         * <p>Optional, default is name of the local host.</p>
+         *
+         * @param hostname hostname without spaces
+         * @return this builder for further customizations
+         */
+        public Builder hostname(String hostname) {
+            this.hostname = hostname;
+            return this;
+        }
+
+        /**
+         * Sets serializer of the events, e.g. one with {@link CefPrefixCache}.
+         *
+         * <p>Optional, default is {@link StdCefSerializer} without cache.</p>
+         *
+         * @param serializer events serializer
+         * @return this builder for further customizations
+         */
+        public Builder serializer(StdCefSerializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
+        /**
+         * Sets clock, which provides time and zone of the syslog header timestamp.
+         *
+         * <p>Optional, default is system clock in default time zone.</p>
+         *
+         * @param clock header clock
+         * @return this builder for further customizations
+         */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Sets maximal size of the single message (header and event) in bytes. Events, which
+         * exceed it, are rejected. For UDP it should not exceed what the receiver accepts.
+         *
+         * <p>Optional, default value is {@value SyslogCefSink#DEFAULT_MAX_MESSAGE_SIZE}.</p>
+         *
+         * @param maxMessageSize maximal message size, must be greater than 0
+         * @return this builder for further customizations
+         */
+        public Builder maxMessageSize(int maxMessageSize) {
+            this.maxMessageSize = maxMessageSize;
+            return this;
+        }
+
+        /**
+         * Sets size of the batch buffer in bytes. Ignored for UDP.
+         *
+         * <p>Optional, default value is {@value SyslogCefSink#DEFAULT_BATCH_SIZE}.</p>
+         *
+         * @param batchSize batch buffer size, at least maximal message size + 11
+         * @return this builder for further customizations
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets TCP connect timeout.
+         *
+         * <p>Optional, default is 5 seconds.</p>
+         *
+         * @param connectTimeout connect timeout
+         * @return this builder for further customizations
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets delays between connection attempts. Delay starts with minimal one and doubles
+         * after each failed attempt up to the maximal one.
+         *
+         * <p>Optional, default is from 100 milliseconds to 30 seconds.</p>
+         *
+         * @param minBackoff delay after the first failed attempt
+         * @param maxBackoff maximal delay
+         * @return this builder for further customizations
+         */
+        public Builder reconnectBackoff(Duration minBackoff, Duration maxBackoff) {
+            this.minBackoff = minBackoff;
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * Creates syslog sink with submitted parameters. Connection is established on the first
+         * write.
+         *
+         * @return syslog sink
+         * @throws IllegalArgumentException if any parameter is not valid
+         */
+        public SyslogCefSink build() {
+            if (serializer == null) {
+                serializer = new StdCefSerializer();
+            }
+            return new SyslogCefSink(this);
+        }
+    }
+}
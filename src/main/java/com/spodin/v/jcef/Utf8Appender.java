@@ -0,0 +1,126 @@
+package com.spodin.v.jcef;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link Appendable} which encodes appended characters as UTF-8 directly into a byte buffer.
+ *
+ * <p>Encoding matches {@code String.getBytes(StandardCharsets.UTF_8)}: unpaired surrogates are
+ * replaced with {@code '?'}. Since surrogate pair may be split between two appends, {@link
+ * #finish()} must be called after the last character is appended.</p>
+ *
+ * <p>Appender may be reused for another buffer, see {@link #wrap(ByteBuffer)}.</p>
+ *
+ * @author spodin
+ */
+final class Utf8Appender implements Appendable {
+
+    private static final byte REPLACEMENT = '?';
+
+    private ByteBuffer buffer;
+
+    private char highSurrogate;
+
+    Utf8Appender() {
+    }
+
+    Utf8Appender(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Starts encoding into specified buffer, discarding state of the previous encoding.
+     * Reused appender is wrapped around {@code null} once encoding is finished, so that it does
+     * not keep the buffer reachable.
+     *
+     * @param buffer buffer to encode characters into or {@code null} to release the previous one
+     * @return this appender
+     */
+    Utf8Appender wrap(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.highSurrogate = 0;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws BufferOverflowException if there is no space left in the buffer
+     */
+    @Override
+    public Utf8Appender append(CharSequence csq) {
+        return append(csq, 0, csq.length());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws BufferOverflowException if there is no space left in the buffer
+     */
+    @Override
+    public Utf8Appender append(CharSequence csq, int start, int end) {
+        for (int i = start; i < end; i++) {
+            final char letter = csq.charAt(i);
+            if (letter < 0x80 && highSurrogate == 0) {
+                buffer.put((byte) letter);
+            } else {
+                append(letter);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws BufferOverflowException if there is no space left in the buffer
+     */
+    @Override
+    public Utf8Appender append(char letter) {
+        if (highSurrogate != 0) {
+            final char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(letter)) {
+                putCodePoint(Character.toCodePoint(high, letter));
+                return this;
+            }
+            buffer.put(REPLACEMENT);
+        }
+
+        if (letter < 0x80) {
+            buffer.put((byte) letter);
+        } else if (letter < 0x800) {
+            buffer.put((byte) (0xC0 | (letter >> 6)))
+                .put((byte) (0x80 | (letter & 0x3F)));
+        } else if (Character.isHighSurrogate(letter)) {
+            highSurrogate = letter;
+        } else if (Character.isLowSurrogate(letter)) {
+            buffer.put(REPLACEMENT);
+        } else {
+            buffer.put((byte) (0xE0 | (letter >> 12)))
+                .put((byte) (0x80 | ((letter >> 6) & 0x3F)))
+                .put((byte) (0x80 | (letter & 0x3F)));
+        }
+        return this;
+    }
+
+    /**
+     * Completes encoding, replacing trailing unpaired high surrogate if there is one.
+     *
+     * @throws BufferOverflowException if there is no space left in the buffer
+     */
+    void finish() {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            buffer.put(REPLACEMENT);
+        }
+    }
+
+    private void putCodePoint(int codePoint) {
+        buffer.put((byte) (0xF0 | (codePoint >> 18)))
+            .put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+            .put((byte) (0x80 | ((codePoint >> 6) & 0x3F)))
+            .put((byte) (0x80 | (codePoint & 0x3F)));
+    }
+}
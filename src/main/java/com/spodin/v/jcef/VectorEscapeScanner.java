@@ -0,0 +1,82 @@
+package com.spodin.v.jcef;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Escape scanner, which compares as many characters at once as the preferred vector shape of the
+ * CPU holds (16 characters with AVX2, 32 with AVX-512), using {@code jdk.incubator.vector} API.
+ *
+ * <p>Since {@code String} does not expose its characters, values are copied chunk by chunk into a
+ * thread-local array first. Chunks start small and grow, so that escaping of values with many
+ * characters to escape, which scans from each of them to the next one, does not copy much more
+ * than it scans. Values shorter than {@value #MIN_LENGTH} characters are scanned by the scalar
+ * implementation, which is faster for them.</p>
+ *
+ * <p>This class must only be loaded by {@link EscapeScanner#best()}, which checks that the
+ * incubator module is present.</p>
+ *
+ * @author spodin
+ */
+final class VectorEscapeScanner extends EscapeScanner {
+
+    static final int MIN_LENGTH = 64;
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    private static final int MAX_CHUNK_LENGTH = 1024;
+
+    private static final ThreadLocal<char[]> CHUNKS =
+        ThreadLocal.withInitial(() -> new char[MAX_CHUNK_LENGTH]);
+
+    @Override
+    int indexOfFieldEscape(String value, int from) {
+        if (value.length() - from < MIN_LENGTH) {
+            return super.indexOfFieldEscape(value, from);
+        }
+        return indexOfAny(value, from, '|', '\\', '\r', '\n');
+    }
+
+    @Override
+    int indexOfExtensionValueEscape(String value, int from) {
+        if (value.length() - from < MIN_LENGTH) {
+            return super.indexOfExtensionValueEscape(value, from);
+        }
+        return indexOfAny(value, from, '=', '\\', '\r', '\n');
+    }
+
+    /**
+     * Finds index of the first occurrence of any of specified characters.
+     */
+    private static int indexOfAny(String value, int from, char first, char second, char third,
+        char fourth) {
+        final char[] chunk = CHUNKS.get();
+        final int length = value.length();
+        int chunkLength = MIN_LENGTH;
+        for (int offset = from; offset < length; offset += chunkLength) {
+            chunkLength = Math.min(chunkLength * 2, MAX_CHUNK_LENGTH);
+            final int count = Math.min(chunkLength, length - offset);
+            value.getChars(offset, offset + count, chunk, 0);
+
+            int i = 0;
+            for (final int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+                final ShortVector letters = ShortVector.fromCharArray(SPECIES, chunk, i);
+                final VectorMask<Short> matches = letters.eq((short) first)
+                    .or(letters.eq((short) second))
+                    .or(letters.eq((short) third))
+                    .or(letters.eq((short) fourth));
+                if (matches.anyTrue()) {
+                    return offset + i + matches.firstTrue();
+                }
+            }
+            for (; i < count; i++) {
+                final char letter = chunk[i];
+                if (letter == first || letter == second || letter == third || letter == fourth) {
+                    return offset + i;
+                }
+            }
+        }
+        return -1;
+    }
+}
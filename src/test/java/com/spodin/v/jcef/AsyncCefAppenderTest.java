@@ -0,0 +1,128 @@
+package com.spodin.v.jcef;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AsyncCefAppenderTest {
+
+    @Test
+    void allEventsShouldBeWrittenInBatchesBeforeClose() throws Exception {
+        var sink = new CollectingSink();
+        var appender = AsyncCefAppender.builder(sink).capacity(16).batchSize(8).build();
+
+        var rejected = new AtomicInteger();
+        var producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            producers[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    if (!appender.append(TestSupport.event(5))) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+            producers[i].start();
+        }
+        for (var producer : producers) {
+            producer.join();
+        }
+
+        Assertions.assertEquals(0, rejected.get());
+        Assertions.assertTrue(appender.shutdown());
+        Assertions.assertEquals(4000, sink.events.size());
+        Assertions.assertEquals(4000, appender.getWrittenCount());
+        Assertions.assertEquals(0, appender.getDroppedCount());
+        Assertions.assertTrue(sink.flushes.get() > 0 && sink.flushes.get() <= 4000);
+        Assertions.assertTrue(sink.closed);
+        Assertions.assertFalse(appender.append(TestSupport.event(5)));
+    }
+
+    @Test
+    void eventsAcceptedDuringCloseShouldBeWritten() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            var sink = new CollectingSink();
+            var appender = AsyncCefAppender.builder(sink).capacity(64).build();
+
+            var started = new CountDownLatch(4);
+            var producers = new Thread[4];
+            for (int i = 0; i < producers.length; i++) {
+                producers[i] = new Thread(() -> {
+                    started.countDown();
+                    while (appender.append(TestSupport.event(5))) {
+                        Thread.yield();
+                    }
+                });
+                producers[i].start();
+            }
+            started.await();
+
+            Assertions.assertTrue(appender.shutdown());
+            for (var producer : producers) {
+                producer.join();
+            }
+            Assertions.assertEquals(appender.getAppendedCount(), sink.events.size());
+        }
+    }
+
+    @Test
+    void eventsShouldBeDroppedAccordingToPolicy() throws Exception {
+        var sink = new CollectingSink();
+        var appender = AsyncCefAppender.builder(sink)
+            .capacity(4)
+            .overflowPolicy(AsyncCefAppender.OverflowPolicy.dropBelowSeverity(7))
+            .build();
+
+        // first event occupies the consumer, next four fill the buffer
+        Assertions.assertTrue(appender.append(TestSupport.event(10)));
+        Assertions.assertTrue(sink.writing.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(appender.append(TestSupport.event(5)));
+        }
+
+        Assertions.assertFalse(appender.append(TestSupport.event(6)));
+        Assertions.assertFalse(appender.append(TestSupport.event(0)));
+        Assertions.assertEquals(2, appender.getDroppedCount());
+        Assertions.assertEquals(4, appender.getQueueDepth());
+
+        sink.release.countDown();
+        Assertions.assertTrue(appender.append(TestSupport.event(7)));
+        Assertions.assertTrue(appender.shutdown());
+        Assertions.assertEquals(6, sink.events.size());
+    }
+
+    private static class CollectingSink implements CefEventSink {
+
+        private final List<CefEvent> events = new CopyOnWriteArrayList<>();
+        private final AtomicInteger flushes = new AtomicInteger();
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean closed;
+
+        @Override
+        public void write(CefEvent event) {
+            events.add(event);
+            if (event.getSeverity().equals("10")) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+            flushes.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BinaryCefCodecTest {
+
+    @Test
+    void eventsShouldRoundTrip() {
+        for (int dictionarySize : new int[]{0, 2, 4096}) {
+            var encoder = new BinaryCefEncoder(dictionarySize);
+            var decoder = new BinaryCefDecoder();
+            var directDecoder = new BinaryCefDecoder();
+            for (var event : randomEvents(500)) {
+                var bytes = encoder.serialize(event);
+                Assertions.assertEquals(event, decoder.decode(bytes));
+                Assertions.assertEquals(event, directDecoder.decode(
+                    ByteBuffer.allocateDirect(bytes.length).put(bytes).flip()));
+            }
+        }
+    }
+
+    @Test
+    void repeatedValuesShouldBeReferencedById() {
+        var encoder = new BinaryCefEncoder();
+        var event = CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+            .eventId(EventId.of("some_event", "This event has been occurred"))
+            .severity("High")
+            .extension(Extension.builder()
+                .add("src", "10.0.0.1")
+                .add("customKey", "value")
+                .add("cnt", 42)
+                .addTimestamp("rt", 1642504073000L)
+                .build())
+            .build();
+
+        var first = encoder.serialize(event);
+        var second = encoder.serialize(event);
+        Assertions.assertTrue(second.length < first.length / 2);
+        Assertions.assertEquals(37, second.length);
+
+        var decoder = new BinaryCefDecoder();
+        Assertions.assertEquals(event, decoder.decode(first));
+        Assertions.assertEquals(event, decoder.decode(second));
+    }
+
+    @Test
+    void encoderStateShouldBeRestoredWhenBufferOverflows() {
+        var encoder = new BinaryCefEncoder();
+        var decoder = new BinaryCefDecoder();
+        var events = randomEvents(50);
+
+        var buffer = ByteBuffer.allocate(64 * 1024);
+        var small = ByteBuffer.allocate(4);
+        for (var event : events) {
+            Assertions.assertFalse(encoder.serializeTo(event, small));
+            Assertions.assertEquals(0, small.position());
+            Assertions.assertTrue(encoder.serializeTo(event, buffer));
+        }
+
+        buffer.flip();
+        for (var event : events) {
+            Assertions.assertEquals(event, decoder.decode(buffer));
+        }
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void malformedInputShouldBeRejected() {
+        var encoder = new BinaryCefEncoder();
+        var bytes = encoder.serialize(randomEvents(1).get(0));
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new BinaryCefDecoder().decode(new byte[]{9}));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new BinaryCefDecoder().decode(ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new BinaryCefDecoder().decode(new byte[]{1, 0, 5}));
+    }
+
+    private static List<CefEvent> randomEvents(int count) {
+        var random = new Random(42);
+        var events = new ArrayList<CefEvent>(count);
+        for (int i = 0; i < count; i++) {
+            var extension = Extension.builder();
+            for (int j = random.nextInt(8); j > 0; j--) {
+                switch (random.nextInt(7)) {
+                    case 0:
+                        extension.add("cs" + (1 + random.nextInt(6)), randomString(random));
+                        break;
+                    case 1:
+                        extension.add("custom" + random.nextInt(5), randomString(random));
+                        break;
+                    case 2:
+                        extension.add("cnt", random.nextLong());
+                        break;
+                    case 3:
+                        extension.addTimestamp("rt", random.nextLong());
+                        break;
+                    case 4:
+                        var ipv4 = new byte[4];
+                        random.nextBytes(ipv4);
+                        extension.addIp("src", ipv4);
+                        break;
+                    case 5:
+                        var ipv6 = new byte[16];
+                        random.nextBytes(ipv6);
+                        extension.addIp("dst", ipv6);
+                        break;
+                    default:
+                        extension.add("msg", null);
+                        break;
+                }
+            }
+            events.add(CefEvent.builder()
+                .version(random.nextInt(2))
+                .device(Device.builder()
+                    .vendor("vendor" + random.nextInt(3))
+                    .product("product")
+                    .version("1." + random.nextInt(3))
+                    .build())
+                .eventId(EventId.of("id" + random.nextInt(4), "name \u00e9" + random.nextInt(4)))
+                .severity(random.nextInt(12))
+                .extension(extension.build())
+                .build());
+        }
+        return events;
+    }
+
+    private static String randomString(Random random) {
+        var value = new StringBuilder();
+        for (int i = random.nextInt(20); i > 0; i--) {
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                value.append((char) (' ' + random.nextInt(95)));
+            } else if (kind < 8) {
+                value.append((char) (0x80 + random.nextInt(0x700)));
+            } else if (kind < 9) {
+                value.append((char) (0x800 + random.nextInt(0xD000)));
+            } else {
+                value.appendCodePoint(0x10000 + random.nextInt(0x1000));
+            }
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,161 @@
+package com.spodin.v.jcef;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CefAggregatorTest {
+
+    @Test
+    void duplicatesShouldBeCollapsedWithinWindow() {
+        var clock = new MutableClock();
+        var emitted = new CopyOnWriteArrayList<CefEvent>();
+        var aggregator = CefAggregator.builder(emitted::add)
+            .window(Duration.ofSeconds(10))
+            .groupByExtensionKeys("src")
+            .evictionInterval(Duration.ZERO)
+            .clock(clock)
+            .build();
+
+        long start = clock.millis();
+        aggregator.append(event("10.0.0.1", "first"));
+        clock.advance(Duration.ofSeconds(3));
+        aggregator.append(event("10.0.0.1", "second"));
+        aggregator.append(event("10.0.0.2", "other"));
+        clock.advance(Duration.ofSeconds(3));
+        aggregator.append(event("10.0.0.1", "third"));
+
+        aggregator.evictExpired();
+        Assertions.assertTrue(emitted.isEmpty());
+        Assertions.assertEquals(2, aggregator.getPendingCount());
+
+        clock.advance(Duration.ofSeconds(4));
+        aggregator.evictExpired();
+        Assertions.assertEquals(1, emitted.size());
+        Assertions.assertEquals(1, aggregator.getPendingCount());
+
+        var extension = emitted.get(0).getExtension();
+        Assertions.assertEquals("10.0.0.1", extension.get("src"));
+        Assertions.assertEquals("first", extension.get("msg"));
+        Assertions.assertEquals("3", extension.get("cnt"));
+        Assertions.assertEquals(String.valueOf(start), extension.get("start"));
+        Assertions.assertEquals(String.valueOf(start + 6000), extension.get("end"));
+
+        aggregator.close();
+        Assertions.assertEquals(2, emitted.size());
+        Assertions.assertEquals("1", emitted.get(1).getExtension().get("cnt"));
+        Assertions.assertEquals(0, aggregator.getPendingCount());
+    }
+
+    @Test
+    void expiredWindowShouldBeEmittedWhenKeyIsSeenAgain() {
+        var clock = new MutableClock();
+        var emitted = new CopyOnWriteArrayList<CefEvent>();
+        var aggregator = CefAggregator.builder(emitted::add)
+            .window(Duration.ofSeconds(1))
+            .groupByDevice(false)
+            .groupBySeverity(false)
+            .evictionInterval(Duration.ZERO)
+            .clock(clock)
+            .build();
+
+        aggregator.append(event("10.0.0.1", "first"));
+        aggregator.append(event("10.0.0.2", "second"));
+        clock.advance(Duration.ofSeconds(1));
+        aggregator.append(event("10.0.0.3", "third"));
+
+        Assertions.assertEquals(1, emitted.size());
+        Assertions.assertEquals("2", emitted.get(0).getExtension().get("cnt"));
+        Assertions.assertEquals(1, aggregator.getPendingCount());
+    }
+
+    @Test
+    void eventsShouldBePassedAsIsWhenShardIsFull() {
+        var emitted = new CopyOnWriteArrayList<CefEvent>();
+        var aggregator = CefAggregator.builder(emitted::add)
+            .groupByExtensionKeys("src")
+            .shards(1)
+            .maxEntries(2)
+            .evictionInterval(Duration.ZERO)
+            .build();
+
+        var overflow = event("10.0.0.3", "overflow");
+        aggregator.append(event("10.0.0.1", "first"));
+        aggregator.append(event("10.0.0.2", "second"));
+        aggregator.append(overflow);
+
+        Assertions.assertEquals(List.of(overflow), emitted);
+        Assertions.assertEquals(2, aggregator.getPendingCount());
+    }
+
+    @Test
+    void concurrentDuplicatesShouldAllBeCounted() throws Exception {
+        var emitted = new CopyOnWriteArrayList<CefEvent>();
+        var aggregator = CefAggregator.builder(emitted::add)
+            .window(Duration.ofMillis(5))
+            .evictionInterval(Duration.ofMillis(1))
+            .groupByExtensionKeys("src")
+            .build();
+
+        var producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            producers[i] = new Thread(() -> {
+                for (int j = 0; j < 20000; j++) {
+                    aggregator.append(event("10.0.0." + (j % 3), "message"));
+                }
+            });
+            producers[i].start();
+        }
+        for (var producer : producers) {
+            producer.join();
+        }
+        aggregator.close();
+
+        long total = 0;
+        for (var event : emitted) {
+            total += Long.parseLong(event.getExtension().get("cnt"));
+        }
+        Assertions.assertEquals(80000, total);
+        Assertions.assertEquals(80000, aggregator.getAppendedCount());
+        Assertions.assertEquals(emitted.size(), aggregator.getEmittedCount());
+    }
+
+    private static CefEvent event(String src, String message) {
+        return CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+            .eventId(EventId.of("some_event", "This event has been occurred"))
+            .severity("High")
+            .extension(Extension.builder().add("src", src).add("msg", message).build())
+            .build();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private volatile Instant instant = Instant.parse("2021-10-07T09:05:03Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
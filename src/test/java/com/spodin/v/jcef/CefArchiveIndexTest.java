@@ -0,0 +1,199 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CefArchiveIndexTest {
+
+    private static final StdCefSerializer SERIALIZER = new StdCefSerializer();
+
+    private static final long START = 1_600_000_000_000L;
+
+    private static final long FROM = START + 1000 * 60_000L;
+
+    private static final long TO = START + 3000 * 60_000L;
+
+    private static final String[] VENDORS = {"iPlatform", "Acme", "Pipe|Corp"};
+
+    @Test
+    void queryShouldReturnSameEventsAsFullScanReadingOnlyMatchingBlocks() throws IOException {
+        var directory = Files.createTempDirectory("jcef-index");
+        var file = directory.resolve("archive.log");
+        try {
+            var events = new ArrayList<CefEvent>();
+            for (int i = 0; i < 5000; i++) {
+                events.add(event(i));
+            }
+            append(file, events, "malformed line\n\n");
+
+            var index = CefArchiveIndex.builder(file).blockSize(4096).build();
+            Assertions.assertEquals(5000, index.update());
+            Assertions.assertTrue(Files.exists(directory.resolve("archive.log.cefidx")));
+
+            var query = CefArchiveIndex.Query.builder()
+                .vendor("Pipe|Corp")
+                .eventId("event_7")
+                .timeRange(FROM, TO)
+                .build();
+            Predicate<CefEvent> expected = event ->
+                event.getDevice().getVendor().equals("Pipe|Corp") && event.getId().equals("event_7")
+                    && time(event) >= FROM && time(event) < TO;
+            var statistics = assertQuery(index, query, events, expected);
+            Assertions.assertTrue(statistics.getMatches() > 0);
+            Assertions.assertTrue(statistics.getBlocksRead() * 4 < statistics.getBlocks(),
+                statistics.toString());
+
+            assertQuery(index, CefArchiveIndex.Query.builder().severity("3", "10").build(), events,
+                event -> event.getSeverity().equals("3") || event.getSeverity().equals("10"));
+            assertQuery(index, CefArchiveIndex.Query.builder().product("unknown").build(), events,
+                event -> false);
+            assertQuery(index, CefArchiveIndex.Query.builder().build(), events, event -> true);
+
+            // consumer exceptions are not taken for malformed lines
+            Assertions.assertThrows(IllegalArgumentException.class, () -> index.query(query,
+                event -> {
+                    throw new IllegalArgumentException("Rejected by consumer");
+                }));
+
+            // index file is reused by another instance
+            var reopened = CefArchiveIndex.builder(file).build();
+            assertQuery(reopened, query, events, expected);
+            Assertions.assertEquals(0, reopened.update());
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void updateShouldIndexOnlyAppendedLines() throws IOException {
+        var directory = Files.createTempDirectory("jcef-index");
+        var file = directory.resolve("archive.log");
+        try {
+            var events = new ArrayList<CefEvent>();
+            for (int i = 0; i < 1000; i++) {
+                events.add(event(i));
+            }
+            append(file, events, "");
+            var partial = SERIALIZER.serialize(event(1000));
+            Files.writeString(file, partial.substring(0, 20), StandardOpenOption.APPEND);
+
+            var index = CefArchiveIndex.builder(file).blockSize(2048).build();
+            Assertions.assertEquals(1000, index.update());
+            int blocks = index.getBlockCount();
+            long length = index.getIndexedLength();
+            Assertions.assertEquals(Files.size(file) - 20, length);
+
+            Files.writeString(file, partial.substring(20) + '\n', StandardOpenOption.APPEND);
+            events.add(event(1000));
+            var appended = new ArrayList<CefEvent>();
+            for (int i = 1001; i < 1500; i++) {
+                appended.add(event(i));
+            }
+            append(file, appended, "");
+            events.addAll(appended);
+
+            var reopened = CefArchiveIndex.builder(file).blockSize(2048).build();
+            Assertions.assertEquals(500, reopened.update());
+            Assertions.assertTrue(reopened.getBlockCount() > blocks);
+            Assertions.assertEquals(Files.size(file), reopened.getIndexedLength());
+            assertQuery(reopened, CefArchiveIndex.Query.builder().eventId("event_0").build(),
+                events, event -> event.getId().equals("event_0"));
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void indexShouldBeRebuiltIfFileIsReplacedOrIndexIsCorrupted() throws IOException {
+        var directory = Files.createTempDirectory("jcef-index");
+        var file = directory.resolve("archive.log");
+        try {
+            var events = new ArrayList<CefEvent>();
+            for (int i = 0; i < 300; i++) {
+                events.add(event(i));
+            }
+            append(file, events, "");
+            var index = CefArchiveIndex.builder(file).blockSize(1024).build();
+            Assertions.assertEquals(300, index.update());
+
+            Files.delete(file);
+            var replaced = events.subList(0, 100).stream()
+                .map(event -> CefEvent.builder()
+                    .device(event.getDevice())
+                    .eventId(EventId.of("replaced", "Replaced event"))
+                    .severity(event.getSeverity())
+                    .extension(event.getExtension())
+                    .build())
+                .collect(Collectors.toList());
+            append(file, replaced, "");
+            Assertions.assertEquals(100, index.update());
+            assertQuery(index, CefArchiveIndex.Query.builder().eventId("replaced").build(),
+                replaced, event -> true);
+
+            var indexFile = index.getIndexFile();
+            var bytes = Files.readAllBytes(indexFile);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(indexFile, bytes);
+            var corrupted = CefArchiveIndex.builder(file).build();
+            Assertions.assertThrows(IOException.class, () -> corrupted.query(
+                CefArchiveIndex.Query.builder().build(), event -> {
+                }));
+            Assertions.assertEquals(100, corrupted.update());
+            assertQuery(corrupted, CefArchiveIndex.Query.builder().build(), replaced,
+                event -> true);
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    private static CefArchiveIndex.Statistics assertQuery(CefArchiveIndex index,
+        CefArchiveIndex.Query query, List<CefEvent> events, Predicate<CefEvent> predicate)
+        throws IOException {
+        var found = new ArrayList<CefEvent>();
+        var statistics = index.query(query, found::add);
+        Assertions.assertEquals(
+            events.stream().filter(predicate).collect(Collectors.toList()), found);
+        Assertions.assertEquals(found.size(), statistics.getMatches());
+        return statistics;
+    }
+
+    private static void append(Path file, List<CefEvent> events, String suffix)
+        throws IOException {
+        var content = new StringBuilder();
+        for (CefEvent event : events) {
+            SERIALIZER.serializeTo(event, content).append('\n');
+        }
+        content.append(suffix);
+        Files.writeString(file, content, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+    }
+
+    private static long time(CefEvent event) {
+        return Long.parseLong(event.getExtension().get("rt"));
+    }
+
+    private static CefEvent event(int number) {
+        return CefEvent.builder()
+            .device(Device.builder()
+                .vendor(VENDORS[(number / 100) % VENDORS.length])
+                .product("USO")
+                .version("1")
+                .build())
+            .eventId(EventId.of("event_" + (number % 13), "This event has been occurred"))
+            .severity(number % 11)
+            .extension(Extension.builder()
+                .addTimestamp("rt", START + number * 60_000L)
+                .add("msg", "message number " + number)
+                .build())
+            .build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.spodin.v.jcef;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CefBatchSerializerTest {
+
+    private static final CefSerializer<String> SERIALIZER = new StdCefSerializer();
+
+    @Test
+    void eventsShouldBeSerializedInOrder() throws Exception {
+        var pool = new ForkJoinPool(3);
+        try {
+            var serializer = CefBatchSerializer.builder().pool(pool).batchSize(7).build();
+            var events = events(1000);
+            var expected = expected(events);
+
+            var buffer = serializer.serializeAll(events);
+            Assertions.assertEquals(expected, StandardCharsets.UTF_8.decode(buffer).toString());
+
+            var out = new ByteArrayOutputStream();
+            Assertions.assertEquals(expected.getBytes(StandardCharsets.UTF_8).length,
+                serializer.serializeAll(new LinkedList<>(events), out));
+            Assertions.assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+
+            out.reset();
+            serializer.serializeAll(events.stream(), Channels.newChannel(out));
+            Assertions.assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+
+            Assertions.assertEquals(0, serializer.serializeAll(List.of()).remaining());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void hugeBatchSizeShouldNotOverflow() throws Exception {
+        var serializer = CefBatchSerializer.builder().batchSize(Integer.MAX_VALUE).build();
+        var events = events(100);
+        var expected = expected(events);
+
+        var buffer = serializer.serializeAll(events);
+        Assertions.assertEquals(expected, StandardCharsets.UTF_8.decode(buffer).toString());
+
+        var out = new ByteArrayOutputStream();
+        serializer.serializeAll(new LinkedList<>(events), out);
+        Assertions.assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void invalidEventShouldBeRejected() {
+        var events = events(100);
+        events.set(42, CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+            .eventId(EventId.of("some_event", "line\nbreak"))
+            .severity(5)
+            .build());
+
+        var serializer = CefBatchSerializer.builder().batchSize(10).build();
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> serializer.serializeAll(events));
+    }
+
+    private static String expected(List<CefEvent> events) {
+        var expected = new StringBuilder();
+        for (var event : events) {
+            expected.append(SERIALIZER.serialize(event)).append('\n');
+        }
+        return expected.toString();
+    }
+
+    private static List<CefEvent> events(int count) {
+        var events = new ArrayList<CefEvent>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(CefEvent.builder()
+                .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+                .eventId(EventId.of("some_event", "\u00c9v\u00e9nement " + i))
+                .severity(i % 11)
+                .extension(Extension.builder()
+                    .add("cnt", i)
+                    .add("msg", "x".repeat(i % 300))
+                    .build())
+                .build());
+        }
+        return events;
+    }
+}
@@ -0,0 +1,168 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CefFileFollowerTest {
+
+    private static final StdCefSerializer SERIALIZER = new StdCefSerializer();
+
+    @Test
+    void followerShouldDeliverAppendedCompleteLines() throws IOException {
+        var directory = Files.createTempDirectory("jcef-follower");
+        var file = directory.resolve("events.log");
+        var events = new ArrayList<CefEvent>();
+        try (var follower = CefFileFollower.builder(file, events::add)
+            .bufferSize(64)
+            .maxLineLength(1024)
+            .pollInterval(Duration.ZERO)
+            .open()) {
+            Assertions.assertEquals(0, follower.poll()); // file does not exist yet
+
+            append(file, line(0) + "\r\n" + line(1) + "\n");
+            Assertions.assertEquals(2, follower.poll());
+            Assertions.assertEquals(List.of(event(0), event(1)), events);
+
+            var partial = line(2);
+            append(file, partial.substring(0, 30));
+            Assertions.assertEquals(0, follower.poll());
+            append(file, partial.substring(30) + "\nmalformed\n" + "x".repeat(2000) + "\n");
+            Assertions.assertEquals(1, follower.poll());
+            append(file, line(3) + "\n");
+            Assertions.assertEquals(1, follower.poll());
+
+            Assertions.assertEquals(List.of(event(0), event(1), event(2), event(3)), events);
+            Assertions.assertEquals(2, follower.getMalformedLines());
+            Assertions.assertEquals(4, follower.getEventsRead());
+            Assertions.assertEquals(Files.size(file), follower.getOffset());
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void followerShouldHandleRotationAndTruncation() throws IOException {
+        var directory = Files.createTempDirectory("jcef-follower");
+        var file = directory.resolve("events.log");
+        var events = new ArrayList<CefEvent>();
+        try (var follower = CefFileFollower.builder(file, events::add)
+            .pollInterval(Duration.ZERO)
+            .open()) {
+            append(file, line(0) + "\n");
+            Assertions.assertEquals(1, follower.poll());
+
+            // last line of the rotated file has no line feed
+            append(file, line(1) + "\n" + line(2));
+            Files.move(file, directory.resolve("events.log.1"));
+            append(file, line(3) + "\n");
+            Assertions.assertEquals(3, follower.poll());
+            Assertions.assertEquals(1, follower.getRotations());
+
+            Files.delete(directory.resolve("events.log.1"));
+            Files.writeString(file, "", StandardOpenOption.TRUNCATE_EXISTING);
+            Assertions.assertEquals(0, follower.poll());
+            Assertions.assertEquals(1, follower.getTruncations());
+            Assertions.assertEquals(0, follower.getOffset());
+            append(file, line(4) + "\n");
+            Assertions.assertEquals(1, follower.poll());
+
+            Assertions.assertEquals(List.of(event(0), event(1), event(2), event(3), event(4)),
+                events);
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void reopenedFollowerShouldResumeFromCheckpoint() throws IOException {
+        var directory = Files.createTempDirectory("jcef-follower");
+        var file = directory.resolve("events.log");
+        var checkpoint = directory.resolve("events.checkpoint");
+        var events = new ArrayList<CefEvent>();
+        try {
+            append(file, line(0) + "\n" + line(1) + "\n" + line(2).substring(0, 10));
+            try (var follower = CefFileFollower.builder(file, events::add)
+                .checkpointFile(checkpoint)
+                .pollInterval(Duration.ZERO)
+                .open()) {
+                Assertions.assertEquals(2, follower.poll());
+            }
+
+            append(file, line(2).substring(10) + "\n" + line(3) + "\n");
+            try (var follower = CefFileFollower.builder(file, events::add)
+                .checkpointFile(checkpoint)
+                .pollInterval(Duration.ZERO)
+                .open()) {
+                Assertions.assertEquals(2, follower.poll());
+            }
+            Assertions.assertEquals(List.of(event(0), event(1), event(2), event(3)), events);
+
+            // checkpoint of another file is ignored
+            Files.delete(file);
+            append(file, line(4) + "\n");
+            events.clear();
+            try (var follower = CefFileFollower.builder(file, events::add)
+                .checkpointFile(checkpoint)
+                .pollInterval(Duration.ZERO)
+                .open()) {
+                Assertions.assertEquals(1, follower.poll());
+            }
+            Assertions.assertEquals(List.of(event(4)), events);
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void backgroundThreadShouldDeliverAppendedLines() throws Exception {
+        var directory = Files.createTempDirectory("jcef-follower");
+        var file = directory.resolve("events.log");
+        var events = new CopyOnWriteArrayList<CefEvent>();
+        append(file, "existing line, which is skipped\n");
+        try (var follower = CefFileFollower.builder(file, events::add)
+            .startAtEnd(true)
+            .pollInterval(Duration.ofMillis(50))
+            .open()) {
+            awaitEvents(events, 0);
+            append(file, line(0) + "\n");
+            awaitEvents(events, 1);
+            append(file, line(1) + "\n");
+            awaitEvents(events, 2);
+            Assertions.assertEquals(List.of(event(0), event(1)), events);
+            Assertions.assertEquals(0, follower.getMalformedLines());
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    private static void awaitEvents(List<CefEvent> events, int count) throws InterruptedException {
+        var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (events.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        Assertions.assertEquals(count, events.size());
+    }
+
+    private static void append(Path file, String content) throws IOException {
+        Files.writeString(file, content, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+    }
+
+    private static String line(int number) {
+        return SERIALIZER.serialize(event(number));
+    }
+
+    private static CefEvent event(int number) {
+        return TestSupport.event(number, "message number " + number + " with \u00e9 and \u20ac");
+    }
+}
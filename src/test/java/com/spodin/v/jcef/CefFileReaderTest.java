@@ -0,0 +1,52 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CefFileReaderTest {
+
+    private static final StdCefSerializer SERIALIZER = new StdCefSerializer();
+
+    @Test
+    void eventsShouldBeReadInOrderAndMalformedLinesCounted() throws IOException {
+        var events = new ArrayList<CefEvent>();
+        var content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            var event = TestSupport.event(i);
+            events.add(event);
+            SERIALIZER.serializeTo(event, content).append('\n');
+            if (i % 100 == 0) {
+                content.append("malformed line\n\n");
+            }
+        }
+
+        var file = Files.createTempFile("jcef", ".log");
+        try {
+            Files.writeString(file, content);
+            var reader = CefFileReader.builder(file).chunkSize(1024).build();
+
+            var statistics = new CefFileReader.Statistics();
+            List<CefEvent> ordered;
+            try (var stream = reader.stream(statistics)) {
+                ordered = stream.collect(Collectors.toList());
+            }
+            Assertions.assertEquals(events, ordered);
+            Assertions.assertEquals(1010, statistics.getLines());
+            Assertions.assertEquals(10, statistics.getMalformedLines());
+
+            Set<CefEvent> unordered = ConcurrentHashMap.newKeySet();
+            var readStatistics = reader.read(unordered::add);
+            Assertions.assertEquals(Set.copyOf(events), unordered);
+            Assertions.assertEquals(10, readStatistics.getMalformedLines());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks filter on randomly generated lines against filtering of the parsed events.
+ */
+public class CefFilterTest {
+
+    private static final int SAMPLES = 3_000;
+
+    private static final StdCefSerializer SERIALIZER = new StdCefSerializer();
+
+    private static final CefParser PARSER = new CefParser();
+
+    private static final String[] VENDORS = {"iPlatform", "Pipe|Corp", "Back\\slash", "Caf\u00e9"};
+
+    private static final String[] ACTIONS = {"blocked", "allowed", "a=b", "line\nbreak", "\u20ac"};
+
+    private static final String[] SEVERITIES = {"0", "3", "7", "10", "Low", "HIGH", "very-high"};
+
+    @Test
+    void filterShouldMatchSameLinesAsParsedEventPredicate() {
+        var filter = CefFilter.builder()
+            .vendor("iPlatform", "Pipe|Corp", "Caf\u00e9")
+            .minSeverity(7)
+            .extension("act", "blocked", "a=b", "line\nbreak")
+            .build();
+        assertSameAsParsed(filter, event -> !event.getDevice().getVendor().equals("Back\\slash")
+            && Severity.level(event.getSeverity()) >= 7
+            && Arrays.asList("blocked", "a=b", "line\nbreak")
+            .contains(event.getExtension().get("act")));
+
+        assertSameAsParsed(CefFilter.builder().vendor("Back\\slash").build(),
+            event -> event.getDevice().getVendor().equals("Back\\slash"));
+        assertSameAsParsed(CefFilter.builder().maxSeverity(4).name("Event 1").build(),
+            event -> Severity.level(event.getSeverity()) >= 0
+                && Severity.level(event.getSeverity()) <= 4
+                && event.getName().equals("Event 1"));
+        assertSameAsParsed(CefFilter.builder().extension("act").extension("dst", "10.0.0.1")
+                .extension("cs1Label", "\u20ac").build(),
+            event -> event.getExtension().containsKey("act")
+                && "10.0.0.1".equals(event.getExtension().get("dst"))
+                && "\u20ac".equals(event.getExtension().get("cs1Label")));
+        assertSameAsParsed(CefFilter.builder().build(), event -> true);
+    }
+
+    @Test
+    void lastOccurrenceOfExtensionKeyShouldCount() {
+        var filter = CefFilter.builder().extension("act", "blocked").build();
+        Assertions.assertTrue(filter.matches("CEF:0|v|p|1|id|name|5|act=allowed act=blocked"));
+        Assertions.assertFalse(filter.matches("CEF:0|v|p|1|id|name|5|act=blocked act=allowed"));
+        Assertions.assertTrue(filter.matches("CEF:0|v|p|1|id|name|5|act=blocked msg=a b c\r\n"));
+        Assertions.assertFalse(filter.matches("CEF:0|v|p|1|id|name|5|msg=act\\=blocked"));
+        Assertions.assertFalse(filter.matches("CEF:0|v|p|1|id|name|5|msg=x"));
+    }
+
+    @Test
+    void malformedLinesShouldNotMatch() {
+        var filter = CefFilter.builder().minSeverity(1).build();
+        Assertions.assertFalse(filter.matches(""));
+        Assertions.assertFalse(filter.matches("not a CEF line"));
+        Assertions.assertFalse(filter.matches("CEF:x|v|p|1|id|name|5|"));
+        Assertions.assertFalse(filter.matches("CEF:0|v|p|1|id|name"));
+        Assertions.assertFalse(filter.matches("CEF:0|v|p|1|id|name|unknown|"));
+        Assertions.assertTrue(filter.matches("Jan 18 11:07:53 host CEF:0|v|p|1|id|name|Medium|"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> CefFilter.builder().minSeverity(8).maxSeverity(7).build());
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> CefFilter.builder().vendor().build());
+    }
+
+    @Test
+    void fileReaderShouldParseOnlyMatchingLines() throws IOException {
+        var file = Files.createTempFile("jcef-filter", ".log");
+        try {
+            var lines = lines(new Random(3), 500);
+            Files.write(file, lines, StandardCharsets.UTF_8);
+            var filter = CefFilter.builder().vendor("Pipe|Corp").minSeverity(7).build();
+
+            var events = Collections.synchronizedList(new ArrayList<CefEvent>());
+            var statistics = CefFileReader.builder(file).filter(filter).chunkSize(4096).build()
+                .read(events::add);
+
+            var expected = lines.stream().map(PARSER::parse)
+                .filter(event -> event.getDevice().getVendor().equals("Pipe|Corp")
+                    && Severity.level(event.getSeverity()) >= 7)
+                .collect(Collectors.toSet());
+            Assertions.assertEquals(expected.size(), events.size());
+            Assertions.assertEquals(expected, Set.copyOf(events));
+            Assertions.assertEquals(lines.size() - events.size(), statistics.getFilteredLines());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertSameAsParsed(CefFilter filter, Predicate<CefEvent> predicate) {
+        var bytes = ByteBuffer.allocate(64 * 1024);
+        for (String line : lines(new Random(11), SAMPLES)) {
+            var expected = predicate.test(PARSER.parse(line));
+            Assertions.assertEquals(expected, filter.matches(line), line);
+
+            bytes.clear();
+            bytes.put("junk\n".getBytes(StandardCharsets.UTF_8));
+            int start = bytes.position();
+            bytes.put(line.getBytes(StandardCharsets.UTF_8)).flip().position(start);
+            Assertions.assertEquals(expected, filter.matches(bytes), line);
+            Assertions.assertEquals(start, bytes.position());
+        }
+    }
+
+    private static List<String> lines(Random random, int count) {
+        var lines = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            var extension = Extension.builder();
+            if (random.nextInt(4) > 0) {
+                extension.add("act", ACTIONS[random.nextInt(ACTIONS.length)]);
+            }
+            extension.add("msg", "message act=" + ACTIONS[random.nextInt(ACTIONS.length)]);
+            if (random.nextBoolean()) {
+                extension.add("dst", "10.0.0." + random.nextInt(3));
+            }
+            if (random.nextBoolean()) {
+                extension.add("cs1Label", ACTIONS[random.nextInt(ACTIONS.length)]);
+            }
+            lines.add(SERIALIZER.serialize(CefEvent.builder()
+                .device(Device.builder()
+                    .vendor(VENDORS[random.nextInt(VENDORS.length)])
+                    .product("USO")
+                    .version("1")
+                    .build())
+                .eventId(EventId.of("100", "Event " + random.nextInt(3)))
+                .severity(SEVERITIES[random.nextInt(SEVERITIES.length)])
+                .extension(extension.build())
+                .build()));
+        }
+        return lines;
+    }
+}
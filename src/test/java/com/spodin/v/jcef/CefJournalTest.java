@@ -0,0 +1,156 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CefJournalTest {
+
+    private static final CefSerializer<String> SERIALIZER = new StdCefSerializer();
+
+    @Test
+    void recordsShouldBeReadInOrderAcrossSegments() throws Exception {
+        var directory = Files.createTempDirectory("jcef-journal");
+        try {
+            try (var journal = CefJournal.builder(directory).segmentSize(512).open()) {
+                for (int i = 0; i < 20; i++) {
+                    journal.append(TestSupport.event(i));
+                }
+                Assertions.assertEquals(20, journal.getPendingCount());
+                Assertions.assertTrue(segmentCount(directory) > 1);
+
+                for (int i = 0; i < 20; i++) {
+                    Assertions.assertEquals(line(i), text(journal.read()));
+                }
+                Assertions.assertNull(journal.read());
+
+                journal.rewind();
+                Assertions.assertEquals(line(0), text(journal.read()));
+
+                journal.rewind();
+                for (int i = 0; i < 20; i++) {
+                    journal.read();
+                }
+                journal.acknowledge();
+                Assertions.assertEquals(0, journal.getPendingCount());
+                Assertions.assertEquals(1, segmentCount(directory));
+            }
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void readingShouldResumeFromFirstUnacknowledgedRecordAfterReopen() throws Exception {
+        var directory = Files.createTempDirectory("jcef-journal");
+        try {
+            try (var journal = CefJournal.builder(directory).segmentSize(512).open()) {
+                for (int i = 0; i < 10; i++) {
+                    journal.append(TestSupport.event(i));
+                }
+                for (int i = 0; i < 6; i++) {
+                    journal.read();
+                }
+                journal.acknowledge();
+                journal.read();
+            }
+
+            try (var journal = CefJournal.builder(directory).segmentSize(512).open()) {
+                Assertions.assertEquals(4, journal.getPendingCount());
+                journal.append(TestSupport.event(10));
+                for (int i = 6; i <= 10; i++) {
+                    Assertions.assertEquals(line(i), text(journal.read()));
+                }
+                Assertions.assertNull(journal.read());
+            }
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void tornTailShouldBeTruncatedOnRecovery() throws Exception {
+        var directory = Files.createTempDirectory("jcef-journal");
+        try {
+            try (var journal = CefJournal.builder(directory).open()) {
+                for (int i = 0; i < 3; i++) {
+                    journal.append(TestSupport.event(i));
+                }
+            }
+
+            // damages the last byte of the third record
+            int offset = 8;
+            for (int i = 0; i < 3; i++) {
+                offset += 8 + utf8Length(line(i));
+            }
+            var segment = segments(directory).get(0);
+            try (var channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{'#'}), offset - 1);
+            }
+
+            try (var journal = CefJournal.builder(directory).open()) {
+                Assertions.assertEquals(2, journal.getPendingCount());
+                journal.append(TestSupport.event(3));
+
+                List<String> records = new ArrayList<>();
+                for (var record = journal.read(); record != null; record = journal.read()) {
+                    records.add(text(record));
+                }
+                Assertions.assertEquals(List.of(line(0), line(1), line(3)), records);
+            }
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void appendShouldFailWhenDiskBudgetIsExhausted() throws Exception {
+        var directory = Files.createTempDirectory("jcef-journal");
+        try {
+            try (var journal = CefJournal.builder(directory).segmentSize(512).maxDiskSize(1024)
+                .open()) {
+                Assertions.assertThrows(IOException.class, () -> {
+                    for (int i = 0; i < 100; i++) {
+                        journal.append(TestSupport.event(i));
+                    }
+                });
+                Assertions.assertEquals(2, segmentCount(directory));
+                Assertions.assertEquals(1024, journal.getDiskUsage());
+            }
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    private static int segmentCount(Path directory) throws IOException {
+        return segments(directory).size();
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static String line(int number) {
+        return SERIALIZER.serialize(TestSupport.event(number));
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static String text(ByteBuffer record) {
+        return StandardCharsets.UTF_8.decode(record).toString();
+    }
+}
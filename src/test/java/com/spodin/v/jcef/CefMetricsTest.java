@@ -0,0 +1,153 @@
+package com.spodin.v.jcef;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CefMetricsTest {
+
+    private static final CefEvent EVENT = CefEvent.builder()
+        .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+        .eventId(EventId.of("some_event", "This event has been occurred"))
+        .severity("High")
+        .extension(Extension.builder().add("msg", "a=b").add("cs1", "clean").build())
+        .build();
+
+    @Test
+    void serializationShouldBeCounted() {
+        var metrics = CefMetrics.global();
+        var serializer = new StdCefSerializer();
+        long events = metrics.getEventsSerialized();
+        long chars = metrics.getCharsProduced();
+        long bytes = metrics.getBytesProduced();
+        long escaped = metrics.getValuesEscaped();
+        long invalidKeys = metrics.getFailures(CefMetrics.Failure.INVALID_EXTENSION_KEY);
+
+        var line = serializer.serialize(EVENT);
+        serializer.serializeTo(EVENT, ByteBuffer.allocate(256));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> serializer.serialize(
+            CefEvent.builder()
+                .device(EVENT.getDevice())
+                .eventId(EVENT.getEventId())
+                .severity("Low")
+                .extension(Extension.builder().add("bad key", "value").build())
+                .build()));
+
+        Assertions.assertEquals(events + 2, metrics.getEventsSerialized());
+        Assertions.assertEquals(chars + line.length(), metrics.getCharsProduced());
+        Assertions.assertEquals(bytes + line.length(), metrics.getBytesProduced());
+        Assertions.assertEquals(escaped + 2, metrics.getValuesEscaped());
+        Assertions.assertEquals(invalidKeys + 1,
+            metrics.getFailures(CefMetrics.Failure.INVALID_EXTENSION_KEY));
+    }
+
+    @Test
+    void serializationInSeveralFormatsShouldCountCefOutput() {
+        var metrics = CefMetrics.global();
+        var serializer = MultiFormatCefSerializer.of(new StdCefSerializer(),
+            new JsonCefSerializer());
+        long events = metrics.getEventsSerialized();
+        long chars = metrics.getCharsProduced();
+        long bytes = metrics.getBytesProduced();
+
+        var line = serializer.serialize(EVENT).get(0);
+        serializer.serializeTo(EVENT, ByteBuffer.allocate(1024), ByteBuffer.allocate(1024));
+        serializer.serializeTo(EVENT, ByteBuffer.allocate(1024), ByteBuffer.allocate(16));
+
+        Assertions.assertEquals(events + 2, metrics.getEventsSerialized());
+        Assertions.assertEquals(chars + line.length(), metrics.getCharsProduced());
+        Assertions.assertEquals(bytes + line.length(), metrics.getBytesProduced());
+    }
+
+    @Test
+    void latencyShouldBeRecordedOnlyWhenEnabled() {
+        var metrics = CefMetrics.global();
+        var serializer = new StdCefSerializer();
+        long count = metrics.getLatencyCount();
+
+        serializer.serialize(EVENT);
+        Assertions.assertEquals(count, metrics.getLatencyCount());
+
+        metrics.setLatencyEnabled(true);
+        try {
+            serializer.serialize(EVENT);
+        } finally {
+            metrics.setLatencyEnabled(false);
+        }
+        Assertions.assertEquals(count + 1, metrics.getLatencyCount());
+        Assertions.assertTrue(metrics.getLatencyMaxNanos() > 0);
+    }
+
+    @Test
+    void histogramShouldReportPercentilesWithBoundedError() {
+        var histogram = new LatencyHistogram();
+        Assertions.assertEquals(0, histogram.getValueAtPercentile(99));
+
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        Assertions.assertEquals(100_000, histogram.getCount());
+        Assertions.assertEquals(100_000, histogram.getMax());
+        Assertions.assertEquals(50_000.5, histogram.getMean(), 0.001);
+
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+            long expected = (long) (percentile * 1000);
+            long actual = histogram.getValueAtPercentile(percentile);
+            Assertions.assertTrue(actual >= expected && actual <= expected * 17 / 16,
+                percentile + "th percentile is " + actual);
+        }
+        Assertions.assertEquals(100_000, histogram.getValueAtPercentile(100));
+
+        for (int index = 0; index < LatencyHistogram.indexOf(1L << 20); index++) {
+            Assertions.assertEquals(index,
+                LatencyHistogram.indexOf(LatencyHistogram.highestValueOf(index)));
+            Assertions.assertEquals(index + 1,
+                LatencyHistogram.indexOf(LatencyHistogram.highestValueOf(index) + 1));
+        }
+    }
+
+    @Test
+    void metricsShouldBeExposedThroughJmx() throws Exception {
+        CefMetrics.registerMBean();
+        CefMetrics.registerMBean();
+
+        new StdCefSerializer().serialize(EVENT);
+        var server = ManagementFactory.getPlatformMBeanServer();
+        long events = (Long) server.getAttribute(
+            new ObjectName(CefMetrics.OBJECT_NAME), "EventsSerialized");
+        Assertions.assertTrue(events > 0);
+    }
+
+    @Test
+    void serializationShouldBeRecordedByFlightRecorderWhenEnabled() throws Exception {
+        // disabled event is not allocated on the serialization path
+        Assertions.assertNull(CefSerializationEvent.start());
+
+        var file = Files.createTempFile("jcef", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable(CefSerializationEvent.NAME);
+            recording.start();
+            Assertions.assertNotNull(CefSerializationEvent.start());
+            new StdCefSerializer().serialize(EVENT);
+            MultiFormatCefSerializer.of(new StdCefSerializer(), new JsonCefSerializer())
+                .serialize(EVENT);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        Assertions.assertEquals(2, events.size());
+        for (var event : events) {
+            Assertions.assertEquals("some_event", event.getString("eventClassId"));
+            Assertions.assertEquals(2, event.getInt("fields"));
+            Assertions.assertFalse(event.getBoolean("failed"));
+        }
+        Assertions.assertEquals(events.get(0).getLong("size"), events.get(1).getLong("size"));
+    }
+}
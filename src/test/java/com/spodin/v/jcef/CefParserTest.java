@@ -0,0 +1,85 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CefParserTest {
+
+    private static final CefParser PARSER = new CefParser();
+
+    private static final CefSerializer<String> SERIALIZER = new StdCefSerializer();
+
+    @Test
+    void parsedEventShouldBeEqualToSerializedOne() {
+        var event = CefEvent.builder()
+            .device(Device.builder().vendor("i|Platform").product("US\\O").version("1").build())
+            .eventId(EventId.of("some_event", "This event has been occurred"))
+            .extension(Extension.builder()
+                .add("msg", "multi\r\nline = value ")
+                .add("k=y", "")
+                .add("source", "my server")
+                .build())
+            .severity(10)
+            .build();
+
+        var line = SERIALIZER.serialize(event);
+        Assertions.assertEquals(event, PARSER.parse(line));
+        Assertions.assertEquals(event, PARSER.parse(new StringBuilder(line)));
+        Assertions.assertEquals(event, PARSER.parse(CharBuffer.wrap(line)));
+    }
+
+    @Test
+    void syslogHeaderShouldBeIgnored() {
+        var event = PARSER.parse(
+            "Jan 18 11:07:53 host CEF:1|iPlatform|USO|1|some_event|Occurred|Low|src=10.0.0.1\n");
+
+        Assertions.assertEquals(1, event.getVersion());
+        Assertions.assertEquals("iPlatform", event.getDevice().getVendor());
+        Assertions.assertEquals("Low", event.getSeverity());
+        Assertions.assertEquals("10.0.0.1", event.getExtension().get("src"));
+    }
+
+    @Test
+    void emptyExtensionShouldBeParsed() {
+        var event = PARSER.parse("CEF:0|iPlatform|USO|1|some_event|Occurred|10|");
+
+        Assertions.assertEquals(Extension.empty(), event.getExtension());
+    }
+
+    @Test
+    void malformedLineShouldBeRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> PARSER.parse("Jan 18 11:07:53 host"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> PARSER.parse("CEF:0|iPlatform|USO|1|some_event"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> PARSER.parse("CEF:0|iPlatform|USO|1|some_event|Occurred|10|no key"));
+    }
+
+    @Test
+    void lazyEventShouldExtractRequestedFields() {
+        var line = "CEF:0|i\\|Platform|USO|1|some_event|Occurred|7|act=blocked src=10.0.0.1 "
+            + "msg=a\\=b c act=allowed";
+
+        for (var event : new LazyCefEvent[]{PARSER.parseLazily(line),
+            PARSER.parseLazily(new StringBuilder(line)), PARSER.parseLazily(CharBuffer.wrap(line)),
+            PARSER.parseLazily(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8))),
+            PARSER.parseLazily(direct(line.getBytes(StandardCharsets.UTF_8)))}) {
+            Assertions.assertEquals("i|Platform", event.getVendor());
+            Assertions.assertEquals("some_event", event.getId());
+            Assertions.assertEquals("7", event.getSeverity());
+            Assertions.assertEquals("a=b c", event.getExtensionValue("msg"));
+            Assertions.assertEquals("allowed", event.getExtensionValue("act"));
+            Assertions.assertNull(event.getExtensionValue("dst"));
+            Assertions.assertEquals(4, event.getExtensionSize());
+            Assertions.assertEquals(PARSER.parse(line), event.materialize());
+        }
+    }
+
+    private static ByteBuffer direct(byte[] bytes) {
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+}
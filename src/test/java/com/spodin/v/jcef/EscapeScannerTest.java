@@ -0,0 +1,111 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks escaping on randomly generated values against straightforward reference implementations
+ * of the CEF rules, and vectorized scanner, if it is available, against the scalar one.
+ */
+public class EscapeScannerTest {
+
+    private static final int SAMPLES = 5_000;
+
+    /**
+     * Characters values are made of; special characters are frequent enough to appear both at
+     * vector boundaries and in long runs.
+     */
+    private static final char[] ALPHABET = {
+        'a', 'b', 'z', '0', ' ', '\t', '=', '|', '\\', '\r', '\n', '\u00e9', '\u20ac', '\ud83d'
+    };
+
+    @Test
+    void vectorizedScannerShouldMatchScalarOne() {
+        var best = EscapeScanner.best();
+        Assumptions.assumeTrue(best != EscapeScanner.scalar(),
+            "jdk.incubator.vector module is not available");
+
+        var scalar = EscapeScanner.scalar();
+        var random = new Random(42);
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            var value = randomValue(random);
+            int from = (value.isEmpty() ? 0 : random.nextInt(value.length() + 1));
+            Assertions.assertEquals(scalar.indexOfFieldEscape(value, from),
+                best.indexOfFieldEscape(value, from), value);
+            Assertions.assertEquals(scalar.indexOfExtensionValueEscape(value, from),
+                best.indexOfExtensionValueEscape(value, from), value);
+        }
+    }
+
+    @Test
+    void escapingShouldMatchReferenceImplementation() throws IOException {
+        var random = new Random(7);
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            var value = randomValue(random);
+
+            var expectedValue = referenceEscapeExtensionValue(value);
+            Assertions.assertEquals(expectedValue, StringUtils.escapeExtensionValue(value));
+            var out = new StringBuilder();
+            StringUtils.escapeExtensionValue(value, out);
+            Assertions.assertEquals(expectedValue, out.toString());
+
+            var expectedField = referenceEscapeField(value);
+            if (expectedField == null) {
+                Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> StringUtils.escapeField(value));
+                Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> StringUtils.escapeField(value, new StringBuilder()));
+            } else {
+                Assertions.assertEquals(expectedField, StringUtils.escapeField(value));
+                out.setLength(0);
+                StringUtils.escapeField(value, out);
+                Assertions.assertEquals(expectedField, out.toString());
+            }
+        }
+    }
+
+    @Test
+    void valuesWithoutEscapesShouldBeReturnedAsIs() {
+        var value = "clean value ".repeat(500);
+        Assertions.assertSame(value, StringUtils.escapeExtensionValue(value));
+        Assertions.assertSame(value, StringUtils.escapeField(value));
+    }
+
+    private static String randomValue(Random random) {
+        final int length;
+        switch (random.nextInt(4)) {
+            case 0:
+                length = random.nextInt(16);
+                break;
+            case 1:
+                length = random.nextInt(256);
+                break;
+            default:
+                length = random.nextInt(4096);
+        }
+
+        // most long values are mostly clean, with rare characters to escape
+        final int special = 1 + random.nextInt(length + 1);
+        final char[] letters = new char[length];
+        for (int i = 0; i < length; i++) {
+            letters[i] = (random.nextInt(special) == 0 ? ALPHABET[random.nextInt(ALPHABET.length)]
+                : (char) ('a' + random.nextInt(26)));
+        }
+        return new String(letters);
+    }
+
+    private static String referenceEscapeExtensionValue(String value) {
+        return value.replace("\\", "\\\\").replace("=", "\\=").replace("\r", "\\r")
+            .replace("\n", "\\n");
+    }
+
+    private static String referenceEscapeField(String value) {
+        if (value.indexOf('\r') >= 0 || value.indexOf('\n') >= 0) {
+            return null;
+        }
+        return value.replace("\\", "\\\\").replace("|", "\\|");
+    }
+}
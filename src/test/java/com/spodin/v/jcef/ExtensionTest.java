@@ -0,0 +1,83 @@
+package com.spodin.v.jcef;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ExtensionTest {
+
+    @Test
+    void fieldsShouldKeepInsertionOrderAndReplaceRepeatedKeys() {
+        var extension = Extension.builder()
+            .add("src", "10.0.0.1")
+            .add("custom", "a")
+            .add("dst", "10.0.0.2")
+            .add("src", "10.0.0.3")
+            .add("custom", "b")
+            .build();
+
+        Assertions.assertEquals(3, extension.size());
+        Assertions.assertEquals("10.0.0.3", extension.get("src"));
+        Assertions.assertEquals("b", extension.get("custom"));
+        Assertions.assertNull(extension.get("spt"));
+        Assertions.assertEquals("Extension{fields={src=10.0.0.3, custom=b, dst=10.0.0.2}}",
+            extension.toString());
+    }
+
+    @Test
+    void standardKeysShouldBeIdentifiedByDictionary() {
+        var extension = Extension.builder().add(new String("msg"), "a").add("message", "b").build();
+
+        Assertions.assertSame(ExtensionKeys.keyOf(ExtensionKeys.idOf("msg")), extension.keyAt(0));
+        Assertions.assertEquals(ExtensionKeys.CUSTOM, extension.keyIdAt(1));
+    }
+
+    @Test
+    void equalityShouldNotDependOnFieldsOrder() {
+        var first = Extension.builder().add("src", "10.0.0.1").add("custom", "a").build();
+        var second = Extension.builder().add("custom", "a").add("src", "10.0.0.1").build();
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(first.hashCode(), second.hashCode());
+        Assertions.assertNotEquals(first, Extension.builder().add("src", "10.0.0.1").build());
+    }
+
+    @Test
+    void typedValuesShouldBeFormattedAsText() throws UnknownHostException {
+        var ipv4 = InetAddress.getByName("10.91.161.67");
+        var ipv6 = InetAddress.getByName("fe80::1:ab0:0:cdef");
+        var extension = Extension.builder()
+            .add("cnt", 42)
+            .add("in", Long.MIN_VALUE)
+            .addTimestamp("rt", 1642504073000L)
+            .addIp("src", ipv4)
+            .addIp("dst", ipv6.getAddress())
+            .build();
+
+        Assertions.assertEquals("42", extension.get("cnt"));
+        Assertions.assertEquals(Long.toString(Long.MIN_VALUE), extension.get("in"));
+        Assertions.assertEquals("1642504073000", extension.get("rt"));
+        Assertions.assertEquals(ipv4.getHostAddress(), extension.get("src"));
+        Assertions.assertEquals(ipv6.getHostAddress(), extension.get("dst"));
+        Assertions.assertEquals(
+            Extension.builder()
+                .add("cnt", "42")
+                .add("in", Long.toString(Long.MIN_VALUE))
+                .add("rt", "1642504073000")
+                .add("src", "10.91.161.67")
+                .add("dst", "fe80:0:0:0:1:ab0:0:cdef")
+                .build(),
+            extension);
+    }
+
+    @Test
+    void typedValueShouldReplaceStringOne() {
+        var extension = Extension.builder().add("cnt", "many").add("cnt", 0).add("spt", 1).build();
+
+        Assertions.assertEquals("0", extension.get("cnt"));
+        Assertions.assertEquals("1", extension.get("spt"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> Extension.builder().addIp("src", new byte[5]));
+    }
+}
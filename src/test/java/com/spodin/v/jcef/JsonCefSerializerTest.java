@@ -0,0 +1,82 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class JsonCefSerializerTest {
+
+    private static final JsonCefSerializer SERIALIZER = new JsonCefSerializer();
+
+    @Test
+    void eventShouldBeSerializedToJsonObject() {
+        var event = CefEvent.builder()
+            .device(Device.builder().vendor("i\"Platform").product("USO").version("1.0").build())
+            .eventId(EventId.of("login", "User\\logged in"))
+            .severity("High")
+            .extension(Extension.builder()
+                .add("msg", "line\nbreak\ttab \u0001 caf\u00e9")
+                .add("cnt", 5)
+                .addTimestamp("rt", 1_600_000_000_000L)
+                .add("custom=key", "value")
+                .build())
+            .build();
+
+        Assertions.assertEquals("{\"version\":0,\"deviceVendor\":\"i\\\"Platform\","
+            + "\"deviceProduct\":\"USO\",\"deviceVersion\":\"1.0\","
+            + "\"deviceEventClassId\":\"login\",\"name\":\"User\\\\logged in\","
+            + "\"severity\":\"High\",\"extension\":{"
+            + "\"msg\":\"line\\nbreak\\ttab \\u0001 caf\u00e9\",\"cnt\":\"5\","
+            + "\"rt\":\"1600000000000\",\"custom=key\":\"value\"}}",
+            SERIALIZER.serialize(event));
+    }
+
+    @Test
+    void outputsShouldBeIdenticalAndBuffersReusable() {
+        var event = CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1.0").build())
+            .eventId(EventId.of("100", "Event"))
+            .severity(7)
+            .extension(Extension.empty())
+            .build();
+        var expected = "{\"version\":0,\"deviceVendor\":\"iPlatform\",\"deviceProduct\":\"USO\","
+            + "\"deviceVersion\":\"1.0\",\"deviceEventClassId\":\"100\",\"name\":\"Event\","
+            + "\"severity\":\"7\",\"extension\":{}}";
+        Assertions.assertEquals(expected, SERIALIZER.serialize(event));
+
+        var builder = new StringBuilder("prefix ");
+        Assertions.assertEquals("prefix " + expected,
+            SERIALIZER.serializeTo(event, builder).toString());
+
+        var buffer = ByteBuffer.allocateDirect(expected.length());
+        Assertions.assertTrue(SERIALIZER.serializeTo(event, buffer));
+        Assertions.assertFalse(SERIALIZER.serializeTo(event, buffer));
+        Assertions.assertEquals(expected.length(), buffer.position());
+        Assertions.assertEquals(expected, StandardCharsets.UTF_8.decode(buffer.flip()).toString());
+
+        var mutable = new MutableCefEvent()
+            .device("iPlatform", "USO", "1.0")
+            .eventId("100", "Event")
+            .severity(7);
+        builder.setLength(0);
+        Assertions.assertEquals(expected, SERIALIZER.serializeTo(mutable, builder).toString());
+    }
+
+    @Test
+    void customEscapeTableShouldBeApplied() {
+        var serializer = new JsonCefSerializer(EscapeTable.json().toBuilder()
+            .escape('/', "\\/")
+            .build());
+        var event = CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1.0").build())
+            .eventId(EventId.of("100", "Event"))
+            .severity(7)
+            .extension(Extension.builder().add("request", "https://example.com/").build())
+            .build();
+        Assertions.assertTrue(serializer.serialize(event)
+            .endsWith("\"extension\":{\"request\":\"https:\\/\\/example.com\\/\"}}"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> EscapeTable.builder().escape('\u00e9', "e"));
+    }
+}
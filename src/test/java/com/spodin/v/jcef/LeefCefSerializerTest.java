@@ -0,0 +1,53 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LeefCefSerializerTest {
+
+    private static final CefEvent EVENT = CefEvent.builder()
+        .device(Device.builder().vendor("i|Platform").product("USO").version("1.0").build())
+        .eventId(EventId.of("login", "User logged in"))
+        .severity("Very-High")
+        .extension(Extension.builder()
+            .add("suser", "admin")
+            .add("spt", 51234)
+            .add("src", "10.0.0.1")
+            .add("msg", "tab\there\\ and\nline break")
+            .add("custom=key", "a=b")
+            .build())
+        .build();
+
+    @Test
+    void eventShouldBeSerializedWithTabDelimiter() {
+        var serializer = LeefCefSerializer.builder().build();
+        var expected = "LEEF:2.0|i\\|Platform|USO|1.0|login|x09|sev=9\tname=User logged in"
+            + "\tusrName=admin\tsrcPort=51234\tsrc=10.0.0.1\tmsg=tab\\there\\\\ and\\nline break"
+            + "\tcustom\\=key=a=b";
+        Assertions.assertEquals(expected, serializer.serialize(EVENT));
+
+        var buffer = ByteBuffer.allocate(expected.length());
+        Assertions.assertTrue(serializer.serializeTo(EVENT, buffer));
+        Assertions.assertEquals(expected, new String(buffer.array(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void customDelimiterShouldBeDeclaredAndEscaped() {
+        var serializer = LeefCefSerializer.builder().delimiter('^').build();
+        var event = CefEvent.builder()
+            .device(EVENT.getDevice())
+            .eventId(EventId.of("100", "a^b"))
+            .severity("unknown")
+            .extension(Extension.builder().add("act", "x^y").build())
+            .build();
+        Assertions.assertEquals("LEEF:2.0|i\\|Platform|USO|1.0|100|^|name=a\\^b^act=x\\^y",
+            serializer.serialize(event));
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> LeefCefSerializer.builder().delimiter('=').build());
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> LeefCefSerializer.builder().delimiter('a').build());
+    }
+}
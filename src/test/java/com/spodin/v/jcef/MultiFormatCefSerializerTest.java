@@ -0,0 +1,83 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MultiFormatCefSerializerTest {
+
+    private static final StdCefSerializer CEF = new StdCefSerializer();
+
+    private static final LeefCefSerializer LEEF = LeefCefSerializer.builder().build();
+
+    private static final JsonCefSerializer JSON = new JsonCefSerializer();
+
+    private static final CefEvent EVENT = CefEvent.builder()
+        .device(Device.builder().vendor("iPlatform").product("USO").version("1.0").build())
+        .eventId(EventId.of("100", "Access denied"))
+        .severity(7)
+        .extension(Extension.builder()
+            .add("act", "blocked=true")
+            .addIp("src", new byte[] {10, 0, 0, 1})
+            .add("msg", "line\nbreak \u20ac")
+            .add("cnt", 3)
+            .build())
+        .build();
+
+    @Test
+    void eachFormatShouldMatchItsSerializer() {
+        var serializer = MultiFormatCefSerializer.of(CEF, LEEF, JSON);
+        var expected = List.of(CEF.serialize(EVENT), LEEF.serialize(EVENT), JSON.serialize(EVENT));
+        Assertions.assertEquals(expected, serializer.serialize(EVENT));
+
+        var builders = new StringBuilder[] {new StringBuilder(), new StringBuilder(),
+            new StringBuilder()};
+        serializer.serializeTo(EVENT, builders);
+        for (int i = 0; i < builders.length; i++) {
+            Assertions.assertEquals(expected.get(i), builders[i].toString());
+        }
+
+        var buffers = new ByteBuffer[] {ByteBuffer.allocate(1024), ByteBuffer.allocateDirect(1024),
+            ByteBuffer.allocate(1024)};
+        Assertions.assertTrue(serializer.serializeTo(EVENT, buffers));
+        for (int i = 0; i < buffers.length; i++) {
+            Assertions.assertEquals(expected.get(i),
+                StandardCharsets.UTF_8.decode(buffers[i].flip()).toString());
+        }
+
+        var cached =
+            MultiFormatCefSerializer.of(new StdCefSerializer(new CefPrefixCache(16)), JSON);
+        Assertions.assertEquals(List.of(expected.get(0), expected.get(2)),
+            cached.serialize(EVENT));
+    }
+
+    @Test
+    void eventShouldBeWrittenIntoAllOutputsOrNone() {
+        var serializer = MultiFormatCefSerializer.of(CEF, JSON);
+
+        var buffers = new ByteBuffer[] {ByteBuffer.allocate(1024), ByteBuffer.allocate(16)};
+        buffers[0].put((byte) 'x');
+        Assertions.assertFalse(serializer.serializeTo(EVENT, buffers));
+        Assertions.assertEquals(1, buffers[0].position());
+        Assertions.assertEquals(0, buffers[1].position());
+
+        var invalid = CefEvent.builder()
+            .device(Device.builder().vendor("line\nbreak").product("USO").version("1.0").build())
+            .eventId(EventId.of("100", "Event"))
+            .severity(7)
+            .extension(Extension.empty())
+            .build();
+        var builders = new StringBuilder[] {new StringBuilder("a"), new StringBuilder("b")};
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> serializer.serializeTo(invalid, builders));
+        Assertions.assertEquals("a", builders[0].toString());
+        Assertions.assertEquals("b", builders[1].toString());
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> serializer.serializeTo(EVENT, new StringBuilder()));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> MultiFormatCefSerializer.of(SyslogCefSerializer.builder().hostname("h").build()));
+    }
+}
@@ -0,0 +1,123 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MutableCefEventTest {
+
+    private static final CefEvent EVENT = CefEvent.builder()
+        .device(Device.builder().vendor("iPlatform").product("USO|Core").version("1.0").build())
+        .eventId(EventId.of("some_event", "This event has been occurred"))
+        .severity("7")
+        .extension(Extension.builder()
+            .add("msg", "a=b\nc")
+            .add("cnt", 42)
+            .addTimestamp("rt", 1_600_000_000_000L)
+            .addIp("src", new byte[]{10, 0, 0, 1})
+            .build())
+        .build();
+
+    private static MutableCefEvent fill(MutableCefEvent event) {
+        return event
+            .device("iPlatform", "USO|Core", "1.0")
+            .eventId("some_event", "This event has been occurred")
+            .severity(7)
+            .add("msg", "a=b\nc")
+            .add("cnt", 42)
+            .addTimestamp("rt", 1_600_000_000_000L)
+            .addIp("src", new byte[]{10, 0, 0, 1});
+    }
+
+    @Test
+    void outputShouldBeIdenticalToImmutableEvent() throws Exception {
+        for (var serializer : new StdCefSerializer[]{
+            new StdCefSerializer(), new StdCefSerializer(new CefPrefixCache(16))}) {
+            var expected = serializer.serialize(EVENT);
+            var event = fill(MutableCefEvent.local());
+
+            Assertions.assertEquals(expected,
+                serializer.serializeTo(event, new StringBuilder()).toString());
+
+            var buffer = ByteBuffer.allocate(256);
+            Assertions.assertTrue(serializer.serializeTo(event, buffer));
+            Assertions.assertEquals(expected,
+                new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+
+            var appendable = new StringBuilder();
+            serializer.serializeTo(event, (Appendable) appendable);
+            Assertions.assertEquals(expected, appendable.toString());
+        }
+    }
+
+    @Test
+    void eventShouldBeReusableAfterReset() {
+        var serializer = new StdCefSerializer();
+        var event = fill(new MutableCefEvent());
+        var device = event.getDevice();
+        var eventId = event.getEventId();
+        serializer.serializeTo(event, new StringBuilder());
+
+        event.reset()
+            .device("iPlatform", "USO|Core", "1.0")
+            .eventId("some_event", "This event has been occurred")
+            .severity("Low")
+            .add("cs1", "value");
+        Assertions.assertSame(device, event.getDevice());
+        Assertions.assertSame(eventId, event.getEventId());
+        Assertions.assertNull(event.get("msg"));
+        Assertions.assertEquals("CEF:0|iPlatform|USO\\|Core|1.0|some_event|"
+                + "This event has been occurred|Low|cs1=value",
+            serializer.serializeTo(event, new StringBuilder()).toString());
+
+        Assertions.assertSame(MutableCefEvent.local(), MutableCefEvent.local());
+        Assertions.assertNull(fill(MutableCefEvent.local()).reset().getDevice());
+    }
+
+    @Test
+    void eventShouldBeValidatedAsImmutableOne() {
+        var serializer = new StdCefSerializer();
+        var out = new StringBuilder("previous");
+
+        var exception = Assertions.assertThrows(IllegalArgumentException.class,
+            () -> serializer.serializeTo(new MutableCefEvent()
+                .eventId("id", "name")
+                .severity(1), out));
+        Assertions.assertEquals("Device is required", exception.getMessage());
+        Assertions.assertEquals("previous", out.toString());
+
+        exception = Assertions.assertThrows(IllegalArgumentException.class,
+            () -> fill(new MutableCefEvent()).severity(" ").toEvent());
+        Assertions.assertEquals("Severity is required", exception.getMessage());
+
+        exception = Assertions.assertThrows(IllegalArgumentException.class,
+            () -> fill(new MutableCefEvent()).version(-1).validate());
+        Assertions.assertEquals("Version must be >= 0", exception.getMessage());
+    }
+
+    @Test
+    void devicesAndEventIdsShouldBeInterned() {
+        var device = Device.intern("iPlatform", "USO", "2.0");
+        Assertions.assertSame(device, Device.intern("iPlatform", "USO", "2.0"));
+        Assertions.assertEquals(
+            Device.builder().vendor("iPlatform").product("USO").version("2.0").build(), device);
+
+        var eventId = EventId.intern("id", "name");
+        Assertions.assertSame(eventId, EventId.intern("id", "name"));
+        Assertions.assertEquals(EventId.of("id", "name"), eventId);
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> EventId.intern("id", null));
+    }
+
+    @Test
+    void immutableEventShouldBeEqualToEquivalentOne() {
+        var event = fill(new MutableCefEvent());
+        var immutable = event.toEvent();
+        event.reset();
+
+        Assertions.assertEquals(EVENT, immutable);
+        Assertions.assertEquals("10.0.0.1", immutable.getExtension().get("src"));
+    }
+}
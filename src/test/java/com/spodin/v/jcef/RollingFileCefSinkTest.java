@@ -0,0 +1,186 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RollingFileCefSinkTest {
+
+    private static final CefSerializer<String> SERIALIZER = new StdCefSerializer();
+
+    @Test
+    void fileShouldBeRolledBySize() throws Exception {
+        var directory = Files.createTempDirectory("jcef-file");
+        try {
+            var clock = new MutableClock();
+            var sink = RollingFileCefSink.builder(directory.resolve("events.log"))
+                .maxFileSize(150)
+                .bufferSize(256)
+                .bufferCount(2)
+                .fsyncPolicy(RollingFileCefSink.FsyncPolicy.everyBatch())
+                .clock(clock)
+                .build();
+            for (int i = 0; i < 10; i++) {
+                sink.write(TestSupport.event(i));
+            }
+            sink.close();
+
+            var files = List.of(directory.resolve("events-20211007-090503.log"),
+                directory.resolve("events-20211007-090503-1.log"),
+                directory.resolve("events-20211007-090503-2.log"),
+                directory.resolve("events-20211007-090503-3.log"),
+                directory.resolve("events.log"));
+            Assertions.assertEquals(files.size(), list(directory).size());
+
+            var lines = new ArrayList<String>();
+            for (var file : files) {
+                Assertions.assertTrue(Files.size(file) <= 150);
+                lines.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+            }
+            Assertions.assertEquals(expectedLines(0, 10), lines);
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void rolledFileShouldBeCompressedByTime() throws Exception {
+        var directory = Files.createTempDirectory("jcef-file");
+        try {
+            var clock = new MutableClock();
+            var sink = RollingFileCefSink.builder(directory.resolve("events"))
+                .rollInterval(Duration.ofMinutes(1))
+                .compress(true)
+                .clock(clock)
+                .build();
+            sink.write(TestSupport.event(0));
+            sink.write(TestSupport.event(1));
+            clock.advance(Duration.ofMinutes(1));
+            sink.write(TestSupport.event(2));
+            sink.close();
+
+            Assertions.assertEquals(2, list(directory).size());
+            var compressed = directory.resolve("events-20211007-090603.gz");
+            try (var in = new GZIPInputStream(Files.newInputStream(compressed))) {
+                Assertions.assertEquals(String.join("\n", expectedLines(0, 2)) + "\n",
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            Assertions.assertEquals(expectedLines(2, 3),
+                Files.readAllLines(directory.resolve("events"), StandardCharsets.UTF_8));
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void eventsLargerThanBufferShouldBeWrittenInOrder() throws Exception {
+        var directory = Files.createTempDirectory("jcef-file");
+        try {
+            var path = directory.resolve("events.log");
+            var sink = RollingFileCefSink.builder(path).bufferSize(96).bufferCount(3).build();
+            var expected = new ArrayList<String>();
+            for (int i = 0; i < 20; i++) {
+                var event = (i % 3 == 0 ? TestSupport.event(i, "x".repeat(100))
+                    : TestSupport.event(i));
+                sink.write(event);
+                expected.add(SERIALIZER.serialize(event));
+                if (i % 7 == 0) {
+                    sink.flush();
+                }
+            }
+            sink.close();
+
+            Assertions.assertEquals(expected, Files.readAllLines(path, StandardCharsets.UTF_8));
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void batchesShouldBeForcedWithoutFlush() throws Exception {
+        var directory = Files.createTempDirectory("jcef-file");
+        try {
+            var sink = RollingFileCefSink.builder(directory.resolve("events.log"))
+                .bufferSize(96)
+                .bufferCount(2)
+                .fsyncPolicy(RollingFileCefSink.FsyncPolicy.everyBatch())
+                .build();
+            sink.write(TestSupport.event(0));
+            sink.write(TestSupport.event(1));
+            Assertions.assertEquals(0, sink.getForceCount());
+            // buffers are full
+            sink.write(TestSupport.event(2));
+            Assertions.assertEquals(1, sink.getForceCount());
+            // buffered event and the large one
+            sink.write(TestSupport.event(3, "x".repeat(100)));
+            Assertions.assertEquals(3, sink.getForceCount());
+            sink.close();
+            Assertions.assertEquals(3, sink.getForceCount());
+
+            sink = RollingFileCefSink.builder(directory.resolve("events.log"))
+                .bufferSize(96)
+                .bufferCount(2)
+                .fsyncPolicy(RollingFileCefSink.FsyncPolicy.interval(Duration.ofHours(1)))
+                .build();
+            for (int i = 0; i < 10; i++) {
+                sink.write(TestSupport.event(i));
+            }
+            sink.flush();
+            Assertions.assertEquals(0, sink.getForceCount());
+            sink.close();
+            Assertions.assertEquals(1, sink.getForceCount());
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    private static List<String> expectedLines(int from, int to) {
+        var lines = new ArrayList<String>();
+        for (int i = from; i < to; i++) {
+            lines.add(SERIALIZER.serialize(TestSupport.event(i)));
+        }
+        return lines;
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2021-10-07T09:05:03Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SpillingCefSinkTest {
+
+    @Test
+    void eventsShouldBeSpilledAndReplayedInOrder() throws Exception {
+        var directory = Files.createTempDirectory("jcef-spill");
+        try {
+            var destination = new UnreliableSink();
+            var sink = SpillingCefSink.builder(destination, CefJournal.builder(directory).open())
+                .retryInterval(Duration.ZERO)
+                .replayBatchSize(2)
+                .build();
+
+            sink.write(TestSupport.event(0));
+            sink.flush();
+            sink.write(TestSupport.event(1));
+
+            destination.available = false;
+            sink.flush();
+            Assertions.assertTrue(sink.isSpilling());
+            for (int i = 2; i < 6; i++) {
+                sink.write(TestSupport.event(i));
+            }
+            sink.flush();
+            Assertions.assertEquals(5, sink.getSpilledCount());
+
+            destination.available = true;
+            sink.flush();
+            Assertions.assertFalse(sink.isSpilling());
+            Assertions.assertEquals(5, sink.getReplayedCount());
+
+            sink.write(TestSupport.event(6));
+            sink.close();
+
+            var expected = new ArrayList<CefEvent>();
+            for (int i = 0; i < 7; i++) {
+                expected.add(TestSupport.event(i));
+            }
+            Assertions.assertEquals(expected, destination.delivered);
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void eventsLeftInJournalShouldBeReplayedAfterRestart() throws Exception {
+        var directory = Files.createTempDirectory("jcef-spill");
+        try {
+            var destination = new UnreliableSink();
+            destination.available = false;
+            var sink = SpillingCefSink.builder(destination, CefJournal.builder(directory).open())
+                .build();
+            sink.write(TestSupport.event(0));
+            sink.write(TestSupport.event(1));
+            sink.close();
+            Assertions.assertTrue(destination.delivered.isEmpty());
+
+            destination.available = true;
+            sink = SpillingCefSink.builder(destination, CefJournal.builder(directory).open())
+                .build();
+            Assertions.assertTrue(sink.isSpilling());
+            sink.write(TestSupport.event(2));
+            sink.flush();
+
+            Assertions.assertEquals(
+                List.of(TestSupport.event(0), TestSupport.event(1), TestSupport.event(2)),
+                destination.delivered);
+            sink.close();
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void replayedEventsShouldBeEqualToWrittenOnes() throws Exception {
+        var directory = Files.createTempDirectory("jcef-spill");
+        try {
+            var destination = new UnreliableSink();
+            destination.available = false;
+            var sink = SpillingCefSink.builder(destination, CefJournal.builder(directory).open())
+                .retryInterval(Duration.ZERO)
+                .build();
+            var event = CefEvent.builder()
+                .device(Device.builder().vendor("i\\Platform").product("USO").version("1").build())
+                .eventId(EventId.of("100", "a|b"))
+                .severity(5)
+                .extension(Extension.builder()
+                    .add("msg", "C:\\new\\r\\=x")
+                    .add("custom=key", "line\nbreak")
+                    .add("cnt", 7)
+                    .addIp("src", new byte[] {10, 0, 0, 1})
+                    .build())
+                .build();
+            sink.write(event);
+
+            destination.available = true;
+            sink.flush();
+            sink.close();
+            Assertions.assertEquals(List.of(event), destination.delivered);
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void replayShouldStopAtRecordWhichCannotBeParsed() throws Exception {
+        var directory = Files.createTempDirectory("jcef-spill");
+        try {
+            var rejected = TestSupport.event(1);
+            var parser = new CefParser() {
+                @Override
+                public CefEvent parse(ByteBuffer line) {
+                    var event = super.parse(line);
+                    if (event.equals(rejected)) {
+                        throw new IllegalArgumentException("Rejected");
+                    }
+                    return event;
+                }
+            };
+            var destination = new UnreliableSink();
+            destination.available = false;
+            var sink = SpillingCefSink.builder(destination, CefJournal.builder(directory).open())
+                .parser(parser)
+                .retryInterval(Duration.ZERO)
+                .replayBatchSize(2)
+                .build();
+            for (int i = 0; i < 3; i++) {
+                sink.write(TestSupport.event(i));
+            }
+
+            destination.available = true;
+            var e = Assertions.assertThrows(IOException.class, sink::flush);
+            Assertions.assertTrue(e.getCause() instanceof IllegalArgumentException);
+            Assertions.assertTrue(sink.isSpilling());
+            Assertions.assertEquals(1, sink.getReplayedCount());
+            Assertions.assertEquals(List.of(TestSupport.event(0)), destination.delivered);
+            Assertions.assertThrows(IOException.class, sink::close);
+
+            try (var journal = CefJournal.builder(directory).open()) {
+                Assertions.assertEquals(2, journal.getPendingCount());
+            }
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * Delivers written events on flush while available.
+     */
+    private static class UnreliableSink implements CefEventSink {
+
+        private final List<CefEvent> batch = new ArrayList<>();
+        private final List<CefEvent> delivered = new ArrayList<>();
+        private boolean available = true;
+
+        @Override
+        public void write(CefEvent event) throws IOException {
+            if (!available) {
+                throw new IOException("Destination is unavailable");
+            }
+            batch.add(event);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!available) {
+                batch.clear();
+                throw new IOException("Destination is unavailable");
+            }
+            delivered.addAll(batch);
+            batch.clear();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.spodin.v.jcef;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -51,4 +53,117 @@ public class StdCefSerializerTest {
             "CEF:0|iPlatform|USO|1|some_event|This event has been occurred|10|",
             SERIALIZER.serialize(event));
     }
+
+    @Test
+    void serializeToShouldAppendSameOutputAsSerialize() {
+        var event = CefEvent.builder()
+            .device(Device.builder().vendor("i|Platform").product("USO").version("1").build())
+            .eventId(EventId.of("some_event", "This event has been occurred"))
+            .extension(Extension.builder().add("msg", "a=b\nc").add("source", "my_server").build())
+            .severity(10)
+            .build();
+
+        var out = new StringBuilder("prefix ");
+        new StdCefSerializer().serializeTo(event, out);
+
+        Assertions.assertEquals("prefix " + SERIALIZER.serialize(event), out.toString());
+        Assertions.assertEquals(
+            "prefix CEF:0|i\\|Platform|USO|1|some_event|This event has been occurred|10|msg=a\\=b\\nc source=my_server",
+            out.toString());
+    }
+
+    @Test
+    void serializeToShouldRestoreBuilderOnInvalidEvent() {
+        var event = CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+            .eventId(EventId.of("some_event", "This event has been occurred"))
+            .extension(Extension.builder().add("invalid key", "value").build())
+            .severity(10)
+            .build();
+
+        var out = new StringBuilder("prefix ");
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new StdCefSerializer().serializeTo(event, out));
+        Assertions.assertEquals("prefix ", out.toString());
+    }
+
+    @Test
+    void serializeToByteBufferShouldWriteUtf8() {
+        var event = CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+            .eventId(EventId.of("some_event", "\u0421\u043e\u0431\u044b\u0442\u0438\u0435 \ud83d\ude00"))
+            .extension(Extension.builder().add("msg", "\u20ac=1").build())
+            .severity(10)
+            .build();
+        var expected = SERIALIZER.serialize(event).getBytes(StandardCharsets.UTF_8);
+
+        for (var out : new ByteBuffer[]{ByteBuffer.allocate(256), ByteBuffer.allocateDirect(256)}) {
+            Assertions.assertTrue(new StdCefSerializer().serializeTo(event, out));
+
+            var actual = new byte[out.flip().remaining()];
+            out.get(actual);
+            Assertions.assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void serializeToByteBufferShouldReportOverflow() {
+        var event = CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+            .eventId(EventId.of("some_event", "This event has been occurred"))
+            .severity(10)
+            .build();
+
+        var out = ByteBuffer.allocate(32).put((byte) 'x');
+
+        Assertions.assertFalse(new StdCefSerializer().serializeTo(event, out));
+        Assertions.assertEquals(1, out.position());
+    }
+
+    @Test
+    void cachedPrefixShouldProduceSameOutput() {
+        var cache = new CefPrefixCache(2);
+        var serializer = new StdCefSerializer(cache);
+        var device = Device.builder().vendor("i|Platform").product("USO").version("1").build();
+
+        for (int i = 0; i < 10; i++) {
+            var event = CefEvent.builder()
+                .device(device)
+                .eventId(EventId.of("event_" + (i % 3), "This event has been occurred"))
+                .extension(Extension.builder().add("cnt", String.valueOf(i)).build())
+                .severity(10)
+                .build();
+
+            var expected = SERIALIZER.serialize(event);
+            Assertions.assertEquals(expected, serializer.serialize(event));
+
+            var out = ByteBuffer.allocate(256);
+            Assertions.assertTrue(serializer.serializeTo(event, out));
+            Assertions.assertEquals(expected,
+                new String(out.array(), 0, out.position(), StandardCharsets.UTF_8));
+        }
+
+        Assertions.assertEquals(20, cache.getHits() + cache.getMisses());
+        Assertions.assertTrue(cache.getEvictions() > 0);
+        Assertions.assertTrue(cache.size() <= 2);
+    }
+
+    @Test
+    void typedExtensionValuesShouldBeSerialized() {
+        var event = CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+            .eventId(EventId.of("some_event", "This event has been occurred"))
+            .extension(Extension.builder()
+                .addIp("src", new byte[]{10, 91, (byte) 161, 67})
+                .add("spt", 8080)
+                .addTimestamp("rt", 1642504073000L)
+                .build())
+            .severity(10)
+            .build();
+
+        Assertions.assertEquals(
+            "CEF:0|iPlatform|USO|1|some_event|This event has been occurred|10|src=10.91.161.67 spt=8080 rt=1642504073000",
+            SERIALIZER.serialize(event));
+    }
 }
@@ -0,0 +1,40 @@
+package com.spodin.v.jcef;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class StringUtilsTest {
+
+    @Test
+    void valuesWithoutSpecialCharactersShouldBeReturnedAsIs() {
+        var value = "nothing to escape here";
+
+        Assertions.assertSame(value, StringUtils.escapeField(value));
+        Assertions.assertSame(value, StringUtils.escapeExtensionValue(value));
+        Assertions.assertSame("key", StringUtils.escapeExtensionKey("key"));
+    }
+
+    @Test
+    void fieldShouldBeEscaped() {
+        Assertions.assertEquals("a\\|b\\\\c\\|", StringUtils.escapeField("a|b\\c|"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> StringUtils.escapeField("a|b\nc"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> StringUtils.escapeField("a\r"));
+    }
+
+    @Test
+    void extensionKeyShouldBeEscaped() {
+        Assertions.assertEquals("a\\=b\\=", StringUtils.escapeExtensionKey("a=b="));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> StringUtils.escapeExtensionKey("a=b c"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> StringUtils.escapeExtensionKey("a\tb"));
+    }
+
+    @Test
+    void extensionValueShouldBeEscaped() {
+        Assertions.assertEquals("a\\=b c\\nd\\r", StringUtils.escapeExtensionValue("a=b c\nd\r"));
+        Assertions.assertEquals("C:\\\\new\\\\\\=", StringUtils.escapeExtensionValue("C:\\new\\="));
+    }
+}
@@ -0,0 +1,133 @@
+package com.spodin.v.jcef;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SyslogCefSerializerTest {
+
+    private static final CefSerializer<String> SERIALIZER = new StdCefSerializer();
+
+    @Test
+    void headerShouldBeRefreshedWhenSecondChanges() {
+        var clock = new MutableClock(Instant.parse("2022-01-18T11:07:53.250Z"), ZoneOffset.UTC);
+        var serializer = SyslogCefSerializer.builder().hostname("host").clock(clock).build();
+        var event = event("msg", "line\nbreak");
+
+        Assertions.assertEquals("Jan 18 11:07:53 host " + SERIALIZER.serialize(event),
+            serializer.serialize(event));
+
+        clock.advance(Duration.ofMillis(700));
+        Assertions.assertEquals("Jan 18 11:07:53 host " + SERIALIZER.serialize(event),
+            serializer.serialize(event));
+
+        clock.advance(Duration.ofMillis(50));
+        Assertions.assertEquals("Jan 18 11:07:54 host " + SERIALIZER.serialize(event),
+            serializer.serialize(event));
+
+        clock.advance(Duration.ofDays(-10));
+        Assertions.assertEquals("Jan  8 11:07:54 host " + SERIALIZER.serialize(event),
+            serializer.serialize(event));
+    }
+
+    @Test
+    void timestampShouldBeFormattedAccordingToFormat() {
+        var clock = new MutableClock(Instant.parse("2021-10-07T09:05:03.007Z"),
+            ZoneOffset.ofHours(3));
+        var event = event("msg", "value");
+
+        var millis = SyslogCefSerializer.builder().hostname("host").clock(clock)
+            .timestampFormat(SyslogCefSerializer.TimestampFormat.RFC_3164_MILLIS).build();
+        Assertions.assertEquals("Oct  7 12:05:03.007 host " + SERIALIZER.serialize(event),
+            millis.serialize(event));
+
+        var rfc5424 = SyslogCefSerializer.builder().hostname("host").clock(clock)
+            .timestampFormat(SyslogCefSerializer.TimestampFormat.RFC_5424).build();
+        Assertions.assertEquals(
+            "2021-10-07T12:05:03.007+03:00 host " + SERIALIZER.serialize(event),
+            rfc5424.serialize(event));
+
+        clock.advance(Duration.ofMillis(993));
+        Assertions.assertEquals(
+            "2021-10-07T12:05:04.000+03:00 host " + SERIALIZER.serialize(event),
+            rfc5424.serialize(event));
+    }
+
+    @Test
+    void bufferOutputShouldMatchStringOutput() {
+        var clock = new MutableClock(Instant.parse("2021-10-07T09:05:03.123Z"), ZoneOffset.UTC);
+        var event = event("msg", "\u00e9v\u00e9nement=1");
+        for (var delegate : List.<CefSerializer<String>>of(SERIALIZER, e -> "custom")) {
+            var serializer = SyslogCefSerializer.builder()
+                .serializer(delegate)
+                .timestampFormat(SyslogCefSerializer.TimestampFormat.RFC_3164_MILLIS)
+                .hostname("host")
+                .clock(clock)
+                .build();
+            var expected = serializer.serialize(event).getBytes(StandardCharsets.UTF_8);
+
+            var buffer = ByteBuffer.allocateDirect(256);
+            buffer.put((byte) '>');
+            Assertions.assertTrue(serializer.serializeTo(event, buffer));
+            var actual = new byte[buffer.flip().remaining() - 1];
+            buffer.position(1).get(actual);
+            Assertions.assertArrayEquals(expected, actual);
+
+            var small = ByteBuffer.allocate(expected.length - 1);
+            Assertions.assertFalse(serializer.serializeTo(event, small));
+            Assertions.assertEquals(0, small.position());
+        }
+    }
+
+    @Test
+    void hostnameWithSpacesShouldBeRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> SyslogCefSerializer.builder().hostname("my host").build());
+    }
+
+    private static CefEvent event(String key, String value) {
+        return CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+            .eventId(EventId.of("some_event", "This event has been occurred"))
+            .severity("High")
+            .extension(Extension.builder().add(key, value).build())
+            .build();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private final ZoneId zone;
+        private Instant instant;
+
+        MutableClock(Instant instant, ZoneId zone) {
+            this.instant = instant;
+            this.zone = zone;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.spodin.v.jcef;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+public class SyslogCefSinkTest {
+
+    private static final Clock CLOCK =
+        Clock.fixed(Instant.parse("2021-10-07T09:05:03Z"), ZoneOffset.UTC);
+
+    private static final CefSerializer<String> SERIALIZER = new StdCefSerializer();
+
+    @Test
+    void eventsShouldBeBatchedWithOctetCountingOverTcp() throws Exception {
+        try (var server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            var sink = SyslogCefSink.tcp("127.0.0.1", server.getLocalPort())
+                .hostname("host").facility(4).clock(CLOCK).build();
+
+            var first = event("10", "\u00e9v\u00e9nement");
+            var second = event("Low", "second");
+            sink.write(first);
+            sink.write(second);
+            Assertions.assertFalse(sink.isConnected());
+
+            sink.close();
+            String expectedFirst = "<34>Oct  7 09:05:03 host " + SERIALIZER.serialize(first);
+            String expectedSecond = "<38>Oct  7 09:05:03 host " + SERIALIZER.serialize(second);
+            Assertions.assertEquals(
+                utf8Length(expectedFirst) + " " + expectedFirst
+                    + utf8Length(expectedSecond) + " " + expectedSecond,
+                readAll(server));
+        }
+    }
+
+    @Test
+    void eventShouldBeSentAsDatagramOverUdp() throws Exception {
+        try (var receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            receiver.setSoTimeout(5000);
+            var event = event("Medium", "name");
+            try (var sink = SyslogCefSink.udp("127.0.0.1", receiver.getLocalPort())
+                .hostname("host").clock(CLOCK).build()) {
+                sink.write(event);
+            }
+
+            var packet = new DatagramPacket(new byte[1024], 1024);
+            receiver.receive(packet);
+            Assertions.assertEquals("<12>Oct  7 09:05:03 host " + SERIALIZER.serialize(event),
+                new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_16)
+    void eventsShouldBeNewlineFramedOverUnixSocket() throws Exception {
+        var directory = Files.createTempDirectory("jcef");
+        var path = directory.resolve("syslog.sock");
+        try (var server = openUnixServer(path)) {
+
+            var event = event("7", "name", "line\nbreak");
+            var sink = SyslogCefSink.unix(path)
+                .framing(SyslogCefSink.Framing.NEWLINE).hostname("host").clock(CLOCK).build();
+            sink.write(event);
+            sink.write(event);
+            sink.close();
+
+            String expected = "<11>Oct  7 09:05:03 host " + SERIALIZER.serialize(event) + "\n";
+            try (var client = server.accept()) {
+                Assertions.assertEquals(expected + expected, readAll(client));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void batchShouldBeKeptUntilReconnectedAfterBackoff() throws Exception {
+        int port;
+        try (var probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = probe.getLocalPort();
+        }
+
+        var sink = SyslogCefSink.tcp("127.0.0.1", port)
+            .hostname("host").clock(CLOCK)
+            .reconnectBackoff(Duration.ofMillis(200), Duration.ofSeconds(1))
+            .build();
+        var event = event("5", "name");
+        sink.write(event);
+
+        Assertions.assertThrows(IOException.class, sink::flush);
+        var backoff = Assertions.assertThrows(IOException.class, sink::flush);
+        Assertions.assertTrue(backoff.getMessage().startsWith("Not connected"));
+
+        try (var server = new ServerSocket()) {
+            server.setReuseAddress(true);
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            Thread.sleep(250);
+
+            sink.flush();
+            Assertions.assertTrue(sink.isConnected());
+            sink.close();
+
+            String expected = "<12>Oct  7 09:05:03 host " + SERIALIZER.serialize(event);
+            Assertions.assertEquals(utf8Length(expected) + " " + expected, readAll(server));
+        }
+    }
+
+    @Test
+    void tooLargeEventShouldBeRejected() {
+        var sink = SyslogCefSink.udp("127.0.0.1", 514).hostname("host").maxMessageSize(64).build();
+        Assertions.assertThrows(IOException.class, () -> sink.write(event("5", "x".repeat(64))));
+        Assertions.assertFalse(sink.isConnected());
+    }
+
+    @Test
+    void invalidParametersShouldBeRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> SyslogCefSink.tcp("localhost", 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> SyslogCefSink.tcp("localhost", 514).facility(24).build());
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> SyslogCefSink.tcp("localhost", 514).hostname("my host").build());
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> SyslogCefSink.tcp("localhost", 514).maxMessageSize(1024).batchSize(1024).build());
+    }
+
+    private static CefEvent event(String severity, String name) {
+        return event(severity, name, "a=b");
+    }
+
+    private static CefEvent event(String severity, String name, String message) {
+        return CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+            .eventId(EventId.of("some_event", name))
+            .severity(severity)
+            .extension(Extension.builder().add("msg", message).build())
+            .build();
+    }
+
+    /**
+     * Opens server channel bound to the Unix domain socket path through reflection, since its API
+     * is not available before JDK 16.
+     */
+    private static ServerSocketChannel openUnixServer(Path path) throws Exception {
+        var server = (ServerSocketChannel) ServerSocketChannel.class
+            .getMethod("open", ProtocolFamily.class)
+            .invoke(null, StandardProtocolFamily.valueOf("UNIX"));
+        try {
+            server.bind((SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                .getMethod("of", Path.class)
+                .invoke(null, path));
+            return server;
+        } catch (Exception e) {
+            server.close();
+            throw e;
+        }
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static String readAll(ServerSocket server) throws IOException {
+        try (var socket = server.accept()) {
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String readAll(SocketChannel channel) throws IOException {
+        var out = new ByteArrayOutputStream();
+        var buffer = ByteBuffer.allocate(1024);
+        while (channel.read(buffer) >= 0) {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,34 @@
+package com.spodin.v.jcef;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    static CefEvent event(int number) {
+        return event(number, "a=b");
+    }
+
+    static CefEvent event(int number, String message) {
+        return CefEvent.builder()
+            .device(Device.builder().vendor("iPlatform").product("USO").version("1").build())
+            .eventId(EventId.of("some_event", "Event " + number))
+            .severity(number % 11)
+            .extension(Extension.builder().add("cnt", number).add("msg", message).build())
+            .build();
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}